@@ -21,28 +21,50 @@
 */
 package org.jboss.as.controller.client;
 
+import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.util.concurrent.TimeUnit;
 
+import org.jboss.as.protocol.mgmt.ManagementConnectionPool;
 import org.jboss.as.protocol.mgmt.ManagementRequestConnectionStrategy;
 
 /**
+ * A {@link ModelControllerClient} that connects to a remote address.  Connections are kept open in a
+ * {@link ManagementConnectionPool} and reused by later requests until they have been idle for the idle timeout.
  *
  * @author <a href="kabir.khan@jboss.com">Kabir Khan</a>
  * @version $Revision: 1.1 $
  */
 public class EstablishConnectionModelControllerClient extends AbstractModelControllerClient {
-    private static final long CONNECTION_TIMEOUT = TimeUnit.SECONDS.toMillis(5L);
-    private final InetAddress address;
-    private final int port;
+    private static final int CONNECTION_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(5L);
+    private static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.SECONDS.toMillis(60L);
+    private static final int DEFAULT_MAX_CONNECTIONS = 4;
+    private final ManagementConnectionPool pool;
 
     public EstablishConnectionModelControllerClient(InetAddress address, int port) {
-        this.address = address;
-        this.port = port;
+        this(address, port, DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * Create a new client.
+     *
+     * @param address the address to connect to
+     * @param port the port to connect to
+     * @param idleTimeout the time, in milliseconds, after which an unused connection is closed
+     * @param maxConnections the maximum number of connections to keep open
+     */
+    public EstablishConnectionModelControllerClient(InetAddress address, int port, long idleTimeout, int maxConnections) {
+        pool = new ManagementConnectionPool(new InetSocketAddress(address, port), CONNECTION_TIMEOUT, idleTimeout, maxConnections, executorService, threadFactory);
     }
 
     ManagementRequestConnectionStrategy getConnectionStrategy() {
-        return new ManagementRequestConnectionStrategy.EstablishConnectingStrategy(address, port, CONNECTION_TIMEOUT, executorService, threadFactory);
+        return new ManagementRequestConnectionStrategy.PooledConnectionStrategy(pool);
     }
 
+    @Override
+    public void close() throws IOException {
+        pool.close();
+        super.close();
+    }
 }
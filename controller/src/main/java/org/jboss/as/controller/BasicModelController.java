@@ -33,6 +33,7 @@ import org.jboss.as.controller.operations.validation.ParameterValidator;
 import org.jboss.as.controller.persistence.ConfigurationPersistenceException;
 import org.jboss.as.controller.persistence.ConfigurationPersister;
 import org.jboss.as.controller.persistence.ConfigurationPersisterProvider;
+import org.jboss.as.controller.persistence.OperationJournal;
 import org.jboss.as.controller.registry.ModelNodeRegistration;
 import org.jboss.as.controller.registry.OperationEntry;
 import org.jboss.dmr.ModelNode;
@@ -54,6 +55,7 @@ import java.util.NoSuchElementException;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -84,12 +86,26 @@ public class BasicModelController extends AbstractModelController<OperationContr
     private final Lock writeLock = new ReentrantLock(true);
     private final ModelNodeRegistration registry;
     private final ModelNode model;
+    /** Immutable view of {@link #model}, or {@code null} if it must be rebuilt. Updated while holding the model monitor */
+    private final AtomicReference<ModelSnapshot> snapshot = new AtomicReference<ModelSnapshot>();
+    /** The version of the last published snapshot. Guarded by the model monitor */
+    private long modelVersion;
     private final ConfigurationPersister configurationPersister;
-    private final ModelProvider modelSource = new ModelProvider() {
+    private final ModelProvider modelSource = new CopyOnWriteModelProvider() {
         @Override
         public ModelNode getModel() {
             return BasicModelController.this.model;
         }
+
+        @Override
+        public ModelSnapshot getSnapshot() {
+            return getModelSnapshot();
+        }
+
+        @Override
+        public void publish(final ModelSnapshot base, final ModelSnapshot updated) {
+            publishModelSnapshot(base, updated);
+        }
     };
     private final OperationContextFactory contextFactory = new OperationContextFactory() {
         @Override
@@ -319,9 +335,14 @@ public class BasicModelController extends AbstractModelController<OperationContr
             subModel = new ModelNode();
         } else if (operationHandler instanceof ModelQueryOperationHandler) {
             // or model update operation handler...
-            final ModelNode model = modelSource.getModel();
-            synchronized (model) {
-                subModel = address.navigate(model, false).clone();
+            if (modelSource instanceof CopyOnWriteModelProvider) {
+                // No locking; only the addressed part of the immutable snapshot is copied
+                subModel = ((CopyOnWriteModelProvider) modelSource).getSnapshot().navigate(address).clone();
+            } else {
+                final ModelNode model = modelSource.getModel();
+                synchronized (model) {
+                    subModel = address.navigate(model, false).clone();
+                }
             }
         } else {
             subModel = null;
@@ -350,6 +371,24 @@ public class BasicModelController extends AbstractModelController<OperationContr
         }
     }
 
+    /**
+     * Records an operation that updated the model with the configuration persister, if the persister is an
+     * {@link OperationJournal}. Called before {@link #persistConfiguration(ModelNode, ConfigurationPersisterProvider)}.
+     *
+     * @param operation the operation
+     * @param configurationPersisterFactory factory for the configuration persister
+     */
+    protected void journalOperation(final Operation operation, final ConfigurationPersisterProvider configurationPersisterFactory) {
+        final ConfigurationPersister configurationPersister = configurationPersisterFactory.getConfigurationPersister();
+        if (configurationPersister instanceof OperationJournal) {
+            try {
+                ((OperationJournal) configurationPersister).append(operation.getOperation(), operation.getInputStreams().isEmpty());
+            } catch (final ConfigurationPersistenceException e) {
+                log.warnf(e, "Failed to record configuration change: %s", e);
+            }
+        }
+    }
+
     /**
      * Registers {@link OperationHandler}s for operations that require
      * access to controller internals not meant to be exposed via an
@@ -364,7 +403,7 @@ public class BasicModelController extends AbstractModelController<OperationContr
         if (configurationPersister != null) {
             // Ugly. We register a handler for reading the config as xml to avoid leaking internals
             // via the ModelController or OperationContext interfaces.
-            XmlMarshallingHandler handler = new XmlMarshallingHandler(configurationPersister, model);
+            XmlMarshallingHandler handler = new XmlMarshallingHandler(configurationPersister, modelSource);
             this.registry.registerOperationHandler(CommonDescriptions.READ_CONFIG_AS_XML, handler, handler, false, OperationEntry.EntryType.PRIVATE);
         }
     }
@@ -402,23 +441,111 @@ public class BasicModelController extends AbstractModelController<OperationContr
             final PathAddress address, final OperationControllerContext operationControllerContext) throws OperationFailedException {
         final OperationResult result = operationHandler.execute(operationHandlerContext, operation.getOperation(), resultHandler);
         if (operationHandler instanceof ModelUpdateOperationHandler) {
-            final ModelNode model = operationControllerContext.getModelProvider().getModel();
+            final ModelProvider modelProvider = operationControllerContext.getModelProvider();
+            final ModelNode model = modelProvider.getModel();
+            synchronized (model) {
+                final ModelNode subModel = operationHandler instanceof ModelRemoveOperationHandler ? null : operationHandlerContext.getSubModel();
+                updateModel(modelProvider, address, subModel);
+                journalOperation(operation, operationControllerContext.getConfigurationPersisterProvider());
+                persistConfiguration(modelProvider.getModel(), operationControllerContext.getConfigurationPersisterProvider());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces or removes the submodel at the given address in the model of the given provider. If the
+     * provider is a {@link CopyOnWriteModelProvider} the change is published as a new snapshot, otherwise
+     * the provider's model is modified in place.
+     *
+     * @param modelProvider the provider of the model to update
+     * @param address the address of the submodel
+     * @param subModel the new submodel, or {@code null} if the submodel should be removed
+     */
+    protected static void updateModel(final ModelProvider modelProvider, final PathAddress address, final ModelNode subModel) {
+        if (modelProvider instanceof CopyOnWriteModelProvider) {
+            final CopyOnWriteModelProvider cowProvider = (CopyOnWriteModelProvider) modelProvider;
+            final ModelSnapshot base = cowProvider.getSnapshot();
+            cowProvider.publish(base, subModel == null ? base.remove(address) : base.write(address, subModel));
+        } else {
+            final ModelNode model = modelProvider.getModel();
             synchronized (model) {
-                if (operationHandler instanceof ModelRemoveOperationHandler) {
+                if (subModel == null) {
                     address.remove(model);
                 } else {
-                    address.navigate(model, true).set(operationHandlerContext.getSubModel());
+                    address.navigate(model, true).set(subModel);
                 }
-                persistConfiguration(model, operationControllerContext.getConfigurationPersisterProvider());
             }
         }
-        return result;
+    }
+
+    /**
+     * Gets an immutable snapshot of the current model. Reading the snapshot requires no locking, and the
+     * snapshot is not affected by later updates.
+     *
+     * @return the snapshot. Will not return {@code null}
+     */
+    protected ModelSnapshot getModelSnapshot() {
+        ModelSnapshot current = snapshot.get();
+        if (current == null) {
+            synchronized (model) {
+                current = snapshot.get();
+                if (current == null) {
+                    current = ModelSnapshot.create(model, ++modelVersion);
+                    snapshot.set(current);
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Applies the changes between {@code base} and {@code updated} to the model and makes {@code updated} the
+     * current snapshot. Callers must hold the controller's write lock.
+     *
+     * @param base the snapshot the update was derived from
+     * @param updated the updated snapshot
+     */
+    protected void publishModelSnapshot(final ModelSnapshot base, final ModelSnapshot updated) {
+        if (updated == base) {
+            return;
+        }
+        synchronized (model) {
+            for (ModelSnapshot.Change change : updated.getChangesSince(base)) {
+                change.applyTo(model);
+            }
+            final ModelSnapshot published = updated.detach();
+            if (published.getVersion() > modelVersion && snapshot.compareAndSet(base, published)) {
+                modelVersion = published.getVersion();
+            } else {
+                // Someone changed the model behind our back; rebuild on next read
+                snapshot.set(null);
+            }
+        }
+    }
+
+    /**
+     * Discards the current snapshot so it is rebuilt from the model on the next read. Must be called by
+     * subclasses that modify the node returned by {@link #getModel()} directly, once the operation
+     * infrastructure may have read the model.
+     */
+    protected void invalidateModelSnapshot() {
+        synchronized (model) {
+            snapshot.set(null);
+        }
     }
 
     protected ModelNodeRegistration getRegistry() {
         return registry;
     }
 
+    /**
+     * Gets the mutable model. Callers that modify it must hold the model monitor and then
+     * {@link #invalidateModelSnapshot() invalidate the snapshot}; readers should prefer
+     * {@link #getModelSnapshot()}.
+     *
+     * @return the model
+     */
     protected ModelNode getModel() {
         return model;
     }
@@ -466,11 +593,20 @@ public class BasicModelController extends AbstractModelController<OperationContr
 
         private final String[] EMPTY = new String[0];
         private final ConfigurationPersister configPersister;
-        private final ModelNode model;
+        private final ModelProvider modelProvider;
 
         public XmlMarshallingHandler(final ConfigurationPersister configPersister, final ModelNode model) {
+            this(configPersister, new ModelProvider() {
+                @Override
+                public ModelNode getModel() {
+                    return model;
+                }
+            });
+        }
+
+        public XmlMarshallingHandler(final ConfigurationPersister configPersister, final ModelProvider modelProvider) {
             this.configPersister  = configPersister;
-            this.model = model;
+            this.modelProvider = modelProvider;
         }
 
         @Override
@@ -484,6 +620,12 @@ public class BasicModelController extends AbstractModelController<OperationContr
                 final ByteArrayOutputStream baos = new ByteArrayOutputStream();
                 try {
                     BufferedOutputStream output = new BufferedOutputStream(baos);
+                    final ModelNode model;
+                    if (modelProvider instanceof CopyOnWriteModelProvider) {
+                        model = ((CopyOnWriteModelProvider) modelProvider).getSnapshot().getModel().clone();
+                    } else {
+                        model = modelProvider.getModel();
+                    }
                     configPersister.marshallAsXml(model, output);
                     output.close();
                     baos.close();
@@ -528,7 +670,7 @@ public class BasicModelController extends AbstractModelController<OperationContr
         }
     }
 
-    protected class MultiStepOperationController implements ModelProvider, OperationContextFactory, ConfigurationPersisterProvider {
+    protected class MultiStepOperationController implements CopyOnWriteModelProvider, OperationContextFactory, ConfigurationPersisterProvider {
 
         private final ParameterValidator stepsValidator = new ModelTypeValidator(ModelType.LIST);
 
@@ -558,8 +700,10 @@ public class BasicModelController extends AbstractModelController<OperationContr
         protected ModelNode overallFailure;
         /** Provides the model the overall operation should read and/or update */
         protected final ModelProvider modelSource;
-        /** Our clone of the model provided by modelSource -- steps read or modify this */
-        protected final ModelNode localModel;
+        /** Snapshot of the model provided by modelSource when this operation started */
+        protected final ModelSnapshot baseSnapshot;
+        /** Our copy-on-write view of the model -- steps read or modify this */
+        protected ModelSnapshot localSnapshot;
         /** Flag indicating a step has modified the model */
         protected boolean modelUpdated;
         /** Index of the operation currently being executed */
@@ -665,7 +809,8 @@ public class BasicModelController extends AbstractModelController<OperationContr
                     || !operationNode.get(OPERATION_HEADERS).hasDefined(ROLLBACK_ON_RUNTIME_FAILURE)
                     || operationNode.get(OPERATION_HEADERS, ROLLBACK_ON_RUNTIME_FAILURE).asBoolean());
             this.modelSource = modelProvider;
-            this.localModel = this.modelSource.getModel().clone();
+            this.baseSnapshot = snapshotOf(this.modelSource);
+            this.localSnapshot = baseSnapshot;
             this.injectedConfigPersisterProvider = injectedConfigPersisterProvider;
             this.injectedOperationControllerContext = injectedOperationControllerContext;
             // Ensure the outcome and result fields come first for each result
@@ -758,12 +903,38 @@ public class BasicModelController extends AbstractModelController<OperationContr
         protected void updateModelAndPersist() {
             final ModelNode model = modelSource.getModel();
             synchronized (model) {
-                model.set(localModel);
-                BasicModelController.this.persistConfiguration(model, injectedConfigPersisterProvider);
+                commitLocalModel();
+                BasicModelController.this.journalOperation(operation, injectedConfigPersisterProvider);
+                BasicModelController.this.persistConfiguration(modelSource.getModel(), injectedConfigPersisterProvider);
             }
 
         }
 
+        /**
+         * Applies the changes the steps made to our local model to the model provided by modelSource.
+         */
+        protected void commitLocalModel() {
+            if (modelSource instanceof CopyOnWriteModelProvider) {
+                ((CopyOnWriteModelProvider) modelSource).publish(baseSnapshot, localSnapshot);
+            } else {
+                final ModelNode model = modelSource.getModel();
+                synchronized (model) {
+                    for (ModelSnapshot.Change change : localSnapshot.getChangesSince(baseSnapshot)) {
+                        change.applyTo(model);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gets the model as modified by the steps executed so far.
+         *
+         * @return the protected local model
+         */
+        protected ModelNode getLocalModel() {
+            return localSnapshot.getModel();
+        }
+
         protected final String getStepKey(int id) {
             return "step-" + (id + 1);
         }
@@ -969,11 +1140,39 @@ public class BasicModelController extends AbstractModelController<OperationContr
             return BasicModelController.this.contextFactory.getOperationContext(modelSource, address, operationHandler, executionContext);
         }
 
-        // ------------------ ModelProvider
+        // ------------------ CopyOnWriteModelProvider
 
         @Override
         public ModelNode getModel() {
-            return localModel;
+            return localSnapshot.getModel();
+        }
+
+        @Override
+        public ModelSnapshot getSnapshot() {
+            return localSnapshot;
+        }
+
+        @Override
+        public void publish(final ModelSnapshot base, final ModelSnapshot updated) {
+            if (base == localSnapshot) {
+                localSnapshot = updated;
+            } else {
+                ModelSnapshot current = localSnapshot;
+                for (ModelSnapshot.Change change : updated.getChangesSince(base)) {
+                    current = change.applyTo(current);
+                }
+                localSnapshot = current;
+            }
+        }
+    }
+
+    private static ModelSnapshot snapshotOf(final ModelProvider modelProvider) {
+        if (modelProvider instanceof CopyOnWriteModelProvider) {
+            return ((CopyOnWriteModelProvider) modelProvider).getSnapshot();
+        }
+        final ModelNode model = modelProvider.getModel();
+        synchronized (model) {
+            return ModelSnapshot.create(model, 0);
         }
     }
 
@@ -0,0 +1,45 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller;
+
+/**
+ * A {@link ModelProvider} whose model can be read through immutable {@link ModelSnapshot}s and which is
+ * updated by publishing new snapshots rather than by modifying the model in place.
+ */
+public interface CopyOnWriteModelProvider extends ModelProvider {
+
+    /**
+     * Gets the current snapshot of the model. Does not block.
+     *
+     * @return the snapshot. Will not return {@code null}
+     */
+    ModelSnapshot getSnapshot();
+
+    /**
+     * Publishes an updated snapshot. The caller is responsible for excluding concurrent writers.
+     *
+     * @param base the snapshot {@code updated} was derived from, typically obtained from {@link #getSnapshot()}
+     * @param updated the updated snapshot
+     */
+    void publish(ModelSnapshot base, ModelSnapshot updated);
+}
@@ -0,0 +1,266 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+
+/**
+ * An immutable, versioned view of a model.
+ * <p>
+ * The model held by a snapshot is {@link ModelNode#protect() protected} and is never modified. Updates are made
+ * with {@link #write(PathAddress, ModelNode)} and {@link #remove(PathAddress)}, which return a new snapshot that
+ * copies only the nodes along the updated path and shares every other node with this snapshot. Readers can
+ * therefore hold on to a snapshot without any locking, while writers publish new snapshots.
+ * </p>
+ * <p>
+ * Each derived snapshot remembers the snapshot it was derived from, so the list of changes between two snapshots
+ * can be {@link #getChangesSince(ModelSnapshot) replayed} against a mutable model. Call {@link #detach()} before
+ * publishing a snapshot for long term use so the history can be collected.
+ * </p>
+ */
+public final class ModelSnapshot {
+
+    private final long version;
+    private final ModelNode model;
+    private final ModelSnapshot previous;
+    private final Change change;
+
+    private ModelSnapshot(final long version, final ModelNode model, final ModelSnapshot previous, final Change change) {
+        this.version = version;
+        this.model = model;
+        this.previous = previous;
+        this.change = change;
+    }
+
+    /**
+     * Creates a snapshot from a copy of the given model.
+     *
+     * @param model the model. Cannot be {@code null}
+     * @param version the version to assign to the snapshot
+     * @return the snapshot
+     */
+    public static ModelSnapshot create(final ModelNode model, final long version) {
+        final ModelNode copy = model.clone();
+        copy.protect();
+        return new ModelSnapshot(version, copy, null, null);
+    }
+
+    /**
+     * Gets the version of this snapshot. Each update increments the version by one.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the model. The returned node is protected and cannot be modified; callers that need to
+     * modify it must {@link ModelNode#clone() clone} it.
+     *
+     * @return the model. Will not be {@code null}
+     */
+    public ModelNode getModel() {
+        return model;
+    }
+
+    /**
+     * Navigate to the submodel at the given address.
+     *
+     * @param address the address
+     * @return the protected submodel
+     * @throws NoSuchElementException if the model contains no such element
+     */
+    public ModelNode navigate(final PathAddress address) throws NoSuchElementException {
+        return address.navigate(model, false);
+    }
+
+    /**
+     * Creates a new snapshot in which the submodel at the given address is replaced with a copy of {@code subModel}.
+     * As with {@link PathAddress#navigate(ModelNode, boolean) PathAddress.navigate(model, true)}, all ancestors of the
+     * address must already exist.
+     *
+     * @param address the address of the submodel
+     * @param subModel the new submodel
+     * @return the new snapshot
+     * @throws NoSuchElementException if an ancestor of the address does not exist
+     */
+    public ModelSnapshot write(final PathAddress address, final ModelNode subModel) throws NoSuchElementException {
+        // The copy is shared by the new model and the recorded change; both only read it once it is protected
+        final ModelNode value = subModel.clone();
+        final ModelNode updated = address.size() == 0 ? value : copyPath(model, address, 0, value);
+        updated.protect();
+        return new ModelSnapshot(version + 1, updated, this, new Change(address, value));
+    }
+
+    /**
+     * Creates a new snapshot from which the submodel at the given address has been removed.
+     *
+     * @param address the address of the submodel
+     * @return the new snapshot
+     * @throws NoSuchElementException if an ancestor of the address does not exist
+     */
+    public ModelSnapshot remove(final PathAddress address) throws NoSuchElementException {
+        if (address.size() == 0) {
+            throw new IllegalArgumentException("Cannot remove the root of the model");
+        }
+        final ModelNode updated = copyPath(model, address, 0, null);
+        updated.protect();
+        return new ModelSnapshot(version + 1, updated, this, new Change(address, null));
+    }
+
+    /**
+     * Gets a snapshot with the same model and version as this one but without any record of the snapshots it was
+     * derived from.
+     *
+     * @return the detached snapshot
+     */
+    public ModelSnapshot detach() {
+        return previous == null ? this : new ModelSnapshot(version, model, null, null);
+    }
+
+    /**
+     * Gets the changes that were applied to {@code base} to derive this snapshot, in the order they were applied.
+     *
+     * @param base the snapshot this one was derived from
+     * @return the changes. Will not be {@code null}
+     * @throws IllegalArgumentException if this snapshot was not derived from {@code base}
+     */
+    public List<Change> getChangesSince(final ModelSnapshot base) {
+        final List<Change> changes = new ArrayList<Change>();
+        ModelSnapshot current = this;
+        while (current != base) {
+            if (current.previous == null) {
+                throw new IllegalArgumentException("Snapshot " + version + " was not derived from snapshot " + base.version);
+            }
+            changes.add(current.change);
+            current = current.previous;
+        }
+        Collections.reverse(changes);
+        return changes;
+    }
+
+    private static ModelNode copyPath(final ModelNode node, final PathAddress address, final int index, final ModelNode value) {
+        final PathElement element = address.getElement(index);
+        final ModelNode children = node.require(element.getKey());
+        final ModelNode updatedChildren;
+        if (index == address.size() - 1) {
+            if (value == null && !children.has(element.getValue())) {
+                return node;
+            }
+            updatedChildren = copyReplacing(children, element.getValue(), value);
+        } else {
+            final ModelNode child = children.require(element.getValue());
+            updatedChildren = copyReplacing(children, element.getValue(), copyPath(child, address, index + 1, value));
+        }
+        return copyReplacing(node, element.getKey(), updatedChildren);
+    }
+
+    /**
+     * Creates a copy of an object node, preserving key order, in which the child under {@code name} is replaced
+     * by {@code replacement}, or dropped if {@code replacement} is {@code null}. Other children are shared.
+     */
+    private static ModelNode copyReplacing(final ModelNode node, final String name, final ModelNode replacement) {
+        final ModelNode copy = new ModelNode();
+        boolean found = false;
+        if (node.getType() == ModelType.OBJECT) {
+            for (String key : node.keys()) {
+                if (key.equals(name)) {
+                    found = true;
+                    if (replacement != null) {
+                        copy.get(key).set(replacement);
+                    }
+                } else {
+                    copy.get(key).set(node.get(key));
+                }
+            }
+        }
+        if (!found && replacement != null) {
+            copy.get(name).set(replacement);
+        }
+        if (!copy.isDefined()) {
+            copy.setEmptyObject();
+        }
+        return copy;
+    }
+
+    /**
+     * A single change recorded between two snapshots.
+     */
+    public static final class Change {
+        private final PathAddress address;
+        private final ModelNode subModel;
+
+        private Change(final PathAddress address, final ModelNode subModel) {
+            this.address = address;
+            this.subModel = subModel;
+        }
+
+        /**
+         * Gets the address of the changed submodel.
+         *
+         * @return the address
+         */
+        public PathAddress getAddress() {
+            return address;
+        }
+
+        /**
+         * Gets whether the submodel was removed.
+         *
+         * @return {@code true} if the change was a removal
+         */
+        public boolean isRemove() {
+            return subModel == null;
+        }
+
+        /**
+         * Applies this change to the given mutable model.
+         *
+         * @param model the model to update
+         */
+        public void applyTo(final ModelNode model) {
+            if (subModel == null) {
+                address.remove(model);
+            } else {
+                address.navigate(model, true).set(subModel.clone());
+            }
+        }
+
+        /**
+         * Applies this change to the given snapshot.
+         *
+         * @param snapshot the snapshot to update
+         * @return the updated snapshot
+         */
+        public ModelSnapshot applyTo(final ModelSnapshot snapshot) {
+            return subModel == null ? snapshot.remove(address) : snapshot.write(address, subModel);
+        }
+    }
+}
@@ -81,6 +81,9 @@ public class OperationContextImpl implements OperationContext {
 
     @Override
     public ModelNode getSubModel(PathAddress address) throws IllegalArgumentException {
+        if (modelProvider instanceof CopyOnWriteModelProvider) {
+            return ((CopyOnWriteModelProvider) modelProvider).getSnapshot().navigate(address).clone();
+        }
         ModelNode model = modelProvider.getModel();
         return address.navigate(model, false).clone();
     }
@@ -22,6 +22,7 @@
 
 package org.jboss.as.controller.persistence;
 
+import java.io.File;
 import java.util.List;
 
 import javax.xml.namespace.QName;
@@ -58,11 +59,23 @@ public class BackupXmlConfigurationPersister extends XmlConfigurationPersister {
 
     @Override
     public void store(final ModelNode model) throws ConfigurationPersistenceException {
+        final File mainFile = configurationFile.getMainFile();
+        final File temp = writeTempFile(model, mainFile);
         configurationFile.backup();
-        store(model, configurationFile.getMainFile());
+        try {
+            replaceFile(temp, mainFile);
+        } catch (ConfigurationPersistenceException e) {
+            configurationFile.restoreLast();
+            throw e;
+        }
         configurationFile.fileWritten();
     }
 
+    @Override
+    File getStoreFile() {
+        return configurationFile.getMainFile();
+    }
+
     @Override
     public String snapshot() throws ConfigurationPersistenceException {
         return configurationFile.snapshot();
@@ -0,0 +1,250 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller.persistence;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.dmr.ModelNode;
+import org.jboss.logging.Logger;
+import org.jboss.staxmapper.XMLElementWriter;
+
+/**
+ * A configuration persister which acknowledges {@link #store(ModelNode)} as soon as the model has been recorded in
+ * memory and writes it to its delegate in the background. Any further stores that arrive before the background
+ * write starts are coalesced, so a burst of changes results in a single write per interval.
+ * <p>
+ * {@link #flush()} writes any pending model synchronously. Pending changes are also flushed by
+ * {@link #shutdown()}, before a {@link #snapshot()} is taken, and from a JVM shutdown hook. Services which may be
+ * started again with the same persister should only flush it when they stop, since a persister which has been shut
+ * down writes every later store synchronously.
+ * </p>
+ */
+public class CoalescingConfigurationPersister implements ExtensibleConfigurationPersister {
+
+    /**
+     * System property holding the interval, in milliseconds, between background writes of the configuration.
+     * If the property is not set, or is not positive, changes are written synchronously.
+     */
+    public static final String STORE_INTERVAL_PROPERTY = "jboss.config.store.interval";
+
+    private static final Logger log = Logger.getLogger("org.jboss.as.controller");
+
+    private final ExtensibleConfigurationPersister delegate;
+    private final long interval;
+    private final ScheduledExecutorService executor;
+    private final Thread shutdownHook;
+    /** Serializes writes to the delegate */
+    private final Object writeLock = new Object();
+
+    /** The latest model not yet written. Guarded by this */
+    private ModelNode pending;
+    /** Whether a background write has been scheduled. Guarded by this */
+    private boolean scheduled;
+    /** Guarded by this */
+    private boolean shutdown;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param delegate the persister that performs the writes
+     * @param interval the minimum delay between a change and the background write of it
+     * @param unit the unit of {@code interval}
+     */
+    public CoalescingConfigurationPersister(final ExtensibleConfigurationPersister delegate, final long interval, final TimeUnit unit) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate is null");
+        }
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        this.delegate = delegate;
+        this.interval = unit.toMillis(interval);
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "Configuration Persister");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor = executor;
+        this.shutdownHook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writePending();
+            }
+        }, "Configuration Persister Shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Wraps the given persister in a {@code CoalescingConfigurationPersister} if the
+     * {@link #STORE_INTERVAL_PROPERTY} system property is set to a positive value.
+     *
+     * @param persister the persister
+     * @return the wrapped persister, or {@code persister} itself if changes should be written synchronously
+     */
+    public static ExtensibleConfigurationPersister wrapIfConfigured(final ExtensibleConfigurationPersister persister) {
+        final String value = System.getProperty(STORE_INTERVAL_PROPERTY);
+        if (value != null) {
+            try {
+                final long interval = Long.parseLong(value.trim());
+                if (interval > 0) {
+                    return new CoalescingConfigurationPersister(persister, interval, TimeUnit.MILLISECONDS);
+                }
+            } catch (NumberFormatException e) {
+                log.warnf("Ignoring invalid value %s for %s", value, STORE_INTERVAL_PROPERTY);
+            }
+        }
+        return persister;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void store(final ModelNode model) throws ConfigurationPersistenceException {
+        final ModelNode copy = model.clone();
+        synchronized (this) {
+            if (shutdown) {
+                pending = null;
+            } else {
+                pending = copy;
+                if (!scheduled) {
+                    scheduled = true;
+                    executor.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            writePending();
+                        }
+                    }, interval, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+        }
+        // We've been shut down; fall back to a synchronous write
+        synchronized (writeLock) {
+            delegate.store(copy);
+        }
+    }
+
+    /**
+     * Synchronously writes any model that has been stored but not yet written.
+     *
+     * @throws ConfigurationPersistenceException if the write fails
+     */
+    public void flush() throws ConfigurationPersistenceException {
+        synchronized (writeLock) {
+            final ModelNode model = takePending();
+            if (model != null) {
+                delegate.store(model);
+            }
+        }
+    }
+
+    /**
+     * Flushes any pending changes and stops the background writer. Later stores are written synchronously, so this
+     * is only meant for a persister which will not be used again.
+     */
+    public void shutdown() {
+        writePending();
+        synchronized (this) {
+            shutdown = true;
+        }
+        executor.shutdown();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ignored) {
+            // the JVM is already shutting down
+        }
+    }
+
+    private synchronized ModelNode takePending() {
+        final ModelNode model = pending;
+        pending = null;
+        scheduled = false;
+        return model;
+    }
+
+    private void writePending() {
+        try {
+            flush();
+        } catch (ConfigurationPersistenceException e) {
+            log.warnf(e, "Failed to persist configuration change: %s", e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void marshallAsXml(final ModelNode model, final OutputStream output) throws ConfigurationPersistenceException {
+        delegate.marshallAsXml(model, output);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<ModelNode> load() throws ConfigurationPersistenceException {
+        return delegate.load();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void successfulBoot() throws ConfigurationPersistenceException {
+        flush();
+        delegate.successfulBoot();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String snapshot() throws ConfigurationPersistenceException {
+        flush();
+        return delegate.snapshot();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public SnapshotInfo listSnapshots() {
+        return delegate.listSnapshots();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void deleteSnapshot(final String name) {
+        delegate.deleteSnapshot(name);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void registerSubsystemWriter(final String name, final XMLElementWriter<SubsystemMarshallingContext> writer) {
+        delegate.registerSubsystemWriter(name, writer);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void registerSubsystemDeploymentWriter(final String name, final XMLElementWriter<SubsystemMarshallingContext> writer) {
+        delegate.registerSubsystemDeploymentWriter(name, writer);
+    }
+}
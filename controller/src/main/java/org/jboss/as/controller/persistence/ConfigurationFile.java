@@ -311,7 +311,13 @@ public class ConfigurationFile {
             return;
         }
         try {
-            moveFile(mainFile, getVersionedFile(mainFile));
+            // The main file is never moved so it is never missing; the new content replaces it atomically. The copy
+            // of it made by fileWritten() becomes the backup, so only the first store after boot needs a copy.
+            final File versioned = getVersionedFile(mainFile);
+            final File last = addSuffixToFile(new File(currentHistory, mainFile.getName()), LAST);
+            if (!last.renameTo(versioned)) {
+                copyFile(mainFile, versioned);
+            }
             int seq = sequence.get();
             if (seq > CURRENT_HISTORY_LENGTH) {
                 File delete = getVersionedFile(mainFile, seq - CURRENT_HISTORY_LENGTH);
@@ -324,6 +330,24 @@ public class ConfigurationFile {
         }
     }
 
+    /**
+     * Puts back the history copy of the main file which {@link #backup()} turned into the latest version, after the
+     * main file could not be replaced.  Failures are ignored so that the failure to store is the one reported; the
+     * versioned copy still holds the content.
+     */
+    void restoreLast() {
+        if (!doneBootup.get()) {
+            return;
+        }
+        final File last = addSuffixToFile(new File(currentHistory, mainFile.getName()), LAST);
+        if (!last.exists()) {
+            try {
+                copyFile(getVersionedFile(mainFile, sequence.get()), last);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
     void fileWritten() throws ConfigurationPersistenceException {
         if (!doneBootup.get()) {
             return;
@@ -337,16 +361,6 @@ public class ConfigurationFile {
     }
 
 
-    private void moveFile(final File file, final File backup) throws IOException {
-
-        if (backup.exists())
-            backup.delete();
-
-        if (!file.renameTo(backup) && file.exists()) {
-            copyFile(file, backup);
-        }
-    }
-
     String snapshot() throws ConfigurationPersistenceException {
         String name = getTimeStamp(new Date()) + mainFileName;
         File snapshot = new File(snapshotsDirectory, name);
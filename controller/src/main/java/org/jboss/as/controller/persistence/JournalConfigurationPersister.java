@@ -0,0 +1,639 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.dmr.ModelNode;
+import org.jboss.logging.Logger;
+import org.jboss.staxmapper.XMLElementWriter;
+
+/**
+ * A configuration persister which, once the server has booted, appends each operation that changes the model to a
+ * binary journal instead of rewriting the XML configuration file.
+ * <p>
+ * Every {@code compactionThreshold} operations the journal is compacted in the background: a new journal is started
+ * for the operations that follow, and a copy of the model is written to the XML file through the delegate, parsed
+ * back into boot operations, and saved as a binary snapshot, after which the older journals are deleted. Booting
+ * then reads the snapshot and the journals that follow it, which avoids parsing the XML. The snapshot records the
+ * size and timestamp of the XML file it was produced from, so a configuration file edited by hand is always loaded
+ * from XML.
+ * </p>
+ * <p>
+ * An operation that cannot be replayed, for example one that carried input streams, cannot be journaled, so the
+ * store that follows it waits for a compaction to complete. The XML file is otherwise only up to date as of the
+ * last compaction; use {@link #compact(ModelNode)} to write it on demand. Journaling is disabled if the delegate
+ * loads from a different file than it stores to.
+ * </p>
+ */
+public class JournalConfigurationPersister implements ExtensibleConfigurationPersister, OperationJournal {
+
+    /**
+     * System property which, if set to {@code true}, enables the journal for the standalone server configuration.
+     */
+    public static final String JOURNAL_PROPERTY = "jboss.config.journal";
+
+    private static final Logger log = Logger.getLogger("org.jboss.as.controller");
+
+    private static final int SNAPSHOT_MAGIC = 0x4a42534f;
+    private static final String SNAPSHOT_NAME = "snapshot.dmr";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".dmr";
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 100;
+
+    private final XmlConfigurationPersister delegate;
+    private final File journalDir;
+    private final File snapshotFile;
+    private final int compactionThreshold;
+    private final Executor executor;
+    private final boolean enabled;
+
+    /** Guarded by this */
+    private DataOutputStream journal;
+    /** Guarded by this */
+    private FileOutputStream journalStream;
+    /**
+     * The generation of the journal being appended to. Its operations follow on from those of the snapshot of the
+     * same generation, or from the older journals if that snapshot has not been written yet. Guarded by this
+     */
+    private long generation;
+    /** The number of operations journaled since the last compaction started. Guarded by this */
+    private int entries;
+    /** Whether the journal no longer describes the model. Guarded by this */
+    private boolean compactionRequired;
+    /** The running or last compaction. Guarded by this */
+    private FutureTask<Void> compaction;
+    /** Guarded by this */
+    private boolean booted;
+    /** The model passed to the last store. Guarded by this */
+    private ModelNode lastModel;
+
+    /**
+     * Construct a new instance using the default compaction threshold.
+     *
+     * @param delegate the persister for the XML configuration file
+     * @param journalDir the directory for the snapshot and journal files
+     */
+    public JournalConfigurationPersister(final XmlConfigurationPersister delegate, final File journalDir) {
+        this(delegate, journalDir, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Construct a new instance which compacts the journal on a thread of its own.
+     *
+     * @param delegate the persister for the XML configuration file
+     * @param journalDir the directory for the snapshot and journal files
+     * @param compactionThreshold the number of journaled operations after which the journal is compacted
+     */
+    public JournalConfigurationPersister(final XmlConfigurationPersister delegate, final File journalDir, final int compactionThreshold) {
+        this(delegate, journalDir, compactionThreshold, createExecutor());
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param delegate the persister for the XML configuration file
+     * @param journalDir the directory for the snapshot and journal files
+     * @param compactionThreshold the number of journaled operations after which the journal is compacted
+     * @param executor the executor which compacts the journal; it must run tasks one at a time
+     */
+    public JournalConfigurationPersister(final XmlConfigurationPersister delegate, final File journalDir, final int compactionThreshold, final Executor executor) {
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("compactionThreshold must be positive");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor is null");
+        }
+        this.delegate = delegate;
+        this.journalDir = journalDir;
+        this.snapshotFile = new File(journalDir, SNAPSHOT_NAME);
+        this.compactionThreshold = compactionThreshold;
+        this.executor = executor;
+        this.enabled = delegate.getConfigurationFile().getAbsoluteFile().equals(delegate.getStoreFile().getAbsoluteFile());
+        if (!enabled) {
+            log.debugf("Configuration journal disabled as %s is not the file configuration changes are written to", delegate.getConfigurationFile());
+        }
+    }
+
+    private static Executor createExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "Configuration Journal Compactor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized List<ModelNode> load() throws ConfigurationPersistenceException {
+        if (!enabled) {
+            return delegate.load();
+        }
+        final SortedMap<Long, File> journals = listJournals();
+        final Snapshot snapshot = readSnapshot();
+        entries = 0;
+        if (snapshot != null && snapshot.operations != null) {
+            final List<ModelNode> operations = snapshot.operations;
+            generation = snapshot.generation;
+            for (Map.Entry<Long, File> journal : journals.tailMap(Long.valueOf(snapshot.generation)).entrySet()) {
+                entries += readJournal(journal.getValue(), operations);
+                generation = journal.getKey().longValue();
+            }
+            deleteJournals(journals, snapshot.generation);
+            log.debugf("Loaded configuration from %s and %d journaled operations", snapshotFile, Integer.valueOf(entries));
+            return operations;
+        }
+        final List<ModelNode> loaded = delegate.load();
+        final List<ModelNode> journaled = new ArrayList<ModelNode>();
+        if (snapshot != null && !journals.isEmpty() && journals.lastKey().longValue() > snapshot.generation) {
+            // A compaction wrote the XML file but did not get to replace the snapshot, so the newest journal
+            // follows on from the XML file
+            generation = journals.lastKey().longValue();
+            entries = readJournal(journals.get(journals.lastKey()), journaled);
+        } else {
+            generation = journals.isEmpty() ? 0L : journals.lastKey().longValue() + 1L;
+        }
+        writeSnapshot(loaded, generation);
+        deleteJournals(journals, generation);
+        loaded.addAll(journaled);
+        return loaded;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void append(final ModelNode operation, final boolean replayable) throws ConfigurationPersistenceException {
+        if (!enabled || !booted || compactionRequired) {
+            return;
+        }
+        if (!replayable) {
+            compactionRequired = true;
+            return;
+        }
+        try {
+            final byte[] bytes = toBytes(operation);
+            final DataOutputStream journal = getJournal();
+            journal.writeInt(bytes.length);
+            journal.write(bytes);
+            journal.flush();
+            journalStream.getFD().sync();
+            entries++;
+        } catch (IOException e) {
+            compactionRequired = true;
+            throw new ConfigurationPersistenceException("Failed to append operation to " + getJournalFile(generation), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Once booted, the model is only written if the journal is due for compaction, which normally happens in the
+     * background. Like {@link #append(ModelNode, boolean)}, this must be called while holding the monitor of the
+     * model, so that the journal and the model agree when a compaction starts.
+     * </p>
+     */
+    @Override
+    public void store(final ModelNode model) throws ConfigurationPersistenceException {
+        synchronized (this) {
+            lastModel = model;
+            if (!enabled || !booted) {
+                delegate.store(model);
+                return;
+            }
+            if (!compactionRequired) {
+                if (entries >= compactionThreshold && (compaction == null || compaction.isDone())) {
+                    startCompaction(model);
+                }
+                return;
+            }
+        }
+        // The journal is missing an operation, so nothing is durable until the XML file is written
+        compact(model);
+    }
+
+    /**
+     * Writes the XML configuration file for the given model, replaces the snapshot with the operations needed to
+     * rebuild it, and deletes the journals it replaces. Waits for any compaction already running to finish first.
+     * Must be called while holding the monitor of the model.
+     *
+     * @param model the current model
+     * @throws ConfigurationPersistenceException if the configuration could not be written
+     */
+    public void compact(final ModelNode model) throws ConfigurationPersistenceException {
+        if (!enabled) {
+            delegate.store(model);
+            return;
+        }
+        FutureTask<Void> task;
+        for (;;) {
+            final FutureTask<Void> running;
+            synchronized (this) {
+                if (compaction == null || compaction.isDone()) {
+                    task = startCompaction(model);
+                    break;
+                }
+                running = compaction;
+            }
+            try {
+                await(running);
+            } catch (ConfigurationPersistenceException ignored) {
+                // already logged; ours may yet succeed
+            }
+        }
+        try {
+            await(task);
+        } catch (ConfigurationPersistenceException e) {
+            synchronized (this) {
+                // The operations which led here are in neither the journal nor the XML file
+                compactionRequired = true;
+            }
+            throw e;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void successfulBoot() throws ConfigurationPersistenceException {
+        delegate.successfulBoot();
+        synchronized (this) {
+            booted = true;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String snapshot() throws ConfigurationPersistenceException {
+        final ModelNode model;
+        final FutureTask<Void> running;
+        synchronized (this) {
+            model = entries > 0 || compactionRequired ? lastModel : null;
+            running = compaction;
+        }
+        if (model != null) {
+            // The model is updated while holding its monitor, which is taken before ours in store()
+            synchronized (model) {
+                compact(model);
+            }
+        } else if (running != null) {
+            await(running);
+        }
+        return delegate.snapshot();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void marshallAsXml(final ModelNode model, final OutputStream output) throws ConfigurationPersistenceException {
+        delegate.marshallAsXml(model, output);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public SnapshotInfo listSnapshots() {
+        return delegate.listSnapshots();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void deleteSnapshot(final String name) {
+        delegate.deleteSnapshot(name);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void registerSubsystemWriter(final String name, final XMLElementWriter<SubsystemMarshallingContext> writer) {
+        delegate.registerSubsystemWriter(name, writer);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void registerSubsystemDeploymentWriter(final String name, final XMLElementWriter<SubsystemMarshallingContext> writer) {
+        delegate.registerSubsystemDeploymentWriter(name, writer);
+    }
+
+    /**
+     * Starts a new journal for the operations which follow and submits the compaction of the older ones. Must be
+     * called while holding the monitor of the model, so that the copy of the model matches the older journals.
+     */
+    private FutureTask<Void> startCompaction(final ModelNode model) {
+        assert Thread.holdsLock(this);
+        closeJournal();
+        final long target = ++generation;
+        entries = 0;
+        compactionRequired = false;
+        final ModelNode copy = model.clone();
+        final FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                try {
+                    delegate.store(copy);
+                    writeSnapshot(delegate.load(), target);
+                    deleteJournals(listJournals(), target);
+                } catch (ConfigurationPersistenceException e) {
+                    log.warnf(e, "Failed to compact configuration journal %s", journalDir);
+                    throw e;
+                }
+                return null;
+            }
+        });
+        compaction = task;
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+        return task;
+    }
+
+    private static void await(final FutureTask<Void> task) throws ConfigurationPersistenceException {
+        boolean interrupted = false;
+        try {
+            for (;;) {
+                try {
+                    task.get();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof ConfigurationPersistenceException) {
+                        throw (ConfigurationPersistenceException) cause;
+                    }
+                    throw new ConfigurationPersistenceException("Failed to compact configuration journal", cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Snapshot readSnapshot() {
+        if (!snapshotFile.exists()) {
+            return null;
+        }
+        final File xmlFile = delegate.getConfigurationFile();
+        try {
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
+            try {
+                if (input.readInt() != SNAPSHOT_MAGIC) {
+                    log.warnf("Ignoring %s as it is not a configuration snapshot", snapshotFile);
+                    return null;
+                }
+                final long generation = input.readLong();
+                if (input.readLong() != xmlFile.lastModified() || input.readLong() != xmlFile.length()) {
+                    log.infof("%s has changed since %s was written; loading the configuration from XML", xmlFile, snapshotFile);
+                    return new Snapshot(generation, null);
+                }
+                final int count = input.readInt();
+                final List<ModelNode> operations = new ArrayList<ModelNode>(count);
+                for (int i = 0; i < count; i++) {
+                    final byte[] record = readRecord(input);
+                    if (record == null) {
+                        log.warnf("Ignoring truncated configuration snapshot %s", snapshotFile);
+                        return null;
+                    }
+                    operations.add(fromBytes(record));
+                }
+                return new Snapshot(generation, operations);
+            } finally {
+                safeClose(input);
+            }
+        } catch (IOException e) {
+            log.warnf(e, "Failed to read configuration snapshot %s; loading the configuration from XML", snapshotFile);
+            return null;
+        }
+    }
+
+    /**
+     * Adds the operations of a journal to the given list, dropping an incomplete record at its end.
+     *
+     * @return the number of operations read
+     */
+    private static int readJournal(final File journalFile, final List<ModelNode> operations) throws ConfigurationPersistenceException {
+        int count = 0;
+        long validLength = 0;
+        try {
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+            try {
+                byte[] record;
+                while ((record = readRecord(input)) != null) {
+                    operations.add(fromBytes(record));
+                    validLength += 4 + record.length;
+                    count++;
+                }
+            } finally {
+                safeClose(input);
+            }
+            if (validLength < journalFile.length()) {
+                // A record was only partially written; drop it so later appends follow the last good record
+                log.warnf("Discarding incomplete record at the end of %s", journalFile);
+                final RandomAccessFile raf = new RandomAccessFile(journalFile, "rw");
+                try {
+                    raf.setLength(validLength);
+                } finally {
+                    safeClose(raf);
+                }
+            }
+        } catch (IOException e) {
+            throw new ConfigurationPersistenceException("Failed to read configuration journal " + journalFile, e);
+        }
+        return count;
+    }
+
+    private void writeSnapshot(final List<ModelNode> operations, final long generation) throws ConfigurationPersistenceException {
+        final File xmlFile = delegate.getConfigurationFile();
+        final File temp = new File(journalDir, SNAPSHOT_NAME + ".tmp");
+        try {
+            mkdirs(journalDir);
+            final FileOutputStream fos = new FileOutputStream(temp);
+            try {
+                final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fos));
+                output.writeInt(SNAPSHOT_MAGIC);
+                output.writeLong(generation);
+                output.writeLong(xmlFile.lastModified());
+                output.writeLong(xmlFile.length());
+                output.writeInt(operations.size());
+                for (ModelNode operation : operations) {
+                    final byte[] bytes = toBytes(operation);
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                }
+                output.flush();
+                fos.getFD().sync();
+                output.close();
+            } finally {
+                safeClose(fos);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw new ConfigurationPersistenceException("Failed to write configuration snapshot " + snapshotFile, e);
+        }
+        delegate.replaceFile(temp, snapshotFile);
+    }
+
+    /**
+     * Lists the journal files by generation.
+     */
+    private SortedMap<Long, File> listJournals() {
+        final SortedMap<Long, File> journals = new TreeMap<Long, File>();
+        final File[] files = journalDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                final String name = file.getName();
+                if (name.startsWith(JOURNAL_PREFIX) && name.endsWith(JOURNAL_SUFFIX)) {
+                    try {
+                        journals.put(Long.valueOf(name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length())), file);
+                    } catch (NumberFormatException ignored) {
+                        // not one of ours
+                    }
+                }
+            }
+        }
+        return journals;
+    }
+
+    /**
+     * Deletes the journals older than the given generation.
+     */
+    private static void deleteJournals(final SortedMap<Long, File> journals, final long generation) {
+        for (File file : journals.headMap(Long.valueOf(generation)).values()) {
+            if (!file.delete()) {
+                log.warnf("Failed to delete configuration journal %s", file);
+            }
+        }
+    }
+
+    private File getJournalFile(final long generation) {
+        return new File(journalDir, JOURNAL_PREFIX + generation + JOURNAL_SUFFIX);
+    }
+
+    private DataOutputStream getJournal() throws IOException {
+        if (journal == null) {
+            mkdirs(journalDir);
+            journalStream = new FileOutputStream(getJournalFile(generation), true);
+            journal = new DataOutputStream(new BufferedOutputStream(journalStream));
+        }
+        return journal;
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            safeClose(journal);
+            journal = null;
+            journalStream = null;
+        }
+    }
+
+    /**
+     * Reads a length prefixed record, returning {@code null} at the end of the stream or if the record is incomplete.
+     */
+    private static byte[] readRecord(final DataInputStream input) throws IOException {
+        final int length;
+        try {
+            length = input.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        try {
+            input.readFully(bytes);
+        } catch (EOFException e) {
+            return null;
+        }
+        return bytes;
+    }
+
+    private static ModelNode fromBytes(final byte[] bytes) throws IOException {
+        final ModelNode node = new ModelNode();
+        node.readExternal(new ByteArrayInputStream(bytes));
+        return node;
+    }
+
+    private static byte[] toBytes(final ModelNode node) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        node.writeExternal(bytes);
+        return bytes.toByteArray();
+    }
+
+    private static void mkdirs(final File dir) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create directory " + dir);
+        }
+    }
+
+    private static void safeClose(final Closeable closeable) {
+        if (closeable != null) try {
+            closeable.close();
+        } catch (Throwable t) {
+            log.errorf(t, "Failed to close resource %s", closeable);
+        }
+    }
+
+    /**
+     * The header and, unless the XML file has changed since it was written, the operations of a snapshot.
+     */
+    private static final class Snapshot {
+        private final long generation;
+        private final List<ModelNode> operations;
+
+        Snapshot(final long generation, final List<ModelNode> operations) {
+            this.generation = generation;
+            this.operations = operations;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller.persistence;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Implemented by {@link ConfigurationPersister}s that record the operations that change the model, in addition to
+ * being asked to {@link ConfigurationPersister#store(ModelNode) store} the resulting model.
+ */
+public interface OperationJournal {
+
+    /**
+     * Records an operation that has been applied to the model. Called before the resulting model is stored.
+     *
+     * @param operation the operation
+     * @param replayable {@code false} if the operation cannot be executed again from its description alone,
+     *                   for example because it carried input streams
+     * @throws ConfigurationPersistenceException if the operation could not be recorded
+     */
+    void append(ModelNode operation, boolean replayable) throws ConfigurationPersistenceException;
+}
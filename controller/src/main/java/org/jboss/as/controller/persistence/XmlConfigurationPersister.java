@@ -50,6 +50,8 @@ public class XmlConfigurationPersister extends AbstractConfigurationPersister {
 
     private static final Logger log = Logger.getLogger("org.jboss.as.controller");
 
+    private static final String TEMP_SUFFIX = ".tmp";
+
     private final File fileName;
     private final QName rootElement;
     private final XMLElementReader<List<ModelNode>> rootParser;
@@ -76,19 +78,71 @@ public class XmlConfigurationPersister extends AbstractConfigurationPersister {
     }
 
     protected void store(final ModelNode model, final File file) throws ConfigurationPersistenceException {
+        replaceFile(writeTempFile(model, file), file);
+    }
+
+    /**
+     * Marshals the model to a temporary file next to {@code file} and forces it to disk.
+     *
+     * @param model the model to marshal
+     * @param file the file that will eventually be replaced by the temporary file
+     * @return the temporary file
+     * @throws ConfigurationPersistenceException if the file could not be written
+     */
+    protected File writeTempFile(final ModelNode model, final File file) throws ConfigurationPersistenceException {
+        final File temp = new File(file.getParentFile(), file.getName() + TEMP_SUFFIX);
         try {
-            final FileOutputStream fos = new FileOutputStream(file);
+            final FileOutputStream fos = new FileOutputStream(temp);
             try {
                 BufferedOutputStream output = new BufferedOutputStream(fos);
                 marshallAsXml(model, output);
+                output.flush();
+                fos.getFD().sync();
                 output.close();
                 fos.close();
             } finally {
                 safeClose(fos);
             }
         } catch (Exception e) {
+            temp.delete();
             throw new ConfigurationPersistenceException("Failed to store configuration", e);
         }
+        return temp;
+    }
+
+    /**
+     * Replaces {@code file} with {@code temp} by renaming it, so readers see either the old or the new
+     * content but never a partially written file.
+     *
+     * @param temp the fully written temporary file
+     * @param file the file to replace
+     * @throws ConfigurationPersistenceException if the file could not be replaced
+     */
+    protected void replaceFile(final File temp, final File file) throws ConfigurationPersistenceException {
+        if (!temp.renameTo(file)) {
+            // Some platforms will not rename over an existing file
+            if (!file.delete() || !temp.renameTo(file)) {
+                throw new ConfigurationPersistenceException("Failed to store configuration: could not rename " + temp + " to " + file);
+            }
+        }
+    }
+
+    /**
+     * Gets the file the configuration is {@link #load() loaded} from.
+     *
+     * @return the file
+     */
+    File getConfigurationFile() {
+        return fileName;
+    }
+
+    /**
+     * Gets the file the configuration is {@link #store(ModelNode) stored} to.
+     *
+     * @return the file
+     */
+    File getStoreFile() {
+        return fileName;
     }
 
     /** {@inheritDoc} */
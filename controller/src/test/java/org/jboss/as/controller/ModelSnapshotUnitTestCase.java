@@ -0,0 +1,124 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link ModelSnapshot}.
+ */
+public class ModelSnapshotUnitTestCase {
+
+    private static final PathAddress ADDR_A = PathAddress.pathAddress(PathElement.pathElement("subsystem", "a"));
+    private static final PathAddress ADDR_B = PathAddress.pathAddress(PathElement.pathElement("subsystem", "b"));
+    private static final PathAddress ADDR_C = PathAddress.pathAddress(PathElement.pathElement("subsystem", "c"));
+
+    @Test
+    public void testWriteDoesNotAffectOriginal() throws Exception {
+        final ModelSnapshot base = ModelSnapshot.create(createModel(), 1);
+        final ModelNode value = new ModelNode();
+        value.get("attr").set(2);
+
+        final ModelSnapshot updated = base.write(ADDR_A, value);
+
+        assertEquals(2, updated.getVersion());
+        assertEquals(2, updated.navigate(ADDR_A).get("attr").asInt());
+        assertEquals(1, base.navigate(ADDR_A).get("attr").asInt());
+        // Untouched siblings are carried over
+        assertEquals(1, updated.navigate(ADDR_B).get("attr").asInt());
+    }
+
+    @Test
+    public void testWriteCopiesValue() throws Exception {
+        final ModelSnapshot base = ModelSnapshot.create(createModel(), 1);
+        final ModelNode value = createModel();
+
+        final ModelSnapshot updated = base.write(PathAddress.EMPTY_ADDRESS, value);
+        value.get("subsystem", "a", "attr").set(2);
+
+        assertEquals(1, updated.navigate(ADDR_A).get("attr").asInt());
+        assertEquals(createModel(), updated.getModel());
+    }
+
+    @Test
+    public void testKeyOrderPreserved() throws Exception {
+        final ModelSnapshot base = ModelSnapshot.create(createModel(), 1);
+        final ModelNode value = new ModelNode();
+        value.get("attr").set(2);
+
+        final ModelSnapshot updated = base.write(ADDR_A, value).write(ADDR_C, value);
+
+        final List<String> keys = new ArrayList<String>(updated.getModel().get("subsystem").keys());
+        assertEquals("a", keys.get(0));
+        assertEquals("b", keys.get(1));
+        assertEquals("c", keys.get(2));
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        final ModelSnapshot base = ModelSnapshot.create(createModel(), 1);
+
+        final ModelSnapshot updated = base.remove(ADDR_A);
+
+        assertFalse(updated.getModel().get("subsystem").has("a"));
+        assertTrue(base.getModel().get("subsystem").has("a"));
+    }
+
+    @Test
+    public void testChangesReplay() throws Exception {
+        final ModelNode model = createModel();
+        final ModelSnapshot base = ModelSnapshot.create(model, 1);
+        final ModelNode value = new ModelNode();
+        value.get("attr").set(3);
+
+        final ModelSnapshot updated = base.write(ADDR_C, value).remove(ADDR_A);
+        final List<ModelSnapshot.Change> changes = updated.getChangesSince(base);
+        assertEquals(2, changes.size());
+        for (ModelSnapshot.Change change : changes) {
+            change.applyTo(model);
+        }
+
+        assertEquals(updated.getModel(), model);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsProtected() throws Exception {
+        final ModelSnapshot base = ModelSnapshot.create(createModel(), 1);
+        base.navigate(ADDR_A).get("attr").set(5);
+    }
+
+    private static ModelNode createModel() {
+        final ModelNode model = new ModelNode();
+        model.get("subsystem", "a", "attr").set(1);
+        model.get("subsystem", "b", "attr").set(1);
+        return model;
+    }
+}
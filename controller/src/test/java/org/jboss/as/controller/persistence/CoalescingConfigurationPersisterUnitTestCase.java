@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link CoalescingConfigurationPersister}.
+ */
+public class CoalescingConfigurationPersisterUnitTestCase {
+
+    @Test
+    public void testStoresAreCoalesced() throws Exception {
+        final RecordingPersister delegate = new RecordingPersister(1);
+        final CoalescingConfigurationPersister persister = new CoalescingConfigurationPersister(delegate, 50, TimeUnit.MILLISECONDS);
+        try {
+            persister.store(new ModelNode("a"));
+            persister.store(new ModelNode("b"));
+            persister.store(new ModelNode("c"));
+            assertTrue(delegate.written.await(10, TimeUnit.SECONDS));
+            // Give a second write the chance to happen if it was going to
+            Thread.sleep(200);
+            assertEquals(1, delegate.getStored().size());
+            assertEquals("c", delegate.getStored().get(0));
+        } finally {
+            persister.shutdown();
+        }
+    }
+
+    @Test
+    public void testStoredModelIsCopied() throws Exception {
+        final RecordingPersister delegate = new RecordingPersister(1);
+        final CoalescingConfigurationPersister persister = new CoalescingConfigurationPersister(delegate, 1, TimeUnit.HOURS);
+        try {
+            final ModelNode model = new ModelNode("a");
+            persister.store(model);
+            model.set("b");
+            persister.flush();
+            assertEquals(1, delegate.getStored().size());
+            assertEquals("a", delegate.getStored().get(0));
+        } finally {
+            persister.shutdown();
+        }
+    }
+
+    @Test
+    public void testFlushWritesPendingChanges() throws Exception {
+        final RecordingPersister delegate = new RecordingPersister(1);
+        final CoalescingConfigurationPersister persister = new CoalescingConfigurationPersister(delegate, 1, TimeUnit.HOURS);
+        try {
+            persister.store(new ModelNode("a"));
+            persister.store(new ModelNode("b"));
+            assertEquals(0, delegate.getStored().size());
+            persister.flush();
+            assertEquals(1, delegate.getStored().size());
+            assertEquals("b", delegate.getStored().get(0));
+            // Nothing left to write
+            persister.flush();
+            assertEquals(1, delegate.getStored().size());
+        } finally {
+            persister.shutdown();
+        }
+    }
+
+    @Test
+    public void testStoresAfterFlushAreStillCoalesced() throws Exception {
+        final RecordingPersister delegate = new RecordingPersister(1);
+        final CoalescingConfigurationPersister persister = new CoalescingConfigurationPersister(delegate, 1, TimeUnit.HOURS);
+        try {
+            persister.store(new ModelNode("a"));
+            persister.flush();
+            assertEquals(1, delegate.getStored().size());
+            persister.store(new ModelNode("b"));
+            assertEquals(1, delegate.getStored().size());
+        } finally {
+            persister.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdownWritesPendingChanges() throws Exception {
+        final RecordingPersister delegate = new RecordingPersister(1);
+        final CoalescingConfigurationPersister persister = new CoalescingConfigurationPersister(delegate, 1, TimeUnit.HOURS);
+        persister.store(new ModelNode("a"));
+        persister.shutdown();
+        assertEquals(1, delegate.getStored().size());
+        assertEquals("a", delegate.getStored().get(0));
+
+        // Once shut down, stores are written synchronously
+        persister.store(new ModelNode("b"));
+        assertEquals(2, delegate.getStored().size());
+        assertEquals("b", delegate.getStored().get(1));
+    }
+
+    private static final class RecordingPersister extends XmlConfigurationPersister {
+        private final List<String> stored = new ArrayList<String>();
+        private final CountDownLatch written;
+
+        RecordingPersister(final int expectedWrites) {
+            super(new File("test.xml"), null, null, null);
+            this.written = new CountDownLatch(expectedWrites);
+        }
+
+        @Override
+        public synchronized void store(final ModelNode model) throws ConfigurationPersistenceException {
+            stored.add(model.asString());
+            written.countDown();
+        }
+
+        synchronized List<String> getStored() {
+            return new ArrayList<String>(stored);
+        }
+    }
+}
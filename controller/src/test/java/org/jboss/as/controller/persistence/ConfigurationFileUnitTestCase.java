@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller.persistence;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the history kept by {@link ConfigurationFile}.
+ */
+public class ConfigurationFileUnitTestCase {
+
+    private File dir;
+    private File mainFile;
+    private File currentHistory;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("configuration", null);
+        dir.delete();
+        dir.mkdirs();
+        mainFile = new File(dir, "standalone.xml");
+        currentHistory = new File(dir, "standalone_xml_history/current");
+        write(mainFile, "one");
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    @Test
+    public void testBackupKeepsPreviousVersions() throws Exception {
+        final ConfigurationFile configurationFile = new ConfigurationFile(dir, "standalone.xml", null);
+        configurationFile.getBootFile();
+        configurationFile.successfulBoot();
+
+        store(configurationFile, "two");
+        store(configurationFile, "three");
+        store(configurationFile, "four");
+
+        assertEquals("four", read(mainFile));
+        assertEquals("one", read(new File(currentHistory, "standalone.v1.xml")));
+        assertEquals("two", read(new File(currentHistory, "standalone.v2.xml")));
+        assertEquals("three", read(new File(currentHistory, "standalone.v3.xml")));
+        assertEquals("four", read(new File(currentHistory, "standalone.last.xml")));
+    }
+
+    @Test
+    public void testFailedStoreKeepsLast() throws Exception {
+        final ConfigurationFile configurationFile = new ConfigurationFile(dir, "standalone.xml", null);
+        configurationFile.getBootFile();
+        configurationFile.successfulBoot();
+
+        store(configurationFile, "two");
+        // The main file could not be replaced
+        configurationFile.backup();
+        configurationFile.restoreLast();
+
+        assertEquals("two", read(mainFile));
+        assertEquals("two", read(new File(currentHistory, "standalone.last.xml")));
+
+        store(configurationFile, "three");
+        assertEquals("three", read(new File(currentHistory, "standalone.last.xml")));
+        assertEquals("two", read(new File(currentHistory, "standalone.v3.xml")));
+    }
+
+    /**
+     * Replaces the main file the way {@link BackupXmlConfigurationPersister} does.
+     */
+    private void store(final ConfigurationFile configurationFile, final String content) throws Exception {
+        final File temp = new File(dir, "standalone.xml.tmp");
+        write(temp, content);
+        configurationFile.backup();
+        assertEquals(true, temp.renameTo(mainFile));
+        configurationFile.fileWritten();
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        final FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static String read(final File file) throws IOException {
+        final BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            return reader.readLine();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.controller.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link JournalConfigurationPersister}.
+ */
+public class JournalConfigurationPersisterUnitTestCase {
+
+    private static final Executor DIRECT = new Executor() {
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+
+    private File dir;
+    private File xmlFile;
+    private File journalDir;
+    private final List<Runnable> tasks = new ArrayList<Runnable>();
+    private final Executor queue = new Executor() {
+        public void execute(final Runnable command) {
+            tasks.add(command);
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("journal", null);
+        dir.delete();
+        dir.mkdirs();
+        xmlFile = new File(dir, "standalone.xml");
+        journalDir = new File(dir, "journal");
+        writeLines(xmlFile, "a", "b");
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        final TestPersister xml = new TestPersister(xmlFile);
+        final JournalConfigurationPersister persister = new JournalConfigurationPersister(xml, journalDir, 10, queue);
+        final ModelNode model = boot(persister, "a", "b");
+        assertEquals(1, xml.loads);
+        apply(persister, model, "c");
+        apply(persister, model, "d");
+        assertEquals(0, xml.stores);
+        assertTrue(tasks.isEmpty());
+
+        final TestPersister reloaded = new TestPersister(xmlFile);
+        assertOperations(new JournalConfigurationPersister(reloaded, journalDir, 10, queue).load(), "a", "b", "c", "d");
+        assertEquals(0, reloaded.loads);
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws Exception {
+        final JournalConfigurationPersister persister = new JournalConfigurationPersister(new TestPersister(xmlFile), journalDir, 10, queue);
+        final ModelNode model = boot(persister, "a", "b");
+        apply(persister, model, "c");
+        final File journal = new File(journalDir, "journal-0.dmr");
+        final long length = journal.length();
+        apply(persister, model, "d");
+        // Lose the end of the last record, as a crash during the write would
+        final RandomAccessFile raf = new RandomAccessFile(journal, "rw");
+        try {
+            raf.setLength(raf.length() - 2);
+        } finally {
+            raf.close();
+        }
+
+        final JournalConfigurationPersister recovered = new JournalConfigurationPersister(new TestPersister(xmlFile), journalDir, 10, queue);
+        final ModelNode recoveredModel = boot(recovered, "a", "b", "c");
+        assertEquals(length, journal.length());
+        apply(recovered, recoveredModel, "e");
+
+        assertOperations(new JournalConfigurationPersister(new TestPersister(xmlFile), journalDir, 10, queue).load(), "a", "b", "c", "e");
+    }
+
+    @Test
+    public void testStaleSnapshotIsIgnored() throws Exception {
+        final JournalConfigurationPersister persister = new JournalConfigurationPersister(new TestPersister(xmlFile), journalDir, 10, queue);
+        final ModelNode model = boot(persister, "a", "b");
+        apply(persister, model, "c");
+
+        // Edited by hand while the server was stopped
+        writeLines(xmlFile, "x");
+
+        final TestPersister xml = new TestPersister(xmlFile);
+        assertOperations(new JournalConfigurationPersister(xml, journalDir, 10, queue).load(), "x");
+        assertEquals(1, xml.loads);
+        assertFalse(new File(journalDir, "journal-0.dmr").exists());
+
+        final TestPersister reloaded = new TestPersister(xmlFile);
+        assertOperations(new JournalConfigurationPersister(reloaded, journalDir, 10, queue).load(), "x");
+        assertEquals(0, reloaded.loads);
+    }
+
+    @Test
+    public void testCompactionRunsInBackground() throws Exception {
+        final TestPersister xml = new TestPersister(xmlFile);
+        final JournalConfigurationPersister persister = new JournalConfigurationPersister(xml, journalDir, 2, queue);
+        final ModelNode model = boot(persister, "a", "b");
+        apply(persister, model, "c");
+        apply(persister, model, "d");
+        // Due for compaction, but the store must not have written the XML
+        assertEquals(1, tasks.size());
+        assertEquals(0, xml.stores);
+        apply(persister, model, "e");
+        assertEquals(1, tasks.size());
+
+        tasks.remove(0).run();
+        assertEquals(1, xml.stores);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), readLines(xmlFile));
+        assertFalse(new File(journalDir, "journal-0.dmr").exists());
+        assertTrue(new File(journalDir, "journal-1.dmr").exists());
+
+        final TestPersister reloaded = new TestPersister(xmlFile);
+        assertOperations(new JournalConfigurationPersister(reloaded, journalDir, 2, queue).load(), "a", "b", "c", "d", "e");
+        assertEquals(0, reloaded.loads);
+    }
+
+    @Test
+    public void testReplayAfterInterruptedCompaction() throws Exception {
+        final TestPersister xml = new TestPersister(xmlFile);
+        final JournalConfigurationPersister persister = new JournalConfigurationPersister(xml, journalDir, 2, queue);
+        final ModelNode model = boot(persister, "a", "b");
+        apply(persister, model, "c");
+        apply(persister, model, "d");
+        apply(persister, model, "e");
+        // The XML file is written but the snapshot is not replaced
+        xml.failLoad = true;
+        tasks.remove(0).run();
+        assertEquals(Arrays.asList("a", "b", "c", "d"), readLines(xmlFile));
+
+        final TestPersister reloaded = new TestPersister(xmlFile);
+        assertOperations(new JournalConfigurationPersister(reloaded, journalDir, 2, queue).load(), "a", "b", "c", "d", "e");
+        assertEquals(1, reloaded.loads);
+        assertFalse(new File(journalDir, "journal-0.dmr").exists());
+        assertOperations(new JournalConfigurationPersister(new TestPersister(xmlFile), journalDir, 2, queue).load(), "a", "b", "c", "d", "e");
+    }
+
+    @Test
+    public void testOperationWhichCannotBeReplayedIsWrittenToXml() throws Exception {
+        final TestPersister xml = new TestPersister(xmlFile);
+        final JournalConfigurationPersister persister = new JournalConfigurationPersister(xml, journalDir, 10, DIRECT);
+        final ModelNode model = boot(persister, "a", "b");
+        model.add("c");
+        persister.append(new ModelNode("c"), false);
+        persister.store(model);
+        assertEquals(1, xml.stores);
+        assertEquals(Arrays.asList("a", "b", "c"), readLines(xmlFile));
+        apply(persister, model, "d");
+
+        final TestPersister reloaded = new TestPersister(xmlFile);
+        assertOperations(new JournalConfigurationPersister(reloaded, journalDir, 10, DIRECT).load(), "a", "b", "c", "d");
+        assertEquals(0, reloaded.loads);
+    }
+
+    private static ModelNode boot(final JournalConfigurationPersister persister, final String... expected) throws Exception {
+        final List<ModelNode> operations = persister.load();
+        assertOperations(operations, expected);
+        persister.successfulBoot();
+        final ModelNode model = new ModelNode();
+        for (ModelNode operation : operations) {
+            model.add(operation.asString());
+        }
+        return model;
+    }
+
+    private static void apply(final JournalConfigurationPersister persister, final ModelNode model, final String operation) throws Exception {
+        synchronized (model) {
+            model.add(operation);
+            persister.append(new ModelNode(operation), true);
+            persister.store(model);
+        }
+    }
+
+    private static void assertOperations(final List<ModelNode> operations, final String... expected) {
+        final List<String> actual = new ArrayList<String>();
+        for (ModelNode operation : operations) {
+            actual.add(operation.asString());
+        }
+        assertEquals(Arrays.asList(expected), actual);
+    }
+
+    private static void writeLines(final File file, final String... lines) throws IOException {
+        final FileWriter writer = new FileWriter(file);
+        try {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static List<String> readLines(final File file) throws IOException {
+        final List<String> lines = new ArrayList<String>();
+        final BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Stores each operation of a list model as a line of the configuration file.
+     */
+    private static final class TestPersister extends XmlConfigurationPersister {
+        private final File file;
+        private int loads;
+        private int stores;
+        private boolean failLoad;
+
+        TestPersister(final File file) {
+            super(file, null, null, null);
+            this.file = file;
+        }
+
+        @Override
+        public void store(final ModelNode model) throws ConfigurationPersistenceException {
+            stores++;
+            final List<String> lines = new ArrayList<String>();
+            for (ModelNode operation : model.asList()) {
+                lines.add(operation.asString());
+            }
+            try {
+                writeLines(file, lines.toArray(new String[lines.size()]));
+            } catch (IOException e) {
+                throw new ConfigurationPersistenceException(e);
+            }
+        }
+
+        @Override
+        public List<ModelNode> load() throws ConfigurationPersistenceException {
+            if (failLoad) {
+                throw new ConfigurationPersistenceException("Simulated crash");
+            }
+            loads++;
+            final List<ModelNode> operations = new ArrayList<ModelNode>();
+            try {
+                for (String line : readLines(file)) {
+                    operations.add(new ModelNode(line));
+                }
+            } catch (IOException e) {
+                throw new ConfigurationPersistenceException(e);
+            }
+            return operations;
+        }
+    }
+}
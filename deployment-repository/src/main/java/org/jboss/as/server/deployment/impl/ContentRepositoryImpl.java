@@ -32,28 +32,39 @@ import org.jboss.msc.service.StopContext;
 import org.jboss.vfs.VFS;
 import org.jboss.vfs.VirtualFile;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.DigestOutputStream;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Default implementation of {@link org.jboss.as.server.deployment.api.ContentRepository}.
+ * <p>
+ * Content is hashed while it is copied, with a digest per call, so any number of uploads can proceed at once.
+ * The repository keeps an index of the content it holds, built from the repository directory when it is created,
+ * so {@link #hasContent(byte[])} rarely needs to probe the file system.  Content written to the repository
+ * directory by another process, as the host controller does for the servers of a domain, is picked up the
+ * first time it is asked for.
+ * </p>
+ *
  * @author John Bailey
  */
 public class ContentRepositoryImpl implements ContentRepository, Service<ContentRepository> {
     private static final Logger log = Logger.getLogger("org.jboss.as.server.deployment");
 
     protected static final String CONTENT = "content";
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+    private static final int BUFFER_SIZE = 65536;
     private final File repoRoot;
-    protected final MessageDigest messageDigest;
+    /** The content present in the repository, keyed by the hex string of its hash */
+    private final ConcurrentMap<String, ContentEntry> index = new ConcurrentHashMap<String, ContentEntry>();
 
     // TODO: return void
     public static ContentRepositoryImpl addService(final ServiceTarget serviceTarget, final File repoRoot) {
@@ -78,47 +89,102 @@ public class ContentRepositoryImpl implements ContentRepository, Service<Content
         }
         this.repoRoot = repoRoot;
 
+        // Fail early if the digest is not available
+        createMessageDigest();
+        loadIndex();
+    }
+
+    /**
+     * Creates a new digest for hashing content.  Digests are not thread safe, so each caller needs its own.
+     *
+     * @return the digest
+     */
+    protected MessageDigest createMessageDigest() {
         try {
-            this.messageDigest = MessageDigest.getInstance("SHA-1");
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException("Cannot obtain SHA-1 " + MessageDigest.class.getSimpleName(), e);
         }
     }
 
+    private void loadIndex() {
+        final File[] partADirs = repoRoot.listFiles();
+        if (partADirs == null) {
+            return;
+        }
+        for (File partA : partADirs) {
+            if (partA.getName().length() != 2 || !partA.isDirectory()) {
+                continue;
+            }
+            final File[] partBDirs = partA.listFiles();
+            if (partBDirs == null) {
+                continue;
+            }
+            for (File partB : partBDirs) {
+                if (new File(partB, CONTENT).isFile()) {
+                    final ContentEntry entry = new ContentEntry();
+                    entry.present = true;
+                    index.put(partA.getName() + partB.getName(), entry);
+                }
+            }
+        }
+        log.debugf("Found %d items of content in repository at %s", Integer.valueOf(index.size()), repoRoot.getAbsolutePath());
+    }
+
     @Override
     public byte[] addContent(InputStream stream) throws IOException {
-        byte[] sha1Bytes = null;
-        File tmp = File.createTempFile(CONTENT, "tmp", repoRoot);
-        FileOutputStream fos = new FileOutputStream(tmp);
-        synchronized (messageDigest) {
-            messageDigest.reset();
+        final MessageDigest messageDigest = createMessageDigest();
+        final File tmp = File.createTempFile(CONTENT, "tmp", repoRoot);
+        try {
+            final FileOutputStream fos = new FileOutputStream(tmp);
             try {
-                DigestOutputStream dos = new DigestOutputStream(fos, messageDigest);
-                BufferedInputStream bis = new BufferedInputStream(stream);
-                byte[] bytes = new byte[8192];
+                final byte[] bytes = new byte[BUFFER_SIZE];
                 int read;
-                while ((read = bis.read(bytes)) > -1) {
-                    dos.write(bytes, 0, read);
+                while ((read = stream.read(bytes)) > -1) {
+                    messageDigest.update(bytes, 0, read);
+                    fos.write(bytes, 0, read);
                 }
-            }
-            finally {
+                fos.close();
+            } finally {
                 safeClose(fos);
             }
-            sha1Bytes = messageDigest.digest();
-        }
-        final File realFile = getDeploymentContentFile(sha1Bytes, true);
-        if(hasContent(sha1Bytes)) {
-            // we've already got this content
-            if (!tmp.delete()) {
+            final byte[] sha1Bytes = messageDigest.digest();
+            final String key = HashUtil.bytesToHexString(sha1Bytes);
+            for (;;) {
+                final ContentEntry entry = getOrCreateEntry(key);
+                synchronized (entry) {
+                    if (entry.removed) {
+                        // lost a race with the removal of this content; start over with a new entry
+                        continue;
+                    }
+                    final File realFile = getDeploymentContentFile(sha1Bytes, true);
+                    if (entry.present) {
+                        log.debugf("Content was already present in repository at location %s", realFile.getAbsolutePath());
+                    } else {
+                        moveTempToPermanent(tmp, realFile);
+                        entry.present = true;
+                        log.infof("Content added at location %s", realFile.getAbsolutePath());
+                    }
+                }
+                return sha1Bytes;
+            }
+        } finally {
+            if (tmp.exists() && !tmp.delete()) {
                 tmp.deleteOnExit();
             }
-            log.debugf("Content was already present in repository at location %s", realFile.getAbsolutePath());
-        } else {
-            moveTempToPermanent(tmp, realFile);
-            log.infof("Content added at location %s",realFile.getAbsolutePath());
         }
+    }
 
-        return sha1Bytes;
+    private ContentEntry getOrCreateEntry(final String key) {
+        ContentEntry entry = index.get(key);
+        if (entry == null) {
+            final ContentEntry created = new ContentEntry();
+            entry = index.putIfAbsent(key, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+        return entry;
     }
 
     @Override
@@ -130,7 +196,24 @@ public class ContentRepositoryImpl implements ContentRepository, Service<Content
 
     @Override
     public boolean hasContent(byte[] hash) {
-        return getDeploymentContentFile(hash).exists();
+        final String key = HashUtil.bytesToHexString(hash);
+        final ContentEntry entry = index.get(key);
+        if (entry != null && entry.present) {
+            return true;
+        }
+        // The content may have been written to the repository directory by someone else
+        final File file = getDeploymentContentFile(hash);
+        if (!file.exists()) {
+            return false;
+        }
+        final ContentEntry found = getOrCreateEntry(key);
+        synchronized (found) {
+            if (found.removed) {
+                return file.exists();
+            }
+            found.present = file.exists();
+            return found.present;
+        }
     }
 
     protected File getRepoRoot() {
@@ -176,21 +259,20 @@ public class ContentRepositoryImpl implements ContentRepository, Service<Content
     private void moveTempToPermanent(File tmpFile, File permanentFile) throws IOException {
 
         if (!tmpFile.renameTo(permanentFile)) {
-            FileOutputStream fos = null;
-            BufferedOutputStream bos = null;
             FileInputStream fis = null;
+            FileOutputStream fos = null;
             try {
-                fos = new FileOutputStream(permanentFile);
-                bos = new BufferedOutputStream(fos);
                 fis = new FileInputStream(tmpFile);
-                BufferedInputStream bis = new BufferedInputStream(fis);
-                byte[] bytes = new byte[8192];
-                int read;
-                while ((read = bis.read(bytes)) > -1) {
-                    bos.write(bytes, 0, read);
+                fos = new FileOutputStream(permanentFile);
+                final FileChannel in = fis.getChannel();
+                final FileChannel out = fos.getChannel();
+                final long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    position += in.transferTo(position, size - position, out);
                 }
+                fos.close();
             } finally {
-                safeClose(bos);
                 safeClose(fos);
                 safeClose(fis);
                 if (!tmpFile.delete()) {
@@ -202,9 +284,17 @@ public class ContentRepositoryImpl implements ContentRepository, Service<Content
 
     @Override
     public void removeContent(byte[] hash) {
-        File file = getDeploymentContentFile(hash, true);
-        if(!file.delete())
-            file.deleteOnExit();
+        final String key = HashUtil.bytesToHexString(hash);
+        final ContentEntry entry = getOrCreateEntry(key);
+        synchronized (entry) {
+            entry.present = false;
+            entry.removed = true;
+            index.remove(key, entry);
+            final File file = getDeploymentContentFile(hash);
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
     }
 
     protected static void safeClose(final Closeable closeable) {
@@ -231,4 +321,12 @@ public class ContentRepositoryImpl implements ContentRepository, Service<Content
     public ContentRepository getValue() throws IllegalStateException, IllegalArgumentException {
         return this;
     }
+
+    /**
+     * The state of one item of content.  Guarded by the entry itself.
+     */
+    private static final class ContentEntry {
+        private boolean present;
+        private boolean removed;
+    }
 }
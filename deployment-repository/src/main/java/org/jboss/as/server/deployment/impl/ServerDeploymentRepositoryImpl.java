@@ -83,21 +83,18 @@ public class ServerDeploymentRepositoryImpl implements ServerDeploymentRepositor
     public byte[] addExternalFileReference(File file) throws IOException {
         byte[] sha1Bytes = null;
         final String fileName = file.getAbsolutePath();
-        final MessageDigest messageDigest = contentRepository.messageDigest;
-        synchronized(messageDigest) {
-            messageDigest.reset();
-            if(! file.exists()) {
-                throw new FileNotFoundException(fileName);
-            }
-            final OutputStream os = new OutputStream() {
-                public void write(int b) throws IOException {
-                    //
-                }
-            };
-            final DigestOutputStream dos = new DigestOutputStream(os, messageDigest);
-            calculateHash(file, dos);
-            sha1Bytes = messageDigest.digest();
+        final MessageDigest messageDigest = contentRepository.createMessageDigest();
+        if(! file.exists()) {
+            throw new FileNotFoundException(fileName);
         }
+        final OutputStream nullOutput = new OutputStream() {
+            public void write(int b) throws IOException {
+                //
+            }
+        };
+        final DigestOutputStream dos = new DigestOutputStream(nullOutput, messageDigest);
+        calculateHash(file, dos);
+        sha1Bytes = messageDigest.digest();
         final File content = getExternalFileReference(sha1Bytes, true);
         final OutputStream os = new FileOutputStream(content);
         try {
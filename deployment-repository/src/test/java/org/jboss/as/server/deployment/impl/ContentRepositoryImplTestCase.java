@@ -0,0 +1,125 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server.deployment.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link ContentRepositoryImpl}.
+ */
+public class ContentRepositoryImplTestCase {
+
+    private static final byte[] CONTENT = "some deployment content".getBytes();
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = File.createTempFile("content-repository", "test");
+        if (!root.delete() || !root.mkdir()) {
+            throw new IOException("Cannot create " + root);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        delete(root);
+    }
+
+    @Test
+    public void testAddAndRemove() throws Exception {
+        final ContentRepositoryImpl repository = new ContentRepositoryImpl(root);
+        final byte[] hash = repository.addContent(new ByteArrayInputStream(CONTENT));
+        assertArrayEquals(sha1(CONTENT), hash);
+        assertTrue(repository.hasContent(hash));
+        assertTrue(repository.getDeploymentContentFile(hash).isFile());
+
+        // Adding the same content again yields the same hash
+        assertArrayEquals(hash, repository.addContent(new ByteArrayInputStream(CONTENT)));
+
+        repository.removeContent(hash);
+        assertFalse(repository.hasContent(hash));
+        assertFalse(repository.getDeploymentContentFile(hash).exists());
+
+        // Content can be added back after it was removed
+        repository.addContent(new ByteArrayInputStream(CONTENT));
+        assertTrue(repository.hasContent(hash));
+    }
+
+    @Test
+    public void testExistingContentIsIndexed() throws Exception {
+        final byte[] hash = new ContentRepositoryImpl(root).addContent(new ByteArrayInputStream(CONTENT));
+        final ContentRepositoryImpl repository = new ContentRepositoryImpl(root);
+        assertTrue(repository.hasContent(hash));
+    }
+
+    @Test
+    public void testIndexMissFallsBackToFileSystem() throws Exception {
+        final ContentRepositoryImpl repository = new ContentRepositoryImpl(root);
+        final byte[] hash = sha1(CONTENT);
+        assertFalse(repository.hasContent(hash));
+
+        // Content written to the repository directory by another process, as a host controller does
+        final File file = repository.getDeploymentContentFile(hash);
+        assertTrue(file.getParentFile().mkdirs());
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(CONTENT);
+        } finally {
+            out.close();
+        }
+
+        assertTrue(repository.hasContent(hash));
+        // Now indexed, so it stays visible without another look at the file system
+        assertTrue(repository.hasContent(hash));
+
+        repository.removeContent(hash);
+        assertFalse(repository.hasContent(hash));
+    }
+
+    private static byte[] sha1(final byte[] bytes) throws Exception {
+        return MessageDigest.getInstance("SHA-1").digest(bytes);
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
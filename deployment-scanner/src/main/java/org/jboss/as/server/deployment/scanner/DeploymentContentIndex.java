@@ -0,0 +1,216 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server.deployment.scanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.as.server.deployment.scanner.ZipCompletionScanner.NonScannableZipException;
+
+/**
+ * Incrementally maintained index of the timestamps of deployment content.
+ * <p>
+ * The children of each directory of an exploded deployment are remembered along with the directory's
+ * modification time, so a directory whose modification time has not changed is not listed again; only its files
+ * are checked. Archives that have been found to be complete are remembered by modification time and size so their
+ * central directory is not re-read until they change.
+ * </p>
+ * <p>
+ * Not thread safe; callers must hold the scan lock.
+ * </p>
+ */
+final class DeploymentContentIndex {
+
+    /**
+     * Content modified more recently than this is not trusted to be unchanged when its timestamp is unchanged, as
+     * many filesystems record modification times with a granularity of a second or more.
+     */
+    static final long TIMESTAMP_GRANULARITY = 2000;
+
+    private final Map<File, DirectoryNode> roots = new HashMap<File, DirectoryNode>();
+    private final Map<File, FileState> completeArchives = new HashMap<File, FileState>();
+    private final Set<File> used = new HashSet<File>();
+
+    /**
+     * Gets the most recent modification time of the given deployment content, including that of any file
+     * within an exploded deployment.
+     *
+     * @param deployment the deployment file or directory
+     * @return the timestamp
+     */
+    long getTimestamp(final File deployment) {
+        if (!deployment.isDirectory()) {
+            return deployment.lastModified();
+        }
+        used.add(deployment);
+        DirectoryNode node = roots.get(deployment);
+        if (node == null) {
+            node = new DirectoryNode();
+            roots.put(deployment, node);
+        }
+        return node.refresh(deployment, System.currentTimeMillis());
+    }
+
+    /**
+     * Gets the archives nested in an exploded deployment, as of the last call to {@link #getTimestamp(File)} for it.
+     *
+     * @param deployment the exploded deployment
+     * @return the archives. Will not be {@code null}
+     */
+    List<File> getNestedArchives(final File deployment) {
+        final List<File> archives = new ArrayList<File>();
+        final DirectoryNode node = roots.get(deployment);
+        if (node != null) {
+            node.collectArchives(deployment, archives);
+        }
+        return archives;
+    }
+
+    /**
+     * Checks whether an archive is completely written, consulting the result of earlier checks if the archive
+     * has not changed since.
+     *
+     * @param archive the archive
+     * @return {@code true} if the archive is complete
+     */
+    boolean isCompleteArchive(final File archive) throws IOException, NonScannableZipException {
+        final FileState state = new FileState(archive);
+        if (state.equals(completeArchives.get(archive))) {
+            used.add(archive);
+            return true;
+        }
+        final boolean complete = ZipCompletionScanner.isCompleteZip(archive);
+        if (complete && !state.isRecent()) {
+            completeArchives.put(archive, state);
+            used.add(archive);
+        } else {
+            completeArchives.remove(archive);
+        }
+        return complete;
+    }
+
+    /**
+     * Discards the state of any content not consulted since the last call to this method.
+     */
+    void purge() {
+        roots.keySet().retainAll(used);
+        completeArchives.keySet().retainAll(used);
+        used.clear();
+    }
+
+    private static final class DirectoryNode {
+        private long lastModified;
+        private String[] files;
+        private Map<String, DirectoryNode> directories;
+
+        long refresh(final File dir, final long now) {
+            final long modified = dir.lastModified();
+            if (files == null || modified != lastModified || now - modified < TIMESTAMP_GRANULARITY) {
+                list(dir);
+                lastModified = modified;
+            }
+            long latest = modified;
+            for (String name : files) {
+                final long timestamp = new File(dir, name).lastModified();
+                if (timestamp > latest) {
+                    latest = timestamp;
+                }
+            }
+            for (Map.Entry<String, DirectoryNode> entry : directories.entrySet()) {
+                final long timestamp = entry.getValue().refresh(new File(dir, entry.getKey()), now);
+                if (timestamp > latest) {
+                    latest = timestamp;
+                }
+            }
+            return latest;
+        }
+
+        private void list(final File dir) {
+            final File[] children = dir.listFiles();
+            final List<String> files = new ArrayList<String>();
+            final Map<String, DirectoryNode> previous = directories;
+            final Map<String, DirectoryNode> directories = new HashMap<String, DirectoryNode>();
+            if (children != null) {
+                for (File child : children) {
+                    final String name = child.getName();
+                    if (child.isDirectory()) {
+                        DirectoryNode node = previous == null ? null : previous.get(name);
+                        directories.put(name, node == null ? new DirectoryNode() : node);
+                    } else {
+                        files.add(name);
+                    }
+                }
+            }
+            this.files = files.toArray(new String[files.size()]);
+            this.directories = directories;
+        }
+
+        void collectArchives(final File dir, final List<File> archives) {
+            if (files == null) {
+                return;
+            }
+            for (String name : files) {
+                if (FileSystemDeploymentService.isEEArchive(name)) {
+                    archives.add(new File(dir, name));
+                }
+            }
+            for (Map.Entry<String, DirectoryNode> entry : directories.entrySet()) {
+                entry.getValue().collectArchives(new File(dir, entry.getKey()), archives);
+            }
+        }
+    }
+
+    private static final class FileState {
+        private final long lastModified;
+        private final long length;
+
+        FileState(final File file) {
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+        }
+
+        boolean isRecent() {
+            return System.currentTimeMillis() - lastModified < TIMESTAMP_GRANULARITY;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof FileState)) {
+                return false;
+            }
+            final FileState other = (FileState) obj;
+            return lastModified == other.lastModified && length == other.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (lastModified ^ (lastModified >>> 32)) * 31 + (int) length;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server.deployment.scanner;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Detects changes to the content of a deployment directory between full scans.
+ * <p>
+ * Each {@link #poll(long)} lists the deployment directory and any nested directories that are not themselves
+ * deployments, and compares the modification time and size of each entry with the previous poll. Exploded
+ * deployments are only looked into if they are being auto-deployed. Changes are attributed to the deployment
+ * they concern, so that a change to {@code foo.war.dodeploy} is a change to {@code foo.war}, and a deployment is
+ * reported as changed once it has seen no further change for the quiet period. Markers the scanner writes to
+ * report progress are ignored.
+ * </p>
+ * <p>
+ * Not thread safe; callers must hold the scan lock.
+ * </p>
+ */
+final class DeploymentDirectoryWatcher {
+
+    /** Suffixes of the markers that concern the deployment named by the rest of the marker's name */
+    private static final String[] MARKER_SUFFIXES = { FileSystemDeploymentService.DO_DEPLOY, FileSystemDeploymentService.SKIP_DEPLOY,
+            FileSystemDeploymentService.DEPLOYED, FileSystemDeploymentService.FAILED_DEPLOY, FileSystemDeploymentService.UNDEPLOYED };
+
+    private final File directory;
+    private final FileFilter filter;
+    private final DeploymentContentIndex contentIndex;
+    private final long quietPeriod;
+
+    /** The state of each entry found by the last poll, or {@code null} before the first poll */
+    private Map<File, EntryState> entries;
+    /** The time of the most recent unreported change to each deployment */
+    private final Map<File, Long> changed = new HashMap<File, Long>();
+
+    DeploymentDirectoryWatcher(final File directory, final FileFilter filter, final DeploymentContentIndex contentIndex, final long quietPeriod) {
+        this.directory = directory;
+        this.filter = filter;
+        this.contentIndex = contentIndex;
+        this.quietPeriod = quietPeriod;
+    }
+
+    /**
+     * Checks the directory for changes.
+     *
+     * @param now the current time
+     * @param explodedContent {@code true} if changes within exploded deployments are of interest
+     * @return {@code true} if this is the first poll, or if any deployment has changed and has since been left
+     *         unchanged for the quiet period
+     */
+    boolean poll(final long now, final boolean explodedContent) {
+        final Map<File, EntryState> current = new HashMap<File, EntryState>();
+        list(directory, explodedContent, current);
+        final Map<File, EntryState> previous = entries;
+        entries = current;
+        if (previous == null) {
+            return true;
+        }
+        for (Map.Entry<File, EntryState> entry : current.entrySet()) {
+            if (!entry.getValue().equals(previous.remove(entry.getKey()))) {
+                changed.put(getDeployment(entry.getKey()), Long.valueOf(now));
+            }
+        }
+        for (File removed : previous.keySet()) {
+            changed.put(getDeployment(removed), Long.valueOf(now));
+        }
+
+        boolean settled = false;
+        for (Iterator<Long> it = changed.values().iterator(); it.hasNext();) {
+            if (now - it.next().longValue() >= quietPeriod) {
+                it.remove();
+                settled = true;
+            }
+        }
+        return settled;
+    }
+
+    private void list(final File dir, final boolean explodedContent, final Map<File, EntryState> current) {
+        final File[] children = dir.listFiles(filter);
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            final String name = child.getName();
+            if (name.endsWith(FileSystemDeploymentService.DEPLOYING) || name.endsWith(FileSystemDeploymentService.UNDEPLOYING)
+                    || name.endsWith(FileSystemDeploymentService.PENDING)) {
+                continue;
+            }
+            if (child.isDirectory()) {
+                if (!FileSystemDeploymentService.isEEArchive(name)) {
+                    list(child, explodedContent, current);
+                    continue;
+                }
+                final long timestamp = explodedContent ? contentIndex.getTimestamp(child) : child.lastModified();
+                current.put(child, new EntryState(timestamp, -1));
+            } else {
+                current.put(child, new EntryState(child.lastModified(), child.length()));
+            }
+        }
+    }
+
+    private static File getDeployment(final File file) {
+        final String name = file.getName();
+        for (String suffix : MARKER_SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return new File(file.getParentFile(), name.substring(0, name.length() - suffix.length()));
+            }
+        }
+        return file;
+    }
+
+    private static final class EntryState {
+        private final long lastModified;
+        private final long length;
+
+        EntryState(final long lastModified, final long length) {
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof EntryState)) {
+                return false;
+            }
+            final EntryState other = (EntryState) obj;
+            return lastModified == other.lastModified && length == other.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (lastModified ^ (lastModified >>> 32)) * 31 + (int) length;
+        }
+    }
+}
@@ -42,6 +42,7 @@ import org.jboss.threads.JBossThreadFactory;
 
 import java.io.File;
 import java.security.AccessController;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -73,6 +74,7 @@ public class DeploymentScannerService implements Service<DeploymentScanner> {
     private final InjectedValue<ServerDeploymentRepository> deploymentRepositoryValue = new InjectedValue<ServerDeploymentRepository>();
     private final InjectedValue<ContentRepository> contentRepositoryValue = new InjectedValue<ContentRepository>();
     private final InjectedValue<ScheduledExecutorService> scheduledExecutorValue = new InjectedValue<ScheduledExecutorService>();
+    private final InjectedValue<ExecutorService> deploymentExecutorValue = new InjectedValue<ExecutorService>();
 
     public static ServiceName getServiceName(String repositoryName) {
         return DeploymentScanner.BASE_SERVICE_NAME.append(repositoryName);
@@ -103,14 +105,17 @@ public class DeploymentScannerService implements Service<DeploymentScanner> {
             AbsolutePathService.addService(pathService, path, serviceTarget);
         }
         final ThreadFactory threadFactory = new JBossThreadFactory(new ThreadGroup("DeploymentScanner-threads"), Boolean.FALSE, null, "%G - %t", null, null, AccessController.getContext());
+        // Scans and deployment timeouts; deployment operations, which may be in progress concurrently, get their own threads
         final ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(2, threadFactory);
+        final ExecutorService deploymentExecutorService = Executors.newFixedThreadPool(4, threadFactory);
 
         ServiceBuilder builder = serviceTarget.addService(serviceName, service)
             .addDependency(pathService, String.class, service.pathValue)
             .addDependency(Services.JBOSS_SERVER_CONTROLLER, ServerController.class, service.serverControllerValue)
             .addDependency(ServerDeploymentRepository.SERVICE_NAME, ServerDeploymentRepository.class, service.deploymentRepositoryValue)
             .addDependency(ContentRepository.SERVICE_NAME, ContentRepository.class, service.contentRepositoryValue)
-            .addInjection(service.scheduledExecutorValue, scheduledExecutorService);
+            .addInjection(service.scheduledExecutorValue, scheduledExecutorService)
+            .addInjection(service.deploymentExecutorValue, deploymentExecutorService);
         if (relativePathService != null) {
             builder.addDependency(relativePathService, String.class, service.relativePathValue);
         }
@@ -137,7 +142,7 @@ public class DeploymentScannerService implements Service<DeploymentScanner> {
             final String pathName = pathValue.getValue();
             final String relativePathName = relativePathValue.getOptionalValue();
             final File relativePath = relativePathName != null ? new File(relativePathName) : null;
-            final FileSystemDeploymentService scanner = new FileSystemDeploymentService(relativeTo, new File(pathName), relativePath, serverControllerValue.getValue(), scheduledExecutorValue.getValue(), deploymentRepositoryValue.getValue(), contentRepositoryValue.getValue());
+            final FileSystemDeploymentService scanner = new FileSystemDeploymentService(relativeTo, new File(pathName), relativePath, serverControllerValue.getValue(), scheduledExecutorValue.getValue(), deploymentExecutorValue.getValue(), deploymentRepositoryValue.getValue(), contentRepositoryValue.getValue());
             scanner.setScanInterval(unit.toMillis(interval));
             scanner.setAutoDeployExplodedContent(autoDeployExploded);
             scanner.setAutoDeployZippedContent(autoDeployZipped);
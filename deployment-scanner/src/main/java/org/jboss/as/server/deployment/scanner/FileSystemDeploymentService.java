@@ -38,7 +38,6 @@ import org.jboss.as.server.deployment.api.ServerDeploymentRepository;
 import org.jboss.as.server.deployment.scanner.ZipCompletionScanner.NonScannableZipException;
 import org.jboss.as.server.deployment.scanner.api.DeploymentScanner;
 import org.jboss.dmr.ModelNode;
-import org.jboss.dmr.Property;
 import org.jboss.logging.Logger;
 
 import java.io.Closeable;
@@ -54,17 +53,16 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ARCHIVE;
-import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.CANCELLED;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.CHILD_TYPE;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.COMPOSITE;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.CONTENT;
@@ -106,20 +104,42 @@ class FileSystemDeploymentService implements DeploymentScanner {
     /** Default timeout for deployments to execute in seconds*/
     static final long DEFAULT_DEPLOYMENT_TIMEOUT = 60;
 
+    /**
+     * System property that, if {@code true}, makes the scanner watch the deployment directory for changes and
+     * only run a full scan when content has changed, rather than running a full scan every scan interval.
+     */
+    static final String WATCH_PROPERTY = "jboss.deployment.scanner.watch";
+
+    /** Max period in ms between checks for changes when watching the deployment directory */
+    static final long WATCH_INTERVAL = 500;
+
+    /** Period in ms a deployment must remain unchanged before a change to it triggers a scan */
+    static final long QUIET_PERIOD = 1000;
+
     private File deploymentDir;
     private long scanInterval = 0;
     private volatile boolean scanEnabled = false;
     private ScheduledFuture<?> scanTask;
     private ScheduledFuture<?> rescanIncompleteTask;
     private final Lock scanLock = new ReentrantLock();
+    private volatile boolean watchForChanges = Boolean.getBoolean(WATCH_PROPERTY);
+    private volatile DeploymentDirectoryWatcher watcher;
+    /** Time the last scan started. Guarded by scanLock */
+    private long lastScan;
+    /** Guarded by scanLock */
+    private final DeploymentContentIndex contentIndex = new DeploymentContentIndex();
 
     private final Map<String, DeploymentMarker> deployed = new HashMap<String, DeploymentMarker>();
+    /** Deployments whose operation has not completed. Guarded by scanLock */
+    private final Map<String, DeploymentTask> inProgress = new HashMap<String, DeploymentTask>();
     private final HashSet<String> ignoredMissingDeployments = new HashSet<String>();
     private final HashSet<String> noticeLogged = new HashSet<String>();
     private final HashSet<File> nonscannableLogged = new HashSet<File>();
     private final Map<File, IncompleteDeploymentStatus> incompleteDeployments = new HashMap<File, IncompleteDeploymentStatus>();
 
     private final ScheduledExecutorService scheduledExecutor;
+    /** Runs the deployment operations, so they cannot hold up scans or the checks of their own timeouts */
+    private final ExecutorService deploymentExecutor;
     private final ServerController serverController;
     private final ServerDeploymentRepository deploymentRepository;
     private final ContentRepository contentRepository;
@@ -145,12 +165,26 @@ class FileSystemDeploymentService implements DeploymentScanner {
         }
     };
 
+    private final Runnable watchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                watch();
+            } catch (Exception e) {
+                log.errorf(e, "Watch of %s threw Exception", deploymentDir.getAbsolutePath());
+            }
+        }
+    };
+
     FileSystemDeploymentService(final String relativeTo, final File deploymentDir, final File relativeToDir, final ServerController serverController, final ScheduledExecutorService scheduledExecutor,
-            final ServerDeploymentRepository deploymentRepository, final ContentRepository contentRepository) throws OperationFailedException {
+            final ExecutorService deploymentExecutor, final ServerDeploymentRepository deploymentRepository, final ContentRepository contentRepository) throws OperationFailedException {
         assert contentRepository != null : "content repository is null";
         if (scheduledExecutor == null) {
             throw new IllegalStateException("null scheduled executor");
         }
+        if (deploymentExecutor == null) {
+            throw new IllegalStateException("null deployment executor");
+        }
         if (serverController == null) {
             throw new IllegalStateException("null server controller");
         }
@@ -173,6 +207,7 @@ class FileSystemDeploymentService implements DeploymentScanner {
         this.deploymentDir = deploymentDir;
         this.serverController = serverController;
         this.scheduledExecutor = scheduledExecutor;
+        this.deploymentExecutor = deploymentExecutor;
         this.deploymentRepository = deploymentRepository;
         this.contentRepository = contentRepository;
 
@@ -265,6 +300,20 @@ class FileSystemDeploymentService implements DeploymentScanner {
         cancelScan();
     }
 
+    /**
+     * Sets whether the scanner watches the deployment directory for changes rather than running a full scan
+     * every scan interval.
+     *
+     * @param watchForChanges {@code true} to watch for changes
+     */
+    synchronized void setWatchForChanges(boolean watchForChanges) {
+        if (watchForChanges != this.watchForChanges) {
+            cancelScan();
+            this.watchForChanges = watchForChanges;
+            startScan();
+        }
+    }
+
     /** Hook solely for unit test to control how long deployments with no progress can exist without failing */
     void setMaxNoProgress(long max) {
         this.maxNoProgress = max;
@@ -306,9 +355,11 @@ class FileSystemDeploymentService implements DeploymentScanner {
         try {
             if (scanEnabled) { // confirm the scan is still wanted
                 log.tracef("Scanning directory %s for deployment content changes", deploymentDir.getAbsolutePath());
+                lastScan = System.currentTimeMillis();
 
                 ScanContext scanContext = new ScanContext();
                 scanDirectory(deploymentDir, scanContext);
+                contentIndex.purge();
 
                 // WARN about markers with no associated content. Do this first in case any auto-deploy issue
                 // is due to a file that wasn't meant to be auto-deployed, but has a misspelled marker
@@ -341,6 +392,7 @@ class FileSystemDeploymentService implements DeploymentScanner {
 
                 // Add remove actions to the plan for anything we count as
                 // deployed that we didn't find on the scan
+                scanContext.toRemove.removeAll(inProgress.keySet());
                 for (String missing : scanContext.toRemove) {
                     // TODO -- minor -- this assumes the deployment was in the root deploymentDir,
                     // not a child dir, and therefore puts the '.isundeploying' file there
@@ -348,69 +400,16 @@ class FileSystemDeploymentService implements DeploymentScanner {
                     scannerTasks.add(new UndeployTask(missing, parent));
                 }
 
-                // Process the tasks
-                if (scannerTasks.size() > 0) {
-                    List<ModelNode> updates = new ArrayList<ModelNode>(scannerTasks.size());
-
-                    for (ScannerTask task : scannerTasks) {
-                        task.recordInProgress(); // puts down .isdeploying, .isundeploying
-                        final ModelNode update = task.getUpdate();
-                        if (log.isDebugEnabled()) {
-                            log.debugf("Deployment scan of [%s] found update action [%s]", deploymentDir, update);
-                        }
-                        updates.add(update);
-                    }
-
-                    while (!updates.isEmpty()) {
-                        ModelNode composite = getCompositeUpdate(updates);
-
-                        final DeploymentTask deploymentTask = new DeploymentTask(OperationBuilder.Factory.create(composite).build());
-                        final Future<ModelNode> futureResults = scheduledExecutor.submit(deploymentTask);
-                        final ModelNode results;
-                        try {
-                            results = futureResults.get(deploymentTimeout, TimeUnit.SECONDS);
-                        } catch (TimeoutException e) {
-                            futureResults.cancel(true);
-                            final ModelNode failure = new ModelNode();
-                            failure.get(OUTCOME).set(FAILED);
-                            failure.get(FAILURE_DESCRIPTION).set("Did not receive a response to the deployment operation within " +
-                                    "the allowed timeout period [" + deploymentTimeout + " seconds]. Check the server configuration" +
-                                    "file and the server logs to find more about the status of the deployment.");
-                            for (ScannerTask task : scannerTasks) {
-                                task.handleFailureResult(failure);
-                            }
-                            break;
-                        } catch (Exception e) {
-                            log.error("File system deployment service failed", e);
-                            futureResults.cancel(true);
-                            final ModelNode failure = new ModelNode();
-                            failure.get(OUTCOME).set(FAILED);
-                            failure.get(FAILURE_DESCRIPTION).set(e.getMessage());
-                            for (ScannerTask task : scannerTasks) {
-                                task.handleFailureResult(failure);
-                            }
-                            break;
-                        }
-
-                        final List<Property> resultList = results.get(RESULT).asPropertyList();
-                        final List<ModelNode> toRetry = new ArrayList<ModelNode>();
-                        final List<ScannerTask> retryTasks = new ArrayList<ScannerTask>();
-                        for (int i = 0; i < resultList.size(); i++) {
-                            final ModelNode result = resultList.get(i).getValue();
-                            final ScannerTask task = scannerTasks.get(i);
-                            final ModelNode outcome = result.get(OUTCOME);
-                            if (outcome.isDefined() && SUCCESS.equals(outcome.asString())) {
-                                task.handleSuccessResult();
-                            } else if (outcome.isDefined() && CANCELLED.equals(outcome.asString())) {
-                                toRetry.add(updates.get(i));
-                                retryTasks.add(task);
-                            } else {
-                                task.handleFailureResult(result);
-                            }
-                        }
-                        updates = toRetry;
-                        scannerTasks = retryTasks;
+                // Submit an operation for each task. Each deployment succeeds or fails independently and its
+                // markers are updated as soon as its operation completes. Deployments stay in progress until then,
+                // and later scans leave them alone
+                for (ScannerTask task : scannerTasks) {
+                    task.recordInProgress(); // puts down .isdeploying, .isundeploying
+                    final ModelNode update = task.getUpdate();
+                    if (log.isDebugEnabled()) {
+                        log.debugf("Deployment scan of [%s] found update action [%s]", deploymentDir, update);
                     }
+                    submit(task, update);
                 }
                 log.tracef("Scan complete");
             }
@@ -427,6 +426,31 @@ class FileSystemDeploymentService implements DeploymentScanner {
         }
     }
 
+    /**
+     * Check the deployment directory for changes, and scan it if any are found or if the last scan found
+     * incomplete content that must be checked again.
+     */
+    private void watch() {
+        try {
+            scanLock.lockInterruptibly();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            final DeploymentDirectoryWatcher watcher = this.watcher;
+            if (scanEnabled && watcher != null) {
+                final long now = System.currentTimeMillis();
+                final boolean changed = watcher.poll(now, autoDeployExploded);
+                if (changed || (!incompleteDeployments.isEmpty() && now - lastScan >= scanInterval)) {
+                    scan();
+                }
+            }
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
     /**
      * Scan the given directory for content changes.
      *
@@ -444,6 +468,9 @@ class FileSystemDeploymentService implements DeploymentScanner {
             if (fileName.endsWith(DEPLOYED)) {
                 final String deploymentName = fileName.substring(0, fileName.length() - DEPLOYED.length());
                 scanContext.toRemove.remove(deploymentName);
+                if (inProgress.containsKey(deploymentName)) {
+                    continue;
+                }
                 if (!deployed.containsKey(deploymentName)) {
                     removeExtraneousMarker(child, fileName);
                 }
@@ -453,6 +480,10 @@ class FileSystemDeploymentService implements DeploymentScanner {
             }
             else if (fileName.endsWith(DO_DEPLOY)) {
                 final String deploymentName = fileName.substring(0, fileName.length() - DO_DEPLOY.length());
+                if (inProgress.containsKey(deploymentName)) {
+                    scanContext.toRemove.remove(deploymentName);
+                    continue;
+                }
                 final File deploymentFile = new File(directory, deploymentName);
                 if (!deploymentFile.exists()) {
                     scanContext.ignoredMissingDeployments.add(deploymentName);
@@ -471,6 +502,10 @@ class FileSystemDeploymentService implements DeploymentScanner {
                 }
             }
             else if (isEEArchive(fileName)) {
+                if (inProgress.containsKey(fileName)) {
+                    scanContext.toRemove.remove(fileName);
+                    continue;
+                }
                 boolean autoDeployable = child.isDirectory() ? autoDeployExploded : autoDeployZip;
                 if (autoDeployable) {
                     if (!isAutoDeployDisabled(child)) {
@@ -509,8 +544,11 @@ class FileSystemDeploymentService implements DeploymentScanner {
                 }
             }
             else if (fileName.endsWith(DEPLOYING) || fileName.endsWith(UNDEPLOYING)) {
-                // These markers should not survive a scan
-                removeExtraneousMarker(child, fileName);
+                // These markers should not outlive the operation that put them down
+                final String suffix = fileName.endsWith(DEPLOYING) ? DEPLOYING : UNDEPLOYING;
+                if (!inProgress.containsKey(fileName.substring(0, fileName.length() - suffix.length()))) {
+                    removeExtraneousMarker(child, fileName);
+                }
             }
             else if (fileName.endsWith(PENDING)) {
                 // Do some housekeeping if the referenced deployment is gone
@@ -526,6 +564,12 @@ class FileSystemDeploymentService implements DeploymentScanner {
         }
     }
 
+    private void submit(final ScannerTask task, final ModelNode update) {
+        final DeploymentTask deploymentTask = new DeploymentTask(task, OperationBuilder.Factory.create(update).build());
+        inProgress.put(task.deploymentName, deploymentTask);
+        deploymentTask.future = deploymentExecutor.submit(deploymentTask);
+    }
+
     private long addContentAddingTask(final String path, final boolean archive, final String deploymentName, final File deploymentFile, final long timestamp,
             final ScanContext scanContext) {
         if (scanContext.registeredDeployments.contains(deploymentName)) {
@@ -537,10 +581,14 @@ class FileSystemDeploymentService implements DeploymentScanner {
         return timestamp;
     }
 
+    /**
+     * Checks whether deployment content is complete. For exploded content, the nested archives are those found by
+     * the preceding {@link #getDeploymentTimestamp(File)} call.
+     */
     private boolean isZipComplete(File file) throws NonScannableZipException {
         if (file.isDirectory()) {
-            for (File child : file.listFiles()) {
-                if (!isZipComplete(child)) {
+            for (File archive : contentIndex.getNestedArchives(file)) {
+                if (!isZipComplete(archive)) {
                     return false;
                 }
             }
@@ -548,7 +596,7 @@ class FileSystemDeploymentService implements DeploymentScanner {
         }
         else if (isEEArchive(file.getName())) {
             try {
-                return ZipCompletionScanner.isCompleteZip(file);
+                return contentIndex.isCompleteArchive(file);
             } catch (IOException e) {
                 log.error(String.format("Failed checking whether %s was a complete zip", file.getPath()), e);
                 return false;
@@ -567,23 +615,10 @@ class FileSystemDeploymentService implements DeploymentScanner {
     }
 
     private long getDeploymentTimestamp(File deploymentFile) {
-        if (deploymentFile.isDirectory()) {
-            // Scan for most recent file
-            long latest = deploymentFile.lastModified();
-            for (File child : deploymentFile.listFiles()) {
-                long childTimestamp = getDeploymentTimestamp(child);
-                if (childTimestamp > latest) {
-                    latest = childTimestamp;
-                }
-            }
-            return latest;
-        }
-        else {
-            return deploymentFile.lastModified();
-        }
+        return contentIndex.getTimestamp(deploymentFile);
     }
 
-    private boolean isEEArchive(String fileName) {
+    static boolean isEEArchive(String fileName) {
         return ARCHIVE_PATTERN.matcher(fileName).matches();
     }
 
@@ -710,7 +745,11 @@ class FileSystemDeploymentService implements DeploymentScanner {
 
     private synchronized void startScan() {
         if (scanEnabled) {
-            if (scanInterval > 0) {
+            if (scanInterval > 0 && watchForChanges) {
+                // The first poll of a new watcher triggers a full scan
+                watcher = new DeploymentDirectoryWatcher(deploymentDir, filter, contentIndex, QUIET_PERIOD);
+                scanTask = scheduledExecutor.scheduleWithFixedDelay(watchRunnable, 0, Math.min(scanInterval, WATCH_INTERVAL), TimeUnit.MILLISECONDS);
+            } else if (scanInterval > 0) {
                 scanTask = scheduledExecutor.scheduleWithFixedDelay(scanRunnable, 0, scanInterval, TimeUnit.MILLISECONDS);
             } else {
                 scanTask = scheduledExecutor.schedule(scanRunnable, scanInterval, TimeUnit.MILLISECONDS);
@@ -730,6 +769,7 @@ class FileSystemDeploymentService implements DeploymentScanner {
             scanTask.cancel(false);
             scanTask = null;
         }
+        watcher = null;
     }
 
     private Set<String> getDeploymentNames() throws CancellationException {
@@ -747,15 +787,6 @@ class FileSystemDeploymentService implements DeploymentScanner {
         return deploymentNames;
     }
 
-    private ModelNode getCompositeUpdate(final List<ModelNode> updates) {
-        final ModelNode op = Util.getEmptyOperation(COMPOSITE, new ModelNode());
-        final ModelNode steps = op.get(STEPS);
-        for (ModelNode update : updates) {
-            steps.add(update);
-        }
-        return op;
-    }
-
     private ModelNode getCompositeUpdate(final ModelNode... updates) {
         final ModelNode op = Util.getEmptyOperation(COMPOSITE, new ModelNode());
         final ModelNode steps = op.get(STEPS);
@@ -1072,16 +1103,83 @@ class FileSystemDeploymentService implements DeploymentScanner {
         ABORT, RETRY, PROCEED
     }
 
+    /**
+     * Executes the operation for a scanner task and records its outcome.
+     */
     private class DeploymentTask implements Callable<ModelNode> {
+        private final ScannerTask task;
         private final Operation deploymentOp;
+        private volatile Future<ModelNode> future;
+        private volatile ScheduledFuture<?> timeoutTask;
+        /** Guarded by scanLock */
+        private boolean complete;
 
-        private DeploymentTask(final Operation deploymentOp) {
+        private DeploymentTask(final ScannerTask task, final Operation deploymentOp) {
+            this.task = task;
             this.deploymentOp = deploymentOp;
         }
 
         @Override
         public ModelNode call() {
-            return serverController.execute(deploymentOp);
+            // The timeout covers the execution of the operation, not the time it was queued behind others
+            timeoutTask = scheduledExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    timeout();
+                }
+            }, deploymentTimeout, TimeUnit.SECONDS);
+            ModelNode result;
+            try {
+                result = serverController.execute(deploymentOp);
+            } catch (RuntimeException e) {
+                log.error("File system deployment service failed", e);
+                result = getFailure(e.getMessage());
+            }
+            complete(result);
+            return result;
+        }
+
+        private void timeout() {
+            final ModelNode failure = getFailure("Did not receive a response to the deployment operation within " +
+                    "the allowed timeout period [" + deploymentTimeout + " seconds]. Check the server configuration" +
+                    "file and the server logs to find more about the status of the deployment.");
+            if (complete(failure)) {
+                final Future<ModelNode> future = this.future;
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        private boolean complete(final ModelNode result) {
+            scanLock.lock();
+            try {
+                if (complete) {
+                    return false;
+                }
+                complete = true;
+                inProgress.remove(task.deploymentName);
+                final ModelNode outcome = result.get(OUTCOME);
+                if (outcome.isDefined() && SUCCESS.equals(outcome.asString())) {
+                    task.handleSuccessResult();
+                } else {
+                    task.handleFailureResult(result);
+                }
+            } finally {
+                scanLock.unlock();
+            }
+            final ScheduledFuture<?> timeoutTask = this.timeoutTask;
+            if (timeoutTask != null) {
+                timeoutTask.cancel(false);
+            }
+            return true;
+        }
+
+        private ModelNode getFailure(final String description) {
+            final ModelNode failure = new ModelNode();
+            failure.get(OUTCOME).set(FAILED);
+            failure.get(FAILURE_DESCRIPTION).set(description == null ? "" : description);
+            return failure;
         }
     }
 }
@@ -0,0 +1,204 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server.deployment.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the caching done by {@link DeploymentContentIndex}.
+ */
+public class DeploymentContentIndexUnitTestCase {
+
+    /** A timestamp safely in the past, so cached state is trusted whatever the filesystem's granularity */
+    private static final long PAST = System.currentTimeMillis() - 60000;
+
+    private File tmpDir;
+    private DeploymentContentIndex index;
+
+    @Before
+    public void setup() throws Exception {
+        tmpDir = File.createTempFile(getClass().getSimpleName(), "");
+        tmpDir.delete();
+        tmpDir.mkdirs();
+        index = new DeploymentContentIndex();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        delete(tmpDir);
+    }
+
+    @Test
+    public void testUnchangedDirectoryIsNotListedAgain() throws Exception {
+        final File deployment = mkdir(tmpDir, "foo.ear");
+        final File lib = mkdir(deployment, "lib");
+        createFile(lib, "a.jar", PAST);
+        lib.setLastModified(PAST);
+        deployment.setLastModified(PAST);
+        assertEquals(PAST, index.getTimestamp(deployment));
+        assertEquals(Collections.singletonList(new File(lib, "a.jar")), index.getNestedArchives(deployment));
+
+        // Sneak a file in without the directory's timestamp changing; the cached listing hides it
+        createFile(lib, "b.jar", PAST);
+        lib.setLastModified(PAST);
+        assertEquals(PAST, index.getTimestamp(deployment));
+        assertEquals(1, index.getNestedArchives(deployment).size());
+
+        // Once the directory is seen to change it is listed again
+        lib.setLastModified(PAST + 1000);
+        assertEquals(PAST + 1000, index.getTimestamp(deployment));
+        assertEquals(2, index.getNestedArchives(deployment).size());
+    }
+
+    @Test
+    public void testModifiedFileInUnchangedDirectory() throws Exception {
+        final File deployment = mkdir(tmpDir, "foo.war");
+        final File file = createFile(deployment, "index.html", PAST);
+        deployment.setLastModified(PAST);
+        assertEquals(PAST, index.getTimestamp(deployment));
+
+        file.setLastModified(PAST + 1000);
+        assertEquals(PAST + 1000, index.getTimestamp(deployment));
+    }
+
+    @Test
+    public void testRecentlyModifiedDirectoryIsListedAgain() throws Exception {
+        final File deployment = mkdir(tmpDir, "foo.war");
+        final File lib = mkdir(mkdir(deployment, "WEB-INF"), "lib");
+        final long recent = lib.lastModified();
+        index.getTimestamp(deployment);
+
+        // The directory's timestamp may be too coarse to show the change, so it must not be trusted
+        createFile(lib, "a.jar", PAST);
+        lib.setLastModified(recent);
+        index.getTimestamp(deployment);
+        assertEquals(1, index.getNestedArchives(deployment).size());
+    }
+
+    @Test
+    public void testCompleteArchiveIsRemembered() throws Exception {
+        final File archive = createZip(tmpDir, "foo.war");
+        archive.setLastModified(PAST);
+        assertTrue(index.isCompleteArchive(archive));
+
+        // Damage the archive without changing its size or timestamp; the earlier result is reused
+        damage(archive);
+        archive.setLastModified(PAST);
+        assertTrue(index.isCompleteArchive(archive));
+
+        // A change of timestamp means the archive is scanned again
+        archive.setLastModified(PAST + 1000);
+        assertFalse(index.isCompleteArchive(archive));
+    }
+
+    @Test
+    public void testRecentArchiveIsNotRemembered() throws Exception {
+        final File archive = createZip(tmpDir, "foo.war");
+        final long lastModified = archive.lastModified();
+        assertTrue(index.isCompleteArchive(archive));
+
+        damage(archive);
+        archive.setLastModified(lastModified);
+        assertFalse(index.isCompleteArchive(archive));
+    }
+
+    @Test
+    public void testPurgeDiscardsUnusedState() throws Exception {
+        final File archive = createZip(tmpDir, "foo.war");
+        archive.setLastModified(PAST);
+        assertTrue(index.isCompleteArchive(archive));
+        index.purge();
+        index.purge();
+
+        // Not consulted between the purges, so the archive is scanned again
+        damage(archive);
+        archive.setLastModified(PAST);
+        assertFalse(index.isCompleteArchive(archive));
+    }
+
+    private static File mkdir(final File parent, final String name) {
+        final File dir = new File(parent, name);
+        assertTrue(dir.mkdirs());
+        return dir;
+    }
+
+    private static File createFile(final File dir, final String name, final long lastModified) throws IOException {
+        final File file = new File(dir, name);
+        final FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(1);
+        } finally {
+            fos.close();
+        }
+        file.setLastModified(lastModified);
+        return file;
+    }
+
+    private static File createZip(final File dir, final String name) throws IOException {
+        final File file = new File(dir, name);
+        final ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            zos.putNextEntry(new ZipEntry("index.html"));
+            zos.write(1);
+            zos.closeEntry();
+        } finally {
+            zos.close();
+        }
+        return file;
+    }
+
+    /** Wipes the end of central directory record, leaving the size of the archive unchanged */
+    private static void damage(final File archive) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(archive, "rw");
+        try {
+            raf.seek(raf.length() - 22);
+            raf.write(new byte[22]);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server.deployment.scanner;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link DeploymentDirectoryWatcher}.
+ */
+public class DeploymentDirectoryWatcherUnitTestCase {
+
+    private static final long QUIET = 1000;
+    /** A timestamp safely in the past, so changes to it are visible whatever the filesystem's granularity */
+    private static final long PAST = System.currentTimeMillis() - 60000;
+
+    private File tmpDir;
+    private DeploymentDirectoryWatcher watcher;
+
+    @Before
+    public void setup() throws Exception {
+        tmpDir = File.createTempFile(getClass().getSimpleName(), "");
+        tmpDir.delete();
+        tmpDir.mkdirs();
+        watcher = new DeploymentDirectoryWatcher(tmpDir, new ExtensibleFilter(), new DeploymentContentIndex(), QUIET);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        delete(tmpDir);
+    }
+
+    @Test
+    public void testFirstPollReportsChange() throws Exception {
+        createFile(tmpDir, "foo.war");
+        assertTrue(watcher.poll(0, false));
+        assertFalse(watcher.poll(QUIET * 10, false));
+    }
+
+    @Test
+    public void testChangeReportedAfterQuietPeriod() throws Exception {
+        final File war = createFile(tmpDir, "foo.war");
+        watcher.poll(0, false);
+
+        war.setLastModified(PAST + 1000);
+        assertFalse(watcher.poll(100, false));
+        assertFalse(watcher.poll(100 + QUIET / 2, false));
+        // Still changing, so the quiet period starts over
+        war.setLastModified(PAST + 2000);
+        assertFalse(watcher.poll(100 + QUIET, false));
+        assertTrue(watcher.poll(100 + QUIET * 2, false));
+        assertFalse(watcher.poll(100 + QUIET * 3, false));
+    }
+
+    @Test
+    public void testMarkersAndRemoval() throws Exception {
+        createFile(tmpDir, "foo.war");
+        final File deployed = createFile(tmpDir, "foo.war" + FileSystemDeploymentService.DEPLOYED);
+        watcher.poll(0, false);
+
+        // Markers the scanner writes while deploying are ignored
+        createFile(tmpDir, "foo.war" + FileSystemDeploymentService.DEPLOYING);
+        createFile(tmpDir, "foo.war" + FileSystemDeploymentService.PENDING);
+        watcher.poll(100, false);
+        assertFalse(watcher.poll(100 + QUIET, false));
+
+        assertTrue(deployed.delete());
+        watcher.poll(200, false);
+        assertTrue(watcher.poll(200 + QUIET, false));
+    }
+
+    @Test
+    public void testNestedDirectory() throws Exception {
+        final File nested = new File(tmpDir, "nested");
+        watcher.poll(0, false);
+
+        createFile(nested, "foo.war" + FileSystemDeploymentService.DO_DEPLOY);
+        watcher.poll(100, false);
+        assertTrue(watcher.poll(100 + QUIET, false));
+    }
+
+    @Test
+    public void testExplodedContent() throws Exception {
+        final File exploded = new File(tmpDir, "foo.war");
+        final File page = createFile(new File(exploded, "WEB-INF"), "index.html");
+        exploded.setLastModified(PAST);
+        page.getParentFile().setLastModified(PAST);
+        watcher.poll(0, false);
+        watcher.poll(0, true);
+
+        page.setLastModified(PAST + 1000);
+        // Changes within exploded content are only seen when asked for
+        watcher.poll(100, false);
+        assertFalse(watcher.poll(100 + QUIET, false));
+        watcher.poll(200, true);
+        assertTrue(watcher.poll(200 + QUIET, true));
+    }
+
+    private static File createFile(final File dir, final String name) throws IOException {
+        dir.mkdirs();
+        final File file = new File(dir, name);
+        final FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(name.getBytes());
+        } finally {
+            fos.close();
+        }
+        file.setLastModified(PAST);
+        return file;
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -38,16 +38,13 @@ import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ADD;
-import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.CANCELLED;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.COMPOSITE;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.DEPLOY;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILED;
@@ -58,6 +55,7 @@ import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OUTCOME;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.READ_CHILDREN_NAMES_OPERATION;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.REDEPLOY;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.REMOVE;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RESULT;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ROLLED_BACK;
@@ -135,7 +133,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File deployed = new File(tmpDir, "foo.war" + FileSystemDeploymentService.DEPLOYED);
         TesteeSet ts = createTestee();
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(1, ts.repo.content.size());
@@ -152,7 +150,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File dodeploy = createFile(nestedDir, "foo.war" + FileSystemDeploymentService.DO_DEPLOY);
         File deployed = new File(nestedDir, "foo.war" + FileSystemDeploymentService.DEPLOYED);
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(1, ts.repo.content.size());
@@ -171,7 +169,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File deployed2 = new File(tmpDir, "bar.war" + FileSystemDeploymentService.DEPLOYED);
         TesteeSet ts = createTestee();
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(2);
+        ts.controller.addSuccessResponse(2);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(2, ts.repo.content.size());
@@ -191,7 +189,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File failed = new File(tmpDir, "foo.war" + FileSystemDeploymentService.FAILED_DEPLOY);
         TesteeSet ts = createTestee();
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeFailureResponse(1, 1);
+        ts.controller.addFailureResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(1, ts.repo.content.size());
@@ -213,7 +211,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File failed2 = new File(tmpDir, "bar.war" + FileSystemDeploymentService.FAILED_DEPLOY);
         TesteeSet ts = createTestee();
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeFailureResponse(2, 2);
+        ts.controller.addFailureResponse(2);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(2, ts.repo.content.size());
@@ -228,7 +226,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
     }
 
     @Test
-    public void testCancellationDueToFailure() throws Exception {
+    public void testFailureDoesNotAffectOthers() throws Exception {
         File war1 = createFile("bar.war");
         File dodeploy1 = createFile("bar.war" + FileSystemDeploymentService.DO_DEPLOY);
         File deployed1 = new File(tmpDir, "bar.war" + FileSystemDeploymentService.DEPLOYED);
@@ -239,9 +237,8 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File failed2 = new File(tmpDir, "foo.war" + FileSystemDeploymentService.FAILED_DEPLOY);
         TesteeSet ts = createTestee();
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeFailureResponse(2, 1);
-        // Retry fails as well
-        ts.controller.addCompositeFailureResponse(1, 1);
+        ts.controller.addFailureResponse("bar.war");
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(2, ts.repo.content.size());
@@ -251,34 +248,8 @@ public class FileSystemDeploymentServiceUnitTestCase {
         assertTrue(failed1.exists());
         assertTrue(war2.exists());
         assertFalse(dodeploy2.exists());
-        assertFalse(deployed2.exists());
-        assertTrue(failed2.exists());
-    }
-
-    @Test
-    public void testSuccessfulRetry() throws Exception {
-        File war1 = createFile("bar.war");
-        File dodeploy1 = createFile("bar.war" + FileSystemDeploymentService.DO_DEPLOY);
-        File deployed1 = new File(tmpDir, "bar.war" + FileSystemDeploymentService.DEPLOYED);
-        File failed1 = new File(tmpDir, "bar.war" + FileSystemDeploymentService.FAILED_DEPLOY);
-        File war2 = createFile("foo.war");
-        File dodeploy2 = createFile("foo.war" + FileSystemDeploymentService.DO_DEPLOY);
-        File deployed2 = new File(tmpDir, "foo.war" + FileSystemDeploymentService.DEPLOYED);
-        File failed2 = new File(tmpDir, "foo.war" + FileSystemDeploymentService.FAILED_DEPLOY);
-        TesteeSet ts = createTestee();
-//        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeFailureResponse(2, 1);
-        // Retry succeeds
-        ts.controller.addCompositeSuccessResponse(1);
-        ts.testee.scan();
-        // Since AS7-431 the content is no longer managed
-        //assertEquals(2, ts.repo.content.size());
-        assertTrue(war1.exists());
-        assertTrue(war2.exists());
-        assertFalse(dodeploy1.exists());
-        assertFalse(dodeploy2.exists());
-        assertFalse(deployed1.exists() && deployed2.exists());
-        assertTrue(failed1.exists() || failed2.exists());
+        assertTrue(deployed2.exists());
+        assertFalse(failed2.exists());
     }
 
     @Test
@@ -336,7 +307,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File deployed = new File(tmpDir, "foo.war" + FileSystemDeploymentService.DEPLOYED);
         TesteeSet ts = createTestee("foo.war");
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(1, ts.repo.content.size());
@@ -352,7 +323,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File deployed = new File(tmpDir, "foo.war" + FileSystemDeploymentService.DEPLOYED);
         TesteeSet ts = createTestee("foo.war");
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(1, ts.repo.content.size());
@@ -367,7 +338,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
 
         dodeploy = createFile("foo.war" + FileSystemDeploymentService.DO_DEPLOY);
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(2, ts.repo.content.size());
@@ -401,7 +372,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File deployed2 = new File(tmpDir, "bar.war" + FileSystemDeploymentService.DEPLOYED);
         TesteeSet ts = createTestee();
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(2);
+        ts.controller.addSuccessResponse(2);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(2, ts.repo.content.size());
@@ -415,7 +386,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         dodeploy1 = createFile("foo.war" + FileSystemDeploymentService.DO_DEPLOY);
         dodeploy2 = createFile("bar.war" + FileSystemDeploymentService.DO_DEPLOY);
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(2);
+        ts.controller.addSuccessResponse(2);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(4, ts.repo.content.size());
@@ -435,7 +406,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File failed = new File(tmpDir, "foo.war" + FileSystemDeploymentService.FAILED_DEPLOY);
         TesteeSet ts = createTestee("foo.war");
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(1, ts.repo.content.size());
@@ -446,7 +417,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
 
         dodeploy = createFile("foo.war" + FileSystemDeploymentService.DO_DEPLOY);
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeFailureResponse(1, 1);
+        ts.controller.addFailureResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(2, ts.repo.content.size());
@@ -468,7 +439,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File failed2 = new File(tmpDir, "foo.war" + FileSystemDeploymentService.FAILED_DEPLOY);
         TesteeSet ts = createTestee();
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(2);
+        ts.controller.addSuccessResponse(2);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(2, ts.repo.content.size());
@@ -482,9 +453,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         dodeploy1 = createFile("foo.war" + FileSystemDeploymentService.DO_DEPLOY);
         dodeploy2 = createFile("bar.war" + FileSystemDeploymentService.DO_DEPLOY);
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeFailureResponse(2, 1);
-        // Retry fails as well
-        ts.controller.addCompositeFailureResponse(1, 1);
+        ts.controller.addFailureResponse(2);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(4, ts.repo.content.size());
@@ -499,7 +468,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
     }
 
     @Test
-    public void testSuccessfulRetryRedeploy() throws Exception {
+    public void testPartiallyFailedRedeploy() throws Exception {
         File war1 = createFile("bar.war");
         File dodeploy1 = createFile("bar.war" + FileSystemDeploymentService.DO_DEPLOY);
         File deployed1 = new File(tmpDir, "bar.war" + FileSystemDeploymentService.DEPLOYED);
@@ -510,7 +479,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File failed2 = new File(tmpDir, "foo.war" + FileSystemDeploymentService.FAILED_DEPLOY);
         TesteeSet ts = createTestee();
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(2);
+        ts.controller.addSuccessResponse(2);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(2, ts.repo.content.size());
@@ -524,9 +493,8 @@ public class FileSystemDeploymentServiceUnitTestCase {
         dodeploy1 = createFile("foo.war" + FileSystemDeploymentService.DO_DEPLOY);
         dodeploy2 = createFile("bar.war" + FileSystemDeploymentService.DO_DEPLOY);
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeFailureResponse(2, 1);
-        // Retry succeeds
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addFailureResponse("foo.war");
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(4, ts.repo.content.size());
@@ -534,8 +502,10 @@ public class FileSystemDeploymentServiceUnitTestCase {
         assertTrue(war2.exists());
         assertFalse(dodeploy1.exists());
         assertFalse(dodeploy2.exists());
-        assertFalse(deployed1.exists() && deployed2.exists());
-        assertTrue(failed1.exists() || failed2.exists());
+        assertTrue(deployed1.exists());
+        assertFalse(failed1.exists());
+        assertFalse(deployed2.exists());
+        assertTrue(failed2.exists());
     }
 
     @Test
@@ -545,7 +515,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File deployed = new File(tmpDir, "foo.war" + FileSystemDeploymentService.DEPLOYED);
         TesteeSet ts = createTestee();
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(1, ts.repo.content.size());
@@ -557,7 +527,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
 
         assertTrue(deployed.delete());
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(1, ts.repo.content.size());
@@ -575,7 +545,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File deployed = new File(tmpDir, "foo.war" + FileSystemDeploymentService.DEPLOYED);
         TesteeSet ts = createTestee();
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(1, ts.repo.content.size());
@@ -590,7 +560,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
 
         dodeploy = createFile("foo.war" + FileSystemDeploymentService.DO_DEPLOY);
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(2, ts.repo.content.size());
@@ -604,7 +574,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
 
         assertTrue(deployed.delete());
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(2, ts.repo.content.size());
@@ -622,7 +592,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File deployed = new File(tmpDir, "foo.war" + FileSystemDeploymentService.DEPLOYED);
         TesteeSet ts = createTestee("foo.war");
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(1, ts.repo.content.size());
@@ -632,7 +602,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
 
         assertTrue(deployed.delete());
 //        ts.controller.addGetDeploymentNamesResponse();
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
         // Since AS7-431 the content is no longer managed
         //assertEquals(1, ts.repo.content.size());
@@ -694,7 +664,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         incomplete.delete();
         testSupport.createZip(incomplete, 0, false, false, false, false);
 
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
 
         assertTrue(deployed.exists());
@@ -726,7 +696,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         incomplete.delete();
         testSupport.createZip(incomplete, 0, false, false, true, false);
 
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
 
         assertTrue(deployed.exists());
@@ -762,7 +732,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         incomplete.delete();
         testSupport.createZip(incomplete, 0, false, false, false, false);
 
-        ts.controller.addCompositeSuccessResponse(2);
+        ts.controller.addSuccessResponse(2);
         ts.testee.scan();
 
         assertTrue(deployed.exists());
@@ -828,7 +798,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
         TesteeSet ts = createTestee();
         ts.testee.setAutoDeployExplodedContent(true);
 
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
 
         assertTrue(deployed.exists());
@@ -857,7 +827,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
 
         skip.delete();
 
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
 
         assertTrue(deployed.exists());
@@ -924,14 +894,14 @@ public class FileSystemDeploymentServiceUnitTestCase {
         TesteeSet ts = createTestee();
         ts.testee.setAutoDeployZippedContent(true);
 
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
 
         assertTrue(deployed.exists());
 
         // Undeploy
         deployed.delete();
-        ts.controller.addCompositeSuccessResponse(1);
+        ts.controller.addSuccessResponse(1);
         ts.testee.scan();
 
         assertTrue(undeployed.exists());
@@ -952,10 +922,21 @@ public class FileSystemDeploymentServiceUnitTestCase {
         File failed = new File(tmpDir, "foo.war" + FileSystemDeploymentService.FAILED_DEPLOY);
         testSupport.createZip(deployment, 0, false, false, true, true);
 
+        final List<PendingFuture<?>> pending = new ArrayList<PendingFuture<?>>();
+        final List<Runnable> timeouts = new ArrayList<Runnable>();
         TesteeSet ts = createTestee(new DiscardTaskExecutor() {
             @Override
             public <T> Future<T> submit(Callable<T> tCallable) {
-                return new TimeOutFuture<T>(5, tCallable);
+                final PendingFuture<T> future = new PendingFuture<T>(tCallable);
+                pending.add(future);
+                return future;
+            }
+
+            @Override
+            public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+                assertEquals("Should use the configured timeout", 5, unit.toSeconds(delay));
+                timeouts.add(command);
+                return null;
             }
         });
 
@@ -963,11 +944,80 @@ public class FileSystemDeploymentServiceUnitTestCase {
 
         ts.testee.scan();
 
+        // A queued deployment does not time out before it starts
+        assertEquals(1, pending.size());
+        assertEquals(0, timeouts.size());
+
+        // The operation runs, and does not respond before the timeout fires
+        ts.controller.addSuccessResponse(1);
+        final PendingFuture<?> future = pending.get(0);
+        final Runnable timeout = new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(1, timeouts.size());
+                timeouts.get(0).run();
+            }
+        };
+        ts.controller.beforeExecute = timeout;
+        future.run();
+
+        assertTrue(future.isCancelled());
         assertFalse(deployed.exists());
         assertFalse(dodeploy.exists());
         assertTrue(failed.exists());
     }
 
+    /**
+     * Tests that a scan does not wait for deployments to complete, that later scans leave deployments in progress
+     * alone, and that each deployment's markers are updated when it completes.
+     */
+    @Test
+    public void testDeploymentInProgress() throws Exception {
+        File war1 = createFile("foo.war");
+        File dodeploy1 = createFile("foo.war" + FileSystemDeploymentService.DO_DEPLOY);
+        File deploying1 = new File(tmpDir, "foo.war" + FileSystemDeploymentService.DEPLOYING);
+        File deployed1 = new File(tmpDir, "foo.war" + FileSystemDeploymentService.DEPLOYED);
+
+        final List<PendingFuture<?>> pending = new ArrayList<PendingFuture<?>>();
+        TesteeSet ts = createTestee(new DiscardTaskExecutor() {
+            @Override
+            public <T> Future<T> submit(Callable<T> tCallable) {
+                final PendingFuture<T> future = new PendingFuture<T>(tCallable);
+                pending.add(future);
+                return future;
+            }
+        });
+        ts.controller.addSuccessResponse(2);
+        ts.testee.scan();
+
+        assertEquals(1, pending.size());
+        assertTrue(war1.exists());
+        assertTrue(dodeploy1.exists());
+        assertTrue(deploying1.exists());
+
+        File war2 = createFile("bar.war");
+        File dodeploy2 = createFile("bar.war" + FileSystemDeploymentService.DO_DEPLOY);
+        File deployed2 = new File(tmpDir, "bar.war" + FileSystemDeploymentService.DEPLOYED);
+        ts.testee.scan();
+
+        assertEquals(2, pending.size());
+        assertTrue(deploying1.exists());
+
+        pending.get(1).run();
+        assertTrue(war2.exists());
+        assertFalse(dodeploy2.exists());
+        assertTrue(deployed2.exists());
+        assertFalse(deployed1.exists());
+
+        pending.get(0).run();
+        assertFalse(dodeploy1.exists());
+        assertFalse(deploying1.exists());
+        assertTrue(deployed1.exists());
+
+        ts.testee.scan();
+        assertEquals(2, pending.size());
+    }
+
     private TesteeSet createTestee(String... existingContent) throws OperationFailedException {
         return createTestee(new MockServerController(new MockDeploymentRepository(), existingContent));
     }
@@ -982,7 +1032,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
 
     private TesteeSet createTestee(final MockServerController sc, final ScheduledExecutorService executor) throws OperationFailedException {
         final MockDeploymentRepository repo = new MockDeploymentRepository();
-        final FileSystemDeploymentService testee = new FileSystemDeploymentService(null, tmpDir, null, sc, executor, repo, repo);
+        final FileSystemDeploymentService testee = new FileSystemDeploymentService(null, tmpDir, null, sc, executor, executor, repo, repo);
         testee.startScanner();
         return new TesteeSet(testee, repo, sc);
     }
@@ -1100,8 +1150,11 @@ public class FileSystemDeploymentServiceUnitTestCase {
 
         private final List<ModelNode> requests = new ArrayList<ModelNode>(1);
         private final List<Response> responses = new ArrayList<Response>(1);
+        private final Map<String, Response> failures = new HashMap<String, Response>();
         private final Map<String, byte[]> added = new HashMap<String, byte[]>();
         private final Map<String, byte[]> deployed = new HashMap<String, byte[]>();
+        /** Run as an operation starts executing, before it gets a response */
+        private Runnable beforeExecute;
 
         private static class Response {
             private final boolean ok;
@@ -1122,47 +1175,32 @@ public class FileSystemDeploymentServiceUnitTestCase {
             }
         }
 
-        public void addCompositeSuccessResponse(int count) {
-            ModelNode rsp = new ModelNode();
-            rsp.get(OUTCOME).set(SUCCESS);
-            ModelNode result = rsp.get(RESULT);
-            for (int i = 1; i <= count; i++) {
-                result.get("step-" + i, OUTCOME).set(SUCCESS);
-                result.get("step-" + i, RESULT);
+        public void addSuccessResponse(int count) {
+            for (int i = 0; i < count; i++) {
+                ModelNode rsp = new ModelNode();
+                rsp.get(OUTCOME).set(SUCCESS);
+                rsp.get(RESULT);
+                responses.add(new Response(true, rsp));
             }
-
-            responses.add(new Response(true, rsp));
         }
 
-        public void addCompositeFailureResponse(int count, int failureStep) {
-
-            if (count < failureStep) {
-                throw new IllegalArgumentException("failureStep must be > count");
+        public void addFailureResponse(int count) {
+            for (int i = 0; i < count; i++) {
+                responses.add(new Response(false, getFailureResponse()));
             }
+        }
 
+        /** Fail the next operation for the given deployment, whatever order operations arrive in */
+        public void addFailureResponse(String deploymentName) {
+            failures.put(deploymentName, new Response(false, getFailureResponse()));
+        }
+
+        private ModelNode getFailureResponse() {
             ModelNode rsp = new ModelNode();
             rsp.get(OUTCOME).set(FAILED);
-            ModelNode result = rsp.get(RESULT);
-            for (int i = 1; i <= count; i++) {
-                String step = "step-" + i;
-                if (i < failureStep) {
-                    result.get(step, OUTCOME).set(FAILED);
-                    result.get(step, RESULT);
-                    result.get(step, ROLLED_BACK).set(true);
-                }
-                else if (i == failureStep){
-                    result.get(step, OUTCOME).set(FAILED);
-                    result.get(step, FAILURE_DESCRIPTION).set(new ModelNode().set("badness happened"));
-                    result.get(step, ROLLED_BACK).set(true);
-                }
-                else {
-                    result.get(step, OUTCOME).set(CANCELLED);
-                }
-            }
             rsp.get(FAILURE_DESCRIPTION).set(new ModelNode().set("badness happened"));
             rsp.get(ROLLED_BACK).set(true);
-
-            responses.add(new Response(true, rsp));
+            return rsp;
         }
 
         private ModelNode getDeploymentNamesResponse() {
@@ -1185,6 +1223,9 @@ public class FileSystemDeploymentServiceUnitTestCase {
         public ModelNode execute(Operation operation) throws CancellationException {
             ModelNode op = operation.getOperation();
             requests.add(op);
+            if (beforeExecute != null) {
+                beforeExecute.run();
+            }
             return processOp(op);
         }
 
@@ -1194,55 +1235,70 @@ public class FileSystemDeploymentServiceUnitTestCase {
             if (READ_CHILDREN_NAMES_OPERATION.equals(opName)) {
                 return getDeploymentNamesResponse();
             }
-            else if (COMPOSITE.equals(opName)) {
+
+            Response response = failures.remove(getDeploymentName(op));
+            if (response == null) {
+                if (responses.isEmpty()) {
+                    Assert.fail("unexpected request " + op);
+                    return null; // unreachable
+                }
+                response = responses.remove(0);
+            }
+            if (response.ok) {
+                // don't change state for a failed response
+                applyOp(op);
+            }
+            return response.rsp;
+        }
+
+        private String getDeploymentName(ModelNode op) {
+            String opName = op.require(OP).asString();
+            if (COMPOSITE.equals(opName)) {
+                return getDeploymentName(op.require(STEPS).asList().get(0));
+            }
+            else if (FULL_REPLACE_DEPLOYMENT.equals(opName)) {
+                return op.require(NAME).asString();
+            }
+            return PathAddress.pathAddress(op.require(OP_ADDR)).getLastElement().getValue();
+        }
+
+        private void applyOp(ModelNode op) {
+            String opName = op.require(OP).asString();
+            if (COMPOSITE.equals(opName)) {
                 for (ModelNode child : op.require(STEPS).asList()) {
-                    opName = child.require(OP).asString();
-                    if (COMPOSITE.equals(opName)) {
-                        return processOp(child);
-                    }
-
-                    if (responses.isEmpty()) {
-                        Assert.fail("unexpected request " + op);
-                        return null; // unreachable
-                    }
-
-                    if (!responses.get(0).ok) {
-                        // don't change state for a failed response
-                        continue;
-                    }
-
-                    PathAddress address = PathAddress.pathAddress(child.require(OP_ADDR));
-                    if (ADD.equals(opName)) {
-                        // Since AS7-431 the content is no longer managed
-                        //added.put(address.getLastElement().getValue(), child.require(CONTENT).require(0).require(HASH).asBytes());
-                        added.put(address.getLastElement().getValue(), randomHash());
-                    }
-                    else if (REMOVE.equals(opName)) {
-                        added.remove(address.getLastElement().getValue());
-                    }
-                    else if (DEPLOY.equals(opName)) {
-                        String name = address.getLastElement().getValue();
-                        deployed.put(name, added.get(name));
-                    }
-                    else if (UNDEPLOY.equals(opName)) {
-                        deployed.remove(address.getLastElement().getValue());
-                    }
-                    else if (FULL_REPLACE_DEPLOYMENT.equals(opName)) {
-                        String name = child.require(NAME).asString();
-                        // Since AS7-431 the content is no longer managed
-                        //byte[] hash = child.require(CONTENT).require(0).require(HASH).asBytes();
-                        final byte[] hash = randomHash();
-                        added.put(name, hash);
-                        deployed.put(name, hash);
-                    }
-                    else {
-                        throw new IllegalArgumentException("unexpected step " + opName);
-                    }
+                    applyOp(child);
                 }
-                return responses.remove(0).rsp;
+                return;
+            }
+
+            if (FULL_REPLACE_DEPLOYMENT.equals(opName)) {
+                String name = op.require(NAME).asString();
+                // Since AS7-431 the content is no longer managed
+                //byte[] hash = op.require(CONTENT).require(0).require(HASH).asBytes();
+                final byte[] hash = randomHash();
+                added.put(name, hash);
+                deployed.put(name, hash);
+                return;
+            }
+
+            PathAddress address = PathAddress.pathAddress(op.require(OP_ADDR));
+            if (ADD.equals(opName)) {
+                // Since AS7-431 the content is no longer managed
+                //added.put(address.getLastElement().getValue(), op.require(CONTENT).require(0).require(HASH).asBytes());
+                added.put(address.getLastElement().getValue(), randomHash());
+            }
+            else if (REMOVE.equals(opName)) {
+                added.remove(address.getLastElement().getValue());
+            }
+            else if (DEPLOY.equals(opName)) {
+                String name = address.getLastElement().getValue();
+                deployed.put(name, added.get(name));
+            }
+            else if (UNDEPLOY.equals(opName)) {
+                deployed.remove(address.getLastElement().getValue());
             }
-            else {
-                throw new IllegalArgumentException("unexpected operation " + opName);
+            else if (!REDEPLOY.equals(opName)) {
+                throw new IllegalArgumentException("unexpected step " + opName);
             }
         }
 
@@ -1278,7 +1334,7 @@ public class FileSystemDeploymentServiceUnitTestCase {
 
         @Override
         public <T> Future<T> submit(Callable<T> tCallable) {
-            return new CallOnGetFuture<T>(tCallable);
+            return new CallOnSubmitFuture<T>(tCallable);
         }
 
         void clear() {
@@ -1286,11 +1342,15 @@ public class FileSystemDeploymentServiceUnitTestCase {
         }
     }
 
-    private static class CallOnGetFuture<T> implements Future<T> {
-        final Callable<T> callable;
+    private static class CallOnSubmitFuture<T> implements Future<T> {
+        final T result;
 
-        private CallOnGetFuture(Callable<T> callable) {
-            this.callable = callable;
+        private CallOnSubmitFuture(Callable<T> callable) {
+            try {
+                result = callable.call();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
         }
 
         @Override
@@ -1305,62 +1365,56 @@ public class FileSystemDeploymentServiceUnitTestCase {
 
         @Override
         public boolean isDone() {
-            return false;
+            return true;
         }
 
         @Override
-        public T get() throws InterruptedException, ExecutionException {
-            try {
-                return callable.call();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+        public T get() {
+            return result;
         }
 
         @Override
-        public T get(long l, TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
-            return get();
+        public T get(long l, TimeUnit timeUnit) {
+            return result;
         }
     }
 
-    private static class TimeOutFuture<T> implements Future<T> {
-        final long expectedTimeout;
+    private static class PendingFuture<T> implements Future<T> {
         final Callable<T> callable;
+        boolean cancelled;
 
-        private TimeOutFuture(long expectedTimeout, Callable<T> callable) {
-            this.expectedTimeout = expectedTimeout;
+        private PendingFuture(Callable<T> callable) {
             this.callable = callable;
         }
 
+        void run() throws Exception {
+            callable.call();
+        }
+
         @Override
         public boolean cancel(boolean b) {
-            return false;
+            cancelled = true;
+            return true;
         }
 
         @Override
         public boolean isCancelled() {
-            return false;
+            return cancelled;
         }
 
         @Override
         public boolean isDone() {
-            return false;
+            return cancelled;
         }
 
         @Override
-        public T get() throws InterruptedException, ExecutionException {
-            try {
-                return callable.call();
-            } catch (Exception e) {
-                // Ignore
-                return null;
-            }
+        public T get() {
+            throw new UnsupportedOperationException("not supported");
         }
 
         @Override
-        public T get(long l, TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
-            assertEquals( "Should use the configured timeout", expectedTimeout, l);
-            throw new TimeoutException();
+        public T get(long l, TimeUnit timeUnit) {
+            throw new UnsupportedOperationException("not supported");
         }
     }
 
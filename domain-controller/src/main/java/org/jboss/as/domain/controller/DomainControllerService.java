@@ -24,6 +24,7 @@ package org.jboss.as.domain.controller;
 
 import org.jboss.as.controller.ResultHandler;
 import org.jboss.as.controller.client.OperationBuilder;
+import org.jboss.as.controller.persistence.CoalescingConfigurationPersister;
 import org.jboss.as.controller.persistence.ConfigurationPersistenceException;
 import org.jboss.as.controller.persistence.ExtensibleConfigurationPersister;
 import org.jboss.as.process.CommandLineConstants;
@@ -111,6 +112,15 @@ public final class DomainControllerService implements Service<DomainController>
             masterClient.unregister();
         }
         this.controller = null;
+        if (configurationPersister instanceof CoalescingConfigurationPersister) {
+            // Make sure acknowledged changes are on disk before we go away. The persister is reused if we are
+            // started again, so it is only flushed, not shut down
+            try {
+                ((CoalescingConfigurationPersister) configurationPersister).flush();
+            } catch (ConfigurationPersistenceException e) {
+                log.error("Failed to persist configuration changes", e);
+            }
+        }
     }
 
     /** {@inheritDoc} */
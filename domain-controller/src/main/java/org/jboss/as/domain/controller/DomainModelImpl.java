@@ -26,11 +26,13 @@ import org.jboss.as.controller.BasicModelController;
 import org.jboss.as.controller.ControllerResource;
 import org.jboss.as.controller.ControllerTransactionContext;
 import org.jboss.as.controller.ControllerTransactionSynchronization;
+import org.jboss.as.controller.CopyOnWriteModelProvider;
 import org.jboss.as.controller.Extension;
 import org.jboss.as.controller.ExtensionContext;
 import org.jboss.as.controller.ModelController;
 import org.jboss.as.controller.ModelProvider;
 import org.jboss.as.controller.ModelRemoveOperationHandler;
+import org.jboss.as.controller.ModelSnapshot;
 import org.jboss.as.controller.ModelUpdateOperationHandler;
 import org.jboss.as.controller.OperationContext;
 import org.jboss.as.controller.OperationContextFactory;
@@ -231,6 +233,8 @@ public class DomainModelImpl extends BasicModelController implements DomainModel
 
         this.serverOperationResolver = new ServerOperationResolver(getLocalHostName());
         initializeExtensions(ourModel, extensionContext);
+        // We modified the model directly above
+        invalidateModelSnapshot();
         this.hosts = Collections.unmodifiableMap(hosts);
     }
 
@@ -267,11 +271,11 @@ public class DomainModelImpl extends BasicModelController implements DomainModel
     }
 
     public ModelNode getDomainAndHostModel() {
-        return super.getModel().clone();
+        return getModelSnapshot().getModel().clone();
     }
 
     public ModelNode getHostModel() {
-        ModelNode model = super.getModel().clone();
+        ModelNode model = getModelSnapshot().getModel().clone();
         // extract host model.
         return model.get(HOST, getLocalHostName());
     }
@@ -292,7 +296,7 @@ public class DomainModelImpl extends BasicModelController implements DomainModel
 
     @Override
     public ModelNode getDomainModel() {
-        ModelNode model = super.getModel().clone();
+        ModelNode model = getModelSnapshot().getModel().clone();
         // trim off the host model
         model.get(HOST).set(new ModelNode());
         return model;
@@ -436,10 +440,13 @@ public class DomainModelImpl extends BasicModelController implements DomainModel
 
     void setInitialDomainModel(ModelNode domainModel) {
         ModelNode root = getModel();
-        // Preserve the "host" subtree
-        ModelNode host = root.get(HOST);
-        root.set(domainModel);
-        root.get(HOST).set(host);
+        synchronized (root) {
+            // Preserve the "host" subtree
+            ModelNode host = root.get(HOST);
+            root.set(domainModel);
+            root.get(HOST).set(host);
+            invalidateModelSnapshot();
+        }
         // Now we know what extensions are needed
         initializeExtensions(domainModel, extensionContext);
     }
@@ -549,7 +556,7 @@ public class DomainModelImpl extends BasicModelController implements DomainModel
         overallResult.get(RESULT, DOMAIN_RESULTS).set(domainResult);
         ModelNode fullModel = tx.targetResource == null ? null : tx.targetResource.getUncommittedModel();
         if (fullModel == null) {
-            fullModel = getDomainAndHostModel();
+            fullModel = getModelSnapshot().getModel();
         }
         ModelNode hostModel = fullModel.get(HOST, getLocalHostName());
         Map<Set<ServerIdentity>, ModelNode> serverOps = parsedOp.getServerOps(fullModel, hostModel);
@@ -574,7 +581,7 @@ public class DomainModelImpl extends BasicModelController implements DomainModel
     }
 
     private String getServerGroup(String serverName) {
-        return getModel().require(HOST).require(getLocalHostName()).require(SERVER_CONFIG).require(serverName).require(GROUP).asString();
+        return getModelSnapshot().getModel().require(HOST).require(getLocalHostName()).require(SERVER_CONFIG).require(serverName).require(GROUP).asString();
     }
 
     private Map<Set<ServerIdentity>, ModelNode> getServerOperations(ModelNode domainOp, PathAddress domainOpAddress, ModelNode domainModel, ModelNode hostModel) {
@@ -806,6 +813,12 @@ public class DomainModelImpl extends BasicModelController implements DomainModel
     }
 
     private static interface UncommittedModelProviderControllerResource extends ControllerResource {
+        /**
+         * Gets the model as it will be once this resource commits.
+         *
+         * @return the model, which is protected and must not be modified, or {@code null} if the resource does not
+         *         change the model
+         */
         ModelNode getUncommittedModel();
     }
 
@@ -1092,7 +1105,7 @@ public class DomainModelImpl extends BasicModelController implements DomainModel
 
                     @Override
                     public ModelNode getUncommittedModel() {
-                        return localModel;
+                        return getLocalModel();
                     }
 
                 };
@@ -1104,7 +1117,7 @@ public class DomainModelImpl extends BasicModelController implements DomainModel
 
             final ModelNode model = modelSource.getModel();
             synchronized (model) {
-                model.set(localModel);
+                commitLocalModel();
                 if (modelUpdated) {
                     DomainModelImpl.this.persistConfiguration(model, injectedConfigPersisterProvider);
                 }
@@ -1142,14 +1155,11 @@ public class DomainModelImpl extends BasicModelController implements DomainModel
         @Override
         public void commit() {
             if (address != null) {
-                final ModelNode model = operationControllerContext.getModelProvider().getModel();
+                final ModelProvider modelProvider = operationControllerContext.getModelProvider();
+                final ModelNode model = modelProvider.getModel();
                 synchronized (model) {
-                    if (isRemove) {
-                        address.remove(model);
-                    } else {
-                        address.navigate(model, true).set(subModel);
-                    }
-                    persistConfiguration(model, operationControllerContext.getConfigurationPersisterProvider());
+                    updateModel(modelProvider, address, isRemove ? null : subModel);
+                    persistConfiguration(modelProvider.getModel(), operationControllerContext.getConfigurationPersisterProvider());
                 }
 
             }
@@ -1164,7 +1174,13 @@ public class DomainModelImpl extends BasicModelController implements DomainModel
         public ModelNode getUncommittedModel() {
             ModelNode model = null;
             if (address != null) {
-                model = operationControllerContext.getModelProvider().getModel();
+                final ModelProvider modelProvider = operationControllerContext.getModelProvider();
+                if (modelProvider instanceof CopyOnWriteModelProvider) {
+                    // Only copies the nodes along the address
+                    final ModelSnapshot snapshot = ((CopyOnWriteModelProvider) modelProvider).getSnapshot();
+                    return (isRemove ? snapshot.remove(address) : snapshot.write(address, subModel)).getModel();
+                }
+                model = modelProvider.getModel();
                 synchronized (model) {
                     model = model.clone();
                 }
@@ -1173,6 +1189,7 @@ public class DomainModelImpl extends BasicModelController implements DomainModel
                 } else {
                     address.navigate(model, true).set(subModel);
                 }
+                model.protect();
             }
             return model;
         }
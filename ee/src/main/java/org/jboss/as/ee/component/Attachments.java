@@ -37,4 +37,6 @@ public class Attachments {
     public static final AttachmentKey<EEModuleConfiguration> EE_MODULE_CONFIGURATION = AttachmentKey.create(EEModuleConfiguration.class);
 
     public static final AttachmentKey<DeploymentDescriptorEnvironment> MODULE_DEPLOYMENT_DESCRIPTOR_ENVIRONMENT = AttachmentKey.create(DeploymentDescriptorEnvironment.class);
+
+    public static final AttachmentKey<ViewProxyFactories> VIEW_PROXY_FACTORIES = AttachmentKey.create(ViewProxyFactories.class);
 }
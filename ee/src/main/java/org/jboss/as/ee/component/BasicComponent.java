@@ -66,9 +66,18 @@ public class BasicComponent implements Component {
     public BasicComponent(final BasicComponentCreateService createService) {
         componentName = createService.getComponentName();
         componentClass = createService.getComponentClass();
-        postConstruct = createService.getPostConstruct();
-        preDestroy = createService.getPreDestroy();
-        interceptorFactoryMap = createService.getComponentInterceptors();
+        // create the interceptors which are shared by all instances of this component up front, so that only the
+        // instance dependent interceptors are created by constructComponentInstance
+        final SimpleInterceptorFactoryContext context = new SimpleInterceptorFactoryContext();
+        context.getContextData().put(Component.class, this);
+        postConstruct = bind(createService.getPostConstruct(), context);
+        preDestroy = bind(createService.getPreDestroy(), context);
+        final Map<Method, InterceptorFactory> componentInterceptors = createService.getComponentInterceptors();
+        final IdentityHashMap<Method, InterceptorFactory> interceptorFactoryMap = new IdentityHashMap<Method, InterceptorFactory>(componentInterceptors.size());
+        for (Map.Entry<Method, InterceptorFactory> entry : componentInterceptors.entrySet()) {
+            interceptorFactoryMap.put(entry.getKey(), bind(entry.getValue(), context));
+        }
+        this.interceptorFactoryMap = interceptorFactoryMap;
     }
 
     /**
@@ -137,9 +146,9 @@ public class BasicComponent implements Component {
         final Map<Method, InterceptorFactory> interceptorFactoryMap = this.getInterceptorFactoryMap();
         // This is an identity map.  This means that only <b>certain</b> {@code Method} objects will
         // match - specifically, they must equal the objects provided to the proxy.
-        final IdentityHashMap<Method, Interceptor> interceptorMap = new IdentityHashMap<Method, Interceptor>();
-        for (Method method : interceptorFactoryMap.keySet()) {
-            interceptorMap.put(method, interceptorFactoryMap.get(method).create(context));
+        final IdentityHashMap<Method, Interceptor> interceptorMap = new IdentityHashMap<Method, Interceptor>(interceptorFactoryMap.size());
+        for (Map.Entry<Method, InterceptorFactory> entry : interceptorFactoryMap.entrySet()) {
+            interceptorMap.put(entry.getKey(), entry.getValue().create(context));
         }
 
         // create the component instance
@@ -221,6 +230,10 @@ public class BasicComponent implements Component {
         }
     }
 
+    private static InterceptorFactory bind(final InterceptorFactory factory, final SimpleInterceptorFactoryContext context) {
+        return factory instanceof InterceptorChainFactory ? ((InterceptorChainFactory) factory).bind(context) : factory;
+    }
+
     Map<Method, InterceptorFactory> getInterceptorFactoryMap() {
         return interceptorFactoryMap;
     }
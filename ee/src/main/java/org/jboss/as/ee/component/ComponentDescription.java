@@ -55,7 +55,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.jboss.as.server.deployment.Attachments.REFLECTION_INDEX;
 
@@ -68,8 +67,6 @@ public class ComponentDescription {
 
     private static final DefaultFirstConfigurator FIRST_CONFIGURATOR = new DefaultFirstConfigurator();
 
-    private static final AtomicInteger PROXY_ID = new AtomicInteger(0);
-
     private static final Class[] EMPTY_CLASS_ARRAY = new Class[0];
 
     private final ServiceName serviceName;
@@ -407,6 +404,7 @@ public class ComponentDescription {
             final DeploymentReflectionIndex deploymentReflectionIndex = deploymentUnit.getAttachment(REFLECTION_INDEX);
             final Object instanceKey = BasicComponentInstance.INSTANCE_KEY;
             final Module module = deploymentUnit.getAttachment(org.jboss.as.server.deployment.Attachments.MODULE);
+            final ViewProxyFactories proxyFactories = deploymentUnit.getAttachment(Attachments.VIEW_PROXY_FACTORIES);
 
             // Module stuff
             final EEModuleClassConfiguration componentClassConfiguration = configuration.getModuleClassConfiguration();
@@ -651,12 +649,8 @@ public class ComponentDescription {
                 } catch (ClassNotFoundException e) {
                     throw new DeploymentUnitProcessingException("Could not load view class " + view.getViewClassName() + " for component " + configuration, e);
                 }
-                final ViewConfiguration viewConfiguration;
-                if (viewClass.isInterface()) {
-                    viewConfiguration = new ViewConfiguration(viewClass, configuration, view.getServiceName(), new ProxyFactory(viewClass.getName() + "$$$view" + PROXY_ID.incrementAndGet(), Object.class, viewClass.getClassLoader(), viewClass));
-                } else {
-                    viewConfiguration = new ViewConfiguration(viewClass, configuration, view.getServiceName(), new ProxyFactory(viewClass.getName() + "$$$view" + PROXY_ID.incrementAndGet(), viewClass, viewClass.getClassLoader()));
-                }
+                final ProxyFactory<?> proxyFactory = proxyFactories != null ? proxyFactories.getProxyFactory(viewClass) : ViewProxyFactories.createProxyFactory(viewClass);
+                final ViewConfiguration viewConfiguration = new ViewConfiguration(viewClass, configuration, view.getServiceName(), proxyFactory);
                 for (final ViewConfigurator configurator : view.getConfigurators()) {
                     configurator.configure(context, configuration, view, viewConfiguration);
                 }
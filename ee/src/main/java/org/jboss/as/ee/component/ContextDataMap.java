@@ -0,0 +1,85 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ee.component;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The context data of a view invocation. Most invocations never touch it, so the backing map is only created
+ * once something is stored.
+ */
+final class ContextDataMap<K, V> extends AbstractMap<K, V> {
+    private Map<K, V> map;
+
+    public V get(final Object key) {
+        return map == null ? null : map.get(key);
+    }
+
+    public boolean containsKey(final Object key) {
+        return map != null && map.containsKey(key);
+    }
+
+    public V put(final K key, final V value) {
+        return map().put(key, value);
+    }
+
+    public void putAll(final Map<? extends K, ? extends V> m) {
+        if (!m.isEmpty()) {
+            map().putAll(m);
+        }
+    }
+
+    public V remove(final Object key) {
+        return map == null ? null : map.remove(key);
+    }
+
+    public int size() {
+        return map == null ? 0 : map.size();
+    }
+
+    public boolean isEmpty() {
+        return map == null || map.isEmpty();
+    }
+
+    public void clear() {
+        if (map != null) {
+            map.clear();
+        }
+    }
+
+    public Set<Entry<K, V>> entrySet() {
+        return map == null ? Collections.<Entry<K, V>>emptySet() : map.entrySet();
+    }
+
+    private Map<K, V> map() {
+        Map<K, V> map = this.map;
+        if (map == null) {
+            map = this.map = new HashMap<K, V>();
+        }
+        return map;
+    }
+}
@@ -54,8 +54,10 @@ public final class EEModuleInitialProcessor implements DeploymentUnitProcessor {
             }
         }
         deploymentUnit.putAttachment(Attachments.EE_MODULE_DESCRIPTION, new EEModuleDescription(appName, moduleName));
+        deploymentUnit.putAttachment(Attachments.VIEW_PROXY_FACTORIES, new ViewProxyFactories());
     }
 
     public void undeploy(final DeploymentUnit context) {
+        context.removeAttachment(Attachments.VIEW_PROXY_FACTORIES);
     }
 }
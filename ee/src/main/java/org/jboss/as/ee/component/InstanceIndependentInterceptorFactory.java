@@ -0,0 +1,35 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ee.component;
+
+import org.jboss.invocation.InterceptorFactory;
+
+/**
+ * An interceptor factory whose interceptors do not depend on the component instance they are created for.  Such
+ * interceptors are created once, when the component is constructed, and are shared by all of the component's
+ * instances.  The factory context passed to {@link #create(org.jboss.invocation.InterceptorFactoryContext)} holds the
+ * {@link Component} but no instance state, and must not be used to pass data to the other factories of the chain.
+ * As the component may not be fully constructed yet, the factory should only keep a reference to it.
+ */
+public interface InstanceIndependentInterceptorFactory extends InterceptorFactory {
+}
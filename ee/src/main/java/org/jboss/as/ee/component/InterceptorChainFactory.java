@@ -0,0 +1,92 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ee.component;
+
+import org.jboss.invocation.ImmediateInterceptorFactory;
+import org.jboss.invocation.Interceptor;
+import org.jboss.invocation.InterceptorFactory;
+import org.jboss.invocation.InterceptorFactoryContext;
+import org.jboss.invocation.Interceptors;
+
+import java.util.Collection;
+
+/**
+ * A factory for an interceptor chain which can bind the instance independent part of the chain to a component, so
+ * that creating the chain for a component instance only creates the interceptors which depend on that instance.
+ *
+ * @see InstanceIndependentInterceptorFactory
+ */
+final class InterceptorChainFactory implements InterceptorFactory {
+    private final InterceptorFactory[] factories;
+    private final Interceptor[] shared;
+    private final Interceptor sharedChain;
+
+    InterceptorChainFactory(final Collection<InterceptorFactory> factories) {
+        this(factories.toArray(new InterceptorFactory[factories.size()]), null, null);
+    }
+
+    private InterceptorChainFactory(final InterceptorFactory[] factories, final Interceptor[] shared, final Interceptor sharedChain) {
+        this.factories = factories;
+        this.shared = shared;
+        this.sharedChain = sharedChain;
+    }
+
+    /**
+     * Create the instance independent interceptors of this chain.
+     *
+     * @param context the factory context of the component
+     * @return a factory which reuses the instance independent interceptors for every chain it creates
+     */
+    InterceptorChainFactory bind(final InterceptorFactoryContext context) {
+        final Interceptor[] shared = new Interceptor[factories.length];
+        int count = 0;
+        for (int i = 0; i < factories.length; i++) {
+            if (isInstanceIndependent(factories[i])) {
+                shared[i] = factories[i].create(context);
+                count++;
+            }
+        }
+        if (count == 0) {
+            return this;
+        }
+        return new InterceptorChainFactory(factories, shared, count == factories.length ? Interceptors.getChainedInterceptor(shared) : null);
+    }
+
+    /** {@inheritDoc} */
+    public Interceptor create(final InterceptorFactoryContext context) {
+        if (sharedChain != null) {
+            return sharedChain;
+        }
+        final Interceptor[] interceptors = new Interceptor[factories.length];
+        for (int i = 0; i < factories.length; i++) {
+            final Interceptor interceptor = shared == null ? null : shared[i];
+            interceptors[i] = interceptor != null ? interceptor : factories[i].create(context);
+        }
+        return Interceptors.getChainedInterceptor(interceptors);
+    }
+
+    private static boolean isInstanceIndependent(final InterceptorFactory factory) {
+        // an immediate factory hands out the same interceptor to every instance anyway
+        return factory instanceof InstanceIndependentInterceptorFactory || factory instanceof ImmediateInterceptorFactory;
+    }
+}
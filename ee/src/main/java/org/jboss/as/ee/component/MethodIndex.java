@@ -0,0 +1,98 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ee.component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+
+/**
+ * Assigns each method of a view a fixed index, so per-proxy dispatch tables can be plain arrays. Lookups are by
+ * identity, which holds for the cached methods a proxy passes to its invocation handler.
+ */
+final class MethodIndex {
+    private final Method[] methods;
+    private final Method[] keys;
+    private final int[] indexes;
+    private final int mask;
+
+    MethodIndex(final Collection<Method> methods) {
+        this.methods = methods.toArray(new Method[methods.size()]);
+        int capacity = 2;
+        while (capacity < this.methods.length * 2) {
+            capacity <<= 1;
+        }
+        keys = new Method[capacity];
+        indexes = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < this.methods.length; i++) {
+            int slot = hash(this.methods[i]) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = this.methods[i];
+            indexes[slot] = i;
+        }
+    }
+
+    /**
+     * Get the number of indexed methods.
+     *
+     * @return the number of methods
+     */
+    int size() {
+        return methods.length;
+    }
+
+    /**
+     * Get the method with the given index.
+     *
+     * @param index the index
+     * @return the method
+     */
+    Method getMethod(final int index) {
+        return methods[index];
+    }
+
+    /**
+     * Get the index of the given method.
+     *
+     * @param method the method
+     * @return the index, or {@code -1} if the method is not part of this index
+     */
+    int indexOf(final Method method) {
+        int slot = hash(method) & mask;
+        Method key;
+        while ((key = keys[slot]) != null) {
+            if (key == method) {
+                return indexes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int hash(final Method method) {
+        final int h = System.identityHashCode(method);
+        return h ^ (h >>> 16);
+    }
+}
@@ -27,17 +27,19 @@ import org.jboss.invocation.InterceptorContext;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * An invocation handler for a component proxy.
+ * <p>
+ * The interceptors are kept in an array indexed by a {@link MethodIndex} which is shared by all proxies of a view,
+ * and the context data map of an invocation is only populated when an interceptor stores something in it.
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
 public final class ProxyInvocationHandler implements InvocationHandler {
 
-    private final Map<Method, Interceptor> interceptors;
+    private final MethodIndex methodIndex;
+    private final Interceptor[] interceptors;
     private final Component component;
     private final ComponentView componentView;
     private final ComponentViewInstance componentViewInstance;
@@ -45,12 +47,14 @@ public final class ProxyInvocationHandler implements InvocationHandler {
     /**
      * Construct a new instance.
      *
-     * @param interceptors the interceptors map to use
+     * @param methodIndex the index of the view methods
+     * @param interceptors the interceptors, by method index
      * @param component The component
      * @param componentView The component view
      * @param componentViewInstance The instance of the component view that this is a handler for
      */
-    public ProxyInvocationHandler(final Map<Method, Interceptor> interceptors, Component component, ComponentView componentView, ComponentViewInstance componentViewInstance) {
+    ProxyInvocationHandler(final MethodIndex methodIndex, final Interceptor[] interceptors, Component component, ComponentView componentView, ComponentViewInstance componentViewInstance) {
+        this.methodIndex = methodIndex;
         this.interceptors = interceptors;
         this.component = component;
         this.componentView = componentView;
@@ -59,7 +63,8 @@ public final class ProxyInvocationHandler implements InvocationHandler {
 
     /** {@inheritDoc} */
     public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
-        final Interceptor interceptor = interceptors.get(method);
+        final int index = methodIndex.indexOf(method);
+        final Interceptor interceptor = index < 0 ? null : interceptors[index];
         if (interceptor == null) {
             throw new NoSuchMethodError(method.toString());
         }
@@ -72,7 +77,7 @@ public final class ProxyInvocationHandler implements InvocationHandler {
         context.setParameters(args);
         context.setMethod(method);
         // setup the public context data
-        context.setContextData(new HashMap());
+        context.setContextData(new ContextDataMap<String, Object>());
         return interceptor.processInvocation(context);
     }
 }
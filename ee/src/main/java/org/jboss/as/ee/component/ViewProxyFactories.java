@@ -0,0 +1,74 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ee.component;
+
+import org.jboss.invocation.proxy.ProxyFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The proxy factories of the views of a deployment, keyed by view class. Every component exposing the same view
+ * class shares one generated proxy class instead of defining its own. Since a class is keyed together with its
+ * class loader, the cache never hands out a proxy class for a view class loaded elsewhere.
+ */
+public final class ViewProxyFactories {
+
+    private static final AtomicInteger PROXY_ID = new AtomicInteger(0);
+
+    private final ConcurrentMap<Class<?>, ProxyFactory<?>> factories = new ConcurrentHashMap<Class<?>, ProxyFactory<?>>();
+
+    /**
+     * Get the proxy factory for the given view class, creating it on first use.
+     *
+     * @param viewClass the view class
+     * @return the proxy factory
+     */
+    public ProxyFactory<?> getProxyFactory(final Class<?> viewClass) {
+        ProxyFactory<?> factory = factories.get(viewClass);
+        if (factory == null) {
+            final ProxyFactory<?> newFactory = createProxyFactory(viewClass);
+            factory = factories.putIfAbsent(viewClass, newFactory);
+            if (factory == null) {
+                factory = newFactory;
+            }
+        }
+        return factory;
+    }
+
+    /**
+     * Create a proxy factory for the given view class which is not shared with any other view.
+     *
+     * @param viewClass the view class
+     * @return the proxy factory
+     */
+    @SuppressWarnings({ "unchecked" })
+    public static ProxyFactory<?> createProxyFactory(final Class<?> viewClass) {
+        if (viewClass.isInterface()) {
+            return new ProxyFactory(viewClass.getName() + "$$$view" + PROXY_ID.incrementAndGet(), Object.class, viewClass.getClassLoader(), viewClass);
+        } else {
+            return new ProxyFactory(viewClass.getName() + "$$$view" + PROXY_ID.incrementAndGet(), viewClass, viewClass.getClassLoader());
+        }
+    }
+}
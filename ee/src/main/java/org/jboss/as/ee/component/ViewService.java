@@ -50,8 +50,10 @@ import java.util.Set;
 final class ViewService implements Service<ComponentView> {
     private static final Logger logger = Logger.getLogger(ViewService.class);
     private final InjectedValue<Component> componentInjector = new InjectedValue<Component>();
-    private final Map<Method, InterceptorFactory> viewInterceptorFactories;
-    private final Map<Method, InterceptorFactory> clientInterceptorFactories;
+    private final MethodIndex viewMethodIndex;
+    private final InterceptorFactory[] viewInterceptorFactories;
+    private final MethodIndex clientMethodIndex;
+    private final InterceptorFactory[] clientInterceptorFactories;
     private final InterceptorFactory viewPostConstruct;
     private final InterceptorFactory viewPreDestroy;
     private final InterceptorFactory clientPostConstruct;
@@ -88,8 +90,19 @@ final class ViewService implements Service<ComponentView> {
                 clientInterceptorFactories.put(method, Interceptors.getChainedInterceptorFactory(viewConfiguration.getClientInterceptorDeque(method)));
             }
         }
-        this.viewInterceptorFactories = viewInterceptorFactories;
-        this.clientInterceptorFactories = clientInterceptorFactories;
+        // view instances and proxies share the method indexes and only allocate arrays of interceptors
+        final MethodIndex viewMethodIndex = new MethodIndex(viewInterceptorFactories.keySet());
+        this.viewMethodIndex = viewMethodIndex;
+        this.viewInterceptorFactories = new InterceptorFactory[viewMethodIndex.size()];
+        for (int i = 0; i < this.viewInterceptorFactories.length; i++) {
+            this.viewInterceptorFactories[i] = viewInterceptorFactories.get(viewMethodIndex.getMethod(i));
+        }
+        final MethodIndex clientMethodIndex = new MethodIndex(clientInterceptorFactories.keySet());
+        this.clientMethodIndex = clientMethodIndex;
+        this.clientInterceptorFactories = new InterceptorFactory[clientMethodIndex.size()];
+        for (int i = 0; i < this.clientInterceptorFactories.length; i++) {
+            this.clientInterceptorFactories[i] = clientInterceptorFactories.get(clientMethodIndex.getMethod(i));
+        }
         allowedMethods = Collections.unmodifiableSet(viewInterceptorFactories.keySet());
     }
 
@@ -124,8 +137,8 @@ final class ViewService implements Service<ComponentView> {
 
         public ComponentViewInstance createInstance(Map<Object, Object> contextData) {
             final SimpleInterceptorFactoryContext factoryContext = new SimpleInterceptorFactoryContext();
-            final Map<Method, InterceptorFactory> viewInterceptorFactories = ViewService.this.viewInterceptorFactories;
-            final Map<Method, Interceptor> viewEntryPoints = new IdentityHashMap<Method, Interceptor>(viewInterceptorFactories.size());
+            final InterceptorFactory[] viewInterceptorFactories = ViewService.this.viewInterceptorFactories;
+            final Interceptor[] viewEntryPoints = new Interceptor[viewInterceptorFactories.length];
             factoryContext.getContextData().put(Component.class, component);
             factoryContext.getContextData().putAll(contextData);
             //the post construct interceptors currently MUST be created first
@@ -133,8 +146,8 @@ final class ViewService implements Service<ComponentView> {
             //TODO: this is probably not a good thing. {@see ManagedBeanCreateInterceptorFactory}
             final Interceptor postConstructInterceptor = viewPostConstruct.create(factoryContext);
 
-            for (Method method : viewInterceptorFactories.keySet()) {
-                viewEntryPoints.put(method, viewInterceptorFactories.get(method).create(factoryContext));
+            for (int i = 0; i < viewEntryPoints.length; i++) {
+                viewEntryPoints[i] = viewInterceptorFactories[i].create(factoryContext);
             }
             final Interceptor preDestroyInterceptor = viewPreDestroy.create(factoryContext);
 
@@ -157,10 +170,10 @@ final class ViewService implements Service<ComponentView> {
 
         class ViewInstance implements ComponentViewInstance {
 
-            private final Map<Method, Interceptor> viewEntryPoints;
+            private final Interceptor[] viewEntryPoints;
             private final Interceptor preDestroyInterceptor;
 
-            ViewInstance(final Map<Method, Interceptor> viewEntryPoints, final Interceptor preDestroyInterceptor) {
+            ViewInstance(final Interceptor[] viewEntryPoints, final Interceptor preDestroyInterceptor) {
                 this.viewEntryPoints = viewEntryPoints;
                 this.preDestroyInterceptor = preDestroyInterceptor;
             }
@@ -179,14 +192,14 @@ final class ViewService implements Service<ComponentView> {
                 factoryContext.getContextData().put(ComponentView.class, View.this);
                 factoryContext.getContextData().put(ComponentViewInstance.class, this);
 
-                final Map<Method, InterceptorFactory> clientInterceptorFactories = ViewService.this.clientInterceptorFactories;
-                final Map<Method, Interceptor> clientEntryPoints = new IdentityHashMap<Method, Interceptor>(clientInterceptorFactories.size());
-                for (Method method : clientInterceptorFactories.keySet()) {
-                    clientEntryPoints.put(method, clientInterceptorFactories.get(method).create(factoryContext));
+                final InterceptorFactory[] clientInterceptorFactories = ViewService.this.clientInterceptorFactories;
+                final Interceptor[] clientEntryPoints = new Interceptor[clientInterceptorFactories.length];
+                for (int i = 0; i < clientEntryPoints.length; i++) {
+                    clientEntryPoints[i] = clientInterceptorFactories[i].create(factoryContext);
                 }
                 final Interceptor postConstructInterceptor = clientPostConstruct.create(factoryContext);
                 try {
-                    Object object = proxyFactory.newInstance(new ProxyInvocationHandler(clientEntryPoints, component, View.this, this));
+                    Object object = proxyFactory.newInstance(new ProxyInvocationHandler(clientMethodIndex, clientEntryPoints, component, View.this, this));
                     InterceptorContext interceptorContext = new InterceptorContext();
                     interceptorContext.putPrivateData(ComponentView.class, View.this);
                     interceptorContext.putPrivateData(ComponentViewInstance.class, this);
@@ -217,11 +230,11 @@ final class ViewService implements Service<ComponentView> {
             }
 
             public Interceptor getEntryPoint(final Method method) throws IllegalArgumentException {
-                Interceptor interceptor = viewEntryPoints.get(method);
-                if (interceptor == null) {
+                final int index = viewMethodIndex.indexOf(method);
+                if (index < 0) {
                     throw new IllegalArgumentException("Invalid view entry point " + method);
                 }
-                return interceptor;
+                return viewEntryPoints[index];
             }
 
             @Deprecated
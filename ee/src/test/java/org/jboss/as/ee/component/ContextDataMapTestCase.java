@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ee.component;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link ContextDataMap}.
+ */
+public class ContextDataMapTestCase {
+
+    @Test
+    public void testReadsDoNotAllocate() throws Exception {
+        final ContextDataMap<String, Object> map = new ContextDataMap<String, Object>();
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.size());
+        assertTrue(map.entrySet().isEmpty());
+        assertFalse(map.entrySet().iterator().hasNext());
+        assertNull(map.get("key"));
+        assertFalse(map.containsKey("key"));
+        assertEquals(Collections.emptyMap(), map);
+        assertFalse(isAllocated(map));
+    }
+
+    @Test
+    public void testRemoveAndClearBeforePutDoNotAllocate() throws Exception {
+        final ContextDataMap<String, Object> map = new ContextDataMap<String, Object>();
+        assertNull(map.remove("key"));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(isAllocated(map));
+    }
+
+    @Test
+    public void testPutAllOfEmptyMapDoesNotAllocate() throws Exception {
+        final ContextDataMap<String, Object> map = new ContextDataMap<String, Object>();
+        map.putAll(new HashMap<String, Object>());
+        assertTrue(map.isEmpty());
+        assertFalse(isAllocated(map));
+    }
+
+    @Test
+    public void testBehavesAsMapOncePopulated() throws Exception {
+        final ContextDataMap<String, Object> map = new ContextDataMap<String, Object>();
+        assertNull(map.put("a", "1"));
+        assertTrue(isAllocated(map));
+        final Map<String, Object> other = new HashMap<String, Object>();
+        other.put("b", "2");
+        other.put("c", "3");
+        map.putAll(other);
+
+        final Map<String, Object> expected = new HashMap<String, Object>(other);
+        expected.put("a", "1");
+        assertEquals(expected, map);
+        assertEquals(expected.entrySet(), map.entrySet());
+        assertEquals(3, map.size());
+        assertEquals("1", map.put("a", "4"));
+        assertEquals("4", map.get("a"));
+        assertTrue(map.containsKey("b"));
+
+        assertEquals("2", map.remove("b"));
+        assertNull(map.remove("b"));
+        assertEquals(2, map.size());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertTrue(map.entrySet().isEmpty());
+    }
+
+    private static boolean isAllocated(final ContextDataMap<?, ?> map) throws Exception {
+        final Field field = ContextDataMap.class.getDeclaredField("map");
+        field.setAccessible(true);
+        return field.get(map) != null;
+    }
+}
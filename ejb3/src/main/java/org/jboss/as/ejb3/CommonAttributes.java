@@ -0,0 +1,51 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3;
+
+/**
+ * Attribute names of the EJB3 subsystem model.
+ */
+interface CommonAttributes {
+
+    String INSTANCE_POOL = "instance-pool";
+    String MAX_SIZE = "max-size";
+    String TIMEOUT = "timeout";
+    String TIMEOUT_UNIT = "timeout-unit";
+    String STATEFUL_CACHE = "stateful-cache";
+    String IDLE_TIMEOUT = "idle-timeout";
+    String IDLE_TIMEOUT_UNIT = "idle-timeout-unit";
+    String REMOVAL_TIMEOUT = "removal-timeout";
+
+    // metrics
+    String POOL_CREATE_COUNT = "pool-create-count";
+    String POOL_IN_USE_COUNT = "pool-in-use-count";
+    String POOL_WAIT_TIME = "pool-wait-time";
+    String POOLS = "pools";
+    String AVAILABLE_COUNT = "available-count";
+    String CREATE_COUNT = "create-count";
+    String IN_USE_COUNT = "in-use-count";
+    String REMOVE_COUNT = "remove-count";
+    String UTILIZATION = "utilization";
+    String WAIT_COUNT = "wait-count";
+    String WAIT_TIME = "wait-time";
+}
@@ -44,9 +44,12 @@ import org.jboss.staxmapper.XMLElementWriter;
 import org.jboss.staxmapper.XMLExtendedStreamReader;
 import org.jboss.staxmapper.XMLExtendedStreamWriter;
 
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.*;
 
@@ -67,6 +70,9 @@ public class EJB3Extension implements Extension {
         final ModelNodeRegistration registration = subsystem.registerSubsystemModel(EJB3SubsystemProviders.SUBSYSTEM);
         registration.registerOperationHandler(ADD, Ejb3SubsystemAdd.INSTANCE, EJB3SubsystemProviders.SUBSYSTEM_ADD, false);
         registration.registerOperationHandler(DESCRIBE, SubsystemDescribeHandler.INSTANCE, SubsystemDescribeHandler.INSTANCE, false, OperationEntry.EntryType.PRIVATE);
+        for (final String attributeName : EJB3PoolMetrics.ATTRIBUTES) {
+            registration.registerMetric(attributeName, EJB3PoolMetrics.INSTANCE);
+        }
         subsystem.registerXMLElementWriter(parser);
     }
 
@@ -76,7 +82,7 @@ public class EJB3Extension implements Extension {
         context.setSubsystemXmlMapping(NAMESPACE, parser);
     }
 
-    static class EJB3SubsystemParser implements XMLElementReader<List<ModelNode>>, XMLElementWriter<SubsystemMarshallingContext> {
+    static class EJB3SubsystemParser implements XMLStreamConstants, XMLElementReader<List<ModelNode>>, XMLElementWriter<SubsystemMarshallingContext> {
 
         /** {@inheritDoc} */
         @Override
@@ -84,6 +90,27 @@ public class EJB3Extension implements Extension {
             // //TODO seems to be a problem with empty elements cleaning up the queue in FormattingXMLStreamWriter.runAttrQueue
             //context.startSubsystemElement(NewManagedBeansExtension.NAMESPACE, true);
             context.startSubsystemElement(NAMESPACE, false);
+            final ModelNode node = context.getModelNode();
+            if (node.hasDefined(CommonAttributes.INSTANCE_POOL)) {
+                final ModelNode pool = node.get(CommonAttributes.INSTANCE_POOL);
+                writer.writeStartElement(Element.INSTANCE_POOL.getLocalName());
+                for (Attribute attribute : EnumSet.of(Attribute.MAX_SIZE, Attribute.TIMEOUT, Attribute.TIMEOUT_UNIT)) {
+                    if (pool.hasDefined(attribute.getLocalName())) {
+                        writer.writeAttribute(attribute.getLocalName(), pool.get(attribute.getLocalName()).asString());
+                    }
+                }
+                writer.writeEndElement();
+            }
+            if (node.hasDefined(CommonAttributes.STATEFUL_CACHE)) {
+                final ModelNode cache = node.get(CommonAttributes.STATEFUL_CACHE);
+                writer.writeStartElement(Element.STATEFUL_CACHE.getLocalName());
+                for (Attribute attribute : EnumSet.of(Attribute.MAX_SIZE, Attribute.IDLE_TIMEOUT, Attribute.REMOVAL_TIMEOUT, Attribute.IDLE_TIMEOUT_UNIT)) {
+                    if (cache.hasDefined(attribute.getLocalName())) {
+                        writer.writeAttribute(attribute.getLocalName(), cache.get(attribute.getLocalName()).asString());
+                    }
+                }
+                writer.writeEndElement();
+            }
             writer.writeEndElement();
         }
 
@@ -91,27 +118,143 @@ public class EJB3Extension implements Extension {
         @Override
         public void readElement(final XMLExtendedStreamReader reader, final List<ModelNode> list) throws XMLStreamException {
             ParseUtils.requireNoAttributes(reader);
-            ParseUtils.requireNoContent(reader);
-            final ModelNode update = new ModelNode();
-            update.get(OP).set(ADD);
-            update.get(OP_ADDR).add(SUBSYSTEM, SUBSYSTEM_NAME);
+            final ModelNode update = createAddSubSystemOperation();
             list.add(update);
+
+            final EnumSet<Element> encountered = EnumSet.noneOf(Element.class);
+            while (reader.hasNext() && reader.nextTag() != END_ELEMENT) {
+                if (!NAMESPACE.equals(reader.getNamespaceURI())) {
+                    throw ParseUtils.unexpectedElement(reader);
+                }
+                final Element element = Element.forName(reader.getLocalName());
+                if (!encountered.add(element)) {
+                    throw ParseUtils.unexpectedElement(reader);
+                }
+                switch (element) {
+                    case INSTANCE_POOL: {
+                        update.get(CommonAttributes.INSTANCE_POOL).set(parseInstancePool(reader));
+                        break;
+                    }
+                    case STATEFUL_CACHE: {
+                        update.get(CommonAttributes.STATEFUL_CACHE).set(parseStatefulCache(reader));
+                        break;
+                    }
+                    default: {
+                        throw ParseUtils.unexpectedElement(reader);
+                    }
+                }
+            }
         }
-    }
 
-    private static ModelNode createAddSubSystemOperation() {
-        final ModelNode subsystem = new ModelNode();
-        subsystem.get(OP).set(ADD);
-        subsystem.get(OP_ADDR).add(ModelDescriptionConstants.SUBSYSTEM, SUBSYSTEM_NAME);
-        return subsystem;
+        static ModelNode parseInstancePool(final XMLExtendedStreamReader reader) throws XMLStreamException {
+            final ModelNode pool = new ModelNode();
+            final int count = reader.getAttributeCount();
+            for (int i = 0; i < count; i++) {
+                ParseUtils.requireNoNamespaceAttribute(reader, i);
+                final String value = reader.getAttributeValue(i);
+                final Attribute attribute = Attribute.forName(reader.getAttributeLocalName(i));
+                switch (attribute) {
+                    case MAX_SIZE: {
+                        pool.get(CommonAttributes.MAX_SIZE).set(ParseUtils.parseBoundedIntegerAttribute(reader, i, 1, Integer.MAX_VALUE));
+                        break;
+                    }
+                    case TIMEOUT: {
+                        try {
+                            final long timeout = Long.parseLong(value);
+                            if (timeout < 0) {
+                                throw ParseUtils.invalidAttributeValue(reader, i);
+                            }
+                            pool.get(CommonAttributes.TIMEOUT).set(timeout);
+                        } catch (NumberFormatException e) {
+                            throw ParseUtils.invalidAttributeValue(reader, i);
+                        }
+                        break;
+                    }
+                    case TIMEOUT_UNIT: {
+                        try {
+                            pool.get(CommonAttributes.TIMEOUT_UNIT).set(TimeUnit.valueOf(value).name());
+                        } catch (IllegalArgumentException e) {
+                            throw ParseUtils.invalidAttributeValue(reader, i);
+                        }
+                        break;
+                    }
+                    default: {
+                        throw ParseUtils.unexpectedAttribute(reader, i);
+                    }
+                }
+            }
+            ParseUtils.requireNoContent(reader);
+            return pool;
+        }
+
+        static ModelNode parseStatefulCache(final XMLExtendedStreamReader reader) throws XMLStreamException {
+            final ModelNode cache = new ModelNode();
+            final int count = reader.getAttributeCount();
+            for (int i = 0; i < count; i++) {
+                ParseUtils.requireNoNamespaceAttribute(reader, i);
+                final String value = reader.getAttributeValue(i);
+                final Attribute attribute = Attribute.forName(reader.getAttributeLocalName(i));
+                switch (attribute) {
+                    case MAX_SIZE: {
+                        cache.get(CommonAttributes.MAX_SIZE).set(ParseUtils.parseBoundedIntegerAttribute(reader, i, 0, Integer.MAX_VALUE));
+                        break;
+                    }
+                    case IDLE_TIMEOUT: {
+                        try {
+                            final long timeout = Long.parseLong(value);
+                            if (timeout < 0) {
+                                throw ParseUtils.invalidAttributeValue(reader, i);
+                            }
+                            cache.get(CommonAttributes.IDLE_TIMEOUT).set(timeout);
+                        } catch (NumberFormatException e) {
+                            throw ParseUtils.invalidAttributeValue(reader, i);
+                        }
+                        break;
+                    }
+                    case REMOVAL_TIMEOUT: {
+                        try {
+                            final long timeout = Long.parseLong(value);
+                            if (timeout < 0) {
+                                throw ParseUtils.invalidAttributeValue(reader, i);
+                            }
+                            cache.get(CommonAttributes.REMOVAL_TIMEOUT).set(timeout);
+                        } catch (NumberFormatException e) {
+                            throw ParseUtils.invalidAttributeValue(reader, i);
+                        }
+                        break;
+                    }
+                    case IDLE_TIMEOUT_UNIT: {
+                        try {
+                            cache.get(CommonAttributes.IDLE_TIMEOUT_UNIT).set(TimeUnit.valueOf(value).name());
+                        } catch (IllegalArgumentException e) {
+                            throw ParseUtils.invalidAttributeValue(reader, i);
+                        }
+                        break;
+                    }
+                    default: {
+                        throw ParseUtils.unexpectedAttribute(reader, i);
+                    }
+                }
+            }
+            ParseUtils.requireNoContent(reader);
+            return cache;
+        }
     }
 
     private static class SubsystemDescribeHandler implements ModelQueryOperationHandler, DescriptionProvider {
         static final SubsystemDescribeHandler INSTANCE = new SubsystemDescribeHandler();
         @Override
         public OperationResult execute(OperationContext context, ModelNode operation, ResultHandler resultHandler) {
+            final ModelNode add = createAddSubSystemOperation();
+            final ModelNode model = context.getSubModel();
+            if (model.hasDefined(CommonAttributes.INSTANCE_POOL)) {
+                add.get(CommonAttributes.INSTANCE_POOL).set(model.get(CommonAttributes.INSTANCE_POOL));
+            }
+            if (model.hasDefined(CommonAttributes.STATEFUL_CACHE)) {
+                add.get(CommonAttributes.STATEFUL_CACHE).set(model.get(CommonAttributes.STATEFUL_CACHE));
+            }
             ModelNode node = new ModelNode();
-            node.add(createAddSubSystemOperation());
+            node.add(add);
 
             resultHandler.handleResultFragment(Util.NO_LOCATION, node);
             resultHandler.handleResultComplete();
@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.NAME;
+
+import org.jboss.as.controller.BasicOperationResult;
+import org.jboss.as.controller.ModelQueryOperationHandler;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.OperationResult;
+import org.jboss.as.controller.ResultHandler;
+import org.jboss.as.controller.RuntimeTask;
+import org.jboss.as.controller.RuntimeTaskContext;
+import org.jboss.as.controller.operations.common.Util;
+import org.jboss.as.ejb3.component.EJBUtilities;
+import org.jboss.as.ejb3.component.pool.StripedPool;
+import org.jboss.dmr.ModelNode;
+import org.jboss.msc.service.ServiceController;
+
+/**
+ * Reports the statistics of the instance pools of the stateless session and message driven beans.
+ */
+class EJB3PoolMetrics implements ModelQueryOperationHandler {
+
+    static final EJB3PoolMetrics INSTANCE = new EJB3PoolMetrics();
+
+    static final String[] ATTRIBUTES = new String[] {CommonAttributes.POOL_CREATE_COUNT, CommonAttributes.POOL_IN_USE_COUNT,
+            CommonAttributes.POOL_WAIT_TIME, CommonAttributes.POOLS};
+
+    /** {@inheritDoc} */
+    @Override
+    public OperationResult execute(final OperationContext context, final ModelNode operation, final ResultHandler resultHandler) throws OperationFailedException {
+        if (context.getRuntimeContext() != null) {
+            context.getRuntimeContext().setRuntimeTask(new RuntimeTask() {
+                public void execute(RuntimeTaskContext context) throws OperationFailedException {
+                    final String attributeName = operation.require(NAME).asString();
+                    final ServiceController<?> controller = context.getServiceRegistry().getService(EJBUtilities.SERVICE_NAME);
+                    if (controller != null) {
+                        final EJBUtilities utilities = (EJBUtilities) controller.getValue();
+                        resultHandler.handleResultFragment(Util.NO_LOCATION, getMetric(utilities, attributeName));
+                    } else {
+                        resultHandler.handleResultFragment(Util.NO_LOCATION, new ModelNode().set("no metrics available"));
+                    }
+                    resultHandler.handleResultComplete();
+                }
+            });
+        } else {
+            resultHandler.handleResultFragment(Util.NO_LOCATION, new ModelNode().set("no metrics available"));
+            resultHandler.handleResultComplete();
+        }
+        return new BasicOperationResult();
+    }
+
+    static ModelNode getMetric(final EJBUtilities utilities, final String attributeName) {
+        final ModelNode result = new ModelNode();
+        if (CommonAttributes.POOLS.equals(attributeName)) {
+            result.setEmptyObject();
+            for (StripedPool<?> pool : utilities.getPools()) {
+                final ModelNode stats = result.get(pool.getName());
+                final int inUse = pool.getInUseCount();
+                stats.get(CommonAttributes.MAX_SIZE).set(pool.getMaxSize());
+                stats.get(CommonAttributes.IN_USE_COUNT).set(inUse);
+                stats.get(CommonAttributes.AVAILABLE_COUNT).set(pool.getAvailableCount());
+                stats.get(CommonAttributes.UTILIZATION).set(inUse * 100 / pool.getMaxSize());
+                stats.get(CommonAttributes.CREATE_COUNT).set(pool.getCreateCount());
+                stats.get(CommonAttributes.REMOVE_COUNT).set(pool.getRemoveCount());
+                stats.get(CommonAttributes.WAIT_COUNT).set(pool.getWaitCount());
+                stats.get(CommonAttributes.WAIT_TIME).set(pool.getWaitTime());
+            }
+            return result;
+        }
+        long total = 0;
+        for (StripedPool<?> pool : utilities.getPools()) {
+            if (CommonAttributes.POOL_CREATE_COUNT.equals(attributeName)) {
+                total += pool.getCreateCount();
+            } else if (CommonAttributes.POOL_IN_USE_COUNT.equals(attributeName)) {
+                total += pool.getInUseCount();
+            } else if (CommonAttributes.POOL_WAIT_TIME.equals(attributeName)) {
+                total += pool.getWaitTime();
+            }
+        }
+        return result.set(total);
+    }
+}
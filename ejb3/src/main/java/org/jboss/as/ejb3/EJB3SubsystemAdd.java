@@ -31,7 +31,9 @@ import org.jboss.as.controller.ResultHandler;
 import org.jboss.as.controller.RuntimeTask;
 import org.jboss.as.controller.RuntimeTaskContext;
 import org.jboss.as.controller.operations.common.Util;
+import org.jboss.as.ejb3.cache.CacheConfig;
 import org.jboss.as.ejb3.component.EJBUtilities;
+import org.jboss.as.ejb3.component.pool.PoolConfig;
 import org.jboss.as.ejb3.deployment.processors.AccessTimeoutAnnotationProcessor;
 import org.jboss.as.ejb3.deployment.processors.ApplicationExceptionAnnotationProcessor;
 import org.jboss.as.ejb3.deployment.processors.AsynchronousAnnotationProcessor;
@@ -56,6 +58,7 @@ import org.jboss.as.ejb3.deployment.processors.TransactionAttributeAnnotationPro
 import org.jboss.as.ejb3.deployment.processors.TransactionManagementAnnotationProcessor;
 import org.jboss.as.ejb3.deployment.processors.dd.AssemblyDescriptorProcessor;
 import org.jboss.as.ejb3.deployment.processors.dd.MessageDrivenBeanXmlDescriptorProcessor;
+import org.jboss.as.ejb3.deployment.processors.dd.PoolDescriptorProcessor;
 import org.jboss.as.ejb3.deployment.processors.dd.SessionBeanXmlDescriptorProcessor;
 import org.jboss.as.server.BootOperationContext;
 import org.jboss.as.server.BootOperationHandler;
@@ -68,6 +71,7 @@ import org.jboss.msc.service.ServiceTarget;
 import javax.transaction.TransactionManager;
 import javax.transaction.TransactionSynchronizationRegistry;
 import javax.transaction.UserTransaction;
+import java.util.concurrent.TimeUnit;
 
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
 
@@ -86,10 +90,25 @@ class Ejb3SubsystemAdd implements ModelAddOperationHandler, BootOperationHandler
      * {@inheritDoc}
      */
     @Override
-    public OperationResult execute(final OperationContext context, final ModelNode operation, final ResultHandler resultHandler) {
+    public OperationResult execute(final OperationContext context, final ModelNode operation, final ResultHandler resultHandler) throws OperationFailedException {
 
         final ModelNode compensatingOperation = Util.getResourceRemoveOperation(operation.require(OP_ADDR));
 
+        final ModelNode instancePool = operation.get(CommonAttributes.INSTANCE_POOL);
+        final PoolConfig defaultPoolConfig;
+        try {
+            defaultPoolConfig = createPoolConfig(instancePool);
+        } catch (IllegalArgumentException e) {
+            throw new OperationFailedException(new ModelNode().set("Invalid " + CommonAttributes.INSTANCE_POOL + ": " + e.getMessage()));
+        }
+        final ModelNode statefulCache = operation.get(CommonAttributes.STATEFUL_CACHE);
+        final CacheConfig defaultCacheConfig;
+        try {
+            defaultCacheConfig = createCacheConfig(statefulCache);
+        } catch (IllegalArgumentException e) {
+            throw new OperationFailedException(new ModelNode().set("Invalid " + CommonAttributes.STATEFUL_CACHE + ": " + e.getMessage()));
+        }
+
         if (context instanceof BootOperationContext) {
             final BootOperationContext updateContext = (BootOperationContext) context;
 
@@ -97,7 +116,7 @@ class Ejb3SubsystemAdd implements ModelAddOperationHandler, BootOperationHandler
                 @Override
                 public void execute(RuntimeTaskContext context) throws OperationFailedException {
                     final ServiceTarget serviceTarget = context.getServiceTarget();
-                    final EJBUtilities utilities = new EJBUtilities();
+                    final EJBUtilities utilities = new EJBUtilities(defaultPoolConfig, defaultCacheConfig);
                     serviceTarget.addService(EJBUtilities.SERVICE_NAME, utilities)
                             .addDependency(TxnServices.JBOSS_TXN_TRANSACTION_MANAGER, TransactionManager.class, utilities.getTransactionManagerInjector())
                             .addDependency(TxnServices.JBOSS_TXN_SYNCHRONIZATION_REGISTRY, TransactionSynchronizationRegistry.class, utilities.getTransactionSynchronizationRegistryInjector())
@@ -130,6 +149,7 @@ class Ejb3SubsystemAdd implements ModelAddOperationHandler, BootOperationHandler
             updateContext.addDeploymentProcessor(Phase.PARSE, Phase.PARSE_EJB_ASYNCHRONOUS_ANNOTATION, new AsynchronousAnnotationProcessor());
             updateContext.addDeploymentProcessor(Phase.PARSE, Phase.PARSE_EJB_APPLICATION_EXCEPTION_ANNOTATION, new ApplicationExceptionAnnotationProcessor());
             updateContext.addDeploymentProcessor(Phase.PARSE, Phase.PARSE_REMOVE_METHOD_ANNOTAION, new RemoveAnnotationProcessor());
+            updateContext.addDeploymentProcessor(Phase.PARSE, Phase.PARSE_EJB_POOL_DD, new PoolDescriptorProcessor(defaultPoolConfig));
 
             updateContext.addDeploymentProcessor(Phase.DEPENDENCIES, Phase.DEPENDENCIES_EJB, new EjbDependencyDeploymentUnitProcessor());
 
@@ -145,9 +165,39 @@ class Ejb3SubsystemAdd implements ModelAddOperationHandler, BootOperationHandler
             // updateContext.addDeploymentProcessor(processor, priority);
         }
 
-        context.getSubModel().setEmptyObject();
+        final ModelNode model = context.getSubModel();
+        model.setEmptyObject();
+        if (instancePool.isDefined()) {
+            model.get(CommonAttributes.INSTANCE_POOL).set(instancePool.clone());
+        }
+        if (statefulCache.isDefined()) {
+            model.get(CommonAttributes.STATEFUL_CACHE).set(statefulCache.clone());
+        }
         resultHandler.handleResultComplete();
         return new BasicOperationResult(compensatingOperation);
     }
 
+    private static PoolConfig createPoolConfig(final ModelNode instancePool) {
+        final PoolConfig defaults = PoolConfig.DEFAULT;
+        if (!instancePool.isDefined()) {
+            return defaults;
+        }
+        final int maxSize = instancePool.hasDefined(CommonAttributes.MAX_SIZE) ? instancePool.get(CommonAttributes.MAX_SIZE).asInt() : defaults.getMaxSize();
+        final long timeout = instancePool.hasDefined(CommonAttributes.TIMEOUT) ? instancePool.get(CommonAttributes.TIMEOUT).asLong() : defaults.getTimeout();
+        final TimeUnit timeUnit = instancePool.hasDefined(CommonAttributes.TIMEOUT_UNIT) ? TimeUnit.valueOf(instancePool.get(CommonAttributes.TIMEOUT_UNIT).asString()) : defaults.getTimeUnit();
+        return new PoolConfig(maxSize, timeout, timeUnit);
+    }
+
+    private static CacheConfig createCacheConfig(final ModelNode statefulCache) {
+        final CacheConfig defaults = CacheConfig.DEFAULT;
+        if (!statefulCache.isDefined()) {
+            return defaults;
+        }
+        final int maxSize = statefulCache.hasDefined(CommonAttributes.MAX_SIZE) ? statefulCache.get(CommonAttributes.MAX_SIZE).asInt() : defaults.getMaxSize();
+        final long idleTimeout = statefulCache.hasDefined(CommonAttributes.IDLE_TIMEOUT) ? statefulCache.get(CommonAttributes.IDLE_TIMEOUT).asLong() : defaults.getIdleTimeout();
+        final long removalTimeout = statefulCache.hasDefined(CommonAttributes.REMOVAL_TIMEOUT) ? statefulCache.get(CommonAttributes.REMOVAL_TIMEOUT).asLong() : defaults.getRemovalTimeout();
+        final TimeUnit timeUnit = statefulCache.hasDefined(CommonAttributes.IDLE_TIMEOUT_UNIT) ? TimeUnit.valueOf(statefulCache.get(CommonAttributes.IDLE_TIMEOUT_UNIT).asString()) : defaults.getTimeUnit();
+        return new CacheConfig(maxSize, idleTimeout, removalTimeout, timeUnit);
+    }
+
 }
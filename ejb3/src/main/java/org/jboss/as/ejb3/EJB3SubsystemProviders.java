@@ -23,17 +23,26 @@
 package org.jboss.as.ejb3;
 
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ADD;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ATTRIBUTES;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.DEFAULT;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.DESCRIPTION;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.HEAD_COMMENT_ALLOWED;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.NAMESPACE;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OPERATION_NAME;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.REQUEST_PROPERTIES;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.REQUIRED;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.TAIL_COMMENT_ALLOWED;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.TYPE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.VALUE_TYPE;
 
 import java.util.Locale;
 import java.util.ResourceBundle;
 
 import org.jboss.as.controller.descriptions.DescriptionProvider;
+import org.jboss.as.ejb3.cache.CacheConfig;
+import org.jboss.as.ejb3.component.pool.PoolConfig;
 import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
 
 /**
  * @author Emanuel Muckenhuber
@@ -52,6 +61,35 @@ class EJB3SubsystemProviders {
             subsystem.get(TAIL_COMMENT_ALLOWED).set(true);
             subsystem.get(NAMESPACE).set(EJB3Extension.NAMESPACE);
 
+            populateInstancePool(subsystem.get(ATTRIBUTES, CommonAttributes.INSTANCE_POOL), bundle);
+            populateStatefulCache(subsystem.get(ATTRIBUTES, CommonAttributes.STATEFUL_CACHE), bundle);
+
+            subsystem.get(ATTRIBUTES, CommonAttributes.POOL_CREATE_COUNT, DESCRIPTION).set(bundle.getString("pool-create-count"));
+            subsystem.get(ATTRIBUTES, CommonAttributes.POOL_CREATE_COUNT, TYPE).set(ModelType.LONG);
+            subsystem.get(ATTRIBUTES, CommonAttributes.POOL_IN_USE_COUNT, DESCRIPTION).set(bundle.getString("pool-in-use-count"));
+            subsystem.get(ATTRIBUTES, CommonAttributes.POOL_IN_USE_COUNT, TYPE).set(ModelType.LONG);
+            subsystem.get(ATTRIBUTES, CommonAttributes.POOL_WAIT_TIME, DESCRIPTION).set(bundle.getString("pool-wait-time"));
+            subsystem.get(ATTRIBUTES, CommonAttributes.POOL_WAIT_TIME, TYPE).set(ModelType.LONG);
+            subsystem.get(ATTRIBUTES, CommonAttributes.POOLS, DESCRIPTION).set(bundle.getString("pools"));
+            subsystem.get(ATTRIBUTES, CommonAttributes.POOLS, TYPE).set(ModelType.OBJECT);
+            final ModelNode pool = subsystem.get(ATTRIBUTES, CommonAttributes.POOLS, VALUE_TYPE);
+            pool.get(CommonAttributes.MAX_SIZE, DESCRIPTION).set(bundle.getString("pools.max-size"));
+            pool.get(CommonAttributes.MAX_SIZE, TYPE).set(ModelType.INT);
+            pool.get(CommonAttributes.IN_USE_COUNT, DESCRIPTION).set(bundle.getString("pools.in-use-count"));
+            pool.get(CommonAttributes.IN_USE_COUNT, TYPE).set(ModelType.INT);
+            pool.get(CommonAttributes.AVAILABLE_COUNT, DESCRIPTION).set(bundle.getString("pools.available-count"));
+            pool.get(CommonAttributes.AVAILABLE_COUNT, TYPE).set(ModelType.INT);
+            pool.get(CommonAttributes.UTILIZATION, DESCRIPTION).set(bundle.getString("pools.utilization"));
+            pool.get(CommonAttributes.UTILIZATION, TYPE).set(ModelType.INT);
+            pool.get(CommonAttributes.CREATE_COUNT, DESCRIPTION).set(bundle.getString("pools.create-count"));
+            pool.get(CommonAttributes.CREATE_COUNT, TYPE).set(ModelType.INT);
+            pool.get(CommonAttributes.REMOVE_COUNT, DESCRIPTION).set(bundle.getString("pools.remove-count"));
+            pool.get(CommonAttributes.REMOVE_COUNT, TYPE).set(ModelType.INT);
+            pool.get(CommonAttributes.WAIT_COUNT, DESCRIPTION).set(bundle.getString("pools.wait-count"));
+            pool.get(CommonAttributes.WAIT_COUNT, TYPE).set(ModelType.LONG);
+            pool.get(CommonAttributes.WAIT_TIME, DESCRIPTION).set(bundle.getString("pools.wait-time"));
+            pool.get(CommonAttributes.WAIT_TIME, TYPE).set(ModelType.LONG);
+
             return subsystem;
         }
     };
@@ -64,11 +102,53 @@ class EJB3SubsystemProviders {
             final ModelNode op = new ModelNode();
             op.get(OPERATION_NAME).set(ADD);
             op.get(DESCRIPTION).set(bundle.getString("ejb3.add"));
+            populateInstancePool(op.get(REQUEST_PROPERTIES, CommonAttributes.INSTANCE_POOL), bundle);
+            populateStatefulCache(op.get(REQUEST_PROPERTIES, CommonAttributes.STATEFUL_CACHE), bundle);
 
             return op;
         }
     };
 
+    private static void populateInstancePool(final ModelNode node, final ResourceBundle bundle) {
+        node.get(DESCRIPTION).set(bundle.getString("instance-pool"));
+        node.get(TYPE).set(ModelType.OBJECT);
+        node.get(REQUIRED).set(false);
+        node.get(VALUE_TYPE, CommonAttributes.MAX_SIZE, DESCRIPTION).set(bundle.getString("instance-pool.max-size"));
+        node.get(VALUE_TYPE, CommonAttributes.MAX_SIZE, TYPE).set(ModelType.INT);
+        node.get(VALUE_TYPE, CommonAttributes.MAX_SIZE, REQUIRED).set(false);
+        node.get(VALUE_TYPE, CommonAttributes.MAX_SIZE, DEFAULT).set(PoolConfig.DEFAULT.getMaxSize());
+        node.get(VALUE_TYPE, CommonAttributes.TIMEOUT, DESCRIPTION).set(bundle.getString("instance-pool.timeout"));
+        node.get(VALUE_TYPE, CommonAttributes.TIMEOUT, TYPE).set(ModelType.LONG);
+        node.get(VALUE_TYPE, CommonAttributes.TIMEOUT, REQUIRED).set(false);
+        node.get(VALUE_TYPE, CommonAttributes.TIMEOUT, DEFAULT).set(PoolConfig.DEFAULT.getTimeout());
+        node.get(VALUE_TYPE, CommonAttributes.TIMEOUT_UNIT, DESCRIPTION).set(bundle.getString("instance-pool.timeout-unit"));
+        node.get(VALUE_TYPE, CommonAttributes.TIMEOUT_UNIT, TYPE).set(ModelType.STRING);
+        node.get(VALUE_TYPE, CommonAttributes.TIMEOUT_UNIT, REQUIRED).set(false);
+        node.get(VALUE_TYPE, CommonAttributes.TIMEOUT_UNIT, DEFAULT).set(PoolConfig.DEFAULT.getTimeUnit().name());
+    }
+
+    private static void populateStatefulCache(final ModelNode node, final ResourceBundle bundle) {
+        node.get(DESCRIPTION).set(bundle.getString("stateful-cache"));
+        node.get(TYPE).set(ModelType.OBJECT);
+        node.get(REQUIRED).set(false);
+        node.get(VALUE_TYPE, CommonAttributes.MAX_SIZE, DESCRIPTION).set(bundle.getString("stateful-cache.max-size"));
+        node.get(VALUE_TYPE, CommonAttributes.MAX_SIZE, TYPE).set(ModelType.INT);
+        node.get(VALUE_TYPE, CommonAttributes.MAX_SIZE, REQUIRED).set(false);
+        node.get(VALUE_TYPE, CommonAttributes.MAX_SIZE, DEFAULT).set(CacheConfig.DEFAULT.getMaxSize());
+        node.get(VALUE_TYPE, CommonAttributes.IDLE_TIMEOUT, DESCRIPTION).set(bundle.getString("stateful-cache.idle-timeout"));
+        node.get(VALUE_TYPE, CommonAttributes.IDLE_TIMEOUT, TYPE).set(ModelType.LONG);
+        node.get(VALUE_TYPE, CommonAttributes.IDLE_TIMEOUT, REQUIRED).set(false);
+        node.get(VALUE_TYPE, CommonAttributes.IDLE_TIMEOUT, DEFAULT).set(CacheConfig.DEFAULT.getIdleTimeout());
+        node.get(VALUE_TYPE, CommonAttributes.REMOVAL_TIMEOUT, DESCRIPTION).set(bundle.getString("stateful-cache.removal-timeout"));
+        node.get(VALUE_TYPE, CommonAttributes.REMOVAL_TIMEOUT, TYPE).set(ModelType.LONG);
+        node.get(VALUE_TYPE, CommonAttributes.REMOVAL_TIMEOUT, REQUIRED).set(false);
+        node.get(VALUE_TYPE, CommonAttributes.REMOVAL_TIMEOUT, DEFAULT).set(CacheConfig.DEFAULT.getRemovalTimeout());
+        node.get(VALUE_TYPE, CommonAttributes.IDLE_TIMEOUT_UNIT, DESCRIPTION).set(bundle.getString("stateful-cache.idle-timeout-unit"));
+        node.get(VALUE_TYPE, CommonAttributes.IDLE_TIMEOUT_UNIT, TYPE).set(ModelType.STRING);
+        node.get(VALUE_TYPE, CommonAttributes.IDLE_TIMEOUT_UNIT, REQUIRED).set(false);
+        node.get(VALUE_TYPE, CommonAttributes.IDLE_TIMEOUT_UNIT, DEFAULT).set(CacheConfig.DEFAULT.getTimeUnit().name());
+    }
+
     private static ResourceBundle getResourceBundle(Locale locale) {
         if (locale == null) {
             locale = Locale.getDefault();
@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.cache;
+
+import org.jboss.ejb3.cache.Identifiable;
+
+import javax.ejb.NoSuchEJBException;
+import java.io.Serializable;
+
+/**
+ * The instances of a stateful session bean, keyed by session id.
+ * <p/>
+ * Every instance obtained through {@link #create()} or {@link #get(Serializable)} must be handed back through
+ * {@link #release(Identifiable)} once the invocation using it is done.
+ */
+public interface Cache<T extends Identifiable> {
+    /**
+     * Creates a new instance and adds it to the cache. The instance is in use until it is released.
+     *
+     * @return the new instance
+     */
+    T create();
+
+    /**
+     * Removes the instance from the cache without invoking any of its lifecycle callbacks.
+     *
+     * @param key the session id
+     */
+    void discard(Serializable key);
+
+    /**
+     * Gets the instance for use by an invocation, activating it if it was passivated.
+     *
+     * @param key the session id
+     * @return the instance
+     * @throws NoSuchEJBException if the cache holds no instance for the key
+     */
+    T get(Serializable key) throws NoSuchEJBException;
+
+    /**
+     * Hands back an instance obtained through {@link #create()} or {@link #get(Serializable)}.
+     *
+     * @param obj the instance
+     */
+    void release(T obj);
+
+    /**
+     * Removes and destroys the instance.
+     *
+     * @param key the session id
+     */
+    void remove(Serializable key);
+
+    void start();
+
+    void stop();
+}
@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The bounds of a passivating cache: how many instances it keeps in memory, how long an unused instance stays
+ * in memory and how long an unused instance is kept at all.
+ */
+public final class CacheConfig {
+    /**
+     * The configuration used when the subsystem does not specify one.
+     */
+    public static final CacheConfig DEFAULT = new CacheConfig(10000, 30, 1440, TimeUnit.MINUTES);
+
+    private final int maxSize;
+    private final long idleTimeout;
+    private final long removalTimeout;
+    private final TimeUnit timeUnit;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param maxSize     the maximum number of instances in memory, or 0 for no maximum
+     * @param idleTimeout the time after which an unused instance is passivated, or 0 to never passivate idle instances
+     * @param timeUnit    the unit of {@code idleTimeout}
+     */
+    public CacheConfig(final int maxSize, final long idleTimeout, final TimeUnit timeUnit) {
+        this(maxSize, idleTimeout, 0, timeUnit);
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param maxSize        the maximum number of instances in memory, or 0 for no maximum
+     * @param idleTimeout    the time after which an unused instance is passivated, or 0 to never passivate idle instances
+     * @param removalTimeout the time after which an unused instance is removed, or 0 to never remove idle instances
+     * @param timeUnit       the unit of {@code idleTimeout} and {@code removalTimeout}
+     */
+    public CacheConfig(final int maxSize, final long idleTimeout, final long removalTimeout, final TimeUnit timeUnit) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("maxSize must not be negative, was " + maxSize);
+        if (idleTimeout < 0)
+            throw new IllegalArgumentException("idleTimeout must not be negative, was " + idleTimeout);
+        if (removalTimeout < 0)
+            throw new IllegalArgumentException("removalTimeout must not be negative, was " + removalTimeout);
+        if (timeUnit == null)
+            throw new IllegalArgumentException("timeUnit is null");
+        this.maxSize = maxSize;
+        this.idleTimeout = idleTimeout;
+        this.removalTimeout = removalTimeout;
+        this.timeUnit = timeUnit;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public long getRemovalTimeout() {
+        return removalTimeout;
+    }
+
+    public TimeUnit getTimeUnit() {
+        return timeUnit;
+    }
+
+    /**
+     * @return whether instances are ever passivated
+     */
+    public boolean isPassivating() {
+        return maxSize > 0 || idleTimeout > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheConfig{maxSize=" + maxSize + ", idleTimeout=" + idleTimeout + ", removalTimeout=" + removalTimeout + " " + timeUnit + "}";
+    }
+}
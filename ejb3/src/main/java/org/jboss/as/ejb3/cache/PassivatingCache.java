@@ -0,0 +1,435 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.cache;
+
+import org.jboss.ejb3.cache.Identifiable;
+import org.jboss.ejb3.cache.StatefulObjectFactory;
+import org.jboss.logging.Logger;
+
+import javax.ejb.EJBException;
+import javax.ejb.NoSuchEJBException;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cache which keeps at most {@link CacheConfig#getMaxSize()} instances in memory and passivates the least recently
+ * used ones, as well as those which have been idle for longer than {@link CacheConfig#getIdleTimeout()}, to a
+ * {@link PassivationStore file store}. Instances which have been idle for longer than
+ * {@link CacheConfig#getRemovalTimeout()} are removed; if they are passivated at that time they are dropped along
+ * with their file, without being activated for their pre-destroy callback (EJB 3.1 FR 4.4).
+ * <p/>
+ * Eviction, marshalling and the file writes all happen on the background executor. A passivated instance keeps its
+ * marshalled state in memory until the write completes, so activating it does not have to wait for the disk. An
+ * instance is only activated when it is next used. Instances whose state cannot be marshalled stay in memory.
+ */
+public class PassivatingCache<T extends Identifiable> implements Cache<T> {
+    private static final Logger log = Logger.getLogger(PassivatingCache.class);
+
+    private static final long MIN_SWEEP_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+    private enum State {
+        ACTIVE,
+        PASSIVATED,
+        REMOVED
+    }
+
+    private static final class Entry<T> {
+        final T obj;
+        // written under the entry lock, the eviction scan reads them without it
+        volatile State state = State.ACTIVE;
+        volatile int inUse;
+        volatile long lastUsed;
+        // guarded by the entry lock
+        byte[] pending;
+        long fileId;
+        boolean pinned;
+
+        Entry(final T obj) {
+            this.obj = obj;
+        }
+    }
+
+    private static final class Candidate<T> implements Comparable<Candidate<T>> {
+        final Object key;
+        final Entry<T> entry;
+        final long lastUsed;
+
+        Candidate(final Object key, final Entry<T> entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastUsed = entry.lastUsed;
+        }
+
+        @Override
+        public int compareTo(final Candidate<T> o) {
+            return lastUsed < o.lastUsed ? -1 : (lastUsed == o.lastUsed ? 0 : 1);
+        }
+    }
+
+    private final String name;
+    private final StatefulObjectFactory<T> factory;
+    private final PassivationManager<T> passivationManager;
+    private final CacheConfig config;
+    private final PassivationStore store;
+    private final ScheduledExecutorService executor;
+
+    private final ConcurrentMap<Object, Entry<T>> entries = new ConcurrentHashMap<Object, Entry<T>>();
+    /** the number of instances in memory which could be passivated */
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicInteger passivatedCount = new AtomicInteger();
+    private final AtomicLong nextFileId = new AtomicLong();
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+    private final Lock evictionLock = new ReentrantLock();
+    private final Runnable evictionTask = new Runnable() {
+        @Override
+        public void run() {
+            evictionScheduled.set(false);
+            evict();
+        }
+    };
+    private volatile ScheduledFuture<?> sweeper;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param name               the name of the cache, used in log messages
+     * @param factory            creates and destroys the instances
+     * @param passivationManager detaches and attaches the state of instances
+     * @param config             the bounds of the cache
+     * @param directory          the directory, owned by this cache, which holds the passivated state
+     * @param executor           the executor which runs eviction and passivation
+     */
+    public PassivatingCache(final String name, final StatefulObjectFactory<T> factory, final PassivationManager<T> passivationManager,
+                            final CacheConfig config, final File directory, final ScheduledExecutorService executor) {
+        this.name = name;
+        this.factory = factory;
+        this.passivationManager = passivationManager;
+        this.config = config;
+        this.store = new PassivationStore(directory, passivationManager.getClassLoader());
+        this.executor = executor;
+    }
+
+    @Override
+    public T create() {
+        final T obj = factory.createInstance();
+        final Entry<T> entry = new Entry<T>(obj);
+        entry.inUse = 1;
+        entry.lastUsed = System.currentTimeMillis();
+        entries.put(obj.getId(), entry);
+        activeCount.incrementAndGet();
+        return obj;
+    }
+
+    @Override
+    public void discard(final Serializable key) {
+        discardEntry(key);
+    }
+
+    private void discardEntry(final Object key) {
+        final Entry<T> entry = entries.remove(key);
+        if (entry == null)
+            return;
+        synchronized (entry) {
+            markRemoved(entry);
+        }
+    }
+
+    /**
+     * Marks the entry as removed and forgets its passivated state. Must be called holding the entry lock.
+     */
+    private void markRemoved(final Entry<T> entry) {
+        if (entry.state == State.ACTIVE) {
+            if (!entry.pinned)
+                activeCount.decrementAndGet();
+        } else if (entry.state == State.PASSIVATED) {
+            passivatedCount.decrementAndGet();
+            // if the write is still in flight, the writer cleans up after itself
+            if (entry.pending == null)
+                deleteLater(entry.fileId);
+        }
+        entry.state = State.REMOVED;
+    }
+
+    @Override
+    public T get(final Serializable key) throws NoSuchEJBException {
+        final Entry<T> entry = entries.get(key);
+        if (entry == null)
+            throw new NoSuchEJBException("Could not find stateful bean: " + key);
+        synchronized (entry) {
+            if (entry.state == State.REMOVED)
+                throw new NoSuchEJBException("Could not find stateful bean: " + key);
+            if (entry.state == State.PASSIVATED)
+                activate(key, entry);
+            entry.inUse++;
+            entry.lastUsed = System.currentTimeMillis();
+        }
+        return entry.obj;
+    }
+
+    @Override
+    public void release(final T obj) {
+        final Entry<T> entry = entries.get(obj.getId());
+        // removed or discarded while in use
+        if (entry == null)
+            return;
+        synchronized (entry) {
+            if (entry.inUse > 0)
+                entry.inUse--;
+            entry.lastUsed = System.currentTimeMillis();
+        }
+        final int maxSize = config.getMaxSize();
+        if (maxSize > 0 && activeCount.get() > maxSize)
+            scheduleEviction();
+    }
+
+    @Override
+    public void remove(final Serializable key) {
+        final Entry<T> entry = entries.get(key);
+        if (entry == null)
+            throw new NoSuchEJBException("Could not find stateful bean: " + key);
+        synchronized (entry) {
+            if (entry.state == State.REMOVED)
+                throw new NoSuchEJBException("Could not find stateful bean: " + key);
+            // the bean gets its pre-destroy callback, so it has to be in memory
+            if (entry.state == State.PASSIVATED)
+                activate(key, entry);
+            entry.state = State.REMOVED;
+            if (!entry.pinned)
+                activeCount.decrementAndGet();
+        }
+        entries.remove(key, entry);
+        factory.destroyInstance(entry.obj);
+    }
+
+    @Override
+    public void start() {
+        if (config.isPassivating()) {
+            try {
+                store.start();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to start passivation store of " + name, e);
+            }
+        }
+        final long idleTimeout = config.getTimeUnit().toMillis(config.getIdleTimeout());
+        final long removalTimeout = config.getTimeUnit().toMillis(config.getRemovalTimeout());
+        final long timeout = idleTimeout > 0 && removalTimeout > 0 ? Math.min(idleTimeout, removalTimeout) : Math.max(idleTimeout, removalTimeout);
+        if (timeout > 0) {
+            final long interval = Math.max(timeout / 2, MIN_SWEEP_INTERVAL);
+            sweeper = executor.scheduleWithFixedDelay(evictionTask, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        final ScheduledFuture<?> sweeper = this.sweeper;
+        if (sweeper != null) {
+            sweeper.cancel(false);
+            this.sweeper = null;
+        }
+        for (Object key : entries.keySet()) {
+            discardEntry(key);
+        }
+        if (config.isPassivating())
+            store.stop();
+    }
+
+    /**
+     * @return the number of instances held by this cache, in memory or passivated
+     */
+    public int getCacheSize() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of passivated instances
+     */
+    public int getPassivatedCount() {
+        return passivatedCount.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Removes all instances which have been idle for longer than the removal timeout, then passivates the least
+     * recently used instances until the cache is back within its maximum size, and all instances which have been
+     * idle for longer than the idle timeout.
+     */
+    void evict() {
+        if (!evictionLock.tryLock())
+            return;
+        try {
+            final int maxSize = config.getMaxSize();
+            final long idleTimeout = config.getTimeUnit().toMillis(config.getIdleTimeout());
+            final long removalTimeout = config.getTimeUnit().toMillis(config.getRemovalTimeout());
+            final long now = System.currentTimeMillis();
+            final List<Candidate<T>> candidates = new ArrayList<Candidate<T>>();
+            for (Map.Entry<Object, Entry<T>> e : entries.entrySet()) {
+                final Entry<T> entry = e.getValue();
+                // an unsynchronized look, expire and passivate check again
+                if (entry.state == State.REMOVED || entry.inUse > 0)
+                    continue;
+                if (removalTimeout > 0 && now - entry.lastUsed >= removalTimeout) {
+                    try {
+                        expire(e.getKey(), entry, now - removalTimeout);
+                    } catch (RuntimeException ex) {
+                        log.errorf(ex, "Failed to remove expired %s of %s", e.getKey(), name);
+                    }
+                } else if (entry.state == State.ACTIVE) {
+                    candidates.add(new Candidate<T>(e.getKey(), entry));
+                }
+            }
+            Collections.sort(candidates);
+            for (Candidate<T> candidate : candidates) {
+                final boolean overSize = maxSize > 0 && activeCount.get() > maxSize;
+                final boolean expired = idleTimeout > 0 && now - candidate.lastUsed >= idleTimeout;
+                if (!overSize && !expired)
+                    break;
+                try {
+                    passivate(candidate.key, candidate.entry);
+                } catch (RuntimeException e) {
+                    log.errorf(e, "Failed to passivate %s of %s", candidate.key, name);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void expire(final Object key, final Entry<T> entry, final long lastUsedBefore) {
+        final boolean active;
+        synchronized (entry) {
+            if (entry.state == State.REMOVED || entry.inUse > 0 || entry.lastUsed > lastUsedBefore)
+                return;
+            active = entry.state == State.ACTIVE;
+            markRemoved(entry);
+        }
+        entries.remove(key, entry);
+        log.debugf("Removing %s of %s, which expired", key, name);
+        // a passivated instance is not activated just to be destroyed
+        if (active)
+            factory.destroyInstance(entry.obj);
+    }
+
+    private void activate(final Object key, final Entry<T> entry) {
+        final boolean onDisk = entry.pending == null;
+        try {
+            final byte[] bytes = onDisk ? store.read(entry.fileId) : entry.pending;
+            passivationManager.postActivate(entry.obj, store.unmarshal(bytes));
+        } catch (IOException e) {
+            throw new EJBException("Could not activate " + key + " of " + name, e);
+        } catch (ClassNotFoundException e) {
+            throw new EJBException("Could not activate " + key + " of " + name, e);
+        }
+        entry.state = State.ACTIVE;
+        entry.pending = null;
+        passivatedCount.decrementAndGet();
+        activeCount.incrementAndGet();
+        // if the write is still in flight, the writer cleans up after itself
+        if (onDisk)
+            deleteLater(entry.fileId);
+    }
+
+    private void passivate(final Object key, final Entry<T> entry) {
+        final long fileId;
+        final byte[] bytes;
+        synchronized (entry) {
+            if (entry.state != State.ACTIVE || entry.inUse > 0 || entry.pinned)
+                return;
+            final Object state = passivationManager.prePassivate(entry.obj);
+            try {
+                bytes = store.marshal(state);
+            } catch (IOException e) {
+                passivationManager.postActivate(entry.obj, state);
+                entry.pinned = true;
+                activeCount.decrementAndGet();
+                log.warnf(e, "Could not passivate %s of %s, it will be kept in memory", key, name);
+                return;
+            }
+            fileId = nextFileId.incrementAndGet();
+            entry.state = State.PASSIVATED;
+            entry.pending = bytes;
+            entry.fileId = fileId;
+            activeCount.decrementAndGet();
+            passivatedCount.incrementAndGet();
+        }
+
+        boolean written = false;
+        try {
+            store.write(fileId, bytes);
+            written = true;
+        } catch (IOException e) {
+            log.errorf(e, "Failed to write passivated %s of %s, it will be kept in memory", key, name);
+        }
+        synchronized (entry) {
+            if (entry.state == State.PASSIVATED && entry.fileId == fileId) {
+                if (written)
+                    entry.pending = null;
+                return;
+            }
+        }
+        // activated or removed while the write was in flight
+        if (written)
+            store.delete(fileId);
+    }
+
+    private void scheduleEviction() {
+        if (evictionScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(evictionTask);
+            } catch (RejectedExecutionException e) {
+                evictionScheduled.set(false);
+            }
+        }
+    }
+
+    private void deleteLater(final long fileId) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    store.delete(fileId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            store.delete(fileId);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.cache;
+
+/**
+ * Moves the state of a cached instance in and out of memory.
+ */
+public interface PassivationManager<T> {
+    /**
+     * Detaches the state to be passivated from the instance.
+     *
+     * @param obj the instance, which is not in use
+     * @return the state, which is serialized by the cache
+     */
+    Object prePassivate(T obj);
+
+    /**
+     * Attaches state which was detached with {@link #prePassivate(Object)}, either after it has been read back
+     * or because it could not be passivated.
+     *
+     * @param obj   the instance
+     * @param state the state
+     */
+    void postActivate(T obj, Object state);
+
+    /**
+     * Returns the class loader used to resolve the classes of passivated state.
+     *
+     * @return the class loader
+     */
+    ClassLoader getClassLoader();
+}
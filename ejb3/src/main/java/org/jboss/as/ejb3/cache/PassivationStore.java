@@ -0,0 +1,160 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.cache;
+
+import org.jboss.logging.Logger;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.marshalling.Marshalling;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.SimpleClassResolver;
+import org.jboss.marshalling.Unmarshaller;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Marshals passivated state with JBoss Marshalling River and keeps it in one file per passivation in a directory
+ * owned by a single cache.
+ */
+final class PassivationStore {
+    private static final Logger log = Logger.getLogger(PassivationStore.class);
+
+    private static final String SUFFIX = ".ser";
+    private static final MarshallerFactory MARSHALLER_FACTORY = Marshalling.getMarshallerFactory("river", PassivationStore.class.getClassLoader());
+
+    private final File directory;
+    private final MarshallingConfiguration configuration;
+
+    PassivationStore(final File directory, final ClassLoader classLoader) {
+        this.directory = directory;
+        final MarshallingConfiguration configuration = new MarshallingConfiguration();
+        configuration.setVersion(2);
+        configuration.setClassResolver(new SimpleClassResolver(classLoader));
+        this.configuration = configuration;
+    }
+
+    byte[] marshal(final Object state) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        final Marshaller marshaller = MARSHALLER_FACTORY.createMarshaller(configuration);
+        try {
+            marshaller.start(Marshalling.createByteOutput(out));
+            marshaller.writeObject(state);
+            marshaller.finish();
+        } finally {
+            marshaller.close();
+        }
+        return out.toByteArray();
+    }
+
+    Object unmarshal(final byte[] bytes) throws IOException, ClassNotFoundException {
+        final Unmarshaller unmarshaller = MARSHALLER_FACTORY.createUnmarshaller(configuration);
+        try {
+            unmarshaller.start(Marshalling.createByteInput(new ByteArrayInputStream(bytes)));
+            final Object state = unmarshaller.readObject();
+            unmarshaller.finish();
+            return state;
+        } finally {
+            unmarshaller.close();
+        }
+    }
+
+    /**
+     * Creates the directory and removes whatever a previous run left behind; passivated sessions don't survive a
+     * restart of the component.
+     */
+    void start() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Unable to create passivation directory " + directory);
+        clear();
+    }
+
+    void stop() {
+        clear();
+        if (!directory.delete())
+            log.debugf("Could not delete passivation directory %s", directory);
+    }
+
+    void write(final long id, final byte[] bytes) throws IOException {
+        final OutputStream out = new FileOutputStream(file(id));
+        try {
+            out.write(bytes);
+        } finally {
+            safeClose(out);
+        }
+    }
+
+    byte[] read(final long id) throws IOException {
+        final File file = file(id);
+        final InputStream in = new FileInputStream(file);
+        try {
+            final long length = file.length();
+            final byte[] bytes = new byte[(int) length];
+            int offset = 0;
+            while (offset < bytes.length) {
+                final int n = in.read(bytes, offset, bytes.length - offset);
+                if (n < 0)
+                    throw new IOException("Unexpected end of " + file);
+                offset += n;
+            }
+            return bytes;
+        } finally {
+            safeClose(in);
+        }
+    }
+
+    void delete(final long id) {
+        final File file = file(id);
+        if (!file.delete() && file.exists())
+            log.warnf("Could not delete passivated session %s", file);
+    }
+
+    private void clear() {
+        final File[] files = directory.listFiles();
+        if (files == null)
+            return;
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX) && !file.delete())
+                log.warnf("Could not delete passivated session %s", file);
+        }
+    }
+
+    private File file(final long id) {
+        return new File(directory, Long.toString(id) + SUFFIX);
+    }
+
+    private static void safeClose(final Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.tracef(e, "Failed to close %s", closeable);
+        }
+    }
+}
@@ -22,6 +22,7 @@
 package org.jboss.as.ejb3.component;
 
 import org.jboss.as.ee.component.BasicComponent;
+import org.jboss.as.ejb3.component.pool.PoolConfig;
 import org.jboss.as.naming.context.NamespaceContextSelector;
 import org.jboss.as.server.deployment.DeploymentUnit;
 import org.jboss.ejb3.context.CurrentInvocationContext;
@@ -30,9 +31,11 @@ import org.jboss.ejb3.tx2.spi.TransactionalComponent;
 import org.jboss.logging.Logger;
 import org.jboss.msc.service.ServiceController;
 
+import javax.ejb.AccessTimeout;
 import javax.ejb.ApplicationException;
 import javax.ejb.EJBHome;
 import javax.ejb.EJBLocalHome;
+import javax.ejb.LockType;
 import javax.ejb.TimerService;
 import javax.ejb.TransactionAttributeType;
 import javax.ejb.TransactionManagementType;
@@ -44,10 +47,14 @@ import javax.transaction.SystemException;
 import javax.transaction.TransactionManager;
 import javax.transaction.TransactionSynchronizationRegistry;
 import javax.transaction.UserTransaction;
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.security.Principal;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 /**
@@ -62,6 +69,26 @@ public abstract class EJBComponent extends BasicComponent implements org.jboss.e
     private final boolean isBeanManagedTransaction;
     private static volatile boolean youHaveBeenWarnedEJBTHREE2120 = false;
     private final Map<Class<?>, ApplicationException> applicationExceptions;
+    /* Resolved application exceptions, including those inherited from a superclass, keyed by exception class */
+    private final ConcurrentMap<Class<?>, ApplicationException> resolvedApplicationExceptions = new ConcurrentHashMap<Class<?>, ApplicationException>();
+    private final Set<Method> invocableMethods;
+    private final PoolConfig poolConfig;
+    private volatile Map<Method, EJBMethodMetadata> methodMetadata = Collections.emptyMap();
+
+    /* Marks an exception class which is not an application exception in resolvedApplicationExceptions */
+    private static final ApplicationException NOT_AN_APPLICATION_EXCEPTION = new ApplicationException() {
+        public boolean inherited() {
+            return false;
+        }
+
+        public boolean rollback() {
+            return false;
+        }
+
+        public Class<? extends Annotation> annotationType() {
+            return ApplicationException.class;
+        }
+    };
 
     /**
      * Construct a new instance.
@@ -82,10 +109,89 @@ public abstract class EJBComponent extends BasicComponent implements org.jboss.e
 
         txAttrs = ejbComponentCreateService.getTxAttrs();
         isBeanManagedTransaction = TransactionManagementType.BEAN.equals(ejbComponentCreateService.getTransactionManagementType());
+        invocableMethods = ejbComponentCreateService.getInvocableMethods();
+        final PoolConfig poolConfig = ejbComponentCreateService.getPoolConfig();
+        this.poolConfig = poolConfig != null ? poolConfig : utilities.getDefaultPoolConfig();
+    }
+
+    /**
+     * Resolves the metadata of every view and component method before the component accepts invocations.
+     */
+    @Override
+    public void start() {
+        final Map<Method, EJBMethodMetadata> metadata = new IdentityHashMap<Method, EJBMethodMetadata>(invocableMethods.size() * 2);
+        for (Method method : invocableMethods) {
+            metadata.put(method, createMethodMetadata(method));
+        }
+        methodMetadata = metadata;
+        super.start();
+    }
+
+    /**
+     * Returns the metadata which was resolved for the given method when the component started.
+     *
+     * @param method the view or component method, which must be the same instance the component was configured with
+     * @return the metadata, or {@code null} if the method is not known to the component
+     */
+    public EJBMethodMetadata getMethodMetadata(final Method method) {
+        return methodMetadata.get(method);
+    }
+
+    private EJBMethodMetadata createMethodMetadata(final Method method) {
+        final TransactionAttributeType[] transactionAttributes = EJBMethodMetadata.newTransactionAttributes();
+        if (txAttrs != null) {
+            for (MethodIntf methodIntf : MethodIntf.values()) {
+                transactionAttributes[methodIntf.ordinal()] = findTransactionAttributeType(methodIntf, method);
+            }
+        }
+        return new EJBMethodMetadata(method, transactionAttributes, resolveAsynchronous(method), resolveLockType(method), resolveAccessTimeout(method));
+    }
+
+    /**
+     * Determines from the component configuration whether the given method is asynchronous.  Used to build the
+     * method metadata when the component starts.
+     *
+     * @param method the method
+     * @return {@code true} if invocations of the method are asynchronous
+     */
+    protected boolean resolveAsynchronous(final Method method) {
+        return false;
+    }
+
+    /**
+     * Determines from the component configuration the lock type of the given method.  Used to build the method
+     * metadata when the component starts.
+     *
+     * @param method the method
+     * @return the lock type, or {@code null} if the component does not use container managed concurrency
+     */
+    protected LockType resolveLockType(final Method method) {
+        return null;
+    }
+
+    /**
+     * Determines from the component configuration the access timeout of the given method.  Used to build the method
+     * metadata when the component starts.
+     *
+     * @param method the method
+     * @return the access timeout, or {@code null} if there is none
+     */
+    protected AccessTimeout resolveAccessTimeout(final Method method) {
+        return null;
     }
 
     @Override
     public ApplicationException getApplicationException(Class<?> exceptionClass) {
+        final ApplicationException resolved = resolvedApplicationExceptions.get(exceptionClass);
+        if (resolved != null) {
+            return resolved == NOT_AN_APPLICATION_EXCEPTION ? null : resolved;
+        }
+        final ApplicationException applicationException = findApplicationException(exceptionClass);
+        resolvedApplicationExceptions.putIfAbsent(exceptionClass, applicationException == null ? NOT_AN_APPLICATION_EXCEPTION : applicationException);
+        return applicationException;
+    }
+
+    private ApplicationException findApplicationException(Class<?> exceptionClass) {
         ApplicationException applicationException = this.applicationExceptions.get(exceptionClass);
         if (applicationException != null) {
             return applicationException;
@@ -191,6 +297,13 @@ public abstract class EJBComponent extends BasicComponent implements org.jboss.e
     }
 
     public TransactionAttributeType getTransactionAttributeType(MethodIntf methodIntf, Method method) {
+        final EJBMethodMetadata metadata = methodMetadata.get(method);
+        if (metadata != null) {
+            final TransactionAttributeType txAttr = metadata.getTransactionAttribute(methodIntf);
+            if (txAttr != null) {
+                return txAttr;
+            }
+        }
         ConcurrentMap<String, ConcurrentMap<ArrayKey, TransactionAttributeType>> perMethodIntf = txAttrs.get(methodIntf);
         if (perMethodIntf == null)
             throw new IllegalStateException("Can't find tx attrs for view type " + methodIntf + " on bean named " + this.getComponentName());
@@ -203,6 +316,29 @@ public abstract class EJBComponent extends BasicComponent implements org.jboss.e
         return txAttr;
     }
 
+    private TransactionAttributeType findTransactionAttributeType(MethodIntf methodIntf, Method method) {
+        final ConcurrentMap<String, ConcurrentMap<ArrayKey, TransactionAttributeType>> perMethodIntf = txAttrs.get(methodIntf);
+        if (perMethodIntf == null) {
+            return null;
+        }
+        final ConcurrentMap<ArrayKey, TransactionAttributeType> perMethod = perMethodIntf.get(method.getName());
+        return perMethod == null ? null : perMethod.get(new ArrayKey((Object[]) method.getParameterTypes()));
+    }
+
+    /**
+     * Returns the instance pool configuration of this component, as overridden in jboss-ejb3.xml or
+     * else the default of the EJB3 subsystem.
+     *
+     * @return the pool configuration
+     */
+    protected PoolConfig getPoolConfig() {
+        return poolConfig;
+    }
+
+    protected EJBUtilities getUtilities() {
+        return utilities;
+    }
+
     @Override
     public TransactionManager getTransactionManager() {
         return utilities.getTransactionManager();
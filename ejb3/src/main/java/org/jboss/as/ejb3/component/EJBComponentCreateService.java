@@ -25,11 +25,14 @@ package org.jboss.as.ejb3.component;
 import org.jboss.as.ee.component.BasicComponentCreateService;
 import org.jboss.as.ee.component.ComponentConfiguration;
 import org.jboss.as.ee.component.ViewConfiguration;
+import org.jboss.as.ejb3.component.pool.PoolConfig;
 import org.jboss.as.ejb3.deployment.EjbJarConfiguration;
 
 import javax.ejb.TransactionAttributeType;
 import javax.ejb.TransactionManagementType;
 import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -46,6 +49,10 @@ public class EJBComponentCreateService extends BasicComponentCreateService {
 
     private final EjbJarConfiguration ejbJarConfiguration;
 
+    private final PoolConfig poolConfig;
+
+    private final Set<Method> invocableMethods = Collections.newSetFromMap(new IdentityHashMap<Method, Boolean>());
+
     /**
      * Construct a new instance.
      *
@@ -58,6 +65,7 @@ public class EJBComponentCreateService extends BasicComponentCreateService {
 
         EJBComponentDescription ejbComponentDescription = (EJBComponentDescription) componentConfiguration.getComponentDescription();
         this.transactionManagementType = ejbComponentDescription.getTransactionManagementType();
+        this.poolConfig = ejbComponentDescription.getPoolConfig();
 
         // CMTTx
         if (transactionManagementType.equals(TransactionManagementType.CONTAINER)) {
@@ -72,6 +80,7 @@ public class EJBComponentCreateService extends BasicComponentCreateService {
                 final MethodIntf viewType = ejbComponentDescription.getMethodIntf(view.getViewClass().getName());
                 for (Method method : view.getProxyFactory().getCachedMethods()) {
                     this.processTxAttr(ejbComponentDescription, viewType, method);
+                    this.invocableMethods.add(method);
                 }
             }
         }
@@ -82,6 +91,7 @@ public class EJBComponentCreateService extends BasicComponentCreateService {
         if (componentMethods != null) {
             for (Method method : componentMethods) {
                 this.processTxAttr(ejbComponentDescription, MethodIntf.BEAN, method);
+                this.invocableMethods.add(method);
             }
         }
     }
@@ -90,10 +100,23 @@ public class EJBComponentCreateService extends BasicComponentCreateService {
         return txAttrs;
     }
 
+    /**
+     * Returns the view and component methods through which the component can be invoked
+     *
+     * @return the methods, compared by identity
+     */
+    Set<Method> getInvocableMethods() {
+        return invocableMethods;
+    }
+
     TransactionManagementType getTransactionManagementType() {
         return transactionManagementType;
     }
 
+    PoolConfig getPoolConfig() {
+        return poolConfig;
+    }
+
     EjbJarConfiguration getEjbJarConfiguration() {
         return this.ejbJarConfiguration;
     }
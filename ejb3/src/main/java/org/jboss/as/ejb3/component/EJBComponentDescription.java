@@ -30,6 +30,7 @@ import org.jboss.as.ee.component.NamespaceConfigurator;
 import org.jboss.as.ee.component.ViewConfiguration;
 import org.jboss.as.ee.component.ViewConfigurator;
 import org.jboss.as.ee.component.ViewDescription;
+import org.jboss.as.ejb3.component.pool.PoolConfig;
 import org.jboss.as.ejb3.deployment.EjbDeploymentAttachmentKeys;
 import org.jboss.as.ejb3.deployment.EjbJarConfiguration;
 import org.jboss.as.ejb3.deployment.EjbJarDescription;
@@ -62,6 +63,10 @@ public abstract class EJBComponentDescription extends ComponentDescription {
      * EJB 3.1 FR 13.3.1, the default transaction management type is container-managed transaction demarcation.
      */
     private TransactionManagementType transactionManagementType = TransactionManagementType.CONTAINER;
+    /**
+     * The instance pool configuration from jboss-ejb3.xml, or null to use the subsystem default.
+     */
+    private PoolConfig poolConfig;
 
     private final Map<MethodIntf, TransactionAttributeType> txPerViewStyle1 = new HashMap<MethodIntf, TransactionAttributeType>();
     private final PopulatingMap<MethodIntf, Map<String, TransactionAttributeType>> txPerViewStyle2 = new PopulatingMap<MethodIntf, Map<String, TransactionAttributeType>>() {
@@ -199,6 +204,14 @@ public abstract class EJBComponentDescription extends ComponentDescription {
         this.transactionManagementType = transactionManagementType;
     }
 
+    public PoolConfig getPoolConfig() {
+        return poolConfig;
+    }
+
+    public void setPoolConfig(PoolConfig poolConfig) {
+        this.poolConfig = poolConfig;
+    }
+
     public String getEJBName() {
         return this.getComponentName();
     }
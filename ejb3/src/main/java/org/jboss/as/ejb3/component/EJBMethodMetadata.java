@@ -0,0 +1,89 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.component;
+
+import javax.ejb.AccessTimeout;
+import javax.ejb.LockType;
+import javax.ejb.TransactionAttributeType;
+import java.lang.reflect.Method;
+
+/**
+ * The invocation metadata of a single method of an EJB component, resolved once when the component starts so that
+ * invocations do not need to look it up from the component's configuration.
+ */
+public final class EJBMethodMetadata {
+    private static final int METHOD_INTF_COUNT = MethodIntf.values().length;
+
+    private final Method method;
+    private final TransactionAttributeType[] transactionAttributes;
+    private final boolean asynchronous;
+    private final LockType lockType;
+    private final AccessTimeout accessTimeout;
+
+    EJBMethodMetadata(final Method method, final TransactionAttributeType[] transactionAttributes, final boolean asynchronous, final LockType lockType, final AccessTimeout accessTimeout) {
+        if (transactionAttributes.length != METHOD_INTF_COUNT) {
+            throw new IllegalArgumentException("Expected a transaction attribute for each of " + METHOD_INTF_COUNT + " view types");
+        }
+        this.method = method;
+        this.transactionAttributes = transactionAttributes;
+        this.asynchronous = asynchronous;
+        this.lockType = lockType;
+        this.accessTimeout = accessTimeout;
+    }
+
+    static TransactionAttributeType[] newTransactionAttributes() {
+        return new TransactionAttributeType[METHOD_INTF_COUNT];
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Get the transaction attribute of the method when invoked through the given view type.
+     *
+     * @param methodIntf the view type
+     * @return the transaction attribute, or {@code null} if there is none for the view type
+     */
+    public TransactionAttributeType getTransactionAttribute(final MethodIntf methodIntf) {
+        return transactionAttributes[methodIntf.ordinal()];
+    }
+
+    public boolean isAsynchronous() {
+        return asynchronous;
+    }
+
+    /**
+     * @return the lock type, or {@code null} if the component does not use container managed concurrency
+     */
+    public LockType getLockType() {
+        return lockType;
+    }
+
+    /**
+     * @return the access timeout, or {@code null} if there is none
+     */
+    public AccessTimeout getAccessTimeout() {
+        return accessTimeout;
+    }
+}
@@ -21,6 +21,10 @@
  */
 package org.jboss.as.ejb3.component;
 
+import org.jboss.as.ejb3.cache.CacheConfig;
+import org.jboss.as.ejb3.component.pool.PoolConfig;
+import org.jboss.as.ejb3.component.pool.StripedPool;
+import org.jboss.as.server.ServerEnvironment;
 import org.jboss.msc.inject.Injector;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.ServiceName;
@@ -32,6 +36,14 @@ import org.jboss.msc.value.InjectedValue;
 import javax.transaction.TransactionManager;
 import javax.transaction.TransactionSynchronizationRegistry;
 import javax.transaction.UserTransaction;
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * The gas, water & energy for the EJB subsystem.
@@ -44,6 +56,75 @@ public class EJBUtilities implements Service<EJBUtilities> {
     private final InjectedValue<TransactionManager> transactionManagerValue = new InjectedValue<TransactionManager>();
     private final InjectedValue<TransactionSynchronizationRegistry> transactionSynchronizationRegistryValue = new InjectedValue<TransactionSynchronizationRegistry>();
     private final InjectedValue<UserTransaction> userTransactionValue = new InjectedValue<UserTransaction>();
+    private final PoolConfig defaultPoolConfig;
+    private final CacheConfig defaultCacheConfig;
+    private final Set<StripedPool<?>> pools = Collections.newSetFromMap(new ConcurrentHashMap<StripedPool<?>, Boolean>());
+    private volatile ScheduledExecutorService executor;
+
+    public EJBUtilities() {
+        this(PoolConfig.DEFAULT, CacheConfig.DEFAULT);
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param defaultPoolConfig  the configuration of the instance pools of beans which don't override it
+     * @param defaultCacheConfig the configuration of the stateful session bean caches
+     */
+    public EJBUtilities(final PoolConfig defaultPoolConfig, final CacheConfig defaultCacheConfig) {
+        this.defaultPoolConfig = defaultPoolConfig;
+        this.defaultCacheConfig = defaultCacheConfig;
+    }
+
+    public PoolConfig getDefaultPoolConfig() {
+        return defaultPoolConfig;
+    }
+
+    public CacheConfig getDefaultCacheConfig() {
+        return defaultCacheConfig;
+    }
+
+    /**
+     * Returns the executor which runs the eviction and passivation of stateful session beans. It is only
+     * available while this service is up.
+     *
+     * @return the executor
+     */
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Returns the directory under which the stateful session bean caches passivate their instances.
+     *
+     * @return the directory
+     */
+    public File getPassivationDirectory() {
+        final String dataDir = System.getProperty(ServerEnvironment.SERVER_DATA_DIR, System.getProperty("java.io.tmpdir"));
+        return new File(dataDir, "ejb3" + File.separator + "sessions");
+    }
+
+    /**
+     * Makes the statistics of the given pool available to the management model.
+     *
+     * @param pool the pool of a started component
+     */
+    public void registerPool(final StripedPool<?> pool) {
+        pools.add(pool);
+    }
+
+    public void unregisterPool(final StripedPool<?> pool) {
+        pools.remove(pool);
+    }
+
+    /**
+     * Returns the pools of all started pooled components.
+     *
+     * @return the pools, never {@code null}
+     */
+    public Collection<StripedPool<?>> getPools() {
+        return Collections.unmodifiableSet(pools);
+    }
 
     public TransactionManager getTransactionManager() {
         return transactionManagerValue.getOptionalValue();
@@ -76,9 +157,21 @@ public class EJBUtilities implements Service<EJBUtilities> {
 
     @Override
     public void start(StartContext context) throws StartException {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "EJB passivation");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor = executor;
     }
 
     @Override
     public void stop(StopContext context) {
+        executor.shutdown();
+        executor = null;
     }
 }
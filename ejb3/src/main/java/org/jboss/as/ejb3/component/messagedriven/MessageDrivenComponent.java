@@ -25,13 +25,13 @@ import org.jboss.as.ee.component.BasicComponentInstance;
 import org.jboss.as.ejb3.component.EJBComponent;
 import org.jboss.as.ejb3.component.EJBComponentCreateService;
 import org.jboss.as.ejb3.component.pool.PooledComponent;
+import org.jboss.as.ejb3.component.pool.StripedPool;
 import org.jboss.as.ejb3.inflow.JBossMessageEndpointFactory;
 import org.jboss.as.ejb3.inflow.MessageEndpointService;
 import org.jboss.as.naming.ManagedReference;
 import org.jboss.ejb3.context.spi.MessageDrivenBeanComponent;
 import org.jboss.ejb3.pool.Pool;
 import org.jboss.ejb3.pool.StatelessObjectFactory;
-import org.jboss.ejb3.pool.strictmax.StrictMaxPool;
 import org.jboss.invocation.Interceptor;
 import org.jboss.msc.service.StopContext;
 
@@ -53,7 +53,7 @@ import static org.jboss.as.ejb3.component.MethodIntf.BEAN;
  * @author <a href="mailto:cdewolf@redhat.com">Carlo de Wolf</a>
  */
 public class MessageDrivenComponent extends EJBComponent implements MessageDrivenBeanComponent, PooledComponent<MessageDrivenComponentInstance> {
-    private final Pool<MessageDrivenComponentInstance> pool;
+    private final StripedPool<MessageDrivenComponentInstance> pool;
 
     // TODO: implement creation of ActivationSpec
     private final ActivationSpec activationSpec = null;
@@ -77,11 +77,11 @@ public class MessageDrivenComponent extends EJBComponent implements MessageDrive
 
             @Override
             public void destroy(MessageDrivenComponentInstance obj) {
-                throw new RuntimeException("NYI");
-                //destroyInstance(obj);
+                obj.destroy();
             }
         };
-        this.pool = new StrictMaxPool<MessageDrivenComponentInstance>(factory, 20, 5, TimeUnit.MINUTES);
+        final String poolName = ejbComponentCreateService.getDeploymentUnitInjector().getValue().getName() + "/" + getComponentName();
+        this.pool = new StripedPool<MessageDrivenComponentInstance>(poolName, factory, getPoolConfig());
 
         this.messageListenerInterface = null; //ejbComponentCreateService.getMessageListenerInterface();
         final MessageEndpointService<?> service = new MessageEndpointService<Object>() {
@@ -156,6 +156,7 @@ public class MessageDrivenComponent extends EJBComponent implements MessageDrive
     @Override
     public void start() {
         super.start();
+        getUtilities().registerPool(pool);
 
         try {
             resourceAdapter.endpointActivation(endpointFactory, activationSpec);
@@ -168,6 +169,8 @@ public class MessageDrivenComponent extends EJBComponent implements MessageDrive
     public void stop(final StopContext stopContext) {
         resourceAdapter.endpointDeactivation(endpointFactory, activationSpec);
 
+        getUtilities().unregisterPool(pool);
+        pool.stop();
         super.stop(stopContext);
     }
 
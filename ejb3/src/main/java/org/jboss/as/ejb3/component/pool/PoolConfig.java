@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.component.pool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The sizing of an instance pool: the maximum number of instances and how long an invocation may wait for one.
+ */
+public final class PoolConfig {
+    /**
+     * The configuration used when the subsystem does not specify one.
+     */
+    public static final PoolConfig DEFAULT = new PoolConfig(20, 5, TimeUnit.MINUTES);
+
+    private final int maxSize;
+    private final long timeout;
+    private final TimeUnit timeUnit;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param maxSize  the maximum number of instances, must be positive
+     * @param timeout  the maximum time to wait for an instance
+     * @param timeUnit the unit of {@code timeout}
+     */
+    public PoolConfig(final int maxSize, final long timeout, final TimeUnit timeUnit) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("maxSize must be positive, was " + maxSize);
+        if (timeout < 0)
+            throw new IllegalArgumentException("timeout must not be negative, was " + timeout);
+        if (timeUnit == null)
+            throw new IllegalArgumentException("timeUnit is null");
+        this.maxSize = maxSize;
+        this.timeout = timeout;
+        this.timeUnit = timeUnit;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public TimeUnit getTimeUnit() {
+        return timeUnit;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolConfig{maxSize=" + maxSize + ", timeout=" + timeout + " " + timeUnit + "}";
+    }
+}
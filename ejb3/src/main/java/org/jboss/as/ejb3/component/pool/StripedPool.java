@@ -0,0 +1,264 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.component.pool;
+
+import org.jboss.ejb3.pool.Pool;
+import org.jboss.ejb3.pool.StatelessObjectFactory;
+
+import javax.ejb.EJBException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool which keeps its free instances on a number of striped free lists, selected by the calling thread, and
+ * bounds the number of instances with a non-fair semaphore.
+ * <p/>
+ * As long as an instance is available neither {@link #get()} nor {@link #release(Object)} blocks: a permit is taken
+ * with a single CAS and the instance is taken from the free list of the calling thread, stealing from the other
+ * lists before a new instance is created. Only when all permits are taken does an invocation wait, for at most the
+ * configured timeout.
+ */
+public class StripedPool<T> implements Pool<T> {
+    private static final int STRIPES;
+
+    static {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = 1;
+        while (stripes < processors && stripes < 64) {
+            stripes <<= 1;
+        }
+        STRIPES = stripes;
+    }
+
+    private final String name;
+    private final StatelessObjectFactory<T> factory;
+    private final ConcurrentLinkedQueue<T>[] freeLists;
+    private final Permits permits;
+    private final long timeout;
+    private final TimeUnit timeUnit;
+    private volatile int maxSize;
+
+    private final AtomicInteger createCount = new AtomicInteger();
+    private final AtomicInteger removeCount = new AtomicInteger();
+    // only updated by invocations which had to wait for an instance
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong waitTime = new AtomicLong();
+
+    /**
+     * Construct a new instance.
+     *
+     * @param name    the name under which the statistics of this pool are reported
+     * @param factory the factory which creates and destroys the instances
+     * @param config  the size and timeout of the pool
+     */
+    @SuppressWarnings("unchecked")
+    public StripedPool(final String name, final StatelessObjectFactory<T> factory, final PoolConfig config) {
+        this.name = name;
+        this.factory = factory;
+        this.maxSize = config.getMaxSize();
+        this.timeout = config.getTimeout();
+        this.timeUnit = config.getTimeUnit();
+        this.permits = new Permits(maxSize);
+        this.freeLists = new ConcurrentLinkedQueue[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            freeLists[i] = new ConcurrentLinkedQueue<T>();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private static int stripe() {
+        final long id = Thread.currentThread().getId();
+        // spread the thread ids, which tend to be allocated sequentially
+        final int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    private T create() {
+        final T obj = factory.create();
+        createCount.incrementAndGet();
+        return obj;
+    }
+
+    private void destroy(final T obj) {
+        try {
+            factory.destroy(obj);
+        } finally {
+            removeCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void discard(final T obj) {
+        try {
+            destroy(obj);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public T get() {
+        if (!permits.tryAcquire()) {
+            final long start = System.nanoTime();
+            final boolean acquired;
+            try {
+                acquired = permits.tryAcquire(timeout, timeUnit);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EJBException("Interrupted while waiting for an instance of " + name);
+            } finally {
+                waitCount.incrementAndGet();
+                waitTime.addAndGet(System.nanoTime() - start);
+            }
+            if (!acquired) {
+                throw new EJBException("Failed to acquire an instance of " + name + " within " + timeout + " " + timeUnit);
+            }
+        }
+        final int stripe = stripe();
+        for (int i = 0; i < STRIPES; i++) {
+            final T obj = freeLists[(stripe + i) & (STRIPES - 1)].poll();
+            if (obj != null) {
+                return obj;
+            }
+        }
+        try {
+            return create();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        } catch (Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getAvailableCount() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public int getCreateCount() {
+        return createCount.get();
+    }
+
+    @Override
+    public int getCurrentSize() {
+        return createCount.get() - removeCount.get();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public int getRemoveCount() {
+        return removeCount.get();
+    }
+
+    /**
+     * Returns the number of instances which are currently taken from the pool.
+     *
+     * @return the number of instances in use
+     */
+    public int getInUseCount() {
+        return Math.max(0, maxSize - permits.availablePermits());
+    }
+
+    /**
+     * Returns the number of invocations which found no instance available and had to wait for one.
+     *
+     * @return the number of waits
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * Returns the total time invocations spent waiting for an instance to become available.
+     *
+     * @return the wait time in milliseconds
+     */
+    public long getWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(waitTime.get());
+    }
+
+    @Override
+    public void release(final T obj) {
+        // the pool shrunk, so don't keep more instances than allowed
+        if (getCurrentSize() > maxSize) {
+            discard(obj);
+            return;
+        }
+        freeLists[stripe()].offer(obj);
+        permits.release();
+    }
+
+    @Override
+    public synchronized void setMaxSize(final int maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("maxSize must be positive, was " + maxSize);
+        final int delta = maxSize - this.maxSize;
+        this.maxSize = maxSize;
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            permits.reducePermits(-delta);
+        }
+    }
+
+    @Override
+    public void start() {
+        // instances are created on demand
+    }
+
+    @Override
+    public void stop() {
+        for (ConcurrentLinkedQueue<T> freeList : freeLists) {
+            T obj;
+            while ((obj = freeList.poll()) != null) {
+                destroy(obj);
+            }
+        }
+    }
+
+    private static final class Permits extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        Permits(final int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(final int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
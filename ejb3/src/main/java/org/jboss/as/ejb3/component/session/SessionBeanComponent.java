@@ -26,6 +26,7 @@ import org.jboss.as.ejb3.component.AsyncFutureInterceptor;
 import org.jboss.as.ejb3.component.AsyncVoidInterceptor;
 import org.jboss.as.ejb3.component.EJBComponent;
 import org.jboss.as.ejb3.component.EJBComponentCreateService;
+import org.jboss.as.ejb3.component.EJBMethodMetadata;
 import org.jboss.as.threads.ThreadsServices;
 import org.jboss.ejb3.context.spi.SessionContext;
 import org.jboss.invocation.InterceptorContext;
@@ -56,6 +57,8 @@ public abstract class SessionBeanComponent extends EJBComponent implements org.j
     protected AccessTimeout beanLevelAccessTimeout;
     private final Set<Method> asynchronousMethods;
     protected Executor asyncExecutor;
+    private volatile AsyncVoidInterceptor asyncVoidInterceptor;
+    private volatile AsyncFutureInterceptor asyncFutureInterceptor;
 
     /**
      * Construct a new instance.
@@ -130,7 +133,26 @@ public abstract class SessionBeanComponent extends EJBComponent implements org.j
         return asyncExecutor;
     }
 
+    @Override
+    public void start() {
+        final Executor executor = getAsynchronousExecutor();
+        if (executor != null) {
+            asyncVoidInterceptor = new AsyncVoidInterceptor(executor);
+            asyncFutureInterceptor = new AsyncFutureInterceptor(executor);
+        }
+        super.start();
+    }
+
     protected boolean isAsynchronous(final Method method) {
+        final EJBMethodMetadata metadata = getMethodMetadata(method);
+        if (metadata != null) {
+            return metadata.isAsynchronous();
+        }
+        return resolveAsynchronous(method);
+    }
+
+    @Override
+    protected boolean resolveAsynchronous(final Method method) {
         final Set<Method> asyncMethods = this.asynchronousMethods;
         if (asyncMethods == null) {
             return false;
@@ -151,10 +173,19 @@ public abstract class SessionBeanComponent extends EJBComponent implements org.j
     public abstract Object invoke(Serializable sessionId, Map<String, Object> contextData, Class<?> invokedBusinessInterface, Method implMethod, Object[] args) throws Exception;
 
     protected Object invokeAsynchronous(final Method method, final InterceptorContext context) throws Exception {
+        // the interceptors are stateless, so the ones created at start are shared by every invocation
         if (Void.TYPE.isAssignableFrom(method.getReturnType())) {
-            return new AsyncVoidInterceptor(getAsynchronousExecutor()).processInvocation(context);
+            AsyncVoidInterceptor interceptor = asyncVoidInterceptor;
+            if (interceptor == null) {
+                interceptor = new AsyncVoidInterceptor(getAsynchronousExecutor());
+            }
+            return interceptor.processInvocation(context);
         } else {
-            return new AsyncFutureInterceptor(getAsynchronousExecutor()).processInvocation(context);
+            AsyncFutureInterceptor interceptor = asyncFutureInterceptor;
+            if (interceptor == null) {
+                interceptor = new AsyncFutureInterceptor(getAsynchronousExecutor());
+            }
+            return interceptor.processInvocation(context);
         }
     }
 
@@ -26,6 +26,7 @@ import org.jboss.as.ee.component.BasicComponentInstance;
 import org.jboss.as.ee.component.Component;
 import org.jboss.as.ee.component.ComponentInstance;
 import org.jboss.as.ejb3.component.EJBBusinessMethod;
+import org.jboss.as.ejb3.component.EJBMethodMetadata;
 import org.jboss.as.ejb3.component.session.SessionBeanComponent;
 import org.jboss.as.naming.ManagedReference;
 import org.jboss.ejb3.concurrency.spi.LockableComponent;
@@ -135,10 +136,21 @@ public class SingletonComponent extends SessionBeanComponent implements Lockable
 
     @Override
     public LockType getLockType(Method method) {
-        EJBBusinessMethod beanMethod = new EJBBusinessMethod(method.getName(), method.getParameterTypes());
-        LockType lockType = this.methodLockTypes.get(beanMethod);
-        if (lockType != null) {
-            return lockType;
+        final EJBMethodMetadata metadata = getMethodMetadata(method);
+        if (metadata != null) {
+            return metadata.getLockType();
+        }
+        return resolveLockType(method);
+    }
+
+    @Override
+    protected LockType resolveLockType(final Method method) {
+        if (this.methodLockTypes != null) {
+            EJBBusinessMethod beanMethod = new EJBBusinessMethod(method.getName(), method.getParameterTypes());
+            LockType lockType = this.methodLockTypes.get(beanMethod);
+            if (lockType != null) {
+                return lockType;
+            }
         }
         // check bean level lock type
         if (this.beanLevelLockType != null) {
@@ -150,10 +162,21 @@ public class SingletonComponent extends SessionBeanComponent implements Lockable
 
     @Override
     public AccessTimeout getAccessTimeout(Method method) {
-        EJBBusinessMethod beanMethod = new EJBBusinessMethod(method.getName(), method.getParameterTypes());
-        AccessTimeout accessTimeout = this.methodAccessTimeouts.get(beanMethod);
-        if (accessTimeout != null) {
-            return accessTimeout;
+        final EJBMethodMetadata metadata = getMethodMetadata(method);
+        if (metadata != null) {
+            return metadata.getAccessTimeout();
+        }
+        return resolveAccessTimeout(method);
+    }
+
+    @Override
+    protected AccessTimeout resolveAccessTimeout(final Method method) {
+        if (this.methodAccessTimeouts != null) {
+            EJBBusinessMethod beanMethod = new EJBBusinessMethod(method.getName(), method.getParameterTypes());
+            AccessTimeout accessTimeout = this.methodAccessTimeouts.get(beanMethod);
+            if (accessTimeout != null) {
+                return accessTimeout;
+            }
         }
         // check bean level access timeout
         if (this.beanLevelAccessTimeout != null) {
@@ -80,7 +80,8 @@ public class StatefulComponentInstanceInterceptor extends AbstractEJBInterceptor
             component.getCache().discard(sessionId);
             throw new RuntimeException(t);
         } finally {
-            // the StatefulSessionSynchronizationInterceptor will take care of releasing
+            // a removed or discarded instance is no longer in the cache, so this is a no-op for it
+            component.getCache().release(instance);
             context.putPrivateData(ComponentInstance.class, null);
         }
     }
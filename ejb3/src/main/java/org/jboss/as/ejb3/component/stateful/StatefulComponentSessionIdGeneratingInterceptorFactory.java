@@ -74,6 +74,8 @@ public class StatefulComponentSessionIdGeneratingInterceptorFactory implements I
             }
             StatefulSessionComponent statefulComponent = (StatefulSessionComponent) component;
             StatefulSessionComponentInstance statefulSessionComponentInstance = statefulComponent.getCache().create();
+            // invocations get the instance from the cache again, until then it may be passivated
+            statefulComponent.getCache().release(statefulSessionComponentInstance);
             this.sessionIdReference.set(statefulSessionComponentInstance.getId());
 
             // move to the next interceptor in chain
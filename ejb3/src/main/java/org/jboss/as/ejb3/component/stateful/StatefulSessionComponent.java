@@ -23,15 +23,19 @@ package org.jboss.as.ejb3.component.stateful;
 
 import org.jboss.as.ee.component.BasicComponentInstance;
 import org.jboss.as.ee.component.Component;
+import org.jboss.as.ejb3.cache.Cache;
+import org.jboss.as.ejb3.cache.PassivatingCache;
+import org.jboss.as.ejb3.cache.PassivationManager;
 import org.jboss.as.ejb3.component.EJBComponentCreateService;
+import org.jboss.as.ejb3.component.EJBUtilities;
 import org.jboss.as.ejb3.component.session.SessionBeanComponent;
 import org.jboss.as.naming.ManagedReference;
-import org.jboss.ejb3.cache.Cache;
-import org.jboss.ejb3.cache.NoPassivationCache;
 import org.jboss.ejb3.cache.StatefulObjectFactory;
 import org.jboss.invocation.Interceptor;
 import org.jboss.invocation.InterceptorContext;
+import org.jboss.msc.service.StopContext;
 
+import java.io.File;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.util.Map;
@@ -46,7 +50,7 @@ public class StatefulSessionComponent extends SessionBeanComponent {
 
     public static final Object SESSION_ATTACH_KEY = new Object();
 
-    private Cache<StatefulSessionComponentInstance> cache;
+    private final Cache<StatefulSessionComponentInstance> cache;
 
     /**
      * Construct a new instance.
@@ -56,9 +60,7 @@ public class StatefulSessionComponent extends SessionBeanComponent {
     protected StatefulSessionComponent(final EJBComponentCreateService ejbComponentCreateService) {
         super(ejbComponentCreateService);
 
-
-        cache = new NoPassivationCache<StatefulSessionComponentInstance>();
-        cache.setStatefulObjectFactory(new StatefulObjectFactory<StatefulSessionComponentInstance>() {
+        final StatefulObjectFactory<StatefulSessionComponentInstance> factory = new StatefulObjectFactory<StatefulSessionComponentInstance>() {
             @Override
             public StatefulSessionComponentInstance createInstance() {
                 return (StatefulSessionComponentInstance) StatefulSessionComponent.this.createInstance();
@@ -68,7 +70,41 @@ public class StatefulSessionComponent extends SessionBeanComponent {
             public void destroyInstance(StatefulSessionComponentInstance instance) {
                 instance.destroy();
             }
-        });
+        };
+        // only the bean instance is passivated, the component instance and its interceptors stay in memory
+        final PassivationManager<StatefulSessionComponentInstance> passivationManager = new PassivationManager<StatefulSessionComponentInstance>() {
+            @Override
+            public Object prePassivate(StatefulSessionComponentInstance instance) {
+                return instance.detachInstance();
+            }
+
+            @Override
+            public void postActivate(StatefulSessionComponentInstance instance, Object state) {
+                instance.attachInstance(state);
+            }
+
+            @Override
+            public ClassLoader getClassLoader() {
+                return getComponentClass().getClassLoader();
+            }
+        };
+        final EJBUtilities utilities = getUtilities();
+        final String cacheName = ejbComponentCreateService.getDeploymentUnitInjector().getValue().getName() + "/" + getComponentName();
+        final File directory = new File(utilities.getPassivationDirectory(), cacheName.replaceAll("[^A-Za-z0-9._-]", "_"));
+        this.cache = new PassivatingCache<StatefulSessionComponentInstance>(cacheName, factory, passivationManager,
+                utilities.getDefaultCacheConfig(), directory, utilities.getExecutor());
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        cache.start();
+    }
+
+    @Override
+    public void stop(final StopContext stopContext) {
+        cache.stop();
+        super.stop(stopContext);
     }
 
 
@@ -112,7 +148,9 @@ public class StatefulSessionComponent extends SessionBeanComponent {
 //    }
 
     public Serializable createSession() {
-        return getCache().create().getId();
+        final StatefulSessionComponentInstance instance = getCache().create();
+        getCache().release(instance);
+        return instance.getId();
     }
 
     public Cache<StatefulSessionComponentInstance> getCache() {
@@ -24,8 +24,10 @@ package org.jboss.as.ejb3.component.stateful;
 import org.jboss.as.ee.component.BasicComponent;
 import org.jboss.as.ejb3.component.session.SessionBeanComponentInstance;
 import org.jboss.as.naming.ManagedReference;
+import org.jboss.as.naming.ValueManagedReference;
 import org.jboss.ejb3.cache.Identifiable;
 import org.jboss.invocation.Interceptor;
+import org.jboss.msc.value.ImmediateValue;
 import org.jboss.util.id.GUID;
 
 import java.io.Serializable;
@@ -38,6 +40,7 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 public class StatefulSessionComponentInstance extends SessionBeanComponentInstance implements Identifiable {
     private final GUID id;
+    private final AtomicReference<ManagedReference> instanceReference;
 
     /**
      * Construct a new instance.
@@ -47,6 +50,7 @@ public class StatefulSessionComponentInstance extends SessionBeanComponentInstan
     protected StatefulSessionComponentInstance(final BasicComponent component, final AtomicReference<ManagedReference> instanceReference, final Interceptor preDestroyInterceptor, final Map<Method, Interceptor> methodInterceptors) {
         super(component, instanceReference, preDestroyInterceptor, methodInterceptors);
         this.id = new GUID();
+        this.instanceReference = instanceReference;
     }
 
     @Override
@@ -57,4 +61,26 @@ public class StatefulSessionComponentInstance extends SessionBeanComponentInstan
     public Serializable getId() {
         return id;
     }
+
+    /**
+     * Takes the bean instance away so it can be passivated. Until {@link #attachInstance(Object)} is called
+     * the component instance can not be invoked.
+     *
+     * @return the bean instance
+     */
+    Object detachInstance() {
+        final ManagedReference reference = instanceReference.getAndSet(null);
+        if (reference == null)
+            throw new IllegalStateException("Instance of " + id + " is already detached");
+        return reference.getInstance();
+    }
+
+    /**
+     * Hands back a bean instance which was detached or activated.
+     *
+     * @param instance the bean instance
+     */
+    void attachInstance(final Object instance) {
+        instanceReference.set(new ValueManagedReference(new ImmediateValue<Object>(instance)));
+    }
 }
@@ -55,6 +55,7 @@ public class StatefulSessionSynchronizationInterceptor extends AbstractEJBInterc
 
         TransactionSynchronizationRegistry transactionSynchronizationRegistry = component.getTransactionSynchronizationRegistry();
         Object currentTransactionKey = transactionSynchronizationRegistry.getTransactionKey();
+        boolean associated = false;
         if(transactionKey != null) {
             if(!transactionKey.equals(currentTransactionKey))
                 throw new EJBException("EJB 3.1 FR 4.6 Stateful instance " + instance + " is already associated with tx " + transactionKey + " (current tx " + currentTransactionKey + ")");
@@ -73,15 +74,19 @@ public class StatefulSessionSynchronizationInterceptor extends AbstractEJBInterc
                     }
                 });
                 // TODO: afterBegin callbacks on SessionSynchronization
+                // the association with the tx keeps the instance in use, so it is not passivated, until it completes
+                component.getCache().get(instance.getId());
                 transactionKey = currentTransactionKey;
+                associated = true;
             }
         }
         try {
             return context.proceed();
         }
         finally {
-            if(currentTransactionKey == null)
-                release(instance);
+            // the association with the tx holds the lock until it completes
+            if(!associated)
+                lock.unlock();
         }
     }
 
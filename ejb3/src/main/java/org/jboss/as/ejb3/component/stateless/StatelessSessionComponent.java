@@ -26,18 +26,18 @@ import org.jboss.as.ee.component.BasicComponentInstance;
 import org.jboss.as.ee.component.Component;
 import org.jboss.as.ejb3.component.EJBComponentCreateService;
 import org.jboss.as.ejb3.component.pool.PooledComponent;
+import org.jboss.as.ejb3.component.pool.StripedPool;
 import org.jboss.as.ejb3.component.session.SessionBeanComponent;
 import org.jboss.as.naming.ManagedReference;
 import org.jboss.ejb3.pool.Pool;
 import org.jboss.ejb3.pool.StatelessObjectFactory;
-import org.jboss.ejb3.pool.strictmax.StrictMaxPool;
 import org.jboss.invocation.Interceptor;
 import org.jboss.invocation.InterceptorContext;
+import org.jboss.msc.service.StopContext;
 
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -48,7 +48,7 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 public class StatelessSessionComponent extends SessionBeanComponent implements PooledComponent<StatelessSessionComponentInstance> {
 
-    private Pool<StatelessSessionComponentInstance> pool;
+    private final StripedPool<StatelessSessionComponentInstance> pool;
 
     /**
      * Constructs a StatelessEJBComponent for a stateless session bean
@@ -69,7 +69,21 @@ public class StatelessSessionComponent extends SessionBeanComponent implements P
                 obj.destroy();
             }
         };
-        this.pool = new StrictMaxPool<StatelessSessionComponentInstance>(factory, 20, 5, TimeUnit.MINUTES);
+        final String poolName = ejbComponentCreateService.getDeploymentUnitInjector().getValue().getName() + "/" + getComponentName();
+        this.pool = new StripedPool<StatelessSessionComponentInstance>(poolName, factory, getPoolConfig());
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        getUtilities().registerPool(pool);
+    }
+
+    @Override
+    public void stop(final StopContext stopContext) {
+        getUtilities().unregisterPool(pool);
+        pool.stop();
+        super.stop(stopContext);
     }
 
 
@@ -32,7 +32,7 @@ import org.jboss.as.server.deployment.DeploymentUnit;
  */
 public class EjbDeploymentMarker {
 
-    private static final AttachmentKey<Boolean> ATTACHMENT_KEY = AttachmentKey.create(Boolean.class);
+    public static final AttachmentKey<Boolean> ATTACHMENT_KEY = AttachmentKey.create(Boolean.class);
 
     public static void mark(final DeploymentUnit deployment) {
         deployment.putAttachment(ATTACHMENT_KEY, true);
@@ -23,6 +23,7 @@
 package org.jboss.as.ejb3.deployment.processors;
 
 import org.jboss.as.ee.component.AbstractComponentConfigProcessor;
+import org.jboss.as.ee.component.Attachments;
 import org.jboss.as.ee.component.BindingConfiguration;
 import org.jboss.as.ee.component.ComponentConfiguration;
 import org.jboss.as.ee.component.ComponentConfigurator;
@@ -35,6 +36,8 @@ import org.jboss.as.ee.component.InjectionSource;
 import org.jboss.as.ejb3.component.EJBComponentDescription;
 import org.jboss.as.naming.ManagedReference;
 import org.jboss.as.naming.ManagedReferenceFactory;
+import org.jboss.as.server.deployment.AttachmentKey;
+import org.jboss.as.server.deployment.ConcurrentDeploymentUnitProcessor;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
 import org.jboss.as.server.deployment.DeploymentUnit;
 import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
@@ -43,13 +46,21 @@ import org.jboss.ejb3.context.CurrentEJBContext;
 import org.jboss.msc.inject.Injector;
 import org.jboss.msc.service.ServiceBuilder;
 
+import java.util.Set;
+
 /**
  * Deployment processor responsible for detecting EJB components and adding a {@link BindingConfiguration} for the
  * java:comp/EJBContext entry.
  *
  * @author John Bailey
  */
-public class EjbContextJndiBindingProcessor extends AbstractComponentConfigProcessor {
+public class EjbContextJndiBindingProcessor extends AbstractComponentConfigProcessor implements ConcurrentDeploymentUnitProcessor {
+
+    private static final Set<AttachmentKey<?>> CONSUMED = AttachmentKey.setOf(
+            Attachments.EE_MODULE_DESCRIPTION,
+            org.jboss.as.server.deployment.Attachments.COMPOSITE_ANNOTATION_INDEX);
+    private static final Set<AttachmentKey<?>> PRODUCED = AttachmentKey.setOf(Attachments.EE_MODULE_DESCRIPTION);
+
     protected void processComponentConfig(final DeploymentUnit deploymentUnit, final DeploymentPhaseContext phaseContext, final CompositeIndex index, final ComponentDescription componentDescription) throws DeploymentUnitProcessingException {
         if (!(componentDescription instanceof EJBComponentDescription)) {
             return;  // Only process EJBs
@@ -83,6 +94,16 @@ public class EjbContextJndiBindingProcessor extends AbstractComponentConfigProce
         }
     }
 
+    @Override
+    public Set<AttachmentKey<?>> getConsumedAttachments() {
+        return CONSUMED;
+    }
+
+    @Override
+    public Set<AttachmentKey<?>> getProducedAttachments() {
+        return PRODUCED;
+    }
+
     private static final ManagedReference ejbContextManagedReference = new ManagedReference() {
         public void release() {
         }
@@ -29,11 +29,12 @@ import org.jboss.as.ejb3.deployment.EjbDeploymentAttachmentKeys;
 import org.jboss.as.ee.component.EEModuleDescription;
 
 import org.jboss.as.ejb3.deployment.EjbDeploymentMarker;
+import org.jboss.as.server.deployment.AttachmentKey;
 import org.jboss.as.server.deployment.Attachments;
+import org.jboss.as.server.deployment.ConcurrentDeploymentUnitProcessor;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
 import org.jboss.as.server.deployment.DeploymentUnit;
 import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
-import org.jboss.as.server.deployment.DeploymentUnitProcessor;
 import org.jboss.logging.Logger;
 import org.jboss.metadata.ejb.parser.spec.EjbJarMetaDataParser;
 import org.jboss.metadata.ejb.spec.EjbJarMetaData;
@@ -46,6 +47,7 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Set;
 
 /**
  * Processes a {@link DeploymentUnit} containing a ejb-jar.xml and creates {@link EjbJarMetaData}
@@ -59,7 +61,15 @@ import java.io.InputStream;
  * <p/>
  * Author: Jaikiran Pai
  */
-public class EjbJarParsingDeploymentUnitProcessor implements DeploymentUnitProcessor {
+public class EjbJarParsingDeploymentUnitProcessor implements ConcurrentDeploymentUnitProcessor {
+
+    private static final Set<AttachmentKey<?>> CONSUMED = AttachmentKey.setOf(
+            Attachments.DEPLOYMENT_ROOT,
+            org.jboss.as.ee.component.Attachments.EE_MODULE_DESCRIPTION);
+    private static final Set<AttachmentKey<?>> PRODUCED = AttachmentKey.setOf(
+            EjbDeploymentMarker.ATTACHMENT_KEY,
+            EjbDeploymentAttachmentKeys.EJB_JAR_DESCRIPTION,
+            EjbDeploymentAttachmentKeys.EJB_JAR_METADATA);
 
     /**
      * Logger
@@ -165,6 +175,16 @@ public class EjbJarParsingDeploymentUnitProcessor implements DeploymentUnitProce
 
     }
 
+    @Override
+    public Set<AttachmentKey<?>> getConsumedAttachments() {
+        return CONSUMED;
+    }
+
+    @Override
+    public Set<AttachmentKey<?>> getProducedAttachments() {
+        return PRODUCED;
+    }
+
     /**
      * Creates and returns a {@link XMLStreamReader} for the passed {@link VirtualFile ejb-jar.xml}
      *
@@ -0,0 +1,180 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.deployment.processors.dd;
+
+import org.jboss.as.ee.component.ComponentDescription;
+import org.jboss.as.ee.component.EEModuleDescription;
+import org.jboss.as.ejb3.component.EJBComponentDescription;
+import org.jboss.as.ejb3.component.pool.PoolConfig;
+import org.jboss.as.server.deployment.Attachments;
+import org.jboss.as.server.deployment.DeploymentPhaseContext;
+import org.jboss.as.server.deployment.DeploymentUnit;
+import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
+import org.jboss.as.server.deployment.DeploymentUnitProcessor;
+import org.jboss.logging.Logger;
+import org.jboss.vfs.VirtualFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the instance pool configuration of the beans in a deployment, as specified in jboss-ejb3.xml:
+ * <pre>
+ * &lt;jboss:ejb-jar xmlns:jboss="http://www.jboss.com/xml/ns/javaee" xmlns:p="urn:ejb-pool:1.0"&gt;
+ *    &lt;assembly-descriptor&gt;
+ *       &lt;p:pool&gt;
+ *          &lt;ejb-name&gt;CalculatorBean&lt;/ejb-name&gt;
+ *          &lt;p:max-size&gt;200&lt;/p:max-size&gt;
+ *          &lt;p:timeout&gt;500&lt;/p:timeout&gt;
+ *          &lt;p:timeout-unit&gt;MILLISECONDS&lt;/p:timeout-unit&gt;
+ *       &lt;/p:pool&gt;
+ *    &lt;/assembly-descriptor&gt;
+ * &lt;/jboss:ejb-jar&gt;
+ * </pre>
+ * An ejb-name of <code>*</code> applies to every bean which has no pool configuration of its own. Values which
+ * are left out are taken from the EJB3 subsystem. The rest of jboss-ejb3.xml is ignored by this processor.
+ */
+public class PoolDescriptorProcessor implements DeploymentUnitProcessor, XMLStreamConstants {
+
+    public static final String POOL_NAMESPACE = "urn:ejb-pool:1.0";
+
+    private static final Logger logger = Logger.getLogger(PoolDescriptorProcessor.class);
+
+    private static final String JBOSS_EJB3_XML_LOCATION_IN_WAR = "WEB-INF/jboss-ejb3.xml";
+    private static final String JBOSS_EJB3_XML_LOCATION_IN_JAR = "META-INF/jboss-ejb3.xml";
+    private static final String ALL_BEANS = "*";
+
+    private final PoolConfig defaultPoolConfig;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param defaultPoolConfig the subsystem configuration, which supplies the values a bean leaves out
+     */
+    public PoolDescriptorProcessor(final PoolConfig defaultPoolConfig) {
+        this.defaultPoolConfig = defaultPoolConfig;
+    }
+
+    @Override
+    public void deploy(DeploymentPhaseContext phaseContext) throws DeploymentUnitProcessingException {
+        final DeploymentUnit deploymentUnit = phaseContext.getDeploymentUnit();
+        final EEModuleDescription moduleDescription = deploymentUnit.getAttachment(org.jboss.as.ee.component.Attachments.EE_MODULE_DESCRIPTION);
+        if (moduleDescription == null) {
+            return;
+        }
+        final VirtualFile deploymentRoot = deploymentUnit.getAttachment(Attachments.DEPLOYMENT_ROOT).getRoot();
+        final VirtualFile descriptor;
+        if (deploymentRoot.getName().toLowerCase().endsWith(".war")) {
+            descriptor = deploymentRoot.getChild(JBOSS_EJB3_XML_LOCATION_IN_WAR);
+        } else {
+            descriptor = deploymentRoot.getChild(JBOSS_EJB3_XML_LOCATION_IN_JAR);
+        }
+        if (descriptor == null || !descriptor.exists()) {
+            return;
+        }
+
+        final Map<String, PoolConfig> poolConfigs = parse(descriptor);
+        final PoolConfig allBeans = poolConfigs.get(ALL_BEANS);
+        for (ComponentDescription componentDescription : moduleDescription.getComponentDescriptions()) {
+            if (!(componentDescription instanceof EJBComponentDescription)) {
+                continue;
+            }
+            PoolConfig poolConfig = poolConfigs.get(componentDescription.getComponentName());
+            if (poolConfig == null) {
+                poolConfig = allBeans;
+            }
+            if (poolConfig != null) {
+                ((EJBComponentDescription) componentDescription).setPoolConfig(poolConfig);
+            }
+        }
+    }
+
+    private Map<String, PoolConfig> parse(final VirtualFile descriptor) throws DeploymentUnitProcessingException {
+        final Map<String, PoolConfig> poolConfigs = new HashMap<String, PoolConfig>();
+        InputStream stream = null;
+        try {
+            stream = descriptor.openStream();
+            final XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(stream);
+            while (reader.hasNext()) {
+                if (reader.next() == START_ELEMENT && POOL_NAMESPACE.equals(reader.getNamespaceURI()) && "pool".equals(reader.getLocalName())) {
+                    parsePool(reader, descriptor, poolConfigs);
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new DeploymentUnitProcessingException("Exception while parsing " + descriptor.getPathName(), e);
+        } catch (IOException e) {
+            throw new DeploymentUnitProcessingException("Failed to read " + descriptor.getPathName(), e);
+        } finally {
+            try {
+                if (stream != null) {
+                    stream.close();
+                }
+            } catch (IOException ioe) {
+                logger.debug("Ignoring exception while closing the InputStream ", ioe);
+            }
+        }
+        return poolConfigs;
+    }
+
+    private void parsePool(final XMLStreamReader reader, final VirtualFile descriptor, final Map<String, PoolConfig> poolConfigs) throws XMLStreamException, DeploymentUnitProcessingException {
+        String ejbName = null;
+        int maxSize = defaultPoolConfig.getMaxSize();
+        long timeout = defaultPoolConfig.getTimeout();
+        TimeUnit timeUnit = defaultPoolConfig.getTimeUnit();
+        try {
+            while (reader.nextTag() != END_ELEMENT) {
+                final String name = reader.getLocalName();
+                final String value = reader.getElementText().trim();
+                if ("ejb-name".equals(name)) {
+                    ejbName = value;
+                } else if ("max-size".equals(name)) {
+                    maxSize = Integer.parseInt(value);
+                } else if ("timeout".equals(name)) {
+                    timeout = Long.parseLong(value);
+                } else if ("timeout-unit".equals(name)) {
+                    timeUnit = TimeUnit.valueOf(value);
+                } else {
+                    throw new DeploymentUnitProcessingException("Unexpected element " + name + " in pool configuration of " + descriptor.getPathName());
+                }
+            }
+            if (ejbName == null) {
+                throw new DeploymentUnitProcessingException("Missing ejb-name in pool configuration of " + descriptor.getPathName());
+            }
+            poolConfigs.put(ejbName, new PoolConfig(maxSize, timeout, timeUnit));
+        } catch (IllegalArgumentException e) {
+            // also covers NumberFormatException and unknown time units
+            throw new DeploymentUnitProcessingException("Invalid pool configuration for " + ejbName + " in " + descriptor.getPathName(), e);
+        }
+    }
+
+    @Override
+    public void undeploy(DeploymentUnit context) {
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.cache;
+
+import org.jboss.ejb3.cache.Identifiable;
+import org.jboss.ejb3.cache.StatefulObjectFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.ejb.NoSuchEJBException;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests of {@link PassivatingCache}.
+ */
+public class PassivatingCacheTestCase {
+    private static class Bean implements Identifiable {
+        private static final AtomicInteger ids = new AtomicInteger();
+        final Integer id = ids.incrementAndGet();
+        Object state = "state of " + id;
+
+        @Override
+        public Serializable getId() {
+            return id;
+        }
+    }
+
+    private static class BeanFactory implements StatefulObjectFactory<Bean> {
+        final AtomicInteger destroyed = new AtomicInteger();
+
+        @Override
+        public Bean createInstance() {
+            return new Bean();
+        }
+
+        @Override
+        public void destroyInstance(Bean instance) {
+            assertNotNull("destroyed instance must be active", instance.state);
+            destroyed.incrementAndGet();
+        }
+    }
+
+    private static class BeanPassivationManager implements PassivationManager<Bean> {
+        @Override
+        public Object prePassivate(Bean obj) {
+            final Object state = obj.state;
+            obj.state = null;
+            return state;
+        }
+
+        @Override
+        public void postActivate(Bean obj, Object state) {
+            obj.state = state;
+        }
+
+        @Override
+        public ClassLoader getClassLoader() {
+            return Bean.class.getClassLoader();
+        }
+    }
+
+    /**
+     * Runs eviction and file clean up on the calling thread, so the test can observe the result.
+     */
+    private static class DirectExecutor extends ScheduledThreadPoolExecutor {
+        DirectExecutor() {
+            super(1);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    }
+
+    private final BeanFactory factory = new BeanFactory();
+    private final DirectExecutor executor = new DirectExecutor();
+    private PassivatingCache<Bean> cache;
+    private File directory;
+
+    @After
+    public void tearDown() {
+        if (cache != null)
+            cache.stop();
+        executor.shutdownNow();
+    }
+
+    private PassivatingCache<Bean> createCache(final CacheConfig config) throws IOException {
+        directory = File.createTempFile("sessions", "");
+        directory.delete();
+        cache = new PassivatingCache<Bean>("test", factory, new BeanPassivationManager(), config, directory, executor);
+        cache.start();
+        return cache;
+    }
+
+    private static Bean createReleased(final PassivatingCache<Bean> cache) throws InterruptedException {
+        final Bean bean = cache.create();
+        cache.release(bean);
+        // make sure the beans have a distinct last use
+        Thread.sleep(5);
+        return bean;
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsPassivated() throws Exception {
+        final PassivatingCache<Bean> cache = createCache(new CacheConfig(2, 0, TimeUnit.MINUTES));
+        final Bean first = createReleased(cache);
+        final Bean second = createReleased(cache);
+        final Bean third = createReleased(cache);
+        assertEquals(1, cache.getPassivatedCount());
+        assertNull(first.state);
+
+        // activation is lazy and brings back the state
+        assertEquals(first, cache.get(first.getId()));
+        assertEquals("state of " + first.id, first.state);
+        cache.release(first);
+        assertEquals(1, cache.getPassivatedCount());
+        assertNull(second.state);
+        assertNotNull(third.state);
+        assertEquals(3, cache.getCacheSize());
+    }
+
+    @Test
+    public void testInUseIsNotPassivated() throws Exception {
+        final PassivatingCache<Bean> cache = createCache(new CacheConfig(1, 0, TimeUnit.MINUTES));
+        final Bean inUse = cache.create();
+        final Bean idle = createReleased(cache);
+        assertNotNull(inUse.state);
+        assertNull(idle.state);
+        assertEquals(1, cache.getPassivatedCount());
+    }
+
+    @Test
+    public void testIdleTimeout() throws Exception {
+        final PassivatingCache<Bean> cache = createCache(new CacheConfig(0, 10, TimeUnit.MILLISECONDS));
+        final Bean bean = createReleased(cache);
+        Thread.sleep(20);
+        cache.evict();
+        assertNull(bean.state);
+
+        // the bean is activated to receive its callbacks
+        cache.remove(bean.getId());
+        assertEquals(1, factory.destroyed.get());
+        assertEquals(0, cache.getPassivatedCount());
+        assertEquals(0, cache.getCacheSize());
+    }
+
+    @Test
+    public void testNotSerializableStaysInMemory() throws Exception {
+        final PassivatingCache<Bean> cache = createCache(new CacheConfig(1, 0, TimeUnit.MINUTES));
+        final Bean bean = cache.create();
+        final Object state = new Object();
+        bean.state = state;
+        cache.release(bean);
+        createReleased(cache);
+        createReleased(cache);
+        assertEquals(state, bean.state);
+        assertEquals(1, cache.getPassivatedCount());
+    }
+
+    @Test
+    public void testDiscardPassivated() throws Exception {
+        final PassivatingCache<Bean> cache = createCache(new CacheConfig(1, 0, TimeUnit.MINUTES));
+        final Bean bean = createReleased(cache);
+        createReleased(cache);
+        assertNull(bean.state);
+        cache.discard(bean.getId());
+        try {
+            cache.get(bean.getId());
+            fail("Expected the bean to be gone");
+        } catch (NoSuchEJBException e) {
+            // good
+        }
+        assertEquals(0, factory.destroyed.get());
+        assertEquals(0, cache.getPassivatedCount());
+    }
+
+    @Test
+    public void testRemovalTimeoutDestroysActive() throws Exception {
+        final PassivatingCache<Bean> cache = createCache(new CacheConfig(0, 0, 10, TimeUnit.MILLISECONDS));
+        final Bean bean = createReleased(cache);
+        final Bean inUse = cache.create();
+        Thread.sleep(20);
+        cache.evict();
+        assertEquals(1, factory.destroyed.get());
+        assertEquals(1, cache.getCacheSize());
+        try {
+            cache.get(bean.getId());
+            fail("Expected the bean to be gone");
+        } catch (NoSuchEJBException e) {
+            // good
+        }
+        assertEquals(inUse, cache.get(inUse.getId()));
+    }
+
+    @Test
+    public void testRemovalTimeoutDropsPassivated() throws Exception {
+        final PassivatingCache<Bean> cache = createCache(new CacheConfig(1, 0, 50, TimeUnit.MILLISECONDS));
+        final Bean bean = createReleased(cache);
+        createReleased(cache);
+        assertNull(bean.state);
+        assertEquals(1, cache.getPassivatedCount());
+        assertEquals(1, directory.list().length);
+        Thread.sleep(60);
+        cache.evict();
+        // passivated beans are not activated for their pre-destroy callback
+        assertEquals(1, factory.destroyed.get());
+        assertNull(bean.state);
+        assertEquals(0, cache.getPassivatedCount());
+        assertEquals(0, cache.getCacheSize());
+        assertEquals(0, directory.list().length);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.component;
+
+import org.jboss.as.ejb3.deployment.EjbJarConfiguration;
+import org.jboss.as.server.deployment.DeploymentUnit;
+import org.jboss.invocation.InterceptorFactory;
+import org.jboss.msc.service.ServiceController;
+import org.jboss.msc.service.ServiceRegistry;
+import org.jboss.msc.value.InjectedValue;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ejb.ApplicationException;
+import javax.ejb.LockType;
+import javax.ejb.TransactionAttributeType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests of the method metadata {@link EJBComponent} resolves when it starts.
+ */
+public class EJBComponentTestCase {
+
+    private static class BaseBean {
+        public void inherited() {
+        }
+
+        public void overridden() {
+        }
+    }
+
+    private static class TestBean extends BaseBean {
+        public void own() {
+        }
+
+        public void own(final String argument) {
+        }
+
+        @Override
+        public void overridden() {
+        }
+
+        public void notInvocable() {
+        }
+    }
+
+    /**
+     * A component which resolves lock types per call, the way a singleton does.
+     */
+    private static class TestComponent extends EJBComponent {
+        private final Map<String, LockType> methodLockTypes;
+
+        TestComponent(final EJBComponentCreateService createService, final Map<String, LockType> methodLockTypes) {
+            super(createService);
+            this.methodLockTypes = methodLockTypes;
+        }
+
+        @Override
+        protected LockType resolveLockType(final Method method) {
+            final LockType lockType = methodLockTypes.get(method.getName());
+            return lockType != null ? lockType : LockType.WRITE;
+        }
+
+        @Override
+        protected boolean isSetRollbackOnlyAllowed(final TransactionAttributeType txAttrType) {
+            return true;
+        }
+
+        @Override
+        protected boolean isGetRollbackOnlyAllowed(final TransactionAttributeType txAttrType) {
+            return true;
+        }
+    }
+
+    private final ConcurrentMap<MethodIntf, ConcurrentMap<String, ConcurrentMap<ArrayKey, TransactionAttributeType>>> txAttrs = new ConcurrentHashMap<MethodIntf, ConcurrentMap<String, ConcurrentMap<ArrayKey, TransactionAttributeType>>>();
+    private final Set<Method> invocableMethods = Collections.newSetFromMap(new IdentityHashMap<Method, Boolean>());
+    private List<Method> methods;
+    private Method notInvocable;
+    private TestComponent component;
+
+    @Before
+    public void setup() throws Exception {
+        final Method inherited = TestBean.class.getMethod("inherited");
+        final Method overridden = TestBean.class.getMethod("overridden");
+        final Method own = TestBean.class.getMethod("own");
+        final Method ownWithArgument = TestBean.class.getMethod("own", String.class);
+        notInvocable = TestBean.class.getMethod("notInvocable");
+        methods = Arrays.asList(inherited, overridden, own, ownWithArgument);
+        // the inherited method is the one declared by the superclass
+        assertSame(BaseBean.class, inherited.getDeclaringClass());
+
+        for (Method method : methods) {
+            putTxAttr(MethodIntf.BEAN, method, TransactionAttributeType.REQUIRED);
+            invocableMethods.add(method);
+        }
+        putTxAttr(MethodIntf.LOCAL, inherited, TransactionAttributeType.MANDATORY);
+        putTxAttr(MethodIntf.LOCAL, overridden, TransactionAttributeType.REQUIRES_NEW);
+        putTxAttr(MethodIntf.LOCAL, own, TransactionAttributeType.SUPPORTS);
+        putTxAttr(MethodIntf.LOCAL, ownWithArgument, TransactionAttributeType.NEVER);
+        putTxAttr(MethodIntf.BEAN, notInvocable, TransactionAttributeType.NOT_SUPPORTED);
+
+        final Map<String, LockType> methodLockTypes = new HashMap<String, LockType>();
+        methodLockTypes.put("inherited", LockType.READ);
+        methodLockTypes.put("own", LockType.READ);
+
+        component = new TestComponent(mockCreateService(), methodLockTypes);
+    }
+
+    @Test
+    public void testMetadataMatchesPerCallLookup() {
+        // before the component starts, every lookup goes through the configuration
+        final Map<Method, TransactionAttributeType> beanTxAttrs = new HashMap<Method, TransactionAttributeType>();
+        final Map<Method, TransactionAttributeType> localTxAttrs = new HashMap<Method, TransactionAttributeType>();
+        for (Method method : methods) {
+            assertNull(component.getMethodMetadata(method));
+            beanTxAttrs.put(method, component.getTransactionAttributeType(MethodIntf.BEAN, method));
+            localTxAttrs.put(method, component.getTransactionAttributeType(MethodIntf.LOCAL, method));
+        }
+
+        component.start();
+
+        for (Method method : methods) {
+            final EJBMethodMetadata metadata = component.getMethodMetadata(method);
+            assertNotNull(method.toString(), metadata);
+            assertSame(method, metadata.getMethod());
+            assertEquals(beanTxAttrs.get(method), metadata.getTransactionAttribute(MethodIntf.BEAN));
+            assertEquals(localTxAttrs.get(method), metadata.getTransactionAttribute(MethodIntf.LOCAL));
+            assertNull(metadata.getTransactionAttribute(MethodIntf.REMOTE));
+            assertEquals(beanTxAttrs.get(method), component.getTransactionAttributeType(MethodIntf.BEAN, method));
+            assertEquals(localTxAttrs.get(method), component.getTransactionAttributeType(MethodIntf.LOCAL, method));
+            assertEquals(component.resolveLockType(method), metadata.getLockType());
+        }
+        assertEquals(TransactionAttributeType.MANDATORY, component.getMethodMetadata(methods.get(0)).getTransactionAttribute(MethodIntf.LOCAL));
+        assertEquals(LockType.READ, component.getMethodMetadata(methods.get(0)).getLockType());
+        assertEquals(LockType.WRITE, component.getMethodMetadata(methods.get(1)).getLockType());
+    }
+
+    @Test
+    public void testOverloadsAreResolvedSeparately() throws Exception {
+        component.start();
+
+        final EJBMethodMetadata own = component.getMethodMetadata(TestBean.class.getMethod("own"));
+        final EJBMethodMetadata ownWithArgument = component.getMethodMetadata(TestBean.class.getMethod("own", String.class));
+        assertEquals(TransactionAttributeType.SUPPORTS, own.getTransactionAttribute(MethodIntf.LOCAL));
+        assertEquals(TransactionAttributeType.NEVER, ownWithArgument.getTransactionAttribute(MethodIntf.LOCAL));
+    }
+
+    @Test
+    public void testUnknownMethodFallsBackToPerCallLookup() {
+        component.start();
+
+        assertNull(component.getMethodMetadata(notInvocable));
+        assertEquals(TransactionAttributeType.NOT_SUPPORTED, component.getTransactionAttributeType(MethodIntf.BEAN, notInvocable));
+    }
+
+    private void putTxAttr(final MethodIntf methodIntf, final Method method, final TransactionAttributeType txAttr) {
+        ConcurrentMap<String, ConcurrentMap<ArrayKey, TransactionAttributeType>> perMethodIntf = txAttrs.get(methodIntf);
+        if (perMethodIntf == null) {
+            perMethodIntf = new ConcurrentHashMap<String, ConcurrentMap<ArrayKey, TransactionAttributeType>>();
+            txAttrs.put(methodIntf, perMethodIntf);
+        }
+        ConcurrentMap<ArrayKey, TransactionAttributeType> perMethod = perMethodIntf.get(method.getName());
+        if (perMethod == null) {
+            perMethod = new ConcurrentHashMap<ArrayKey, TransactionAttributeType>();
+            perMethodIntf.put(method.getName(), perMethod);
+        }
+        perMethod.put(new ArrayKey((Object[]) method.getParameterTypes()), txAttr);
+    }
+
+    private EJBComponentCreateService mockCreateService() {
+        final ServiceController<?> utilitiesController = mock(ServiceController.class);
+        final ServiceRegistry serviceRegistry = mock(ServiceRegistry.class);
+        doReturn(utilitiesController).when(serviceRegistry).getRequiredService(EJBUtilities.SERVICE_NAME);
+        final DeploymentUnit deploymentUnit = mock(DeploymentUnit.class);
+        when(deploymentUnit.getServiceRegistry()).thenReturn(serviceRegistry);
+        final InjectedValue<DeploymentUnit> deploymentUnitInjector = new InjectedValue<DeploymentUnit>();
+        deploymentUnitInjector.inject(deploymentUnit);
+
+        final EjbJarConfiguration ejbJarConfiguration = mock(EjbJarConfiguration.class);
+        when(ejbJarConfiguration.getApplicationExceptions()).thenReturn(Collections.<Class<?>, ApplicationException>emptyMap());
+
+        final EJBComponentCreateService createService = mock(EJBComponentCreateService.class);
+        when(createService.getComponentName()).thenReturn("TestBean");
+        doReturn(TestBean.class).when(createService).getComponentClass();
+        when(createService.getComponentInterceptors()).thenReturn(Collections.<Method, InterceptorFactory>emptyMap());
+        when(createService.getDeploymentUnitInjector()).thenReturn(deploymentUnitInjector);
+        when(createService.getEjbJarConfiguration()).thenReturn(ejbJarConfiguration);
+        when(createService.getTxAttrs()).thenReturn(txAttrs);
+        when(createService.getInvocableMethods()).thenReturn(invocableMethods);
+        return createService;
+    }
+}
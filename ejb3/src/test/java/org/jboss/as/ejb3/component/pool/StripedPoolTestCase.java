@@ -0,0 +1,149 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright (c) 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.component.pool;
+
+import org.jboss.ejb3.pool.StatelessObjectFactory;
+import org.junit.Test;
+
+import javax.ejb.EJBException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests of {@link StripedPool}.
+ */
+public class StripedPoolTestCase {
+    private static class CountingFactory implements StatelessObjectFactory<Object> {
+        final AtomicInteger destroyed = new AtomicInteger();
+
+        @Override
+        public Object create() {
+            return new Object();
+        }
+
+        @Override
+        public void destroy(Object obj) {
+            destroyed.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testReuse() {
+        final CountingFactory factory = new CountingFactory();
+        final StripedPool<Object> pool = new StripedPool<Object>("test", factory, new PoolConfig(2, 1, TimeUnit.SECONDS));
+        final Object first = pool.get();
+        pool.release(first);
+        assertSame(first, pool.get());
+        assertEquals(1, pool.getCreateCount());
+        assertEquals(1, pool.getInUseCount());
+    }
+
+    @Test
+    public void testTimeout() {
+        final StripedPool<Object> pool = new StripedPool<Object>("test", new CountingFactory(), new PoolConfig(1, 10, TimeUnit.MILLISECONDS));
+        pool.get();
+        try {
+            pool.get();
+            fail("Expected the pool to be exhausted");
+        } catch (EJBException e) {
+            // good
+        }
+        assertEquals(1, pool.getWaitCount());
+        assertEquals(0, pool.getAvailableCount());
+    }
+
+    @Test
+    public void testWaitForRelease() throws Exception {
+        final StripedPool<Object> pool = new StripedPool<Object>("test", new CountingFactory(), new PoolConfig(1, 10, TimeUnit.SECONDS));
+        final Object instance = pool.get();
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final Object[] result = new Object[1];
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                waiting.countDown();
+                result[0] = pool.get();
+            }
+        };
+        thread.start();
+        waiting.await();
+        Thread.sleep(50);
+        pool.release(instance);
+        thread.join(10000);
+        assertSame(instance, result[0]);
+        assertEquals(1, pool.getCreateCount());
+        assertEquals(1, pool.getWaitCount());
+    }
+
+    @Test
+    public void testShrink() {
+        final CountingFactory factory = new CountingFactory();
+        final StripedPool<Object> pool = new StripedPool<Object>("test", factory, new PoolConfig(2, 1, TimeUnit.SECONDS));
+        final Object first = pool.get();
+        final Object second = pool.get();
+        pool.setMaxSize(1);
+        pool.release(first);
+        assertEquals(1, factory.destroyed.get());
+        pool.release(second);
+        assertEquals(1, pool.getAvailableCount());
+        assertEquals(1, pool.getCurrentSize());
+        pool.stop();
+        assertEquals(2, factory.destroyed.get());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final int threads = 8;
+        final StripedPool<Object> pool = new StripedPool<Object>("test", new CountingFactory(), new PoolConfig(4, 10, TimeUnit.SECONDS));
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        final Object instance = pool.get();
+                        if (concurrent.incrementAndGet() > 4) {
+                            failures.incrementAndGet();
+                        }
+                        concurrent.decrementAndGet();
+                        pool.release(instance);
+                    }
+                }
+            };
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(0, failures.get());
+        assertTrue(pool.getCreateCount() <= 4);
+        assertEquals(0, pool.getInUseCount());
+    }
+}
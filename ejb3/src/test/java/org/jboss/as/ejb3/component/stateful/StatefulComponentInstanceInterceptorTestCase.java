@@ -0,0 +1,175 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.component.stateful;
+
+import org.jboss.as.ee.component.Component;
+import org.jboss.as.ee.component.ComponentInstance;
+import org.jboss.as.ejb3.cache.CacheConfig;
+import org.jboss.as.ejb3.cache.PassivatingCache;
+import org.jboss.as.ejb3.cache.PassivationManager;
+import org.jboss.ejb3.cache.StatefulObjectFactory;
+import org.jboss.invocation.Interceptor;
+import org.jboss.invocation.InterceptorContext;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Invokes stateful instances through the view interceptor which associates them with the invocation, and checks
+ * the cache can passivate them once the invocation is over.
+ */
+public class StatefulComponentInstanceInterceptorTestCase {
+    /**
+     * Runs eviction on the calling thread, so the test can observe the result.
+     */
+    private static class DirectExecutor extends ScheduledThreadPoolExecutor {
+        DirectExecutor() {
+            super(1);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    }
+
+    private final AtomicInteger ids = new AtomicInteger();
+    private final Set<Serializable> passivated = new HashSet<Serializable>();
+    private final DirectExecutor executor = new DirectExecutor();
+    private PassivatingCache<StatefulSessionComponentInstance> cache;
+
+    @After
+    public void tearDown() {
+        if (cache != null)
+            cache.stop();
+        executor.shutdownNow();
+    }
+
+    private StatefulSessionComponent createComponent(final int maxSize) throws Exception {
+        final StatefulObjectFactory<StatefulSessionComponentInstance> factory = new StatefulObjectFactory<StatefulSessionComponentInstance>() {
+            @Override
+            public StatefulSessionComponentInstance createInstance() {
+                final StatefulSessionComponentInstance instance = mock(StatefulSessionComponentInstance.class);
+                when(instance.getId()).thenReturn(ids.incrementAndGet());
+                return instance;
+            }
+
+            @Override
+            public void destroyInstance(StatefulSessionComponentInstance instance) {
+            }
+        };
+        final PassivationManager<StatefulSessionComponentInstance> passivationManager = new PassivationManager<StatefulSessionComponentInstance>() {
+            @Override
+            public Object prePassivate(StatefulSessionComponentInstance obj) {
+                passivated.add(obj.getId());
+                return obj.getId();
+            }
+
+            @Override
+            public void postActivate(StatefulSessionComponentInstance obj, Object state) {
+                passivated.remove(obj.getId());
+            }
+
+            @Override
+            public ClassLoader getClassLoader() {
+                return StatefulComponentInstanceInterceptorTestCase.class.getClassLoader();
+            }
+        };
+        final File directory = File.createTempFile("sessions", "");
+        directory.delete();
+        cache = new PassivatingCache<StatefulSessionComponentInstance>("test", factory, passivationManager,
+                new CacheConfig(maxSize, 0, TimeUnit.MINUTES), directory, executor);
+        cache.start();
+        final StatefulSessionComponent component = mock(StatefulSessionComponent.class);
+        when(component.getCache()).thenReturn(cache);
+        return component;
+    }
+
+    private static Serializable createSession(final StatefulSessionComponent component) throws InterruptedException {
+        final StatefulSessionComponentInstance instance = component.getCache().create();
+        component.getCache().release(instance);
+        // make sure the sessions have a distinct last use
+        Thread.sleep(5);
+        return instance.getId();
+    }
+
+    private static Object invoke(final StatefulSessionComponent component, final Serializable sessionId, final Interceptor target) throws Exception {
+        final Interceptor interceptor = new StatefulComponentInstanceInterceptor(new AtomicReference<Serializable>(sessionId));
+        final InterceptorContext context = new InterceptorContext();
+        context.putPrivateData(Component.class, component);
+        context.setInterceptors(Arrays.asList(target));
+        return interceptor.processInvocation(context);
+    }
+
+    @Test
+    public void testInvokedInstanceCanBePassivated() throws Exception {
+        final StatefulSessionComponent component = createComponent(1);
+        final Serializable first = createSession(component);
+        invoke(component, first, new Interceptor() {
+            @Override
+            public Object processInvocation(InterceptorContext context) throws Exception {
+                assertEquals(first, ((StatefulSessionComponentInstance) context.getPrivateData(ComponentInstance.class)).getId());
+                return null;
+            }
+        });
+        Thread.sleep(5);
+
+        // going over the maximum size passivates the least recently used instance, which is the invoked one
+        createSession(component);
+        assertTrue(passivated.contains(first));
+        assertEquals(1, passivated.size());
+    }
+
+    @Test
+    public void testInstanceIsNotPassivatedDuringInvocation() throws Exception {
+        final StatefulSessionComponent component = createComponent(1);
+        final Serializable first = createSession(component);
+        final AtomicReference<Serializable> second = new AtomicReference<Serializable>();
+        invoke(component, first, new Interceptor() {
+            @Override
+            public Object processInvocation(InterceptorContext context) throws Exception {
+                second.set(createSession(component));
+                return null;
+            }
+        });
+
+        // the invoked instance was in use when the cache went over its maximum size
+        assertFalse(passivated.contains(first));
+        assertTrue(passivated.contains(second.get()));
+    }
+}
@@ -22,6 +22,7 @@
 
 package org.jboss.as.host.controller;
 
+import org.jboss.as.controller.persistence.CoalescingConfigurationPersister;
 import org.jboss.as.controller.persistence.ConfigurationPersistenceException;
 import org.jboss.as.controller.persistence.ExtensibleConfigurationPersister;
 import org.jboss.as.controller.registry.ModelNodeRegistration;
@@ -109,6 +110,15 @@ public class HostControllerService implements Service<LocalHostModel> {
     @Override
     public synchronized void stop(StopContext context) {
         this.proxyController = null;
+        if (configPersister instanceof CoalescingConfigurationPersister) {
+            // Make sure acknowledged changes are on disk before we go away. The persister is reused if we are
+            // started again, so it is only flushed, not shut down
+            try {
+                ((CoalescingConfigurationPersister) configPersister).flush();
+            } catch (ConfigurationPersistenceException e) {
+                log.error("Failed to persist configuration changes", e);
+            }
+        }
     }
 
     /** {@inheritDoc} */
@@ -24,19 +24,21 @@ package org.jboss.as.host.controller;
 
 import static org.jboss.as.protocol.ProtocolUtils.expectHeader;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.security.AccessController;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -56,6 +58,9 @@ import org.jboss.as.domain.controller.DomainControllerSlave;
 import org.jboss.as.domain.controller.FileRepository;
 import org.jboss.as.domain.controller.MasterDomainControllerClient;
 import org.jboss.as.host.controller.mgmt.DomainControllerProtocol;
+import org.jboss.as.host.controller.mgmt.FileBlocks;
+import org.jboss.as.host.controller.mgmt.FileBlocksCache;
+import org.jboss.as.host.controller.mgmt.LocalBlocks;
 import org.jboss.as.host.controller.mgmt.ManagementCommunicationService;
 import org.jboss.as.protocol.ByteDataInput;
 import org.jboss.as.protocol.ByteDataOutput;
@@ -87,10 +92,15 @@ public class RemoteDomainConnectionService implements MasterDomainControllerClie
 
     private static final Logger log = Logger.getLogger("org.jboss.as.domain.controller");
     private static final int CONNECTION_TIMEOUT = 5000;
+    /** The suffix of the file a transfer from the domain controller is assembled in */
+    private static final String PARTIAL_SUFFIX = ".part";
+    /** The number of local files whose block hashes are remembered */
+    private static final int FILE_BLOCKS_CACHE_SIZE = 1024;
     private final InetAddress host;
     private final int port;
     private final String name;
     private final RemoteFileRepository remoteFileRepository;
+    private final FileBlocksCache fileBlocksCache = new FileBlocksCache(FILE_BLOCKS_CACHE_SIZE);
 
     private volatile Connection connection;
     /** Used to invoke ModelController ops on the master */
@@ -281,6 +291,7 @@ public class RemoteDomainConnectionService implements MasterDomainControllerClie
     public synchronized void stop(StopContext context) {
         shutdown.set(true);
         StreamUtils.safeClose(connection);
+        fileBlocksCache.clear();
     }
 
     /** {@inheritDoc} */
@@ -375,31 +386,18 @@ public class RemoteDomainConnectionService implements MasterDomainControllerClie
         }
     }
 
-    private class GetFileRequest extends RegistryRequest<File> {
-        private final byte rootId;
-        private final String filePath;
-        private final FileRepository localFileRepository;
+    private abstract class FileRequest<T> extends RegistryRequest<T> {
+        final byte rootId;
+        final String filePath;
 
-        private GetFileRequest(final byte rootId, final String filePath, final FileRepository localFileRepository) {
+        FileRequest(final byte rootId, final String filePath) {
             this.rootId = rootId;
             this.filePath = filePath;
-            this.localFileRepository = localFileRepository;
-        }
-
-        @Override
-        public final byte getRequestCode() {
-            return DomainControllerProtocol.GET_FILE_REQUEST;
-        }
-
-        @Override
-        protected final byte getResponseCode() {
-            return DomainControllerProtocol.GET_FILE_RESPONSE;
         }
 
         @Override
         protected final void sendRequest(final int protocolVersion, final OutputStream outputStream) throws IOException {
             super.sendRequest(protocolVersion, outputStream);
-            log.debugf("Requesting files for path %s", filePath);
             ByteDataOutput output = null;
             try {
                 output = new SimpleByteDataOutput(outputStream);
@@ -407,91 +405,129 @@ public class RemoteDomainConnectionService implements MasterDomainControllerClie
                 output.writeByte(rootId);
                 output.writeByte(DomainControllerProtocol.PARAM_FILE_PATH);
                 output.writeUTF(filePath);
+                writeRequestBody(output);
                 output.close();
             } finally {
                 StreamUtils.safeClose(output);
             }
         }
 
+        void writeRequestBody(final ByteDataOutput output) throws IOException {
+        }
+    }
+
+    /**
+     * Gets the {@link FileBlocks block hashes} of the files at a path, or {@code null} if the path does not exist on
+     * the domain controller.
+     */
+    private class GetFileManifestRequest extends FileRequest<List<FileBlocks>> {
+
+        private GetFileManifestRequest(final byte rootId, final String filePath) {
+            super(rootId, filePath);
+        }
+
         @Override
-        protected final File receiveResponse(final InputStream inputStream) throws IOException {
-            final File localPath;
-            switch (rootId) {
-                case DomainControllerProtocol.PARAM_ROOT_ID_FILE: {
-                    localPath = localFileRepository.getFile(filePath);
-                    break;
-                }
-                case DomainControllerProtocol.PARAM_ROOT_ID_CONFIGURATION: {
-                    localPath = localFileRepository.getConfigurationFile(filePath);
-                    break;
-                }
-                case DomainControllerProtocol.PARAM_ROOT_ID_DEPLOYMENT: {
-                    byte[] hash = HashUtil.hexStringToByteArray(filePath);
-                    localPath = localFileRepository.getDeploymentRoot(hash);
-                    break;
+        public final byte getRequestCode() {
+            return DomainControllerProtocol.GET_FILE_MANIFEST_REQUEST;
+        }
+
+        @Override
+        protected final byte getResponseCode() {
+            return DomainControllerProtocol.GET_FILE_MANIFEST_RESPONSE;
+        }
+
+        @Override
+        protected final List<FileBlocks> receiveResponse(final InputStream inputStream) throws IOException {
+            ByteDataInput input = null;
+            try {
+                input = new SimpleByteDataInput(inputStream);
+                expectHeader(input, DomainControllerProtocol.PARAM_NUM_FILES);
+                final int numFiles = input.readInt();
+                log.debugf("Received manifest of %d files for %s", numFiles, filePath);
+                if (numFiles < 0) {
+                    return null;
                 }
-                default: {
-                    localPath = null;
+                final List<FileBlocks> files = new ArrayList<FileBlocks>(numFiles);
+                for (int i = 0; i < numFiles; i++) {
+                    expectHeader(input, DomainControllerProtocol.FILE_START);
+                    expectHeader(input, DomainControllerProtocol.PARAM_FILE_BLOCKS);
+                    files.add(FileBlocks.read(input));
+                    expectHeader(input, DomainControllerProtocol.FILE_END);
                 }
+                input.close();
+                return files;
+            } finally {
+                StreamUtils.safeClose(input);
             }
+        }
+    }
+
+    /**
+     * Fetches blocks of one file and writes them at their offsets in the local copy.
+     *
+     * @return the number of blocks received
+     */
+    private class GetFileBlocksRequest extends FileRequest<Integer> {
+        private final FileBlocks blocks;
+        private final List<Integer> indexes;
+        private final RandomAccessFile target;
+
+        private GetFileBlocksRequest(final byte rootId, final String filePath, final FileBlocks blocks, final List<Integer> indexes, final RandomAccessFile target) {
+            super(rootId, filePath);
+            this.blocks = blocks;
+            this.indexes = indexes;
+            this.target = target;
+        }
+
+        @Override
+        public final byte getRequestCode() {
+            return DomainControllerProtocol.GET_FILE_BLOCKS_REQUEST;
+        }
+
+        @Override
+        protected final byte getResponseCode() {
+            return DomainControllerProtocol.GET_FILE_BLOCKS_RESPONSE;
+        }
+
+        @Override
+        void writeRequestBody(final ByteDataOutput output) throws IOException {
+            output.writeByte(DomainControllerProtocol.PARAM_FILE_PATH);
+            output.writeUTF(blocks.getRelativePath());
+            output.writeByte(DomainControllerProtocol.PARAM_BLOCK_INDEXES);
+            output.writeInt(indexes.size());
+            for (Integer index : indexes) {
+                output.writeInt(index.intValue());
+            }
+        }
+
+        @Override
+        protected final Integer receiveResponse(final InputStream inputStream) throws IOException {
             ByteDataInput input = null;
+            int received = 0;
             try {
                 input = new SimpleByteDataInput(inputStream);
-                expectHeader(input, DomainControllerProtocol.PARAM_NUM_FILES);
-                int numFiles = input.readInt();
-                log.debugf("Received %d files for %s", numFiles, localPath);
-                switch (numFiles) {
-                    case -1: { // Not found on DC
-                        break;
+                final byte[] buffer = new byte[FileBlocks.BLOCK_SIZE];
+                byte header;
+                while ((header = input.readByte()) == DomainControllerProtocol.PARAM_BLOCK_INDEXES) {
+                    final int index = input.readInt();
+                    final int length = input.readInt();
+                    if (index < 0 || index >= blocks.getBlockCount() || length > buffer.length) {
+                        throw new IOException("Invalid block " + index + " of " + blocks.getRelativePath());
                     }
-                    case 0: { // Found on DC, but was an empty dir
-                        if (!localPath.mkdirs()) {
-                            throw new IOException("Unable to create local directory: " + localPath);
-                        }
-                        break;
-                    }
-                    default: { // Found on DC
-                        for (int i = 0; i < numFiles; i++) {
-                            expectHeader(input, DomainControllerProtocol.FILE_START);
-                            expectHeader(input, DomainControllerProtocol.PARAM_FILE_PATH);
-                            final String path = input.readUTF();
-                            expectHeader(input, DomainControllerProtocol.PARAM_FILE_SIZE);
-                            final long length = input.readLong();
-                            log.debugf("Received file [%s] of length %d", path, length);
-                            final File file = new File(localPath, path);
-                            if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
-                                throw new IOException("Unable to create local directory " + localPath.getParent());
-                            }
-                            long totalRead = 0;
-                            OutputStream fileOut = null;
-                            try {
-                                fileOut = new BufferedOutputStream(new FileOutputStream(file));
-                                final byte[] buffer = new byte[8192];
-                                int read;
-                                while (totalRead < length && (read = input.read(buffer, 0, Math.min((int) (length - totalRead), buffer.length))) != -1) {
-                                    if (read > 0) {
-                                        fileOut.write(buffer, 0, read);
-                                        totalRead += read;
-                                    }
-                                }
-                            } finally {
-                                if (fileOut != null) {
-                                    fileOut.close();
-                                }
-                            }
-                            if (totalRead != length) {
-                                throw new IOException("Did not read the entire file. Missing: " + (length - totalRead));
-                            }
-
-                            expectHeader(input, DomainControllerProtocol.FILE_END);
-                        }
+                    input.readFully(buffer, 0, length);
+                    if (!blocks.matches(index, buffer, length)) {
+                        throw new IOException("Received corrupt block " + index + " of " + blocks.getRelativePath());
                     }
+                    target.seek(blocks.getBlockOffset(index));
+                    target.write(buffer, 0, length);
+                    received++;
                 }
+                expectHeader(header, DomainControllerProtocol.FILE_END);
                 input.close();
             } finally {
                 StreamUtils.safeClose(input);
             }
-            return localPath;
+            return Integer.valueOf(received);
         }
     }
 
@@ -526,11 +562,128 @@ public class RemoteDomainConnectionService implements MasterDomainControllerClie
 
         private File getFile(final String relativePath, final byte repoId) {
             try {
-                return new GetFileRequest(repoId, relativePath, localFileRepository).executeForResult(new ManagementRequestConnectionStrategy.ExistingConnectionStrategy(connection));
+                final List<FileBlocks> files = new GetFileManifestRequest(repoId, relativePath).executeForResult(getConnectionStrategy());
+                final File localPath = getLocalPath(relativePath, repoId);
+                if (files == null) {
+                    // Not found on DC
+                    return localPath;
+                }
+                if (files.isEmpty()) {
+                    // Found on DC, but was an empty dir
+                    if (!localPath.mkdirs()) {
+                        throw new IOException("Unable to create local directory: " + localPath);
+                    }
+                    return localPath;
+                }
+                LocalBlocks localBlocks = null;
+                for (FileBlocks blocks : files) {
+                    final File file = new File(localPath, blocks.getRelativePath());
+                    if (localBlocks == null) {
+                        localBlocks = indexLocalBlocks(repoId);
+                    }
+                    fetchFile(repoId, relativePath, blocks, file, localBlocks);
+                }
+                return localPath;
             } catch (Exception e) {
                 throw new RuntimeException("Failed to get file from remote repository", e);
             }
         }
+
+        private File getLocalPath(final String relativePath, final byte repoId) {
+            switch (repoId) {
+                case DomainControllerProtocol.PARAM_ROOT_ID_FILE: {
+                    return localFileRepository.getFile(relativePath);
+                }
+                case DomainControllerProtocol.PARAM_ROOT_ID_CONFIGURATION: {
+                    return localFileRepository.getConfigurationFile(relativePath);
+                }
+                case DomainControllerProtocol.PARAM_ROOT_ID_DEPLOYMENT: {
+                    byte[] hash = HashUtil.hexStringToByteArray(relativePath);
+                    return localFileRepository.getDeploymentRoot(hash);
+                }
+                default: {
+                    return null;
+                }
+            }
+        }
+
+        /**
+         * Indexes the blocks of the deployment content this host already has, so that blocks shared with an earlier
+         * version of a deployment are copied locally rather than fetched.  Only content hashed since this service
+         * started is indexed; the rest of the local repository is not read.
+         */
+        private LocalBlocks indexLocalBlocks(final byte repoId) {
+            final LocalBlocks localBlocks = new LocalBlocks();
+            if (repoId == DomainControllerProtocol.PARAM_ROOT_ID_DEPLOYMENT) {
+                final Map<File, FileBlocks> files = fileBlocksCache.getCachedFiles(localFileRepository.getDeploymentRoot(null));
+                for (Map.Entry<File, FileBlocks> entry : files.entrySet()) {
+                    localBlocks.addFile(entry.getKey(), entry.getValue());
+                }
+            }
+            return localBlocks;
+        }
+
+        /**
+         * Brings a local file up to date with the domain controller's copy.  The file is assembled in a partial file
+         * next to it; blocks already present in the partial file, left over from an interrupted transfer, are kept,
+         * blocks found elsewhere locally are copied, and only the rest are fetched.
+         */
+        private void fetchFile(final byte repoId, final String relativePath, final FileBlocks blocks, final File file, final LocalBlocks localBlocks) throws Exception {
+            final File parent = file.getParentFile();
+            if (!parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Unable to create local directory " + parent);
+            }
+            if (file.isFile()) {
+                // Blocks that are unchanged in the current version can be reused in place
+                localBlocks.addFile(file, fileBlocksCache.get(file, ""));
+            }
+            final File partial = new File(parent, file.getName() + PARTIAL_SUFFIX);
+            final boolean resuming = partial.length() == blocks.getLength();
+            final List<Integer> missing = new ArrayList<Integer>();
+            final RandomAccessFile target = new RandomAccessFile(partial, "rw");
+            try {
+                target.setLength(blocks.getLength());
+                final byte[] buffer = new byte[FileBlocks.BLOCK_SIZE];
+                for (int i = 0; i < blocks.getBlockCount(); i++) {
+                    final int length = blocks.getBlockLength(i);
+                    if (resuming) {
+                        target.seek(blocks.getBlockOffset(i));
+                        target.readFully(buffer, 0, length);
+                        if (blocks.matches(i, buffer, length)) {
+                            continue;
+                        }
+                    }
+                    if (localBlocks.read(blocks, i, buffer)) {
+                        target.seek(blocks.getBlockOffset(i));
+                        target.write(buffer, 0, length);
+                        continue;
+                    }
+                    missing.add(Integer.valueOf(i));
+                }
+                log.debugf("Fetching %d of %d blocks of %s", missing.size(), blocks.getBlockCount(), file);
+                for (int start = 0; start < missing.size(); start += DomainControllerProtocol.MAX_BLOCKS_PER_REQUEST) {
+                    final List<Integer> batch = missing.subList(start, Math.min(missing.size(), start + DomainControllerProtocol.MAX_BLOCKS_PER_REQUEST));
+                    final int received = new GetFileBlocksRequest(repoId, relativePath, blocks, batch, target).executeForResult(getConnectionStrategy()).intValue();
+                    if (received != batch.size()) {
+                        throw new IOException("Did not receive all blocks of " + file + ". Missing: " + (batch.size() - received));
+                    }
+                }
+                target.close();
+            } finally {
+                StreamUtils.safeClose(target);
+            }
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Unable to replace " + file);
+            }
+            if (!partial.renameTo(file)) {
+                throw new IOException("Unable to rename " + partial + " to " + file);
+            }
+            fileBlocksCache.put(file, blocks);
+        }
+
+        private ManagementRequestConnectionStrategy getConnectionStrategy() {
+            return new ManagementRequestConnectionStrategy.ExistingConnectionStrategy(connection);
+        }
     }
 
     private class SlaveDomainControllerOperationHandler extends TransactionalModelControllerOperationHandler {
@@ -0,0 +1,171 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.host.controller.mgmt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.jboss.as.protocol.StreamUtils;
+
+/**
+ * A bounded cache of recently read file blocks, used by the domain controller so that hosts fetching the same
+ * content at the same time are served from memory instead of each causing the file to be read again.  Concurrent
+ * requests for a block that is not cached yet wait for a single read.
+ */
+public final class BlockCache {
+
+    private final long capacity;
+    // @GuardedBy(this)
+    private final LinkedHashMap<BlockKey, byte[]> blocks = new LinkedHashMap<BlockKey, byte[]>(16, 0.75f, true);
+    // @GuardedBy(this)
+    private long size;
+    private final ConcurrentMap<BlockKey, FutureTask<byte[]>> loading = new ConcurrentHashMap<BlockKey, FutureTask<byte[]>>();
+
+    /**
+     * Create a new cache.
+     *
+     * @param capacity the maximum number of bytes to hold
+     */
+    public BlockCache(final long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets the content of a block of a file.
+     *
+     * @param file the file
+     * @param fileBlocks the blocks of the file
+     * @param index the index of the block
+     * @return the content of the block. Must not be modified
+     * @throws IOException if the file cannot be read, or has changed since {@code fileBlocks} was computed
+     */
+    public byte[] getBlock(final File file, final FileBlocks fileBlocks, final int index) throws IOException {
+        if (index < 0 || index >= fileBlocks.getBlockCount()) {
+            throw new IOException("Invalid block index " + index + " for " + file);
+        }
+        final BlockKey key = new BlockKey(file.getAbsolutePath(), fileBlocks.getBlockHash(index));
+        synchronized (this) {
+            final byte[] cached = blocks.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        FutureTask<byte[]> task = new FutureTask<byte[]>(new Callable<byte[]>() {
+            public byte[] call() throws Exception {
+                return readBlock(file, fileBlocks, index);
+            }
+        });
+        final FutureTask<byte[]> existing = loading.putIfAbsent(key, task);
+        if (existing == null) {
+            try {
+                task.run();
+            } finally {
+                loading.remove(key, task);
+            }
+        } else {
+            task = existing;
+        }
+        final byte[] data;
+        try {
+            data = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + file);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to read " + file, cause);
+        }
+        if (existing == null) {
+            put(key, data);
+        }
+        return data;
+    }
+
+    private synchronized void put(final BlockKey key, final byte[] data) {
+        if (data.length > capacity || blocks.put(key, data) != null) {
+            return;
+        }
+        size += data.length;
+        final Iterator<Map.Entry<BlockKey, byte[]>> iterator = blocks.entrySet().iterator();
+        while (size > capacity && iterator.hasNext()) {
+            size -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+    }
+
+    private static byte[] readBlock(final File file, final FileBlocks fileBlocks, final int index) throws IOException {
+        final int length = fileBlocks.getBlockLength(index);
+        final byte[] data = new byte[length];
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(fileBlocks.getBlockOffset(index));
+            raf.readFully(data);
+            raf.close();
+        } finally {
+            StreamUtils.safeClose(raf);
+        }
+        if (!fileBlocks.matches(index, data, length)) {
+            throw new IOException("Content of " + file + " changed while it was being transferred");
+        }
+        return data;
+    }
+
+    private static final class BlockKey {
+        private final String path;
+        private final byte[] hash;
+        private final int hashCode;
+
+        BlockKey(final String path, final byte[] hash) {
+            this.path = path;
+            this.hash = hash;
+            hashCode = path.hashCode() * 31 + Arrays.hashCode(hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof BlockKey)) {
+                return false;
+            }
+            final BlockKey other = (BlockKey) obj;
+            return path.equals(other.path) && Arrays.equals(hash, other.hash);
+        }
+    }
+}
@@ -37,6 +37,10 @@ public interface DomainControllerProtocol extends ModelControllerClientProtocol{
     byte GET_FILE_RESPONSE = 0x56;
     byte IS_ACTIVE_REQUEST = 0x57;
     byte IS_ACTIVE_RESPONSE = 0x58;
+    byte GET_FILE_MANIFEST_REQUEST = 0x59;
+    byte GET_FILE_MANIFEST_RESPONSE = 0x5A;
+    byte GET_FILE_BLOCKS_REQUEST = 0x5B;
+    byte GET_FILE_BLOCKS_RESPONSE = 0x5C;
 
     byte PARAM_HOST_ID = 0x20;
     byte PARAM_HOST_CONTROLLER_HOST = 0x21;
@@ -51,4 +55,9 @@ public interface DomainControllerProtocol extends ModelControllerClientProtocol{
     byte FILE_START = 0x30;
     byte PARAM_FILE_SIZE = 0x31;
     byte FILE_END = 0x32;
+    byte PARAM_FILE_BLOCKS = 0x33;
+    byte PARAM_BLOCK_INDEXES = 0x34;
+
+    /** The largest number of blocks that can be requested at once */
+    int MAX_BLOCKS_PER_REQUEST = 16;
 }
\ No newline at end of file
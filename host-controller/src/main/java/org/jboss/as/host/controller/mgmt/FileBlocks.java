@@ -0,0 +1,201 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.host.controller.mgmt;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.jboss.as.protocol.StreamUtils;
+
+/**
+ * The block-level description of a file: its length and the SHA-1 hash of each fixed size block of its content.
+ * File transfers from the domain controller exchange these so that a host only fetches the blocks it does not
+ * already have.  The blocks of local files are remembered by a {@link FileBlocksCache}.
+ */
+public final class FileBlocks {
+
+    /** The size of every block but the last one of a file. */
+    public static final int BLOCK_SIZE = 1 << 20;
+
+    private static final int HASH_LENGTH = 20;
+
+    private final String relativePath;
+    private final long length;
+    private final long lastModified;
+    private final byte[][] hashes;
+
+    private FileBlocks(final String relativePath, final long length, final long lastModified, final byte[][] hashes) {
+        this.relativePath = relativePath;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Gets the blocks of a local file by hashing its content.
+     *
+     * @param file the file
+     * @param relativePath the path under which the file is known to the remote side
+     * @return the blocks
+     * @throws IOException if the file cannot be read
+     */
+    public static FileBlocks forFile(final File file, final String relativePath) throws IOException {
+        final long length = file.length();
+        final long lastModified = file.lastModified();
+        return new FileBlocks(relativePath, length, lastModified, hash(file, length));
+    }
+
+    /**
+     * Reads blocks written by {@link #write(DataOutput)}.
+     *
+     * @param input the input
+     * @return the blocks
+     * @throws IOException if the input cannot be read
+     */
+    public static FileBlocks read(final DataInput input) throws IOException {
+        final String relativePath = input.readUTF();
+        final long length = input.readLong();
+        final int count = getBlockCount(length);
+        final byte[][] hashes = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = new byte[HASH_LENGTH];
+            input.readFully(hashes[i]);
+        }
+        return new FileBlocks(relativePath, length, 0, hashes);
+    }
+
+    /**
+     * Writes the relative path, length and block hashes.
+     *
+     * @param output the output
+     * @throws IOException if the output cannot be written
+     */
+    public void write(final DataOutput output) throws IOException {
+        output.writeUTF(relativePath);
+        output.writeLong(length);
+        for (byte[] hash : hashes) {
+            output.write(hash);
+        }
+    }
+
+    public String getRelativePath() {
+        return relativePath;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public int getBlockCount() {
+        return hashes.length;
+    }
+
+    public long getBlockOffset(final int index) {
+        return (long) index * BLOCK_SIZE;
+    }
+
+    public int getBlockLength(final int index) {
+        return (int) Math.min(BLOCK_SIZE, length - getBlockOffset(index));
+    }
+
+    public byte[] getBlockHash(final int index) {
+        return hashes[index];
+    }
+
+    long getLastModified() {
+        return lastModified;
+    }
+
+    FileBlocks withRelativePath(final String relativePath) {
+        return this.relativePath.equals(relativePath) ? this : new FileBlocks(relativePath, length, lastModified, hashes);
+    }
+
+    FileBlocks withLastModified(final long lastModified) {
+        return new FileBlocks(relativePath, length, lastModified, hashes);
+    }
+
+    /**
+     * Gets whether the given data is the content of a block.
+     *
+     * @param index the index of the block
+     * @param data the data
+     * @param length the number of bytes of {@code data} to check
+     * @return {@code true} if the data matches the hash of the block
+     */
+    public boolean matches(final int index, final byte[] data, final int length) {
+        return length == getBlockLength(index) && Arrays.equals(hashes[index], hashBlock(data, length));
+    }
+
+    static byte[] hashBlock(final byte[] data, final int length) {
+        final MessageDigest digest = createDigest();
+        digest.update(data, 0, length);
+        return digest.digest();
+    }
+
+    private static int getBlockCount(final long length) {
+        return (int) ((length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+    }
+
+    private static byte[][] hash(final File file, final long length) throws IOException {
+        final byte[][] hashes = new byte[getBlockCount(length)][];
+        final byte[] buffer = new byte[BLOCK_SIZE];
+        final InputStream input = new FileInputStream(file);
+        try {
+            for (int i = 0; i < hashes.length; i++) {
+                final int blockLength = (int) Math.min(BLOCK_SIZE, length - (long) i * BLOCK_SIZE);
+                readFully(input, buffer, blockLength);
+                hashes[i] = hashBlock(buffer, blockLength);
+            }
+            input.close();
+        } finally {
+            StreamUtils.safeClose(input);
+        }
+        return hashes;
+    }
+
+    static void readFully(final InputStream input, final byte[] buffer, final int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            final int count = input.read(buffer, read, length - read);
+            if (count == -1) {
+                throw new IOException("File was truncated while it was read");
+            }
+            read += count;
+        }
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot obtain SHA-1 " + MessageDigest.class.getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.host.controller.mgmt;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded cache of the {@link FileBlocks block hashes} of local files, so that a file is only hashed again once its
+ * length or modification time changes.  The least recently used files are forgotten once the cache is full.
+ */
+public final class FileBlocksCache {
+
+    private final int capacity;
+    // @GuardedBy(this)
+    private final LinkedHashMap<String, FileBlocks> files = new LinkedHashMap<String, FileBlocks>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, FileBlocks> eldest) {
+            return size() > capacity;
+        }
+    };
+
+    /**
+     * Create a new cache.
+     *
+     * @param capacity the maximum number of files to remember
+     */
+    public FileBlocksCache(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets the blocks of a local file, hashing its content unless the file is unchanged since it was last hashed.
+     *
+     * @param file the file
+     * @param relativePath the path under which the file is known to the remote side
+     * @return the blocks
+     * @throws IOException if the file cannot be read
+     */
+    public FileBlocks get(final File file, final String relativePath) throws IOException {
+        final String key = file.getAbsolutePath();
+        FileBlocks blocks;
+        synchronized (this) {
+            blocks = files.get(key);
+        }
+        if (blocks == null || !isCurrent(file, blocks)) {
+            blocks = FileBlocks.forFile(file, relativePath);
+            // Only remember the hashes if the file did not change while it was read
+            if (isCurrent(file, blocks)) {
+                synchronized (this) {
+                    files.put(key, blocks);
+                }
+            }
+        }
+        return blocks.withRelativePath(relativePath);
+    }
+
+    /**
+     * Remembers the blocks of a local file whose content is already known, such as a file just fetched from the
+     * domain controller.
+     *
+     * @param file the file
+     * @param blocks the blocks of the file's content
+     */
+    public void put(final File file, final FileBlocks blocks) {
+        final FileBlocks current = blocks.withLastModified(file.lastModified());
+        if (isCurrent(file, current)) {
+            synchronized (this) {
+                files.put(file.getAbsolutePath(), current);
+            }
+        }
+    }
+
+    /**
+     * Gets the remembered blocks of the unchanged files within a directory.  No file is hashed.
+     *
+     * @param dir the directory
+     * @return the blocks of each file
+     */
+    public Map<File, FileBlocks> getCachedFiles(final File dir) {
+        final String prefix = dir.getAbsolutePath() + File.separator;
+        final List<Map.Entry<String, FileBlocks>> entries;
+        synchronized (this) {
+            entries = new ArrayList<Map.Entry<String, FileBlocks>>(files.entrySet());
+        }
+        final Map<File, FileBlocks> result = new LinkedHashMap<File, FileBlocks>();
+        for (Map.Entry<String, FileBlocks> entry : entries) {
+            if (entry.getKey().startsWith(prefix)) {
+                final File file = new File(entry.getKey());
+                if (isCurrent(file, entry.getValue())) {
+                    result.put(file, entry.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forgets every file.
+     */
+    public synchronized void clear() {
+        files.clear();
+    }
+
+    private static boolean isCurrent(final File file, final FileBlocks blocks) {
+        return file.length() == blocks.getLength() && file.lastModified() == blocks.getLastModified();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.host.controller.mgmt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.as.controller.HashUtil;
+import org.jboss.as.protocol.StreamUtils;
+
+/**
+ * An index of the blocks of content this host already has, so that the blocks a file being fetched shares with local
+ * files, such as an earlier version of a deployment, are copied locally rather than fetched.
+ */
+public final class LocalBlocks {
+
+    private final Map<String, LocalBlock> blocks = new HashMap<String, LocalBlock>();
+
+    /**
+     * Adds the blocks of a local file.  Blocks with the same content as a block already added replace it.
+     *
+     * @param file the file
+     * @param fileBlocks the blocks of the file
+     */
+    public void addFile(final File file, final FileBlocks fileBlocks) {
+        for (int i = 0; i < fileBlocks.getBlockCount(); i++) {
+            blocks.put(HashUtil.bytesToHexString(fileBlocks.getBlockHash(i)), new LocalBlock(file, fileBlocks.getBlockOffset(i)));
+        }
+    }
+
+    /**
+     * Reads the content of a block from a local file, if there is one with the same content.
+     *
+     * @param fileBlocks the blocks of the file being fetched
+     * @param index the index of the block
+     * @param buffer the buffer to read the content into
+     * @return {@code true} if the buffer holds the content of the block
+     * @throws IOException if a local file cannot be read
+     */
+    public boolean read(final FileBlocks fileBlocks, final int index, final byte[] buffer) throws IOException {
+        final LocalBlock local = blocks.get(HashUtil.bytesToHexString(fileBlocks.getBlockHash(index)));
+        final int length = fileBlocks.getBlockLength(index);
+        // The local file may have changed since it was hashed, so check what was read
+        return local != null && local.read(buffer, length) && fileBlocks.matches(index, buffer, length);
+    }
+
+    private static final class LocalBlock {
+        private final File file;
+        private final long offset;
+
+        LocalBlock(final File file, final long offset) {
+            this.file = file;
+            this.offset = offset;
+        }
+
+        boolean read(final byte[] buffer, final int length) throws IOException {
+            if (file.length() < offset + length) {
+                return false;
+            }
+            final RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                raf.seek(offset);
+                raf.readFully(buffer, 0, length);
+                raf.close();
+            } finally {
+                StreamUtils.safeClose(raf);
+            }
+            return true;
+        }
+    }
+}
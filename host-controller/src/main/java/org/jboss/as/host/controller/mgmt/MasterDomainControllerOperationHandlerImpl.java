@@ -55,6 +55,13 @@ import org.jboss.logging.Logger;
 public class MasterDomainControllerOperationHandlerImpl extends ModelControllerOperationHandlerImpl {
 
     private static final Logger log = Logger.getLogger("org.jboss.as.host.controller");
+    /** The number of bytes of file content kept in memory for hosts fetching the same content */
+    private static final long BLOCK_CACHE_SIZE = 64L * FileBlocks.BLOCK_SIZE;
+    /** The number of files whose block hashes are remembered */
+    private static final int FILE_BLOCKS_CACHE_SIZE = 1024;
+
+    private final BlockCache blockCache = new BlockCache(BLOCK_CACHE_SIZE);
+    private final FileBlocksCache fileBlocksCache = new FileBlocksCache(FILE_BLOCKS_CACHE_SIZE);
 
     public MasterDomainControllerOperationHandlerImpl(DomainController modelController, MessageHandler initiatingHandler) {
         super(modelController, initiatingHandler);
@@ -74,6 +81,10 @@ public class MasterDomainControllerOperationHandlerImpl extends ModelControllerO
             return new UnregisterOperation();
         case DomainControllerProtocol.GET_FILE_REQUEST:
             return new GetFileOperation();
+        case DomainControllerProtocol.GET_FILE_MANIFEST_REQUEST:
+            return new GetFileManifestOperation();
+        case DomainControllerProtocol.GET_FILE_BLOCKS_REQUEST:
+            return new GetFileBlocksOperation();
         default:
             return super.operationFor(commandByte);
         }
@@ -161,50 +172,77 @@ public class MasterDomainControllerOperationHandlerImpl extends ModelControllerO
         }
     }
 
-    private class GetFileOperation extends RegistryOperation {
-        private File localPath;
-
-        @Override
-        protected final byte getResponseCode() {
-            return DomainControllerProtocol.GET_FILE_RESPONSE;
-        }
+    private abstract class FileOperation extends RegistryOperation {
+        File localPath;
 
         @Override
         protected void readRequest(final InputStream inputStream) throws IOException {
-            final byte rootId;
-            final String filePath;
-            final FileRepository localFileRepository = getController().getFileRepository();
             ByteDataInput input = null;
             try {
                 input = new SimpleByteDataInput(inputStream);
-                expectHeader(input, DomainControllerProtocol.PARAM_ROOT_ID);
-                rootId = input.readByte();
-                expectHeader(input, DomainControllerProtocol.PARAM_FILE_PATH);
-                filePath = input.readUTF();
-
-                switch (rootId) {
-                    case DomainControllerProtocol.PARAM_ROOT_ID_FILE: {
-                        localPath = localFileRepository.getFile(filePath);
-                        break;
-                    }
-                    case DomainControllerProtocol.PARAM_ROOT_ID_CONFIGURATION: {
-                        localPath = localFileRepository.getConfigurationFile(filePath);
-                        break;
-                    }
-                    case DomainControllerProtocol.PARAM_ROOT_ID_DEPLOYMENT: {
-                        byte[] hash = HashUtil.hexStringToByteArray(filePath);
-                        localPath = localFileRepository.getDeploymentRoot(hash);
-                        break;
-                    }
-                    default: {
-                        throw new IOException(String.format("Invalid root id [%d]", rootId));
-                    }
-                }
+                readRequest(input);
             } finally {
                 StreamUtils.safeClose(input);
             }
         }
 
+        void readRequest(final ByteDataInput input) throws IOException {
+            final byte rootId;
+            final String filePath;
+            final FileRepository localFileRepository = getController().getFileRepository();
+            expectHeader(input, DomainControllerProtocol.PARAM_ROOT_ID);
+            rootId = input.readByte();
+            expectHeader(input, DomainControllerProtocol.PARAM_FILE_PATH);
+            filePath = input.readUTF();
+
+            switch (rootId) {
+                case DomainControllerProtocol.PARAM_ROOT_ID_FILE: {
+                    localPath = localFileRepository.getFile(filePath);
+                    break;
+                }
+                case DomainControllerProtocol.PARAM_ROOT_ID_CONFIGURATION: {
+                    localPath = localFileRepository.getConfigurationFile(filePath);
+                    break;
+                }
+                case DomainControllerProtocol.PARAM_ROOT_ID_DEPLOYMENT: {
+                    byte[] hash = HashUtil.hexStringToByteArray(filePath);
+                    localPath = localFileRepository.getDeploymentRoot(hash);
+                    break;
+                }
+                default: {
+                    throw new IOException(String.format("Invalid root id [%d]", rootId));
+                }
+            }
+        }
+
+        List<File> getChildFiles(final File base) {
+            final List<File> childFiles = new ArrayList<File>();
+            getChildFiles(base, childFiles);
+            return childFiles;
+        }
+
+        private void getChildFiles(final File base, final List<File> childFiles) {
+            for (File child : base.listFiles()) {
+                if (child.isFile()) {
+                    childFiles.add(child);
+                } else {
+                    getChildFiles(child, childFiles);
+                }
+            }
+        }
+
+        String getRelativePath(final File parent, final File child) {
+            return child.getAbsolutePath().substring(parent.getAbsolutePath().length());
+        }
+    }
+
+    private class GetFileOperation extends FileOperation {
+
+        @Override
+        protected final byte getResponseCode() {
+            return DomainControllerProtocol.GET_FILE_RESPONSE;
+        }
+
         @Override
         protected void sendResponse(final OutputStream outputStream) throws IOException {
             ByteDataOutput output = null;
@@ -229,26 +267,6 @@ public class MasterDomainControllerOperationHandlerImpl extends ModelControllerO
             }
         }
 
-        private List<File> getChildFiles(final File base) {
-            final List<File> childFiles = new ArrayList<File>();
-            getChildFiles(base, childFiles);
-            return childFiles;
-        }
-
-        private void getChildFiles(final File base, final List<File> childFiles) {
-            for (File child : base.listFiles()) {
-                if (child.isFile()) {
-                    childFiles.add(child);
-                } else {
-                    getChildFiles(child, childFiles);
-                }
-            }
-        }
-
-        private String getRelativePath(final File parent, final File child) {
-            return child.getAbsolutePath().substring(parent.getAbsolutePath().length());
-        }
-
         private void writeFile(final File file, final DataOutput output) throws IOException {
             output.writeByte(DomainControllerProtocol.FILE_START);
             output.writeByte(DomainControllerProtocol.PARAM_FILE_PATH);
@@ -274,4 +292,108 @@ public class MasterDomainControllerOperationHandlerImpl extends ModelControllerO
             output.writeByte(DomainControllerProtocol.FILE_END);
         }
     }
+
+    /**
+     * Sends the {@link FileBlocks block hashes} of the requested files, so the host can work out which blocks it
+     * needs to fetch with a {@link GetFileBlocksOperation}.
+     */
+    private class GetFileManifestOperation extends FileOperation {
+
+        @Override
+        protected final byte getResponseCode() {
+            return DomainControllerProtocol.GET_FILE_MANIFEST_RESPONSE;
+        }
+
+        @Override
+        protected void sendResponse(final OutputStream outputStream) throws IOException {
+            ByteDataOutput output = null;
+            try {
+                output = new SimpleByteDataOutput(outputStream);
+                output.writeByte(DomainControllerProtocol.PARAM_NUM_FILES);
+                if (localPath == null || !localPath.exists()) {
+                    output.writeInt(-1);
+                } else if (localPath.isFile()) {
+                    output.writeInt(1);
+                    writeBlocks(fileBlocksCache.get(localPath, ""), output);
+                } else {
+                    final List<File> childFiles = getChildFiles(localPath);
+                    output.writeInt(childFiles.size());
+                    for (File child : childFiles) {
+                        writeBlocks(fileBlocksCache.get(child, getRelativePath(localPath, child)), output);
+                    }
+                }
+                output.close();
+            } finally {
+                StreamUtils.safeClose(output);
+            }
+        }
+
+        private void writeBlocks(final FileBlocks blocks, final DataOutput output) throws IOException {
+            output.writeByte(DomainControllerProtocol.FILE_START);
+            output.writeByte(DomainControllerProtocol.PARAM_FILE_BLOCKS);
+            blocks.write(output);
+            output.writeByte(DomainControllerProtocol.FILE_END);
+        }
+    }
+
+    /**
+     * Sends the requested blocks of one file.  Blocks are served from the {@link BlockCache}.
+     */
+    private class GetFileBlocksOperation extends FileOperation {
+        private File file;
+        private int[] indexes;
+
+        @Override
+        protected final byte getResponseCode() {
+            return DomainControllerProtocol.GET_FILE_BLOCKS_RESPONSE;
+        }
+
+        @Override
+        void readRequest(final ByteDataInput input) throws IOException {
+            super.readRequest(input);
+            expectHeader(input, DomainControllerProtocol.PARAM_FILE_PATH);
+            final String relativePath = input.readUTF();
+            expectHeader(input, DomainControllerProtocol.PARAM_BLOCK_INDEXES);
+            final int count = input.readInt();
+            if (count < 0 || count > DomainControllerProtocol.MAX_BLOCKS_PER_REQUEST) {
+                throw new IOException("Invalid block count " + count);
+            }
+            indexes = new int[count];
+            for (int i = 0; i < count; i++) {
+                indexes[i] = input.readInt();
+            }
+            if (localPath != null) {
+                file = relativePath.length() == 0 ? localPath : new File(localPath, relativePath);
+                // Don't serve anything outside the requested root
+                if (!file.getCanonicalPath().startsWith(localPath.getCanonicalPath())) {
+                    throw new IOException("Invalid file path " + relativePath);
+                }
+            }
+        }
+
+        @Override
+        protected void sendResponse(final OutputStream outputStream) throws IOException {
+            ByteDataOutput output = null;
+            try {
+                output = new SimpleByteDataOutput(outputStream);
+                if (file != null && file.isFile()) {
+                    final FileBlocks blocks = fileBlocksCache.get(file, "");
+                    for (int index : indexes) {
+                        final byte[] data = blockCache.getBlock(file, blocks, index);
+                        output.writeByte(DomainControllerProtocol.PARAM_BLOCK_INDEXES);
+                        output.writeInt(index);
+                        output.writeInt(data.length);
+                        output.write(data);
+                    }
+                } else {
+                    // The host will report the blocks it did not receive
+                    log.debugf("Requested file %s not found", file);
+                }
+                output.writeByte(DomainControllerProtocol.FILE_END);
+                output.close();
+            } finally {
+                StreamUtils.safeClose(output);
+            }
+        }
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.host.controller.mgmt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link FileBlocksCache}.
+ */
+public class FileBlocksCacheUnitTestCase {
+
+    /** A timestamp safely in the past, so changes to it are visible whatever the filesystem's granularity */
+    private static final long PAST = System.currentTimeMillis() - 60000;
+
+    private File tmpDir;
+
+    @Before
+    public void setup() throws Exception {
+        tmpDir = File.createTempFile(getClass().getSimpleName(), "");
+        tmpDir.delete();
+        tmpDir.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        delete(tmpDir);
+    }
+
+    @Test
+    public void testUnchangedFileIsNotHashedAgain() throws Exception {
+        final FileBlocksCache cache = new FileBlocksCache(10);
+        final File file = createFile(tmpDir, "content", 'a');
+        final FileBlocks blocks = cache.get(file, "");
+
+        // Same length and timestamp, so the earlier hashes are trusted
+        createFile(tmpDir, "content", 'b');
+        assertSame(blocks, cache.get(file, ""));
+
+        file.setLastModified(PAST + 1000);
+        assertFalse(Arrays.equals(blocks.getBlockHash(0), cache.get(file, "").getBlockHash(0)));
+    }
+
+    @Test
+    public void testRelativePath() throws Exception {
+        final FileBlocksCache cache = new FileBlocksCache(10);
+        final File file = createFile(tmpDir, "content", 'a');
+        final FileBlocks blocks = cache.get(file, "a");
+        final FileBlocks other = cache.get(file, "b");
+        assertEquals("a", blocks.getRelativePath());
+        assertEquals("b", other.getRelativePath());
+        assertArrayEquals(blocks.getBlockHash(0), other.getBlockHash(0));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFileIsForgotten() throws Exception {
+        final FileBlocksCache cache = new FileBlocksCache(2);
+        final File a = createFile(tmpDir, "a", 'a');
+        final File b = createFile(tmpDir, "b", 'b');
+        final File c = createFile(tmpDir, "c", 'c');
+        cache.get(a, "");
+        cache.get(b, "");
+        cache.get(a, "");
+        cache.get(c, "");
+
+        final Map<File, FileBlocks> cached = cache.getCachedFiles(tmpDir);
+        assertEquals(2, cached.size());
+        assertTrue(cached.containsKey(a));
+        assertTrue(cached.containsKey(c));
+    }
+
+    @Test
+    public void testCachedFiles() throws Exception {
+        final FileBlocksCache cache = new FileBlocksCache(10);
+        final File dir = new File(tmpDir, "dir");
+        dir.mkdirs();
+        final File inside = createFile(dir, "inside", 'a');
+        final File changed = createFile(dir, "changed", 'b');
+        final File outside = createFile(tmpDir, "outside", 'c');
+        cache.get(inside, "");
+        cache.get(changed, "");
+        cache.get(outside, "");
+        changed.setLastModified(PAST + 1000);
+
+        final Map<File, FileBlocks> cached = cache.getCachedFiles(dir);
+        assertEquals(1, cached.size());
+        assertTrue(cached.containsKey(inside));
+
+        cache.clear();
+        assertTrue(cache.getCachedFiles(dir).isEmpty());
+    }
+
+    @Test
+    public void testPut() throws Exception {
+        final FileBlocksCache cache = new FileBlocksCache(10);
+        final File source = createFile(tmpDir, "source", 'a');
+        final FileBlocks blocks = FileBlocks.forFile(source, "");
+        final File copy = createFile(tmpDir, "copy", 'a');
+        copy.setLastModified(PAST + 1000);
+        cache.put(copy, blocks);
+
+        final FileBlocks cached = cache.getCachedFiles(tmpDir).get(copy);
+        assertEquals(blocks.getLength(), cached.getLength());
+        assertArrayEquals(blocks.getBlockHash(0), cached.getBlockHash(0));
+    }
+
+    static File createFile(final File dir, final String name, final char content) throws IOException {
+        final File file = new File(dir, name);
+        final FileOutputStream fos = new FileOutputStream(file);
+        try {
+            for (int i = 0; i < 100; i++) {
+                fos.write(content);
+            }
+        } finally {
+            fos.close();
+        }
+        file.setLastModified(PAST);
+        return file;
+    }
+
+    static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
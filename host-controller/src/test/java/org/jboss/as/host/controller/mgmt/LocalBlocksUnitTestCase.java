@@ -0,0 +1,112 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.host.controller.mgmt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the reuse of local content by {@link LocalBlocks}.
+ */
+public class LocalBlocksUnitTestCase {
+
+    private File tmpDir;
+
+    @Before
+    public void setup() throws Exception {
+        tmpDir = File.createTempFile(getClass().getSimpleName(), "");
+        tmpDir.delete();
+        tmpDir.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileBlocksCacheUnitTestCase.delete(tmpDir);
+    }
+
+    @Test
+    public void testSharedBlocksAreReused() throws Exception {
+        // Two versions of a file which only differ in their second block
+        final File oldVersion = createFile("old", (byte) 1, (byte) 2, (byte) 3);
+        final File newVersion = createFile("new", (byte) 1, (byte) 4, (byte) 3);
+        final FileBlocks wanted = FileBlocks.forFile(newVersion, "");
+
+        final LocalBlocks localBlocks = new LocalBlocks();
+        localBlocks.addFile(oldVersion, FileBlocks.forFile(oldVersion, ""));
+        final byte[] buffer = new byte[FileBlocks.BLOCK_SIZE];
+        assertTrue(localBlocks.read(wanted, 0, buffer));
+        assertArrayEquals(block((byte) 1, wanted.getBlockLength(0)), Arrays.copyOf(buffer, wanted.getBlockLength(0)));
+        assertFalse(localBlocks.read(wanted, 1, buffer));
+        assertTrue(localBlocks.read(wanted, 2, buffer));
+        assertArrayEquals(block((byte) 3, wanted.getBlockLength(2)), Arrays.copyOf(buffer, wanted.getBlockLength(2)));
+    }
+
+    @Test
+    public void testChangedLocalFileIsNotReused() throws Exception {
+        final File local = createFile("local", (byte) 1);
+        final FileBlocks blocks = FileBlocks.forFile(local, "");
+        final LocalBlocks localBlocks = new LocalBlocks();
+        localBlocks.addFile(local, blocks);
+
+        final RandomAccessFile raf = new RandomAccessFile(local, "rw");
+        try {
+            raf.write(2);
+        } finally {
+            raf.close();
+        }
+        assertFalse(localBlocks.read(blocks, 0, new byte[FileBlocks.BLOCK_SIZE]));
+    }
+
+    /**
+     * Creates a file of whole blocks, but for a shorter last block, each filled with the given byte.
+     */
+    private File createFile(final String name, final byte... blocks) throws IOException {
+        final File file = new File(tmpDir, name);
+        final FileOutputStream fos = new FileOutputStream(file);
+        try {
+            for (int i = 0; i < blocks.length; i++) {
+                fos.write(block(blocks[i], i == blocks.length - 1 ? 100 : FileBlocks.BLOCK_SIZE));
+            }
+        } finally {
+            fos.close();
+        }
+        return file;
+    }
+
+    private static byte[] block(final byte content, final int length) {
+        final byte[] block = new byte[length];
+        Arrays.fill(block, content);
+        return block;
+    }
+}
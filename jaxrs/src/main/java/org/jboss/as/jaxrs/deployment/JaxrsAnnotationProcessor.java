@@ -25,20 +25,30 @@ import org.jboss.as.ee.structure.DeploymentType;
 import org.jboss.as.ee.structure.DeploymentTypeMarker;
 import org.jboss.as.jaxrs.JaxrsAnnotations;
 import org.jboss.as.server.Services;
+import org.jboss.as.server.deployment.AttachmentKey;
 import org.jboss.as.server.deployment.Attachments;
+import org.jboss.as.server.deployment.ConcurrentDeploymentUnitProcessor;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
 import org.jboss.as.server.deployment.DeploymentUnit;
 import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
-import org.jboss.as.server.deployment.DeploymentUnitProcessor;
 import org.jboss.as.server.deployment.annotation.CompositeIndex;
 
+import java.util.Set;
+
 /**
  * Looks for jaxrs annotations in war deployments
  *
  * @author Stuart Douglas
  *
  */
-public class JaxrsAnnotationProcessor implements DeploymentUnitProcessor {
+public class JaxrsAnnotationProcessor implements ConcurrentDeploymentUnitProcessor {
+
+    private static final Set<AttachmentKey<?>> CONSUMED = AttachmentKey.setOf(
+            org.jboss.as.ee.structure.Attachments.DEPLOYMENT_TYPE,
+            Attachments.COMPOSITE_ANNOTATION_INDEX);
+    private static final Set<AttachmentKey<?>> PRODUCED = AttachmentKey.setOf(
+            JaxrsDeploymentMarker.ATTACHMENT_KEY,
+            Attachments.NEXT_PHASE_DEPS);
 
     @Override
     public void deploy(DeploymentPhaseContext phaseContext) throws DeploymentUnitProcessingException {
@@ -63,4 +73,14 @@ public class JaxrsAnnotationProcessor implements DeploymentUnitProcessor {
     public void undeploy(DeploymentUnit context) {
     }
 
+    @Override
+    public Set<AttachmentKey<?>> getConsumedAttachments() {
+        return CONSUMED;
+    }
+
+    @Override
+    public Set<AttachmentKey<?>> getProducedAttachments() {
+        return PRODUCED;
+    }
+
 }
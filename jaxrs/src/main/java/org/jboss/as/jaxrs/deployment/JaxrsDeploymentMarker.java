@@ -31,7 +31,7 @@ import org.jboss.as.server.deployment.DeploymentUnit;
  *
  */
 public class JaxrsDeploymentMarker {
-    private static final AttachmentKey<Boolean> ATTACHMENT_KEY = AttachmentKey.create(Boolean.class);
+    static final AttachmentKey<Boolean> ATTACHMENT_KEY = AttachmentKey.create(Boolean.class);
 
     public static void mark(DeploymentUnit deployment) {
         deployment.putAttachment(ATTACHMENT_KEY, true);
@@ -23,12 +23,12 @@
 package org.jboss.as.jpa.interceptor;
 
 import org.jboss.as.ee.component.ComponentInstance;
+import org.jboss.as.ee.component.InstanceIndependentInterceptorFactory;
 import org.jboss.as.ejb3.component.stateful.StatefulSessionComponentInstance;
 import org.jboss.as.jpa.container.SFSBXPCMap;
 import org.jboss.as.jpa.ejb3.SFSBContextHandleImpl;
 import org.jboss.invocation.Interceptor;
 import org.jboss.invocation.InterceptorContext;
-import org.jboss.invocation.InterceptorFactory;
 import org.jboss.invocation.InterceptorFactoryContext;
 
 /**
@@ -37,7 +37,7 @@ import org.jboss.invocation.InterceptorFactoryContext;
  *
  * @author Scott Marlow
  */
-public class SFSBCreateInterceptorFactory implements InterceptorFactory {
+public class SFSBCreateInterceptorFactory implements InstanceIndependentInterceptorFactory {
 
     @Override
     public Interceptor create(final InterceptorFactoryContext context) {
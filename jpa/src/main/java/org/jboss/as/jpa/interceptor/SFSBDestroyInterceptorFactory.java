@@ -23,13 +23,13 @@
 package org.jboss.as.jpa.interceptor;
 
 import org.jboss.as.ee.component.ComponentInstance;
+import org.jboss.as.ee.component.InstanceIndependentInterceptorFactory;
 import org.jboss.as.ejb3.component.stateful.StatefulSessionComponentInstance;
 import org.jboss.as.jpa.container.ExtendedEntityManager;
 import org.jboss.as.jpa.container.SFSBXPCMap;
 import org.jboss.as.jpa.ejb3.SFSBContextHandleImpl;
 import org.jboss.invocation.Interceptor;
 import org.jboss.invocation.InterceptorContext;
-import org.jboss.invocation.InterceptorFactory;
 import org.jboss.invocation.InterceptorFactoryContext;
 
 import javax.persistence.EntityManager;
@@ -41,7 +41,7 @@ import java.util.List;
  *
  * @author Scott Marlow
  */
-public class SFSBDestroyInterceptorFactory implements InterceptorFactory {
+public class SFSBDestroyInterceptorFactory implements InstanceIndependentInterceptorFactory {
 
     public Interceptor create(final InterceptorFactoryContext context) {
         return new Interceptor() {
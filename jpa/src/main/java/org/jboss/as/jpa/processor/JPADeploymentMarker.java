@@ -32,7 +32,7 @@ import org.jboss.as.server.deployment.DeploymentUnit;
  */
 public class JPADeploymentMarker {
 
-    private static final AttachmentKey<Boolean> MARKER = AttachmentKey.create(Boolean.class);
+    static final AttachmentKey<Boolean> MARKER = AttachmentKey.create(Boolean.class);
 
     /**
      * Mark the top level deployment as being a JPA deployment. If the deployment is not a top level deployment the parent is
@@ -27,11 +27,12 @@ import org.jboss.as.ee.structure.DeploymentTypeMarker;
 import org.jboss.as.jpa.config.PersistenceUnitMetadata;
 import org.jboss.as.jpa.config.PersistenceUnitMetadataHolder;
 import org.jboss.as.jpa.puparser.PersistenceUnitXmlParser;
+import org.jboss.as.server.deployment.AttachmentKey;
 import org.jboss.as.server.deployment.Attachments;
+import org.jboss.as.server.deployment.ConcurrentDeploymentUnitProcessor;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
 import org.jboss.as.server.deployment.DeploymentUnit;
 import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
-import org.jboss.as.server.deployment.DeploymentUnitProcessor;
 import org.jboss.as.server.deployment.SubDeploymentMarker;
 import org.jboss.as.server.deployment.module.ModuleRootMarker;
 import org.jboss.as.server.deployment.module.ResourceRoot;
@@ -50,6 +51,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -66,7 +68,18 @@ import java.util.Map;
  *
  * @author Scott Marlow
  */
-public class PersistenceUnitParseProcessor implements DeploymentUnitProcessor {
+public class PersistenceUnitParseProcessor implements ConcurrentDeploymentUnitProcessor {
+
+    private static final Set<AttachmentKey<?>> CONSUMED = AttachmentKey.setOf(
+            org.jboss.as.ee.structure.Attachments.DEPLOYMENT_TYPE,
+            Attachments.DEPLOYMENT_ROOT,
+            Attachments.RESOURCE_ROOTS,
+            Attachments.ANNOTATION_INDEX,
+            ModuleRootMarker.MODULE_ROOT_MARKER,
+            SubDeploymentMarker.SUB_DEPLOYMENT_ROOT_MARKER);
+    private static final Set<AttachmentKey<?>> PRODUCED = AttachmentKey.setOf(
+            PersistenceUnitMetadataHolder.PERSISTENCE_UNITS,
+            JPADeploymentMarker.MARKER);
 
     private static final String WEB_PERSISTENCE_XML = "WEB-INF/classes/META-INF/persistence.xml";
     private static final String META_INF_PERSISTENCE_XML = "META-INF/persistence.xml";
@@ -91,6 +104,16 @@ public class PersistenceUnitParseProcessor implements DeploymentUnitProcessor {
     public void undeploy(DeploymentUnit context) {
     }
 
+    @Override
+    public Set<AttachmentKey<?>> getConsumedAttachments() {
+        return CONSUMED;
+    }
+
+    @Override
+    public Set<AttachmentKey<?>> getProducedAttachments() {
+        return PRODUCED;
+    }
+
     private void handleJarDeployment(DeploymentPhaseContext phaseContext) throws DeploymentUnitProcessingException {
         final DeploymentUnit deploymentUnit = phaseContext.getDeploymentUnit();
         if (!isEarDeployment(deploymentUnit) && !isWarDeployment(deploymentUnit)) {
@@ -0,0 +1,359 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.naming;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable hash array mapped trie.  Updates return a new trie which shares all unchanged nodes with the original,
+ * so an update copies at most one small node per level instead of the whole map.  Keys and values may not be
+ * {@code null}.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+final class HashTrie<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    @SuppressWarnings("rawtypes")
+    private static final HashTrie EMPTY = new HashTrie();
+
+    private final Node<K, V> root;
+    private final int size;
+
+    /**
+     * Construct a new, empty trie.  Unlike {@link #empty()}, each call returns a distinct instance.
+     */
+    HashTrie() {
+        this(null, 0);
+    }
+
+    private HashTrie(final Node<K, V> root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Get the shared empty trie.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @return the empty trie
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> HashTrie<K, V> empty() {
+        return EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    V get(final Object key) {
+        return root == null ? null : root.get(hash(key), key, 0);
+    }
+
+    /**
+     * Get a trie with the given mapping added or replaced.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the updated trie, or this trie if the key is already mapped to the same value
+     */
+    HashTrie<K, V> put(final K key, final V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("key or value is null");
+        }
+        final int hash = hash(key);
+        if (root == null) {
+            return new HashTrie<K, V>(new Leaf<K, V>(hash, key, value), 1);
+        }
+        final boolean present = root.get(hash, key, 0) != null;
+        final Node<K, V> newRoot = root.put(hash, key, value, 0);
+        return newRoot == root ? this : new HashTrie<K, V>(newRoot, present ? size : size + 1);
+    }
+
+    /**
+     * Get a trie without a mapping for the given key.
+     *
+     * @param key the key
+     * @return the updated trie, or this trie if the key was not mapped
+     */
+    HashTrie<K, V> remove(final Object key) {
+        if (root == null || key == null) {
+            return this;
+        }
+        final Node<K, V> newRoot = root.remove(hash(key), key, 0);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? HashTrie.<K, V>empty() : new HashTrie<K, V>(newRoot, size - 1);
+    }
+
+    /**
+     * Get a list of the values of this trie, in no particular order.
+     *
+     * @return the values
+     */
+    List<V> values() {
+        final List<V> values = new ArrayList<V>(size);
+        if (root != null) {
+            root.addValues(values);
+        }
+        return values;
+    }
+
+    private static int hash(final Object key) {
+        int h = key.hashCode();
+        // Spread the bits so keys which differ only in their high bits do not share the first levels
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return h ^ (h >>> 7) ^ (h >>> 4);
+    }
+
+    private abstract static class Node<K, V> {
+        abstract V get(int hash, Object key, int shift);
+
+        abstract Node<K, V> put(int hash, K key, V value, int shift);
+
+        /**
+         * @return the updated node, {@code this} if nothing was removed, or {@code null} if the node is now empty
+         */
+        abstract Node<K, V> remove(int hash, Object key, int shift);
+
+        abstract void addValues(List<V> values);
+    }
+
+    private static final class Leaf<K, V> extends Node<K, V> {
+        private final int hash;
+        private final K key;
+        private final V value;
+
+        Leaf(final int hash, final K key, final V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        V get(final int hash, final Object key, final int shift) {
+            return this.hash == hash && this.key.equals(key) ? value : null;
+        }
+
+        Node<K, V> put(final int hash, final K key, final V value, final int shift) {
+            if (this.hash == hash) {
+                if (this.key.equals(key)) {
+                    return this.value == value ? this : new Leaf<K, V>(hash, key, value);
+                }
+                return new Collision<K, V>(hash, this, new Leaf<K, V>(hash, key, value));
+            }
+            return Branch.pair(shift, this, this.hash, new Leaf<K, V>(hash, key, value), hash);
+        }
+
+        Node<K, V> remove(final int hash, final Object key, final int shift) {
+            return this.hash == hash && this.key.equals(key) ? null : this;
+        }
+
+        void addValues(final List<V> values) {
+            values.add(value);
+        }
+    }
+
+    /**
+     * Leaves whose keys have the same hash.
+     */
+    private static final class Collision<K, V> extends Node<K, V> {
+        private final int hash;
+        private final Leaf<K, V>[] leaves;
+
+        @SuppressWarnings("unchecked")
+        Collision(final int hash, final Leaf<K, V> first, final Leaf<K, V> second) {
+            this(hash, new Leaf[] { first, second });
+        }
+
+        private Collision(final int hash, final Leaf<K, V>[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        V get(final int hash, final Object key, final int shift) {
+            if (this.hash == hash) {
+                for (Leaf<K, V> leaf : leaves) {
+                    if (leaf.key.equals(key)) {
+                        return leaf.value;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<K, V> put(final int hash, final K key, final V value, final int shift) {
+            if (this.hash != hash) {
+                return Branch.pair(shift, this, this.hash, new Leaf<K, V>(hash, key, value), hash);
+            }
+            final int length = leaves.length;
+            for (int i = 0; i < length; i++) {
+                if (leaves[i].key.equals(key)) {
+                    if (leaves[i].value == value) {
+                        return this;
+                    }
+                    final Leaf<K, V>[] newLeaves = leaves.clone();
+                    newLeaves[i] = new Leaf<K, V>(hash, key, value);
+                    return new Collision<K, V>(hash, newLeaves);
+                }
+            }
+            final Leaf<K, V>[] newLeaves = new Leaf[length + 1];
+            System.arraycopy(leaves, 0, newLeaves, 0, length);
+            newLeaves[length] = new Leaf<K, V>(hash, key, value);
+            return new Collision<K, V>(hash, newLeaves);
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<K, V> remove(final int hash, final Object key, final int shift) {
+            if (this.hash != hash) {
+                return this;
+            }
+            final int length = leaves.length;
+            for (int i = 0; i < length; i++) {
+                if (leaves[i].key.equals(key)) {
+                    if (length == 2) {
+                        return leaves[1 - i];
+                    }
+                    final Leaf<K, V>[] newLeaves = new Leaf[length - 1];
+                    System.arraycopy(leaves, 0, newLeaves, 0, i);
+                    System.arraycopy(leaves, i + 1, newLeaves, i, length - i - 1);
+                    return new Collision<K, V>(hash, newLeaves);
+                }
+            }
+            return this;
+        }
+
+        void addValues(final List<V> values) {
+            for (Leaf<K, V> leaf : leaves) {
+                values.add(leaf.value);
+            }
+        }
+    }
+
+    /**
+     * An interior node holding a child for each {@code BITS} wide hash fragment present in its bitmap.
+     */
+    private static final class Branch<K, V> extends Node<K, V> {
+        private final int bitmap;
+        private final Node<K, V>[] children;
+
+        private Branch(final int bitmap, final Node<K, V>[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        /**
+         * Create the node holding two nodes whose hashes differ.
+         */
+        @SuppressWarnings("unchecked")
+        static <K, V> Node<K, V> pair(final int shift, final Node<K, V> first, final int firstHash, final Node<K, V> second, final int secondHash) {
+            final int firstFragment = (firstHash >>> shift) & MASK;
+            final int secondFragment = (secondHash >>> shift) & MASK;
+            if (firstFragment == secondFragment) {
+                return new Branch<K, V>(1 << firstFragment, new Node[] { pair(shift + BITS, first, firstHash, second, secondHash) });
+            }
+            final int bitmap = (1 << firstFragment) | (1 << secondFragment);
+            return new Branch<K, V>(bitmap, firstFragment < secondFragment ? new Node[] { first, second } : new Node[] { second, first });
+        }
+
+        V get(final int hash, final Object key, final int shift) {
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            return children[Integer.bitCount(bitmap & (bit - 1))].get(hash, key, shift + BITS);
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<K, V> put(final int hash, final K key, final V value, final int shift) {
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            final int index = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                final int length = children.length;
+                final Node<K, V>[] newChildren = new Node[length + 1];
+                System.arraycopy(children, 0, newChildren, 0, index);
+                newChildren[index] = new Leaf<K, V>(hash, key, value);
+                System.arraycopy(children, index, newChildren, index + 1, length - index);
+                return new Branch<K, V>(bitmap | bit, newChildren);
+            }
+            final Node<K, V> child = children[index];
+            final Node<K, V> newChild = child.put(hash, key, value, shift + BITS);
+            if (newChild == child) {
+                return this;
+            }
+            final Node<K, V>[] newChildren = children.clone();
+            newChildren[index] = newChild;
+            return new Branch<K, V>(bitmap, newChildren);
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<K, V> remove(final int hash, final Object key, final int shift) {
+            final int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            final int index = Integer.bitCount(bitmap & (bit - 1));
+            final Node<K, V> child = children[index];
+            final Node<K, V> newChild = child.remove(hash, key, shift + BITS);
+            if (newChild == child) {
+                return this;
+            }
+            if (newChild != null) {
+                if (children.length == 1 && !(newChild instanceof Branch)) {
+                    // A lone leaf needs no branch above it
+                    return newChild;
+                }
+                final Node<K, V>[] newChildren = children.clone();
+                newChildren[index] = newChild;
+                return new Branch<K, V>(bitmap, newChildren);
+            }
+            final int length = children.length;
+            if (length == 1) {
+                return null;
+            }
+            if (length == 2 && !(children[1 - index] instanceof Branch)) {
+                return children[1 - index];
+            }
+            final Node<K, V>[] newChildren = new Node[length - 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index + 1, newChildren, index, length - index - 1);
+            return new Branch<K, V>(bitmap & ~bit, newChildren);
+        }
+
+        void addValues(final List<V> values) {
+            for (Node<K, V> child : children) {
+                child.addValues(values);
+            }
+        }
+    }
+}
@@ -22,7 +22,6 @@
 
 package org.jboss.as.naming;
 
-import java.util.concurrent.locks.ReentrantLock;
 import javax.naming.Binding;
 import javax.naming.CannotProceedException;
 import javax.naming.CompositeName;
@@ -35,12 +34,17 @@ import javax.naming.Reference;
 import javax.naming.event.EventContext;
 import javax.naming.event.NamingEvent;
 import javax.naming.event.NamingListener;
+import javax.naming.spi.ObjectFactory;
 import javax.naming.spi.ResolveResult;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import static org.jboss.as.naming.util.NamingUtils.cannotProceedException;
 import static org.jboss.as.naming.util.NamingUtils.emptyNameException;
@@ -56,18 +60,28 @@ import static org.jboss.as.naming.util.NamingUtils.notAContextException;
  * In-memory implementation of the NamingStore.  The backing for the entries is a basic tree structure with either context
  * nodes or binding nodes.  The context nodes are allowed to have children and can be represented by a NamingContext.  A
  * binding node is only allowed to have a normal object binding.
+ * <p>
+ * The children of each context are held in an immutable {@link HashTrie} which is replaced by compare-and-set, so
+ * writers to different contexts never contend and readers never block.
  *
  * @author John E. Bailey
  */
 public class InMemoryNamingStore implements NamingStore {
 
+    /* The maximum number of names whose lookups are cached */
+    private static final int MAX_CACHED_LOOKUPS = 1024;
+
     /* The root node of the tree.  Represents a JNDI name of "" */
     private final ContextNode root = new ContextNode(null, null, new CompositeName(), new NamingContext(this, null));
 
     /* Naming Event Coordinator */
     private final NamingEventCoordinator eventCoordinator;
 
-    private final ReentrantLock writeLock = new ReentrantLock();
+    /* Incremented after every change to the tree */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /* Lookup results keyed by absolute name, shared by every context on this store */
+    private final ConcurrentMap<Name, CachedLookup> lookupCache = new ConcurrentHashMap<Name, CachedLookup>();
 
     /**
      * Construct instance with no event support.
@@ -97,11 +111,74 @@ public class InMemoryNamingStore implements NamingStore {
         }
         checkPermissions(name, JndiPermission.Action.BIND);
 
-        writeLock.lock();
         try {
-            root.accept(new BindVisitor(true, name, object, bindType.getName()));
+            for (;;) {
+                try {
+                    root.accept(new BindVisitor(true, name, object, bindType.getName()));
+                    return;
+                } catch (ContextRemovedException retry) {
+                    Thread.yield();
+                }
+            }
         } finally {
-            writeLock.unlock();
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * Bind several objects into the store, creating parent contexts if needed.  The bindings for each context are
+     * added with a single update of that context.  If any of the names is already bound, none of the bindings are
+     * kept, although readers may briefly observe the bindings made to other contexts before they are removed.
+     *
+     * @param bindings the objects to bind, keyed by name.  The bind type of each is the class of the object
+     * @throws NamingException if any of the objects can not be bound
+     */
+    public void bindAll(final Map<Name, Object> bindings) throws NamingException {
+        final Map<Name, Map<String, Binding>> bindingsByContext = new LinkedHashMap<Name, Map<String, Binding>>();
+        for (Map.Entry<Name, Object> entry : bindings.entrySet()) {
+            final Name name = entry.getKey();
+            if (isLastComponentEmpty(name)) {
+                throw emptyNameException();
+            }
+            checkPermissions(name, JndiPermission.Action.BIND);
+            final Name contextName = name.getPrefix(name.size() - 1);
+            Map<String, Binding> contextBindings = bindingsByContext.get(contextName);
+            if (contextBindings == null) {
+                contextBindings = new LinkedHashMap<String, Binding>();
+                bindingsByContext.put(contextName, contextBindings);
+            }
+            final String childName = getLastComponent(name);
+            final Object object = entry.getValue();
+            contextBindings.put(childName, new Binding(childName, object.getClass().getName(), object, true));
+        }
+
+        final List<Name> bound = new ArrayList<Name>();
+        try {
+            for (Map.Entry<Name, Map<String, Binding>> entry : bindingsByContext.entrySet()) {
+                final Name contextName = entry.getKey();
+                for (;;) {
+                    try {
+                        root.accept(new BindAllVisitor(contextName, entry.getValue()));
+                        break;
+                    } catch (ContextRemovedException retry) {
+                        Thread.yield();
+                    }
+                }
+                for (String childName : entry.getValue().keySet()) {
+                    bound.add(((Name) contextName.clone()).add(childName));
+                }
+            }
+        } catch (NamingException e) {
+            for (Name name : bound) {
+                try {
+                    unbind(name);
+                } catch (NamingException ignored) {
+                    // already removed by someone else
+                }
+            }
+            throw e;
+        } finally {
+            generation.incrementAndGet();
         }
     }
 
@@ -117,11 +194,17 @@ public class InMemoryNamingStore implements NamingStore {
         }
         checkPermissions(name, JndiPermission.Action.REBIND);
 
-        writeLock.lock();
         try {
-            root.accept(new RebindVisitor(name, object, bindType.getName()));
+            for (;;) {
+                try {
+                    root.accept(new RebindVisitor(name, object, bindType.getName()));
+                    return;
+                } catch (ContextRemovedException retry) {
+                    Thread.yield();
+                }
+            }
         } finally {
-            writeLock.unlock();
+            generation.incrementAndGet();
         }
     }
 
@@ -137,11 +220,17 @@ public class InMemoryNamingStore implements NamingStore {
         }
         checkPermissions(name, JndiPermission.Action.UNBIND);
 
-        writeLock.lock();
         try {
-            root.accept(new UnbindVisitor(name));
+            for (;;) {
+                try {
+                    root.accept(new UnbindVisitor(name));
+                    return;
+                } catch (ContextRemovedException retry) {
+                    Thread.yield();
+                }
+            }
         } finally {
-            writeLock.unlock();
+            generation.incrementAndGet();
         }
     }
 
@@ -194,12 +283,61 @@ public class InMemoryNamingStore implements NamingStore {
      * @throws NamingException
      */
     public void close() throws NamingException {
-        writeLock.lock();
-        try {
-            root.clear();
-        } finally {
-            writeLock.unlock();
+        root.clear();
+        generation.incrementAndGet();
+        lookupCache.clear();
+    }
+
+    /**
+     * Get the current generation of the store.  The generation changes after every bind, rebind, unbind or close, so
+     * a lookup result that was obtained under a given generation is known to be current while the generation is
+     * unchanged.
+     *
+     * @return the generation
+     */
+    int getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Get the cached result of a lookup, if it is still current.
+     *
+     * @param name the absolute name
+     * @return the cached lookup, or {@code null} if there is none for the current generation
+     */
+    CachedLookup getCachedLookup(final Name name) {
+        final CachedLookup cached = lookupCache.get(name);
+        return cached != null && cached.generation == generation.get() ? cached : null;
+    }
+
+    /**
+     * Cache the result of a lookup.  When the cache is full, the results of earlier generations are dropped first,
+     * then arbitrary entries until there is room for a number of new ones.
+     *
+     * @param name the absolute name
+     * @param generation the generation read before the lookup was made
+     * @param result the object returned by the lookup
+     * @return the cached lookup
+     */
+    CachedLookup cacheLookup(final Name name, final int generation, final Object result) {
+        if (lookupCache.size() >= MAX_CACHED_LOOKUPS) {
+            final int current = this.generation.get();
+            final Iterator<CachedLookup> stale = lookupCache.values().iterator();
+            while (stale.hasNext()) {
+                if (stale.next().generation != current) {
+                    stale.remove();
+                }
+            }
+            final Iterator<CachedLookup> any = lookupCache.values().iterator();
+            while (lookupCache.size() > MAX_CACHED_LOOKUPS - MAX_CACHED_LOOKUPS / 8 && any.hasNext()) {
+                any.next();
+                any.remove();
+            }
         }
+        final CachedLookup cached = new CachedLookup(generation, result);
+        // The name may be handed on to object factories, so the key is a copy nobody else can change
+        lookupCache.put((Name) name.clone(), cached);
+        return cached;
     }
 
     /**
@@ -265,10 +403,31 @@ public class InMemoryNamingStore implements NamingStore {
         protected abstract <T> T accept(NodeVisitor<T> visitor) throws NamingException;
     }
 
-    private static final AtomicMapFieldUpdater<ContextNode, String, TreeNode> childrenUpdater = AtomicMapFieldUpdater.newMapUpdater(AtomicReferenceFieldUpdater.newUpdater(ContextNode.class, Map.class, "children"));
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ContextNode, HashTrie> childrenUpdater = AtomicReferenceFieldUpdater.newUpdater(ContextNode.class, HashTrie.class, "children");
+
+    /* The children of a context which has been removed from its parent.  Writers finding it must start again from the root */
+    private static final HashTrie<String, TreeNode> REMOVED = new HashTrie<String, TreeNode>();
+
+    /**
+     * Thrown by a write which reached a context that has been removed from the tree.  The write is retried from the root.
+     */
+    private static final class ContextRemovedException extends RuntimeException {
+        private static final long serialVersionUID = -6578520383493398562L;
+
+        private static final ContextRemovedException INSTANCE = new ContextRemovedException();
+
+        private ContextRemovedException() {
+            super(null, null);
+        }
+
+        public Throwable fillInStackTrace() {
+            return this;
+        }
+    }
 
     private class ContextNode extends TreeNode {
-        volatile Map<String, TreeNode> children = Collections.emptyMap();
+        volatile HashTrie<String, TreeNode> children = HashTrie.empty();
         protected final String name;
         protected final ContextNode parentNode;
 
@@ -278,29 +437,84 @@ public class InMemoryNamingStore implements NamingStore {
             this.parentNode = parentNode;
         }
 
+        private HashTrie<String, TreeNode> getChildrenForUpdate() {
+            final HashTrie<String, TreeNode> current = children;
+            if (current == REMOVED) {
+                throw ContextRemovedException.INSTANCE;
+            }
+            return current;
+        }
+
         private void addChild(final String childName, final TreeNode childNode) throws NamingException {
-            if (childrenUpdater.putIfAbsent(this, childName, childNode) != null) {
-                throw nameAlreadyBoundException(fullName.add(childName));
+            for (;;) {
+                final HashTrie<String, TreeNode> current = getChildrenForUpdate();
+                if (current.get(childName) != null) {
+                    throw nameAlreadyBoundException(fullName.getSuffix(0).add(childName));
+                }
+                if (childrenUpdater.compareAndSet(this, current, current.put(childName, childNode))) {
+                    return;
+                }
+            }
+        }
+
+        private void addChildren(final Map<String, ? extends TreeNode> childNodes) throws NamingException {
+            for (;;) {
+                final HashTrie<String, TreeNode> current = getChildrenForUpdate();
+                HashTrie<String, TreeNode> updated = current;
+                for (Map.Entry<String, ? extends TreeNode> entry : childNodes.entrySet()) {
+                    final String childName = entry.getKey();
+                    if (current.get(childName) != null) {
+                        throw nameAlreadyBoundException(fullName.getSuffix(0).add(childName));
+                    }
+                    updated = updated.put(childName, entry.getValue());
+                }
+                if (childrenUpdater.compareAndSet(this, current, updated)) {
+                    return;
+                }
             }
         }
 
         private TreeNode replaceChild(final String childName, final TreeNode childNode) throws NamingException {
-            return childrenUpdater.put(this, childName, childNode);
+            for (;;) {
+                final HashTrie<String, TreeNode> current = getChildrenForUpdate();
+                if (childrenUpdater.compareAndSet(this, current, current.put(childName, childNode))) {
+                    return current.get(childName);
+                }
+            }
         }
 
         private TreeNode removeChild(final String childName) throws NameNotFoundException {
-            TreeNode old = childrenUpdater.remove(this, childName);
-            if (old == null) {
-                throw nameNotFoundException(childName, fullName);
+            for (;;) {
+                final HashTrie<String, TreeNode> current = getChildrenForUpdate();
+                final TreeNode old = current.get(childName);
+                if (old == null) {
+                    throw nameNotFoundException(childName, fullName);
+                }
+                final HashTrie<String, TreeNode> updated = current.remove(childName);
+                if (childrenUpdater.compareAndSet(this, current, updated)) {
+                    // Mark an emptied context as removed before detaching it, so no write can land in it afterwards
+                    if (parentNode != null && updated.isEmpty() && childrenUpdater.compareAndSet(this, updated, REMOVED)) {
+                        parentNode.removeChildNode(name, this);
+                    }
+                    return old;
+                }
             }
-            if(parentNode != null && children.isEmpty()) {
-                childrenUpdater.remove(parentNode, name);
+        }
+
+        private void removeChildNode(final String childName, final TreeNode childNode) {
+            for (;;) {
+                final HashTrie<String, TreeNode> current = children;
+                if (current.get(childName) != childNode) {
+                    return;
+                }
+                if (childrenUpdater.compareAndSet(this, current, current.remove(childName))) {
+                    return;
+                }
             }
-            return old;
         }
 
         private void clear() {
-            childrenUpdater.clear(this);
+            children = HashTrie.empty();
         }
 
         protected final <T> T accept(NodeVisitor<T> visitor) throws NamingException {
@@ -308,8 +522,16 @@ public class InMemoryNamingStore implements NamingStore {
         }
 
         public TreeNode addOrGetChild(final String childName, final TreeNode childNode) {
-            TreeNode appearing = childrenUpdater.putIfAbsent(this, childName, childNode);
-            return appearing == null ? childNode : appearing;
+            for (;;) {
+                final HashTrie<String, TreeNode> current = getChildrenForUpdate();
+                final TreeNode appearing = current.get(childName);
+                if (appearing != null) {
+                    return appearing;
+                }
+                if (childrenUpdater.compareAndSet(this, current, current.put(childName, childNode))) {
+                    return childNode;
+                }
+            }
         }
     }
 
@@ -423,6 +645,32 @@ public class InMemoryNamingStore implements NamingStore {
         }
     }
 
+    private final class BindAllVisitor extends NodeTraversingVisitor<Void> {
+        private final Map<String, Binding> bindings;
+
+        private BindAllVisitor(final Name contextName, final Map<String, Binding> bindings) {
+            super(true, contextName);
+            this.bindings = bindings;
+        }
+
+        protected Void found(final ContextNode contextNode) throws NamingException {
+            final Map<String, BindingNode> bindingNodes = new LinkedHashMap<String, BindingNode>();
+            for (Map.Entry<String, Binding> entry : bindings.entrySet()) {
+                bindingNodes.put(entry.getKey(), new BindingNode(targetName.getSuffix(0).add(entry.getKey()), entry.getValue()));
+            }
+            contextNode.addChildren(bindingNodes);
+            for (BindingNode bindingNode : bindingNodes.values()) {
+                fireEvent(contextNode, bindingNode.fullName, null, bindingNode.binding, NamingEvent.OBJECT_ADDED, "bind");
+            }
+            return null;
+        }
+
+        protected Void found(final BindingNode bindingNode) throws NamingException {
+            checkReferenceForContinuation(targetName.getSuffix(bindingNode.fullName.size()), bindingNode.binding.getObject());
+            throw notAContextException(targetName);
+        }
+    }
+
     private final class RebindVisitor extends BindingContextVisitor<Void> {
         private final Object object;
         private final String className;
@@ -518,4 +766,46 @@ public class InMemoryNamingStore implements NamingStore {
         }
     }
 
+    /**
+     * The result of a lookup, valid while the store remains at the generation it was made under.  Also holds the
+     * object factory created for the bound object, so it is not created again on every lookup.
+     */
+    static final class CachedLookup {
+        private final int generation;
+        private final Object result;
+        private volatile CachedObjectFactory objectFactory;
+
+        private CachedLookup(final int generation, final Object result) {
+            this.generation = generation;
+            this.result = result;
+        }
+
+        Object getResult() {
+            return result;
+        }
+
+        ObjectFactory getObjectFactory(final Object object, final ClassLoader classLoader) {
+            final CachedObjectFactory cached = objectFactory;
+            return cached != null && cached.object == object && cached.classLoader == classLoader ? cached.objectFactory : null;
+        }
+
+        void setObjectFactory(final Object object, final ClassLoader classLoader, final ObjectFactory objectFactory) {
+            this.objectFactory = new CachedObjectFactory(object, classLoader, objectFactory);
+        }
+    }
+
+    /**
+     * An object factory created for a bound object, along with the context class loader it was created under.
+     */
+    private static final class CachedObjectFactory {
+        private final Object object;
+        private final ClassLoader classLoader;
+        private final ObjectFactory objectFactory;
+
+        private CachedObjectFactory(final Object object, final ClassLoader classLoader, final ObjectFactory objectFactory) {
+            this.object = object;
+            this.classLoader = classLoader;
+            this.objectFactory = objectFactory;
+        }
+    }
 }
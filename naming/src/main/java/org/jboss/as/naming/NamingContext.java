@@ -28,6 +28,8 @@ import static org.jboss.as.naming.util.NamingUtils.namingException;
 import static org.jboss.as.naming.util.NamingUtils.notAContextException;
 
 import java.util.Hashtable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.naming.Binding;
 import javax.naming.CannotProceedException;
@@ -107,6 +109,12 @@ public class NamingContext implements EventContext {
     /* The environment configuration */
     private final Hashtable<String, Object> environment;
 
+    /* The maximum number of string names whose absolute name is cached by a single context */
+    private static final int MAX_CACHED_NAMES = 256;
+
+    /* Absolute names keyed by the string name they were looked up with */
+    private final ConcurrentMap<String, Name> absoluteNames = new ConcurrentHashMap<String, Name>();
+
     /**
      * Create a new naming context with no prefix or naming store.  This will default to a prefix of "" and
      * the active naming store.
@@ -161,21 +169,70 @@ public class NamingContext implements EventContext {
         this(new CompositeName(), namingStore, environment);
     }
 
-    /** {@inheritDoc} */
+    /**
+     * Look up a name.  When backed by an {@link InMemoryNamingStore}, the object bound in the store and the object
+     * factory for a bound {@link Reference} are taken from the store's lookup cache, which is shared by every context
+     * on the store and invalidated whenever the store is modified.  Objects are still produced by the object factory
+     * on every lookup.
+     *
+     * @param name the name to look up
+     * @return the object bound to the name
+     * @throws NamingException if the lookup fails
+     */
     public Object lookup(final Name name) throws NamingException {
         if (isEmpty(name)) {
             return new NamingContext(prefix, namingStore, environment);
         }
+        return lookupAbsolute(getAbsoluteName(name));
+    }
 
-        final Name absoluteName = getAbsoluteName(name);
-        Object result;
-        try {
-            result = namingStore.lookup(absoluteName);
-        } catch(CannotProceedException cpe) {
-            final Context continuationContext = NamingManager.getContinuationContext(cpe);
-            result = continuationContext.lookup(cpe.getRemainingName());
+    /**
+     * Look up a name.  The absolute name a string is parsed to is cached by this context, so repeated lookups of the
+     * same string do not parse it again.
+     *
+     * @param name the name to look up
+     * @return the object bound to the name
+     * @throws NamingException if the lookup fails
+     */
+    public Object lookup(final String name) throws NamingException {
+        Name absoluteName = absoluteNames.get(name);
+        if (absoluteName == null) {
+            final Name parsedName = parseName(name);
+            if (isEmpty(parsedName)) {
+                return lookup(parsedName);
+            }
+            absoluteName = getAbsoluteName(parsedName);
+            if (absoluteNames.size() < MAX_CACHED_NAMES) {
+                absoluteNames.putIfAbsent(name, absoluteName);
+            }
         }
+        return lookupAbsolute(absoluteName);
+    }
+
+    private Object lookupAbsolute(final Name absoluteName) throws NamingException {
+        // Lookups under a security manager always go to the store so its permission checks run
+        final InMemoryNamingStore cachingStore = namingStore instanceof InMemoryNamingStore && System.getSecurityManager() == null ? (InMemoryNamingStore) namingStore : null;
+        InMemoryNamingStore.CachedLookup cached = cachingStore != null ? cachingStore.getCachedLookup(absoluteName) : null;
+        if (cached == null) {
+            // Read the generation before the store so a concurrent change always invalidates what we cache
+            final int generation = cachingStore != null ? cachingStore.getGeneration() : 0;
+            final Object result;
+            try {
+                result = namingStore.lookup(absoluteName);
+            } catch(CannotProceedException cpe) {
+                // The continuation context may depend on the caller, so it is never cached
+                final Context continuationContext = NamingManager.getContinuationContext(cpe);
+                return resolve(absoluteName, continuationContext.lookup(cpe.getRemainingName()), null);
+            }
+            if (cachingStore == null) {
+                return resolve(absoluteName, result, null);
+            }
+            cached = cachingStore.cacheLookup(absoluteName, generation, result);
+        }
+        return resolve(absoluteName, cached.getResult(), cached);
+    }
 
+    private Object resolve(final Name absoluteName, Object result, final InMemoryNamingStore.CachedLookup cached) throws NamingException {
         if (result instanceof ResolveResult) {
             final ResolveResult resolveResult = (ResolveResult) result;
             final Object resolvedObject = resolveResult.getResolvedObj();
@@ -184,7 +241,7 @@ public class NamingContext implements EventContext {
             if (resolvedObject instanceof LinkRef) {
                 context = resolveLink(resolvedObject);
             } else {
-                context = getObjectInstance(resolvedObject, absoluteName, environment);
+                context = getObjectInstance(resolvedObject, absoluteName, environment, cached);
             }
             if (!(context instanceof Context)) {
                 throw notAContextException(absoluteName.getPrefix(absoluteName.size() - resolveResult.getRemainingName().size()));
@@ -194,7 +251,7 @@ public class NamingContext implements EventContext {
         } else if (result instanceof LinkRef) {
             result = resolveLink(result);
         } else if (result instanceof Reference) {
-            result = getObjectInstance(result, absoluteName, environment);
+            result = getObjectInstance(result, absoluteName, environment, cached);
             if (result instanceof LinkRef) {
                 result = resolveLink(result);
             }
@@ -202,11 +259,6 @@ public class NamingContext implements EventContext {
         return result;
     }
 
-    /** {@inheritDoc} */
-    public Object lookup(final String name) throws NamingException {
-        return lookup(parseName(name));
-    }
-
     /** {@inheritDoc} */
     public void bind(final Name name, Object object) throws NamingException {
         throw new UnsupportedOperationException("Naming context is read-only");
@@ -413,9 +465,21 @@ public class NamingContext implements EventContext {
     }
 
     private Object getObjectInstance(final Object object, final Name name, final Hashtable<?, ?> environment) throws NamingException {
+        return getObjectInstance(object, name, environment, null);
+    }
+
+    private Object getObjectInstance(final Object object, final Name name, final Hashtable<?, ?> environment, final InMemoryNamingStore.CachedLookup cached) throws NamingException {
         try {
-            final ObjectFactoryBuilder factoryBuilder = ObjectFactoryBuilder.INSTANCE;
-            final ObjectFactory objectFactory = factoryBuilder.createObjectFactory(object, environment);
+            final ClassLoader classLoader = cached != null ? Thread.currentThread().getContextClassLoader() : null;
+            ObjectFactory objectFactory = cached != null ? cached.getObjectFactory(object, classLoader) : null;
+            if (objectFactory == null) {
+                final ObjectFactoryBuilder factoryBuilder = ObjectFactoryBuilder.INSTANCE;
+                objectFactory = factoryBuilder.createObjectFactory(object, environment);
+                // The builder itself is the fallback when the reference's factory cannot be created; retry that next time
+                if (cached != null && objectFactory != factoryBuilder) {
+                    cached.setObjectFactory(object, classLoader, objectFactory);
+                }
+            }
             return objectFactory.getObjectInstance(object, name, this, environment);
         } catch(NamingException e) {
             throw e;
@@ -29,6 +29,7 @@ import javax.naming.NameClassPair;
 import javax.naming.NamingException;
 import javax.naming.event.NamingListener;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface to layout a contract for naming entry back-end storage.  This will be used by {@code NamingContext} instances
@@ -58,6 +59,15 @@ public interface NamingStore {
      */
     void bind(Name name, Object object, Class<?> bindType) throws NamingException;
 
+    /**
+     * Bind several objects into the naming store, creating parent contexts if needed.  If any of the objects can not be
+     * bound, none of them are.  The bind type of each object will be determined by its class.
+     *
+     * @param bindings The entry objects, keyed by entry name
+     * @throws NamingException If any problems occur
+     */
+    void bindAll(Map<Name, Object> bindings) throws NamingException;
+
     /**
      * Re-bind and object into the naming store.  All parent contexts must be created before this can be executed.
      * The bind object type will be determined by the class of the object being passed in.
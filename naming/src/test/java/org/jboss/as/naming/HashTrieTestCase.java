@@ -0,0 +1,99 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.naming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link HashTrie}.
+ */
+public class HashTrieTestCase {
+
+    @Test
+    public void testAgainstHashMap() throws Exception {
+        final Random random = new Random(42);
+        final Map<String, Integer> expected = new HashMap<String, Integer>();
+        HashTrie<String, Integer> trie = HashTrie.empty();
+        for (int i = 0; i < 20000; i++) {
+            final String key = "name" + random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                trie = trie.remove(key);
+            } else {
+                final Integer value = Integer.valueOf(i);
+                expected.put(key, value);
+                trie = trie.put(key, value);
+            }
+            assertEquals(expected.size(), trie.size());
+        }
+        for (int i = 0; i < 2000; i++) {
+            final String key = "name" + i;
+            assertEquals(expected.get(key), trie.get(key));
+        }
+        assertEquals(sorted(new ArrayList<Integer>(expected.values())), sorted(trie.values()));
+    }
+
+    @Test
+    public void testCollidingKeys() throws Exception {
+        // "Aa" and "BB" have the same hash code
+        HashTrie<String, String> trie = HashTrie.<String, String>empty().put("Aa", "a").put("BB", "b").put("C", "c");
+        assertEquals(3, trie.size());
+        assertEquals("a", trie.get("Aa"));
+        assertEquals("b", trie.get("BB"));
+
+        trie = trie.remove("Aa");
+        assertNull(trie.get("Aa"));
+        assertEquals("b", trie.get("BB"));
+        assertEquals("c", trie.get("C"));
+        assertEquals(2, trie.size());
+    }
+
+    @Test
+    public void testUpdatesArePersistent() throws Exception {
+        final HashTrie<String, String> original = HashTrie.<String, String>empty().put("a", "1");
+        final HashTrie<String, String> updated = original.put("a", "2").put("b", "3");
+
+        assertEquals("1", original.get("a"));
+        assertNull(original.get("b"));
+        assertEquals("2", updated.get("a"));
+        assertSame(original, original.remove("missing"));
+        assertTrue(original.remove("a").isEmpty());
+    }
+
+    private static List<Integer> sorted(final List<Integer> values) {
+        Collections.sort(values);
+        return values;
+    }
+}
@@ -31,14 +31,20 @@ import javax.naming.CompositeName;
 import javax.naming.Context;
 import javax.naming.InvalidNameException;
 import javax.naming.Name;
+import javax.naming.NameAlreadyBoundException;
 import javax.naming.NameClassPair;
 import javax.naming.NameNotFoundException;
 import javax.naming.Reference;
 import javax.naming.spi.ResolveResult;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -251,6 +257,79 @@ public class InMemoryNamingStoreTestCase {
         assertTrue("Not all expected results were returned", expected.isEmpty());
     }
 
+    @Test
+    public void testBindAll() throws Exception {
+        final Map<Name, Object> bindings = new LinkedHashMap<Name, Object>();
+        final Object one = new Object();
+        final Object two = new Object();
+        final Object three = new Object();
+        bindings.put(new CompositeName("test/one"), one);
+        bindings.put(new CompositeName("test/two"), two);
+        bindings.put(new CompositeName("test/nested/three"), three);
+        nameStore.bindAll(bindings);
+
+        assertEquals(one, nameStore.lookup(new CompositeName("test/one")));
+        assertEquals(two, nameStore.lookup(new CompositeName("test/two")));
+        assertEquals(three, nameStore.lookup(new CompositeName("test/nested/three")));
+        assertEquals(3, nameStore.list(new CompositeName("test")).size());
+    }
+
+    @Test
+    public void testBindAllAlreadyBound() throws Exception {
+        nameStore.bind(new CompositeName("test/two"), new Object());
+
+        final Map<Name, Object> bindings = new LinkedHashMap<Name, Object>();
+        bindings.put(new CompositeName("other/one"), new Object());
+        bindings.put(new CompositeName("test/two"), new Object());
+        try {
+            nameStore.bindAll(bindings);
+            fail("Should have thrown a NameAlreadyBoundException");
+        } catch (NameAlreadyBoundException expected) {
+        }
+        try {
+            nameStore.lookup(new CompositeName("other/one"));
+            fail("Should have thrown a NameNotFoundException");
+        } catch (NameNotFoundException expected) {
+        }
+    }
+
+    @Test
+    public void testConcurrentBindAndUnbind() throws Exception {
+        final int threadCount = 8;
+        final int iterations = 500;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        final Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int id = i;
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < iterations; j++) {
+                            // Every thread shares the "shared" context, which is removed whenever it becomes empty
+                            final Name name = new CompositeName("shared/item" + id);
+                            final Object object = new Object();
+                            nameStore.bind(name, object);
+                            assertEquals(object, nameStore.lookup(name));
+                            nameStore.unbind(name);
+                        }
+                        nameStore.bind(new CompositeName("shared/item" + id), new Object());
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertEquals(threadCount, nameStore.list(new CompositeName("shared")).size());
+    }
+
     @Test
     public void testAutoRemove() throws Exception {
         nameStore.bind(new CompositeName("test/item"), new Object());
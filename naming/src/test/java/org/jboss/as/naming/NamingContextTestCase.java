@@ -22,6 +22,7 @@
 
 package org.jboss.as.naming;
 
+import org.jboss.as.naming.util.NameParser;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -30,11 +31,13 @@ import org.junit.Test;
 import javax.naming.Binding;
 import javax.naming.CompositeName;
 import javax.naming.Context;
+import javax.naming.InitialContext;
 import javax.naming.LinkRef;
 import javax.naming.Name;
 import javax.naming.NameClassPair;
 import javax.naming.NameNotFoundException;
 import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
 import javax.naming.Reference;
 import javax.naming.StringRefAddr;
 import javax.naming.spi.ObjectFactory;
@@ -42,6 +45,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -93,6 +97,96 @@ public class NamingContextTestCase {
         assertEquals("test", result);
     }
 
+    @Test
+    public void testCachedLookupSeesChanges() throws Exception {
+        final Name name = new CompositeName("test");
+        final Object object = new Object();
+        namingStore.bind(name, object);
+        assertEquals(object, namingContext.lookup("test"));
+        assertEquals(object, namingContext.lookup("test"));
+
+        final Object other = new Object();
+        namingStore.rebind(name, other);
+        assertEquals(other, namingContext.lookup("test"));
+
+        namingStore.unbind(name);
+        try {
+            namingContext.lookup("test");
+            fail("Should have thrown and NameNotFoundException");
+        } catch (NameNotFoundException expected) {
+        }
+    }
+
+    @Test
+    public void testCachedLookupReusesObjectFactory() throws Exception {
+        final Reference reference = new Reference(String.class.getName(), new StringRefAddr("blah", "test"), CountingObjectFactory.class.getName(), null);
+        namingStore.bind(new CompositeName("test"), reference);
+        final int created = CountingObjectFactory.created.get();
+
+        assertEquals("test", namingContext.lookup("test"));
+        assertEquals("test", namingContext.lookup("test"));
+        assertEquals(created + 1, CountingObjectFactory.created.get());
+    }
+
+    @Test
+    public void testInitialContextLookupsShareCache() throws Exception {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, InitialContextFactory.class.getName());
+        System.setProperty(Context.URL_PKG_PREFIXES, "org.jboss.as.naming.interfaces");
+        final Name name = new CompositeName("test");
+        final Reference reference = new Reference(String.class.getName(), new StringRefAddr("blah", "test"), CountingObjectFactory.class.getName(), null);
+        namingStore.bind(name, reference);
+        final int created = CountingObjectFactory.created.get();
+
+        // Every initial context creates a new naming context, and these all look up the same absolute name
+        assertEquals("test", new InitialContext().lookup("test"));
+        assertEquals("test", new InitialContext().lookup("test"));
+        assertEquals("test", new InitialContext().lookup("java:test"));
+        assertEquals(created + 1, CountingObjectFactory.created.get());
+
+        namingStore.rebind(name, "other");
+        assertEquals("other", new InitialContext().lookup("test"));
+    }
+
+    @Test
+    public void testCachedLookupEvictsWhenFull() throws Exception {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, InitialContextFactory.class.getName());
+        for (int i = 0; i < 2000; i++) {
+            namingStore.bind(new CompositeName("name" + i), Integer.valueOf(i));
+        }
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(Integer.valueOf(i), new InitialContext().lookup("name" + i));
+        }
+
+        // Names looked up after the cache has filled are still cached
+        final Reference reference = new Reference(String.class.getName(), new StringRefAddr("blah", "test"), CountingObjectFactory.class.getName(), null);
+        namingStore.bind(new CompositeName("test"), reference);
+        final int created = CountingObjectFactory.created.get();
+        assertEquals("test", new InitialContext().lookup("test"));
+        assertEquals("test", new InitialContext().lookup("test"));
+        assertEquals(created + 1, CountingObjectFactory.created.get());
+    }
+
+    @Test
+    public void testStringLookupParsesNameOnce() throws Exception {
+        namingStore.bind(new CompositeName("test"), "value");
+        final AtomicInteger parsed = new AtomicInteger();
+        final NamingContext context = new NamingContext(namingStore, null) {
+            public NameParser getNameParser(final String name) throws NamingException {
+                parsed.incrementAndGet();
+                return super.getNameParser(name);
+            }
+        };
+        assertEquals("value", context.lookup("test"));
+        assertEquals("value", context.lookup("test"));
+        assertEquals("value", context.lookup("java:test"));
+        assertEquals("value", context.lookup("java:test"));
+        assertEquals(2, parsed.get());
+
+        namingStore.rebind(new CompositeName("test"), "other");
+        assertEquals("other", context.lookup("test"));
+        assertEquals(2, parsed.get());
+    }
+
     @Test
     public void testLookupWithContinuation() throws Exception {
         namingStore.bind(new CompositeName("comp/nested"), "test");
@@ -358,6 +452,14 @@ public class NamingContextTestCase {
         }
     }
 
+    public static class CountingObjectFactory extends TestObjectFactory {
+        static final AtomicInteger created = new AtomicInteger();
+
+        public CountingObjectFactory() {
+            created.incrementAndGet();
+        }
+    }
+
     public static class TestObjectFactoryWithNameResolution implements ObjectFactory {
         @Override
         public Object getObjectInstance(Object obj, Name name, Context nameCtx, Hashtable<?, ?> environment) throws Exception {
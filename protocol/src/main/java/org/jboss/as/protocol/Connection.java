@@ -43,6 +43,18 @@ public interface Connection extends Closeable {
      */
     OutputStream writeMessage() throws IOException;
 
+    /**
+     * Open a new logical stream over this connection.  The stream behaves like a connection of its own, with its own
+     * message handler and message sequence, but shares the underlying socket; messages on different streams are
+     * interleaved so that a long message on one stream does not hold up the others.  Shutting down or closing a stream
+     * leaves the connection open.  Streams start out with the {@link #setStreamMessageHandler(MessageHandler) stream
+     * message handler} of the connection.
+     *
+     * @return the new stream
+     * @throws IOException if the connection can no longer be written to
+     */
+    Connection openStream() throws IOException;
+
     /**
      * Shut down writes once all messages are sent.  This will cause the reading side's {@link MessageHandler#handleShutdown(Connection)}
      * method to be called.
@@ -66,6 +78,15 @@ public interface Connection extends Closeable {
      */
     void setMessageHandler(MessageHandler messageHandler);
 
+    /**
+     * Change the message handler that streams opened over this connection, by either side, start out with.  Until
+     * this is called it is the message handler the connection was created with.  Changing the message handler of the
+     * connection itself does not affect it.
+     *
+     * @param messageHandler the message handler for new streams
+     */
+    void setStreamMessageHandler(MessageHandler messageHandler);
+
     /**
      * Get the remote peer address.
      *
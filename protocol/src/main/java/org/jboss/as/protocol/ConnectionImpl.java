@@ -19,96 +19,146 @@
  * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
  * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
  */
-
 package org.jboss.as.protocol;
 
 import static org.jboss.as.protocol.ProtocolConstants.CHUNK_END;
 import static org.jboss.as.protocol.ProtocolConstants.CHUNK_START;
+import static org.jboss.as.protocol.ProtocolConstants.STREAM_OPEN;
+import static org.jboss.as.protocol.ProtocolConstants.STREAM_SHUTDOWN;
+import static org.jboss.as.protocol.ProtocolConstants.STREAM_WINDOW;
 
 import java.io.BufferedOutputStream;
-import java.io.EOFException;
-import java.io.FilterInputStream;
-import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.jboss.logging.Logger;
 
 /**
+ * A connection which multiplexes any number of logical streams over one socket.  Stream {@code 0} is the connection
+ * itself; further streams are opened by either side using {@link #openStream()}.  Every frame carries the id of the
+ * stream it belongs to, so messages on different streams interleave freely while the messages of any one stream are
+ * still sent and handled in order.
+ * <p>
+ * Message data is written in chunks of at most {@link #MAX_CHUNK} bytes and the writers of different streams take
+ * turns, so one large message cannot hold up the others.  A writer may only have {@link #INITIAL_WINDOW} unread bytes
+ * outstanding on a stream; the reading side grants more credit as the handler consumes the data, so a slow handler
+ * only stalls its own stream and never the read thread.
+ * </p>
+ * <p>
+ * The socket is either read by a dedicated thread running the {@link #getReadTask() read task}, or, for a
+ * non-blocking {@link SocketChannel}, by a {@link ProtocolSelector} thread shared with other connections.  Either way
+ * the messages are handled on the read executor.
+ * </p>
+ *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
 final class ConnectionImpl implements Connection {
 
     private static final Logger log = Logger.getLogger("org.jboss.as.protocol.connection");
 
+    /** The number of unread bytes which may be outstanding on a stream */
+    static final int INITIAL_WINDOW = 65536;
+    /** The largest data chunk sent in one frame */
+    static final int MAX_CHUNK = 8192;
+
+    private static final int PRIMARY_STREAM = 0;
+
     private final Socket socket;
 
     private final Object lock = new Object();
 
+    /** Fair, so that the writers of different streams take turns */
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+    // protected by {@link #writeLock}
+    private final byte[] frameHeader = new byte[9];
+    // protected by {@link #writeLock}
+    private OutputStream output;
+
+    /** The channel of a non-blocking connection, or {@code null} if the socket is used with blocking I/O */
+    private final SocketChannel channel;
+    private volatile ProtocolSelector selector;
+    private volatile SelectionKey selectionKey;
+    private final int readTimeout;
+    private volatile long lastRead;
+    private final Object writeReady = new Object();
+    // protected by {@link #writeReady}
+    private boolean writable;
+
+    private final FrameReader frameReader = new FrameReader();
+
     // protected by {@link #lock}
-    private OutputStream sender;
+    private final Map<Integer, Stream> streams = new HashMap<Integer, Stream>();
+    // protected by {@link #lock}
+    private int nextStreamId;
+    // protected by {@link #lock}
+    private int lastPeerStreamId;
+    // protected by {@link #lock}
+    private int activeSenders;
     // protected by {@link #lock}
     private boolean readDone;
     // protected by {@link #lock}
     private boolean writeDone;
 
-    private volatile MessageHandler messageHandler;
+    private final Stream primary;
 
-    private final Executor readExecutor;
+    /** The handler new streams start out with */
+    private volatile MessageHandler streamHandler;
 
-    private volatile Object attachment;
+    private final boolean client;
 
-    private volatile MessageHandler backupHandler;
+    private final Executor readExecutor;
 
     private final ClosedCallback callback;
 
-    ConnectionImpl(final Socket socket, final MessageHandler handler, final Executor readExecutor, final ClosedCallback callback) {
+    ConnectionImpl(final Socket socket, final MessageHandler handler, final Executor readExecutor, final ClosedCallback callback, final boolean client) {
+        this(socket, null, 0, handler, readExecutor, callback, client);
+    }
+
+    ConnectionImpl(final SocketChannel channel, final int readTimeout, final MessageHandler handler, final Executor readExecutor, final ClosedCallback callback, final boolean client) {
+        this(channel.socket(), channel, readTimeout, handler, readExecutor, callback, client);
+    }
+
+    private ConnectionImpl(final Socket socket, final SocketChannel channel, final int readTimeout, final MessageHandler handler, final Executor readExecutor, final ClosedCallback callback, final boolean client) {
         this.socket = socket;
-        messageHandler = handler;
+        this.channel = channel;
+        this.readTimeout = readTimeout;
         this.readExecutor = readExecutor;
         this.callback = callback;
+        this.client = client;
+        // the client side opens odd numbered streams, the server side even numbered ones
+        nextStreamId = client ? 1 : 2;
+        primary = new Stream(PRIMARY_STREAM, handler);
+        streamHandler = handler;
+        streams.put(Integer.valueOf(PRIMARY_STREAM), primary);
+        lastRead = System.currentTimeMillis();
     }
 
     @Override
     public OutputStream writeMessage() throws IOException {
-        final OutputStream os;
-        synchronized (lock) {
-            if (writeDone) {
-                throw new IOException("Writes are already shut down");
-            }
-            while (sender != null) {
-                try {
-                    lock.wait();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new InterruptedIOException();
-                }
-            }
-            boolean ok = false;
-            try {
-                sender = new MessageOutputStream();
-                os = new BufferedOutputStream(sender);
-                ok = true;
-            } finally {
-                if (! ok) {
-                    // let someone else try
-                    lock.notify();
-                }
-            }
-        }
-        return os;
+        return writeMessage(primary);
     }
 
     @Override
     public void shutdownWrites() throws IOException {
+        final boolean done;
         synchronized (lock) {
             if (writeDone) return;
-            while (sender != null) {
+            while (activeSenders > 0) {
                 try {
                     lock.wait();
                 } catch (InterruptedException e) {
@@ -117,151 +167,129 @@ final class ConnectionImpl implements Connection {
                 }
             }
             writeDone = true;
-            if (readDone) {
+            done = readDone;
+            lock.notifyAll();
+        }
+        writeLock.lock();
+        try {
+            if (done) {
                 socket.close();
             } else {
                 socket.shutdownOutput();
             }
-            lock.notifyAll();
+        } finally {
+            writeLock.unlock();
         }
     }
 
     @Override
     public void close() throws IOException {
         synchronized (lock) {
-            lock.notifyAll();
-            sender = null;
+            for (Stream stream : streams.values()) {
+                stream.sender = null;
+            }
+            activeSenders = 0;
             readDone = true;
             writeDone = true;
             socket.close();
             lock.notifyAll();
         }
+        handleWritable();
+    }
+
+    @Override
+    public Connection openStream() throws IOException {
+        // hold the write lock so that streams are announced in the order their ids were allocated
+        writeLock.lock();
+        try {
+            final Stream stream;
+            synchronized (lock) {
+                if (writeDone) {
+                    throw new IOException("Writes are already shut down");
+                }
+                final int id = nextStreamId;
+                nextStreamId += 2;
+                stream = new Stream(id, streamHandler);
+                streams.put(Integer.valueOf(id), stream);
+            }
+            log.tracef("Opening stream %d", Integer.valueOf(stream.id));
+            writeFrame(STREAM_OPEN, stream.id, 0, false, null, 0, 0);
+            return stream.connection;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     @Override
     public void setMessageHandler(final MessageHandler messageHandler) {
+        primary.setMessageHandler(messageHandler);
+    }
+
+    @Override
+    public void setStreamMessageHandler(final MessageHandler messageHandler) {
         if (messageHandler == null) {
             throw new IllegalArgumentException("messageHandler is null");
         }
-        this.messageHandler = messageHandler;
+        streamHandler = messageHandler;
     }
 
     @Override
     public InetAddress getPeerAddress() {
-        synchronized (lock) {
-            final Socket socket = this.socket;
-            if (socket != null) {
-                return socket.getInetAddress();
-            } else {
-                return null;
-            }
-        }
+        return socket.getInetAddress();
     }
 
     @Override
     public void attach(final Object attachment) {
-        this.attachment = attachment;
+        primary.attachment = attachment;
     }
 
     @Override
     public Object getAttachment() {
-        return attachment;
+        return primary.attachment;
     }
 
     @Override
     public void backupMessageHandler() {
-        backupHandler = messageHandler;
+        primary.backupHandler = primary.messageHandler;
     }
 
     @Override
     public void restoreMessageHandler() {
-        MessageHandler handler = backupHandler;
-        setMessageHandler(handler == null ? MessageHandler.NULL : handler);
+        primary.restoreMessageHandler();
     }
 
+    /**
+     * Get the task which reads from a blocking socket until the input is exhausted.
+     *
+     * @return the read task
+     */
     Runnable getReadTask() {
         return new Runnable() {
             @Override
             public void run() {
-                boolean closed = false;
-                OutputStream mos = null;
+                boolean done = false;
                 try {
-                    Pipe pipe = null;
                     final InputStream is = socket.getInputStream();
-                    final int bufferSize = 8192;
-                    final byte[] buffer = new byte[bufferSize];
+                    final byte[] bytes = new byte[ProtocolSelector.BUFFER_SIZE];
+                    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
                     for (;;) {
-
-                        int cmd = is.read();
-                        switch (cmd) {
-                            case -1: {
-                                log.trace("Received end of stream");
-                                // end of stream
-                                safeHandleShutdown();
-                                boolean done;
-                                if (mos != null) {
-                                    mos.close();
-                                    pipe.await();
-                                }
-                                synchronized (lock) {
-                                    readDone = true;
-                                    done = writeDone;
-                                }
-                                if (done) {
-                                    StreamUtils.safeClose(socket);
-                                    safeHandleFinished();
-                                }
-                                closed = true;
-                                closed();
-                                return;
-                            }
-                            case CHUNK_START: {
-                                if (mos == null) {
-                                    pipe = new Pipe(8192);
-                                    // new message!
-                                    final InputStream pis = pipe.getIn();
-                                    mos = pipe.getOut();
-
-                                    readExecutor.execute(new Runnable() {
-                                        @Override
-                                        public void run() {
-                                            safeHandleMessage(new MessageInputStream(pis));
-                                        }
-                                    });
-                                }
-                                int cnt = StreamUtils.readInt(is);
-                                log.tracef("Received data chunk of size %d", Integer.valueOf(cnt));
-                                while (cnt > 0) {
-                                    int sc = is.read(buffer, 0, Math.min(cnt, bufferSize));
-                                    if (sc == -1) {
-                                        throw new EOFException("Unexpected end of stream");
-                                    }
-                                    mos.write(buffer, 0, sc);
-                                    cnt -= sc;
-                                }
-                                break;
-                            }
-                            case CHUNK_END: {
-                                log.trace("Received end data marker");
-                                if (mos != null) {
-                                    // end message
-                                    mos.close();
-                                    pipe.await();
-                                    mos = null;
-                                    pipe = null;
-                                }
-                                break;
-                            }
-                            default: {
-                                throw new IOException("Invalid command byte read: " + cmd);
-                            }
+                        final int cnt = is.read(bytes);
+                        if (cnt == -1) {
+                            log.trace("Received end of stream");
+                            done = true;
+                            receiveEndOfStream();
+                            return;
                         }
+                        buffer.clear();
+                        buffer.limit(cnt);
+                        frameReader.read(buffer);
                     }
                 } catch (IOException e) {
-                    safeHandlerFailure(e);
+                    done = true;
+                    readFailed(e);
                 } finally {
-                    StreamUtils.safeClose(mos);
-                    if (!closed) {
+                    if (!done) {
+                        endAllMessages();
                         closed();
                     }
                 }
@@ -269,9 +297,463 @@ final class ConnectionImpl implements Connection {
         };
     }
 
-    void safeHandleMessage(final InputStream pis) {
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    void setSelectionKey(final ProtocolSelector selector, final SelectionKey selectionKey) {
+        this.selector = selector;
+        this.selectionKey = selectionKey;
+    }
+
+    /**
+     * Read what is available from a non-blocking channel.  Called by the selector thread.
+     *
+     * @param buffer the buffer to read into
+     * @return {@code true} if the connection should be read from again, {@code false} once the input is exhausted
+     */
+    boolean handleReadable(final ByteBuffer buffer) {
+        try {
+            // read until the channel is drained, but leave the other channels of the selector a chance too
+            for (int i = 0; i < 16; i++) {
+                buffer.clear();
+                final int cnt = channel.read(buffer);
+                if (cnt == -1) {
+                    log.trace("Received end of stream");
+                    receiveEndOfStream();
+                    return false;
+                }
+                if (cnt == 0) {
+                    break;
+                }
+                lastRead = System.currentTimeMillis();
+                buffer.flip();
+                frameReader.read(buffer);
+            }
+            return true;
+        } catch (IOException e) {
+            readFailedLater(e);
+            return false;
+        } catch (RuntimeException e) {
+            readFailedLater(new IOException("Failed to read from channel", e));
+            return false;
+        }
+    }
+
+    /**
+     * Check whether the connection has been idle for longer than its read timeout.  Called by the selector thread.
+     *
+     * @param now the current time
+     * @return {@code true} if the connection should be read from again, {@code false} if it has timed out
+     */
+    boolean checkReadTimeout(final long now) {
+        if (readTimeout > 0 && now - lastRead > readTimeout) {
+            readFailedLater(new SocketTimeoutException("Read timed out"));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Note that the channel has become writable, or been closed.
+     */
+    void handleWritable() {
+        synchronized (writeReady) {
+            writable = true;
+            writeReady.notifyAll();
+        }
+    }
+
+    private void readFailedLater(final IOException e) {
+        // the handlers may block, which the selector thread must never do
+        readExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                readFailed(e);
+            }
+        });
+    }
+
+    private void readFailed(final IOException e) {
+        try {
+            final List<Stream> all;
+            synchronized (lock) {
+                all = new ArrayList<Stream>(streams.values());
+            }
+            for (Stream stream : all) {
+                safeHandlerFailure(stream, e);
+            }
+        } finally {
+            endAllMessages();
+            closed();
+        }
+    }
+
+    private OutputStream writeMessage(final Stream stream) throws IOException {
+        final MessageOutputStream sender;
+        synchronized (lock) {
+            for (;;) {
+                if (writeDone || stream.writeDone) {
+                    throw new IOException("Writes are already shut down");
+                }
+                if (stream.sender == null) {
+                    break;
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            sender = new MessageOutputStream(stream);
+            stream.sender = sender;
+            activeSenders++;
+        }
+        return new BufferedOutputStream(sender, MAX_CHUNK);
+    }
+
+    private void shutdownWrites(final Stream stream) throws IOException {
+        final boolean send;
+        final boolean finished;
+        synchronized (lock) {
+            if (stream.writeDone) return;
+            while (stream.sender != null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            stream.writeDone = true;
+            send = !writeDone;
+            finished = stream.readDone;
+            if (finished) {
+                streams.remove(Integer.valueOf(stream.id));
+            }
+            lock.notifyAll();
+        }
+        if (send) {
+            writeFrame(STREAM_SHUTDOWN, stream.id, 0, false, null, 0, 0);
+        }
+        if (finished) {
+            readExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    safeHandleFinished(stream);
+                }
+            });
+        }
+    }
+
+    private void close(final Stream stream) throws IOException {
+        final boolean send;
+        final InboundMessage message;
+        synchronized (lock) {
+            send = !stream.writeDone && !writeDone;
+            if (stream.sender != null) {
+                stream.sender = null;
+                activeSenders--;
+            }
+            stream.readDone = true;
+            stream.writeDone = true;
+            streams.remove(Integer.valueOf(stream.id));
+            message = stream.receiving;
+            stream.receiving = null;
+            lock.notifyAll();
+        }
+        if (message != null) {
+            message.end();
+        }
+        if (send) {
+            writeFrame(STREAM_SHUTDOWN, stream.id, 0, false, null, 0, 0);
+        }
+    }
+
+    private void receiveOpen(final int id) throws IOException {
+        synchronized (lock) {
+            if (id <= lastPeerStreamId || (id & 1) != (client ? 0 : 1)) {
+                throw new IOException("Invalid stream id opened by peer: " + id);
+            }
+            lastPeerStreamId = id;
+            // not the connection's current handler, which may be in the middle of a request of its own
+            streams.put(Integer.valueOf(id), new Stream(id, streamHandler));
+        }
+    }
+
+    private void receiveChunk(final int id, final byte[] data) {
+        InboundMessage message = null;
+        synchronized (lock) {
+            final Stream stream = streams.get(Integer.valueOf(id));
+            if (stream != null && !stream.readDone) {
+                message = stream.receiving;
+                if (message == null) {
+                    message = stream.receiving = new InboundMessage(stream);
+                    deliver(stream, message);
+                }
+            }
+        }
+        if (message != null) {
+            message.add(data);
+        } else {
+            // nobody will read it; hand the credit straight back so the peer's writer isn't left waiting
+            sendCreditLater(id, data.length);
+        }
+    }
+
+    private void receiveEnd(final int id) {
+        final InboundMessage message;
+        synchronized (lock) {
+            final Stream stream = streams.get(Integer.valueOf(id));
+            if (stream == null || stream.receiving == null) {
+                return;
+            }
+            message = stream.receiving;
+            stream.receiving = null;
+        }
+        message.end();
+    }
+
+    private void receiveCredit(final int id, final int credit) {
+        synchronized (lock) {
+            final Stream stream = streams.get(Integer.valueOf(id));
+            if (stream != null) {
+                stream.sendWindow += credit;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void receiveShutdown(final int id) {
+        final InboundMessage message;
+        synchronized (lock) {
+            final Stream stream = streams.get(Integer.valueOf(id));
+            if (stream == null || stream == primary || stream.readDone) {
+                // the primary stream is shut down by shutting down the socket
+                return;
+            }
+            message = stream.receiving;
+            stream.receiving = null;
+            deliver(stream, new StreamShutdownTask(stream));
+        }
+        if (message != null) {
+            message.end();
+        }
+    }
+
+    private void receiveEndOfStream() {
+        synchronized (lock) {
+            for (Stream stream : streams.values()) {
+                if (stream == primary) {
+                    deliver(stream, new Runnable() {
+                        @Override
+                        public void run() {
+                            safeHandleShutdown(primary);
+                            boolean done;
+                            synchronized (lock) {
+                                readDone = true;
+                                done = writeDone;
+                            }
+                            if (done) {
+                                StreamUtils.safeClose(socket);
+                                safeHandleFinished(primary);
+                            }
+                            closed();
+                        }
+                    });
+                } else if (!stream.readDone) {
+                    deliver(stream, new StreamShutdownTask(stream));
+                }
+            }
+        }
+        endAllMessages();
+    }
+
+    private void endAllMessages() {
+        final List<InboundMessage> messages = new ArrayList<InboundMessage>();
+        synchronized (lock) {
+            for (Stream stream : streams.values()) {
+                if (stream.receiving != null) {
+                    messages.add(stream.receiving);
+                    stream.receiving = null;
+                }
+            }
+        }
+        for (InboundMessage message : messages) {
+            message.end();
+        }
+    }
+
+    /**
+     * Queue an inbound message or task for delivery to the stream's handler.  Deliveries to a stream are made one at
+     * a time; a message counts as delivered once its input stream is closed.  Must be called with {@link #lock} held.
+     */
+    private void deliver(final Stream stream, final Object event) {
+        stream.pending.add(event);
+        if (!stream.delivering) {
+            deliverNext(stream);
+        }
+    }
+
+    /**
+     * Must be called with {@link #lock} held.
+     */
+    private void deliverNext(final Stream stream) {
+        final Object next = stream.pending.poll();
+        if (next == null) {
+            stream.delivering = false;
+            return;
+        }
+        stream.delivering = true;
+        if (next instanceof InboundMessage) {
+            final InboundMessage message = (InboundMessage) next;
+            readExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    safeHandleMessage(stream, new MessageInputStream(message));
+                }
+            });
+        } else {
+            final Runnable task = (Runnable) next;
+            readExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        synchronized (lock) {
+                            deliverNext(stream);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Record that {@code count} bytes of the stream have been consumed, and send the peer more credit once enough has
+     * accumulated.
+     *
+     * @param mayBlock {@code false} if the credit must not be written by the calling thread
+     */
+    private void grantCredit(final Stream stream, final int count, final boolean mayBlock) {
+        if (count == 0) {
+            return;
+        }
+        final int credit;
+        synchronized (lock) {
+            stream.unacknowledged += count;
+            if (stream.unacknowledged < INITIAL_WINDOW / 2 || writeDone) {
+                return;
+            }
+            credit = stream.unacknowledged;
+            stream.unacknowledged = 0;
+        }
+        if (mayBlock) {
+            sendCredit(stream.id, credit);
+        } else {
+            sendCreditLater(stream.id, credit);
+        }
+    }
+
+    private void sendCreditLater(final int id, final int credit) {
+        readExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                sendCredit(id, credit);
+            }
+        });
+    }
+
+    private void sendCredit(final int id, final int credit) {
         try {
-            messageHandler.handleMessage(this, pis);
+            writeFrame(STREAM_WINDOW, id, credit, true, null, 0, 0);
+        } catch (IOException e) {
+            log.tracef(e, "Failed to send credit for stream %d", Integer.valueOf(id));
+        }
+    }
+
+    private void writeFrame(final int cmd, final int id, final int value, final boolean hasValue, final byte[] b, final int off, final int len) throws IOException {
+        writeLock.lock();
+        try {
+            final byte[] hdr = frameHeader;
+            hdr[0] = (byte) cmd;
+            hdr[1] = (byte) (id >> 24);
+            hdr[2] = (byte) (id >> 16);
+            hdr[3] = (byte) (id >> 8);
+            hdr[4] = (byte) (id >> 0);
+            if (hasValue) {
+                hdr[5] = (byte) (value >> 24);
+                hdr[6] = (byte) (value >> 16);
+                hdr[7] = (byte) (value >> 8);
+                hdr[8] = (byte) (value >> 0);
+            }
+            final int hdrLen = hasValue ? 9 : 5;
+            if (channel != null) {
+                final ByteBuffer buffer = ProtocolSelector.allocateBuffer();
+                try {
+                    buffer.put(hdr, 0, hdrLen);
+                    if (len > 0) {
+                        buffer.put(b, off, len);
+                    }
+                    buffer.flip();
+                    writeFully(buffer);
+                } finally {
+                    ProtocolSelector.freeBuffer(buffer);
+                }
+            } else {
+                OutputStream output = this.output;
+                if (output == null) {
+                    output = this.output = new BufferedOutputStream(socket.getOutputStream(), ProtocolSelector.BUFFER_SIZE);
+                }
+                output.write(hdr, 0, hdrLen);
+                if (len > 0) {
+                    output.write(b, off, len);
+                }
+                output.flush();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Write the buffer to the non-blocking channel, waiting for the selector to report the channel writable whenever
+     * the socket buffer is full.  Must be called with {@link #writeLock} held.
+     */
+    private void writeFully(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.write(buffer) > 0) {
+                continue;
+            }
+            final SelectionKey key = selectionKey;
+            if (key == null) {
+                throw new IOException("Connection is not registered with a selector");
+            }
+            synchronized (writeReady) {
+                writable = false;
+            }
+            selector.requestWritable(key, this);
+            synchronized (writeReady) {
+                while (!writable) {
+                    if (!channel.isOpen()) {
+                        throw new IOException("Write channel closed");
+                    }
+                    try {
+                        writeReady.wait(1000L);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                }
+            }
+        }
+    }
+
+    void safeHandleMessage(final Stream stream, final InputStream pis) {
+        try {
+            stream.messageHandler.handleMessage(stream.connection, pis);
         } catch (RuntimeException e) {
             log.errorf(e, "Failed to read a message");
         } catch (IOException e) {
@@ -286,113 +768,501 @@ final class ConnectionImpl implements Connection {
         }
     }
 
-    void safeHandleShutdown() {
+    void safeHandleShutdown(final Stream stream) {
         try {
-            messageHandler.handleShutdown(this);
+            stream.messageHandler.handleShutdown(stream.connection);
         } catch (IOException e) {
             log.errorf(e, "Failed to handle socket shut down condition");
         }
     }
 
-    void safeHandleFinished() {
+    void safeHandleFinished(final Stream stream) {
         try {
-            messageHandler.handleFinished(this);
+            stream.messageHandler.handleFinished(stream.connection);
         } catch (IOException e) {
             log.errorf(e, "Failed to handle socket finished condition");
         }
     }
 
-    void safeHandlerFailure(IOException e) {
+    void safeHandlerFailure(final Stream stream, final IOException e) {
         try {
-            messageHandler.handleFailure(this, e);
+            stream.messageHandler.handleFailure(stream.connection, e);
         } catch (IOException e1) {
             log.errorf(e1, "Failed to handle socket failure condition");
         }
     }
 
-    final class MessageInputStream extends FilterInputStream {
+    /**
+     * Decodes the frames read from the socket, whatever size pieces they arrive in.
+     */
+    final class FrameReader {
+        private final byte[] header = new byte[8];
+        private int command = -1;
+        private int headerLength;
+        private int headerPosition;
+        private int chunkStream;
+        private byte[] chunk;
+        private int chunkPosition;
+
+        void read(final ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (chunk != null) {
+                    final int cnt = Math.min(buffer.remaining(), chunk.length - chunkPosition);
+                    buffer.get(chunk, chunkPosition, cnt);
+                    chunkPosition += cnt;
+                    if (chunkPosition == chunk.length) {
+                        final byte[] data = chunk;
+                        chunk = null;
+                        receiveChunk(chunkStream, data);
+                    }
+                    continue;
+                }
+                if (command == -1) {
+                    command = buffer.get() & 0xff;
+                    headerPosition = 0;
+                    switch (command) {
+                        case CHUNK_START:
+                        case STREAM_WINDOW: {
+                            headerLength = 8;
+                            break;
+                        }
+                        case CHUNK_END:
+                        case STREAM_OPEN:
+                        case STREAM_SHUTDOWN: {
+                            headerLength = 4;
+                            break;
+                        }
+                        default: {
+                            throw new IOException("Invalid command byte read: " + command);
+                        }
+                    }
+                }
+                final int cnt = Math.min(buffer.remaining(), headerLength - headerPosition);
+                buffer.get(header, headerPosition, cnt);
+                headerPosition += cnt;
+                if (headerPosition == headerLength) {
+                    final int cmd = command;
+                    command = -1;
+                    handleFrame(cmd, getInt(0), headerLength == 8 ? getInt(4) : 0);
+                }
+            }
+        }
 
-        protected MessageInputStream(InputStream in) {
-            super(in);
+        private int getInt(final int offset) {
+            final byte[] header = this.header;
+            return (header[offset] & 0xff) << 24 | (header[offset + 1] & 0xff) << 16 | (header[offset + 2] & 0xff) << 8 | (header[offset + 3] & 0xff);
+        }
+
+        private void handleFrame(final int cmd, final int id, final int value) throws IOException {
+            switch (cmd) {
+                case CHUNK_START: {
+                    log.tracef("Received data chunk of size %d on stream %d", Integer.valueOf(value), Integer.valueOf(id));
+                    if (value <= 0 || value > MAX_CHUNK) {
+                        throw new IOException("Invalid chunk size: " + value);
+                    }
+                    chunkStream = id;
+                    chunk = new byte[value];
+                    chunkPosition = 0;
+                    break;
+                }
+                case CHUNK_END: {
+                    log.tracef("Received end data marker on stream %d", Integer.valueOf(id));
+                    receiveEnd(id);
+                    break;
+                }
+                case STREAM_OPEN: {
+                    log.tracef("Peer opened stream %d", Integer.valueOf(id));
+                    receiveOpen(id);
+                    break;
+                }
+                case STREAM_WINDOW: {
+                    receiveCredit(id, value);
+                    break;
+                }
+                case STREAM_SHUTDOWN: {
+                    log.tracef("Received shutdown of stream %d", Integer.valueOf(id));
+                    receiveShutdown(id);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of one logical stream.  Fields without their own synchronization are protected by {@link #lock}.
+     */
+    final class Stream {
+        final int id;
+        final Connection connection;
+        volatile MessageHandler messageHandler;
+        volatile MessageHandler backupHandler;
+        volatile Object attachment;
+
+        MessageOutputStream sender;
+        int sendWindow = INITIAL_WINDOW;
+        int unacknowledged;
+        boolean readDone;
+        boolean writeDone;
+        InboundMessage receiving;
+        final ArrayDeque<Object> pending = new ArrayDeque<Object>();
+        boolean delivering;
+
+        Stream(final int id, final MessageHandler messageHandler) {
+            this.id = id;
+            this.messageHandler = messageHandler;
+            connection = id == PRIMARY_STREAM ? ConnectionImpl.this : new StreamConnection(this);
+        }
+
+        void setMessageHandler(final MessageHandler messageHandler) {
+            if (messageHandler == null) {
+                throw new IllegalArgumentException("messageHandler is null");
+            }
+            this.messageHandler = messageHandler;
+        }
+
+        void restoreMessageHandler() {
+            MessageHandler handler = backupHandler;
+            setMessageHandler(handler == null ? MessageHandler.NULL : handler);
+        }
+    }
+
+    /**
+     * Handles the peer's shutdown of a stream once all of its earlier messages have been delivered.
+     */
+    final class StreamShutdownTask implements Runnable {
+        private final Stream stream;
+
+        StreamShutdownTask(final Stream stream) {
+            this.stream = stream;
         }
 
         @Override
-        public void close() throws IOException {
-            try {
-                while (in.read() != -1) {}
-            } finally {
-                super.close();
+        public void run() {
+            safeHandleShutdown(stream);
+            final boolean finished;
+            synchronized (lock) {
+                stream.readDone = true;
+                finished = stream.writeDone && streams.remove(Integer.valueOf(stream.id)) != null;
+            }
+            if (finished) {
+                safeHandleFinished(stream);
             }
         }
     }
 
-    final class MessageOutputStream extends FilterOutputStream {
+    /**
+     * The view of a stream other than the primary one.
+     */
+    final class StreamConnection implements Connection {
+        private final Stream stream;
 
-        private final byte[] hdr = new byte[5];
+        StreamConnection(final Stream stream) {
+            this.stream = stream;
+        }
 
-        MessageOutputStream() throws IOException {
-            super(socket.getOutputStream());
+        @Override
+        public OutputStream writeMessage() throws IOException {
+            return ConnectionImpl.this.writeMessage(stream);
         }
 
         @Override
-        public void write(final int b) throws IOException {
-            throw new IllegalStateException();
+        public void shutdownWrites() throws IOException {
+            ConnectionImpl.this.shutdownWrites(stream);
+        }
+
+        @Override
+        public void close() throws IOException {
+            ConnectionImpl.this.close(stream);
+        }
+
+        @Override
+        public Connection openStream() throws IOException {
+            return ConnectionImpl.this.openStream();
+        }
+
+        @Override
+        public void setMessageHandler(final MessageHandler messageHandler) {
+            stream.setMessageHandler(messageHandler);
+        }
+
+        @Override
+        public void setStreamMessageHandler(final MessageHandler messageHandler) {
+            ConnectionImpl.this.setStreamMessageHandler(messageHandler);
+        }
+
+        @Override
+        public InetAddress getPeerAddress() {
+            return ConnectionImpl.this.getPeerAddress();
+        }
+
+        @Override
+        public void attach(final Object attachment) {
+            stream.attachment = attachment;
         }
 
         @Override
-        public void write(final byte[] b, final int off, final int len) throws IOException {
+        public Object getAttachment() {
+            return stream.attachment;
+        }
+
+        @Override
+        public void backupMessageHandler() {
+            stream.backupHandler = stream.messageHandler;
+        }
+
+        @Override
+        public void restoreMessageHandler() {
+            stream.restoreMessageHandler();
+        }
+
+        @Override
+        public String toString() {
+            return "stream " + stream.id + " to " + getPeerAddress();
+        }
+    }
+
+    /**
+     * The data of one inbound message, queued as it arrives.
+     */
+    final class InboundMessage {
+        private final Stream stream;
+        // protected by this
+        private final ArrayDeque<byte[]> chunks = new ArrayDeque<byte[]>();
+        // protected by this
+        private byte[] current;
+        // protected by this
+        private int position;
+        // protected by this
+        private boolean ended;
+        // protected by this
+        private boolean closed;
+
+        InboundMessage(final Stream stream) {
+            this.stream = stream;
+        }
+
+        void add(final byte[] data) {
+            synchronized (this) {
+                if (!closed) {
+                    chunks.add(data);
+                    notifyAll();
+                    return;
+                }
+            }
+            // called by the read thread, which must not block on writes
+            grantCredit(stream, data.length, false);
+        }
+
+        synchronized void end() {
+            ended = true;
+            notifyAll();
+        }
+
+        int read() throws IOException {
+            final int b;
+            synchronized (this) {
+                final byte[] current = awaitData();
+                if (current == null) {
+                    return -1;
+                }
+                b = current[position++] & 0xff;
+            }
+            grantCredit(stream, 1, true);
+            return b;
+        }
+
+        int read(final byte[] b, final int off, final int len) throws IOException {
             if (len == 0) {
-                return;
+                return 0;
+            }
+            final int cnt;
+            synchronized (this) {
+                final byte[] current = awaitData();
+                if (current == null) {
+                    return -1;
+                }
+                cnt = Math.min(len, current.length - position);
+                System.arraycopy(current, position, b, off, cnt);
+                position += cnt;
+            }
+            grantCredit(stream, cnt, true);
+            return cnt;
+        }
+
+        /**
+         * Must be called with this object's monitor held.
+         *
+         * @return a chunk with unread data, or {@code null} at the end of the message
+         */
+        private byte[] awaitData() throws InterruptedIOException {
+            for (;;) {
+                if (closed) {
+                    return null;
+                }
+                if (current != null && position < current.length) {
+                    return current;
+                }
+                current = chunks.poll();
+                position = 0;
+                if (current == null) {
+                    if (ended) {
+                        return null;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                }
             }
-            final byte[] hdr = this.hdr;
-            hdr[0] = (byte) CHUNK_START;
-            hdr[1] = (byte) (len >> 24);
-            hdr[2] = (byte) (len >> 16);
-            hdr[3] = (byte) (len >> 8);
-            hdr[4] = (byte) (len >> 0);
+        }
+
+        void close() {
+            int discarded = 0;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (current != null) {
+                    discarded += current.length - position;
+                    current = null;
+                }
+                for (byte[] chunk : chunks) {
+                    discarded += chunk.length;
+                }
+                chunks.clear();
+                notifyAll();
+            }
+            grantCredit(stream, discarded, true);
             synchronized (lock) {
-                if (sender != this || writeDone) {
-                    if (sender == this) sender = null;
-                    lock.notifyAll();
-                    throw new IOException("Write channel closed");
+                deliverNext(stream);
+            }
+        }
+    }
+
+    final class MessageInputStream extends InputStream {
+
+        private final InboundMessage message;
+
+        MessageInputStream(final InboundMessage message) {
+            this.message = message;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return message.read();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return message.read(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            message.close();
+        }
+    }
+
+    final class MessageOutputStream extends OutputStream {
+
+        private final Stream stream;
+
+        MessageOutputStream(final Stream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void write(final byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                final int cnt;
+                synchronized (lock) {
+                    for (;;) {
+                        if (stream.sender != this || writeDone) {
+                            release();
+                            throw new IOException("Write channel closed");
+                        }
+                        if (stream.sendWindow > 0) {
+                            break;
+                        }
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException();
+                        }
+                    }
+                    cnt = Math.min(len, Math.min(MAX_CHUNK, stream.sendWindow));
+                    stream.sendWindow -= cnt;
                 }
-                log.tracef("Sending data chunk of size %d", Integer.valueOf(len));
-                out.write(hdr);
-                out.write(b, off, len);
+                log.tracef("Sending data chunk of size %d on stream %d", Integer.valueOf(cnt), Integer.valueOf(stream.id));
+                writeFrame(CHUNK_START, stream.id, cnt, true, b, off, cnt);
+                off += cnt;
+                len -= cnt;
             }
         }
 
         @Override
         public void close() throws IOException {
             synchronized (lock) {
-                if (sender != this) {
+                if (stream.sender != this) {
                     return;
                 }
-                sender = null;
-                // wake up waiters
-                lock.notify();
-                if (writeDone) throw new IOException("Write channel closed");
-                if (readDone) {
-                    readExecutor.execute(new Runnable() {
-                        @Override
-                        public void run() {
-                            safeHandleFinished();
-                        }
-                    });
+                if (writeDone) {
+                    release();
+                    throw new IOException("Write channel closed");
                 }
-                log.tracef("Sending end of message");
-                out.write(CHUNK_END);
+            }
+            final boolean finished;
+            try {
+                log.tracef("Sending end of message on stream %d", Integer.valueOf(stream.id));
+                // the end marker must go out before the next message on this stream can start
+                writeFrame(CHUNK_END, stream.id, 0, false, null, 0, 0);
+            } finally {
+                synchronized (lock) {
+                    release();
+                    finished = stream == primary && readDone;
+                }
+            }
+            if (finished) {
+                readExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        safeHandleFinished(primary);
+                    }
+                });
+            }
+        }
+
+        /**
+         * Must be called with {@link #lock} held.
+         */
+        private void release() {
+            if (stream.sender == this) {
+                stream.sender = null;
+                activeSenders--;
+                // wake up waiters
+                lock.notifyAll();
             }
         }
 
         @Override
         protected void finalize() throws Throwable {
             super.finalize();
+            final boolean leaked;
             synchronized (lock) {
-                if (sender == this) {
-                    log.warnf("Leaked a message output stream; cleaning");
-                    close();
-                }
+                leaked = stream.sender == this;
+            }
+            if (leaked) {
+                log.warnf("Leaked a message output stream; cleaning");
+                close();
             }
         }
     }
@@ -68,12 +68,17 @@ public interface MessageHandler {
      */
     void handleFinished(Connection connection) throws IOException;
 
+    /**
+     * A handler which discards messages and shuts down writes once the peer has shut down its side, so that a
+     * connection or stream left with this handler can finish.
+     */
     MessageHandler NULL = new MessageHandler() {
         public void handleMessage(final Connection connection, final InputStream dataStream) throws IOException {
             dataStream.close();
         }
 
         public void handleShutdown(final Connection connection) throws IOException {
+            connection.shutdownWrites();
         }
 
         public void handleFailure(final Connection connection, final IOException e) throws IOException {
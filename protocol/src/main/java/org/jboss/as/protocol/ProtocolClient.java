@@ -25,6 +25,7 @@ package org.jboss.as.protocol;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 
@@ -34,7 +35,8 @@ import org.jboss.logging.Logger;
 import javax.net.SocketFactory;
 
 /**
- * A protocol client for management commands, which can also asynchronously receive protocol messages.
+ * A protocol client for management commands, which can also asynchronously receive protocol messages.  Unless a custom
+ * {@link SocketFactory} is configured, the connection uses a non-blocking channel which is read by a selector thread.
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
@@ -80,8 +82,11 @@ public final class ProtocolClient {
 
     public Connection connect() throws IOException {
         log.tracef("Creating connection to %s", serverAddress);
+        if (socketFactory == SocketFactory.getDefault()) {
+            return connectNonBlocking();
+        }
         final Socket socket = socketFactory.createSocket();
-        final ConnectionImpl connection = new ConnectionImpl(socket, messageHandler, readExecutor, callback);
+        final ConnectionImpl connection = new ConnectionImpl(socket, messageHandler, readExecutor, callback, true);
         final Thread thread = threadFactory.newThread(connection.getReadTask());
         if (thread == null) {
             throw new IllegalStateException("Thread creation was refused");
@@ -95,6 +100,33 @@ public final class ProtocolClient {
         return connection;
     }
 
+    private Connection connectNonBlocking() throws IOException {
+        final SocketChannel channel = SocketChannel.open();
+        ProtocolSelector selector = null;
+        boolean ok = false;
+        try {
+            final Socket socket = channel.socket();
+            if (bindAddress != null) socket.bind(bindAddress);
+            // connect in blocking mode so that the timeout applies
+            socket.connect(serverAddress, connectTimeout);
+            channel.configureBlocking(false);
+            final ConnectionImpl connection = new ConnectionImpl(channel, readTimeout, messageHandler, readExecutor, callback, true);
+            selector = new ProtocolSelector(threadFactory, 1, "Read thread for " + serverAddress);
+            selector.register(connection);
+            ok = true;
+            log.tracef("Connected to %s", serverAddress);
+            return connection;
+        } finally {
+            if (selector != null) {
+                // the selector thread finishes once the connection is closed
+                selector.shutdown();
+            }
+            if (!ok) {
+                StreamUtils.safeClose(channel);
+            }
+        }
+    }
+
     public static final class Configuration {
         private ThreadFactory threadFactory;
         private SocketFactory socketFactory;
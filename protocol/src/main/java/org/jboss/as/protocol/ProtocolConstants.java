@@ -28,6 +28,9 @@ package org.jboss.as.protocol;
 public final class ProtocolConstants {
     public static final int CHUNK_START = 0x98;
     public static final int CHUNK_END = 0x99;
+    public static final int STREAM_OPEN = 0x9A;
+    public static final int STREAM_WINDOW = 0x9B;
+    public static final int STREAM_SHUTDOWN = 0x9C;
 
     private ProtocolConstants() {
     }
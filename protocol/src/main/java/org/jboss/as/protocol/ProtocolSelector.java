@@ -0,0 +1,347 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A small group of threads which each run a {@link Selector}, serving the reads, writes and accepts of any number of
+ * non-blocking channels.  Channels are spread over the threads round-robin.
+ * <p>
+ * Message handling never happens on a selector thread; the connections hand it to their read executor.  Writers
+ * write directly to their channel, and only involve the selector thread to wait for a full socket buffer to drain.
+ * </p>
+ */
+final class ProtocolSelector {
+
+    private static final Logger log = Logger.getLogger("org.jboss.as.protocol.selector");
+
+    /** The size of the pooled buffers, which hold a frame header and the largest chunk */
+    static final int BUFFER_SIZE = ConnectionImpl.MAX_CHUNK + 16;
+
+    private static final int MAX_POOLED_BUFFERS = 64;
+    private static final long SELECT_TIMEOUT = 1000L;
+
+    private static final Queue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<ByteBuffer>();
+    private static final AtomicInteger pooledBuffers = new AtomicInteger();
+
+    private final SelectorThread[] threads;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Create and start the selector threads.
+     *
+     * @param threadFactory the factory for the selector threads
+     * @param count the number of threads
+     * @param name the name of the threads
+     * @throws IOException if a selector cannot be opened
+     */
+    ProtocolSelector(final ThreadFactory threadFactory, final int count, final String name) throws IOException {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be at least 1");
+        }
+        threads = new SelectorThread[count];
+        boolean ok = false;
+        try {
+            for (int i = 0; i < count; i++) {
+                final SelectorThread selectorThread = new SelectorThread(Selector.open());
+                threads[i] = selectorThread;
+                final Thread thread = threadFactory.newThread(selectorThread);
+                if (thread == null) {
+                    throw new IllegalStateException("Thread creation was refused");
+                }
+                thread.setName(count == 1 ? name : name + " " + (i + 1));
+                selectorThread.thread = thread;
+                thread.start();
+            }
+            ok = true;
+        } finally {
+            if (!ok) {
+                shutdown();
+            }
+        }
+    }
+
+    /**
+     * Register a channel with one of the selector threads.
+     *
+     * @param channel the channel, which must be in non-blocking mode
+     * @param ops the interest set
+     * @param attachment the {@link ConnectionImpl} or {@link Acceptor} which handles the channel's events
+     * @return the key
+     * @throws IOException if the registration fails
+     */
+    SelectionKey register(final SelectableChannel channel, final int ops, final Object attachment) throws IOException {
+        final SelectorThread[] threads = this.threads;
+        return threads[(next.getAndIncrement() & Integer.MAX_VALUE) % threads.length].register(channel, ops, attachment);
+    }
+
+    /**
+     * Register a connection for reads.
+     *
+     * @param connection the connection
+     * @throws IOException if the registration fails
+     */
+    void register(final ConnectionImpl connection) throws IOException {
+        connection.setSelectionKey(this, register(connection.getChannel(), SelectionKey.OP_READ, connection));
+    }
+
+    /**
+     * Wait until the key's channel can be written to.  Must not be called by a selector thread.
+     *
+     * @param key the key of the channel
+     * @param connection the connection, which is {@linkplain ConnectionImpl#handleWritable() notified} when the
+     *        channel becomes writable
+     * @throws IOException if called by a selector thread
+     */
+    void requestWritable(final SelectionKey key, final ConnectionImpl connection) throws IOException {
+        for (SelectorThread selectorThread : threads) {
+            if (selectorThread.selector == key.selector()) {
+                if (Thread.currentThread() == selectorThread.thread) {
+                    throw new IOException("A selector thread cannot wait for a channel to become writable");
+                }
+                selectorThread.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        } catch (CancelledKeyException e) {
+                            // closed; wake the writer so it can find out
+                            connection.handleWritable();
+                        }
+                    }
+                });
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Key was not registered with this selector");
+    }
+
+    /**
+     * Stop the selector threads once all of their channels have been closed.
+     */
+    void shutdown() {
+        for (SelectorThread thread : threads) {
+            if (thread != null) {
+                thread.shutdown = true;
+                thread.selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Take a direct buffer of {@link #BUFFER_SIZE} bytes from the pool.
+     *
+     * @return the cleared buffer
+     */
+    static ByteBuffer allocateBuffer() {
+        final ByteBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        pooledBuffers.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Return a buffer taken with {@link #allocateBuffer()} to the pool.
+     *
+     * @param buffer the buffer
+     */
+    static void freeBuffer(final ByteBuffer buffer) {
+        if (pooledBuffers.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            bufferPool.add(buffer);
+        } else {
+            pooledBuffers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Handles the readiness of a server channel to accept.
+     */
+    interface Acceptor {
+        void handleAcceptable();
+    }
+
+    static final class SelectorThread implements Runnable {
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+        private volatile Thread thread;
+        private volatile boolean shutdown;
+
+        SelectorThread(final Selector selector) {
+            this.selector = selector;
+        }
+
+        SelectionKey register(final SelectableChannel channel, final int ops, final Object attachment) throws IOException {
+            if (Thread.currentThread() == thread) {
+                return channel.register(selector, ops, attachment);
+            }
+            final FutureTask<SelectionKey> task = new FutureTask<SelectionKey>(new Callable<SelectionKey>() {
+                public SelectionKey call() throws IOException {
+                    return channel.register(selector, ops, attachment);
+                }
+            });
+            execute(task);
+            boolean intr = false;
+            try {
+                for (;;) {
+                    try {
+                        return task.get();
+                    } catch (InterruptedException e) {
+                        intr = true;
+                    } catch (ExecutionException e) {
+                        final Throwable cause = e.getCause();
+                        if (cause instanceof IOException) {
+                            throw (IOException) cause;
+                        }
+                        throw new IOException("Failed to register channel", cause);
+                    }
+                }
+            } finally {
+                if (intr) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        void execute(final Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        public void run() {
+            try {
+                long lastTimeoutCheck = System.currentTimeMillis();
+                for (;;) {
+                    runTasks();
+                    if (shutdown && selector.keys().isEmpty()) {
+                        break;
+                    }
+                    selector.select(SELECT_TIMEOUT);
+                    runTasks();
+                    final Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                    while (iterator.hasNext()) {
+                        final SelectionKey key = iterator.next();
+                        iterator.remove();
+                        handleKey(key);
+                    }
+                    final long now = System.currentTimeMillis();
+                    if (now - lastTimeoutCheck >= SELECT_TIMEOUT) {
+                        lastTimeoutCheck = now;
+                        checkReadTimeouts(now);
+                    }
+                }
+            } catch (IOException e) {
+                log.errorf(e, "Selector failed");
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    StreamUtils.safeClose(key.channel());
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    log.errorf(e, "Failed to close selector");
+                }
+                // fail any registration which was still waiting
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    if (task instanceof FutureTask) {
+                        ((FutureTask<?>) task).cancel(false);
+                    }
+                }
+            }
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.errorf(e, "Selector task failed");
+                }
+            }
+        }
+
+        private void handleKey(final SelectionKey key) {
+            try {
+                final Object attachment = key.attachment();
+                if (attachment instanceof Acceptor) {
+                    if (key.isAcceptable()) {
+                        ((Acceptor) attachment).handleAcceptable();
+                    }
+                    return;
+                }
+                final ConnectionImpl connection = (ConnectionImpl) attachment;
+                final int ready = key.readyOps();
+                if ((ready & SelectionKey.OP_WRITE) != 0) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                    connection.handleWritable();
+                }
+                if ((ready & SelectionKey.OP_READ) != 0) {
+                    if (!connection.handleReadable(readBuffer)) {
+                        // no more input; the key stays registered for writes until the channel is closed
+                        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                    }
+                }
+            } catch (CancelledKeyException e) {
+                // the channel was closed
+            } catch (RuntimeException e) {
+                // don't let one channel take down the others served by this thread
+                log.errorf(e, "Failed to handle channel %s", key.channel());
+                StreamUtils.safeClose(key.channel());
+            }
+        }
+
+        private void checkReadTimeouts(final long now) {
+            for (SelectionKey key : selector.keys()) {
+                final Object attachment = key.attachment();
+                if (attachment instanceof ConnectionImpl && key.isValid() && (key.interestOps() & SelectionKey.OP_READ) != 0) {
+                    try {
+                        if (!((ConnectionImpl) attachment).checkReadTimeout(now)) {
+                            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                        }
+                    } catch (CancelledKeyException e) {
+                        // the channel was closed
+                    }
+                }
+            }
+        }
+    }
+}
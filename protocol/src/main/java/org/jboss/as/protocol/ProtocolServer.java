@@ -27,6 +27,9 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 
@@ -36,6 +39,10 @@ import org.jboss.as.protocol.Connection.ClosedCallback;
 import org.jboss.logging.Logger;
 
 /**
+ * A server accepting protocol connections.  Unless a custom {@link ServerSocketFactory} is configured, the server uses
+ * non-blocking channels, and the accepts and reads of all its connections are served by a few shared selector threads
+ * rather than a thread per connection.
+ *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
 public final class ProtocolServer {
@@ -54,6 +61,9 @@ public final class ProtocolServer {
     private volatile ServerSocket serverSocket;
     private volatile InetSocketAddress boundAddress;
     private final ClosedCallback callback;
+    private final int selectorThreads;
+    private volatile ProtocolSelector selector;
+    private volatile ServerSocketChannel serverChannel;
 
     public ProtocolServer(final Configuration configuration) throws IOException {
         threadFactory = configuration.getThreadFactory();
@@ -64,6 +74,7 @@ public final class ProtocolServer {
         readTimeout = configuration.getReadTimeout();
         readExecutor = configuration.getReadExecutor();
         callback = configuration.getClosedCallback();
+        selectorThreads = configuration.getSelectorThreads();
         if (bindAddress == null) {
             throw new IllegalArgumentException("bindAddress is null");
         }
@@ -75,6 +86,11 @@ public final class ProtocolServer {
     public void start() throws IOException {
         stop = false;
 
+        if (socketFactory == null || socketFactory == ServerSocketFactory.getDefault()) {
+            startNonBlocking();
+            return;
+        }
+
         final ServerSocket serverSocket = socketFactory.createServerSocket();
         this.serverSocket = serverSocket;
         thread = threadFactory.newThread(new Runnable() {
@@ -123,6 +139,35 @@ public final class ProtocolServer {
         thread.start();
     }
 
+    private void startNonBlocking() throws IOException {
+        int count = selectorThreads;
+        if (count <= 0) {
+            count = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        }
+        final ProtocolSelector selector = new ProtocolSelector(threadFactory, count, "Selector thread for " + bindAddress);
+        final ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        boolean ok = false;
+        try {
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.socket().bind(bindAddress, backlog);
+            serverChannel.configureBlocking(false);
+            boundAddress = (InetSocketAddress) serverChannel.socket().getLocalSocketAddress();
+            this.selector = selector;
+            this.serverChannel = serverChannel;
+            selector.register(serverChannel, SelectionKey.OP_ACCEPT, new ProtocolSelector.Acceptor() {
+                public void handleAcceptable() {
+                    acceptConnections(serverChannel, selector);
+                }
+            });
+            ok = true;
+        } finally {
+            if (!ok) {
+                StreamUtils.safeClose(serverChannel);
+                selector.shutdown();
+            }
+        }
+    }
+
     public void stop() {
         stop = true;
         final Thread thread = this.thread;
@@ -132,13 +177,58 @@ public final class ProtocolServer {
             thread.interrupt();
         }
         StreamUtils.safeClose(serverSocket);
+        StreamUtils.safeClose(serverChannel);
+        final ProtocolSelector selector = this.selector;
+        if (selector != null) {
+            // the selector threads finish once the connections already accepted are closed
+            selector.shutdown();
+        }
+    }
+
+    private void acceptConnections(final ServerSocketChannel serverChannel, final ProtocolSelector selector) {
+        for (;;) {
+            final SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                if (!stop) {
+                    log.errorf(e, "Failed to accept a connection");
+                }
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+            safeHandleConnection(channel, selector);
+        }
+    }
+
+    private void safeHandleConnection(final SocketChannel channel, final ProtocolSelector selector) {
+        boolean ok = false;
+        try {
+            channel.configureBlocking(false);
+            final ConnectionImpl connection = new ConnectionImpl(channel, readTimeout, MessageHandler.NULL, readExecutor, callback, false);
+            final MessageHandler handler = connectionHandler.handleConnected(connection);
+            connection.setMessageHandler(handler);
+            connection.setStreamMessageHandler(handler);
+            selector.register(connection);
+            ok = true;
+        } catch (IOException e) {
+            log.errorf(e, "Failed to handle incoming connection");
+        } finally {
+            if (! ok) {
+                StreamUtils.safeClose(channel);
+            }
+        }
     }
 
     private void safeHandleConnection(final Socket socket) {
         boolean ok = false;
         try {
-            final ConnectionImpl connection = new ConnectionImpl(socket, MessageHandler.NULL, readExecutor, callback);
-            connection.setMessageHandler(connectionHandler.handleConnected(connection));
+            final ConnectionImpl connection = new ConnectionImpl(socket, MessageHandler.NULL, readExecutor, callback, false);
+            final MessageHandler handler = connectionHandler.handleConnected(connection);
+            connection.setMessageHandler(handler);
+            connection.setStreamMessageHandler(handler);
             final Thread thread = threadFactory.newThread(connection.getReadTask());
             if (thread == null) {
                 throw new IllegalStateException("Thread creation was refused");
@@ -173,6 +263,7 @@ public final class ProtocolServer {
         private int readTimeout;
         private Executor readExecutor;
         private ClosedCallback closedCallback;
+        private int selectorThreads;
 
         public ThreadFactory getThreadFactory() {
             return threadFactory;
@@ -246,5 +337,19 @@ public final class ProtocolServer {
         public void setCallback(ClosedCallback closedCallback) {
             this.closedCallback = closedCallback;
         }
+
+        public int getSelectorThreads() {
+            return selectorThreads;
+        }
+
+        /**
+         * Set the number of selector threads serving the connections.  If not positive, a number is chosen based on
+         * the available processors.  Not used if a custom socket factory is set.
+         *
+         * @param selectorThreads the number of selector threads
+         */
+        public void setSelectorThreads(final int selectorThreads) {
+            this.selectorThreads = selectorThreads;
+        }
     }
 }
@@ -0,0 +1,346 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.protocol.mgmt;
+
+import static org.jboss.as.protocol.StreamUtils.safeClose;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.SocketFactory;
+
+import org.jboss.as.protocol.Connection;
+import org.jboss.as.protocol.MessageHandler;
+import org.jboss.as.protocol.ProtocolClient;
+import org.jboss.logging.Logger;
+
+/**
+ * A pool of persistent connections to a management endpoint.  Each request is sent on a
+ * {@link Connection#openStream() stream} of a pooled connection, so a connection can carry several requests at once
+ * and a new socket is only opened when every pooled connection is busy.  The management protocol version negotiated
+ * on the first request is remembered for the connection, which lets later requests send their body without waiting
+ * for the header exchange.
+ * <p>
+ * Connections that have not been used for the idle timeout are closed.  Idle connections that are kept are checked
+ * on the same schedule, and connections that have been closed by the remote side are dropped from the pool.
+ * </p>
+ */
+public final class ManagementConnectionPool {
+    private static final Logger log = Logger.getLogger("org.jboss.as.management");
+
+    /**
+     * The number of requests in progress on a connection before the pool prefers opening another one.
+     */
+    private static final int STREAMS_PER_CONNECTION = 8;
+
+    private final InetSocketAddress address;
+    private final int connectTimeout;
+    private final long idleTimeout;
+    private final int maxConnections;
+    private final ExecutorService executorService;
+    private final ThreadFactory threadFactory;
+    private final ScheduledExecutorService reaper;
+
+    // @GuardedBy(this)
+    private final List<PooledConnection> connections = new ArrayList<PooledConnection>();
+    // @GuardedBy(this)
+    private int connecting;
+    // @GuardedBy(this)
+    private boolean closed;
+
+    /**
+     * Create a new pool.
+     *
+     * @param address the address of the management endpoint
+     * @param connectTimeout the connect timeout, in milliseconds
+     * @param idleTimeout the time, in milliseconds, after which an unused connection is closed
+     * @param maxConnections the maximum number of connections to keep open
+     * @param executorService the executor used to read from the connections
+     * @param threadFactory the thread factory for the connections' threads
+     */
+    public ManagementConnectionPool(final InetSocketAddress address, final int connectTimeout, final long idleTimeout, final int maxConnections, final ExecutorService executorService, final ThreadFactory threadFactory) {
+        if (address == null) {
+            throw new IllegalArgumentException("address is null");
+        }
+        if (idleTimeout <= 0) {
+            throw new IllegalArgumentException("idleTimeout must be positive");
+        }
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be at least 1");
+        }
+        this.address = address;
+        this.connectTimeout = connectTimeout;
+        this.idleTimeout = idleTimeout;
+        this.maxConnections = maxConnections;
+        this.executorService = executorService;
+        this.threadFactory = threadFactory;
+        final ScheduledThreadPoolExecutor reaper = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(final Runnable r) {
+                final Thread thread = threadFactory.newThread(r);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        reaper.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        final long period = Math.max(1000L, idleTimeout / 2);
+        reaper.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                checkConnections();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        this.reaper = reaper;
+    }
+
+    /**
+     * Get the number of connections currently open.
+     *
+     * @return the number of connections
+     */
+    public synchronized int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Close all connections.  Requests in progress are failed, and later requests are rejected.
+     */
+    public void close() {
+        final List<PooledConnection> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayList<PooledConnection>(connections);
+            connections.clear();
+        }
+        reaper.shutdown();
+        for (PooledConnection connection : toClose) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Get a connection for a request.  The caller must {@link #release(PooledConnection) release} it when the request
+     * is complete.
+     *
+     * @return the connection
+     * @throws IOException if no connection can be established
+     */
+    PooledConnection acquire() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Connection pool is closed");
+            }
+            PooledConnection selected = null;
+            for (PooledConnection connection : connections) {
+                if (!connection.broken && (selected == null || connection.active < selected.active)) {
+                    selected = connection;
+                }
+            }
+            if (selected != null && (selected.active < STREAMS_PER_CONNECTION || connections.size() + connecting >= maxConnections)) {
+                selected.active++;
+                return selected;
+            }
+            connecting++;
+        }
+        PooledConnection created = null;
+        try {
+            created = connect();
+        } finally {
+            synchronized (this) {
+                connecting--;
+                if (created != null && !closed) {
+                    created.active++;
+                    connections.add(created);
+                    return created;
+                }
+            }
+            if (created != null) {
+                created.close();
+            }
+        }
+        throw new IOException("Connection pool is closed");
+    }
+
+    /**
+     * Release a connection obtained from {@link #acquire()}.
+     *
+     * @param connection the connection
+     */
+    void release(final PooledConnection connection) {
+        synchronized (this) {
+            connection.active--;
+            connection.lastUsed = System.currentTimeMillis();
+        }
+        if (connection.broken) {
+            discard(connection);
+        }
+    }
+
+    /**
+     * Drop a connection from the pool and close it.
+     *
+     * @param connection the connection
+     */
+    void discard(final PooledConnection connection) {
+        connection.broken = true;
+        synchronized (this) {
+            connections.remove(connection);
+        }
+        connection.close();
+    }
+
+    private PooledConnection connect() throws IOException {
+        final PooledConnection pooled = new PooledConnection();
+        final ProtocolClient.Configuration config = new ProtocolClient.Configuration();
+        config.setMessageHandler(pooled);
+        config.setConnectTimeout(connectTimeout);
+        config.setReadExecutor(executorService);
+        config.setSocketFactory(SocketFactory.getDefault());
+        config.setServerAddress(address);
+        config.setThreadFactory(threadFactory);
+        config.setClosedCallback(new Connection.ClosedCallback() {
+            public void connectionClosed() {
+                pooled.broken = true;
+                synchronized (ManagementConnectionPool.this) {
+                    connections.remove(pooled);
+                }
+            }
+        });
+        pooled.connection = new ProtocolClient(config).connect();
+        log.tracef("Opened pooled management connection to %s", address);
+        return pooled;
+    }
+
+    private void checkConnections() {
+        final long now = System.currentTimeMillis();
+        final List<PooledConnection> idle = new ArrayList<PooledConnection>();
+        final List<PooledConnection> expired = new ArrayList<PooledConnection>();
+        synchronized (this) {
+            for (Iterator<PooledConnection> i = connections.iterator(); i.hasNext();) {
+                final PooledConnection connection = i.next();
+                if (connection.broken) {
+                    i.remove();
+                    expired.add(connection);
+                } else if (connection.active == 0) {
+                    if (now - connection.lastUsed >= idleTimeout) {
+                        i.remove();
+                        expired.add(connection);
+                    } else {
+                        idle.add(connection);
+                    }
+                }
+            }
+        }
+        for (PooledConnection connection : expired) {
+            log.tracef("Closing idle management connection to %s", address);
+            connection.close();
+        }
+        for (PooledConnection connection : idle) {
+            // Opening and closing a stream fails if the connection has gone away without us noticing
+            try {
+                connection.openStream().close();
+            } catch (IOException e) {
+                log.debugf(e, "Dropping failed management connection to %s", address);
+                discard(connection);
+            }
+        }
+    }
+
+    /**
+     * A pooled connection.  It also acts as the handler of the connection's primary stream, which is never used for
+     * requests, so that a remote shutdown or failure takes the connection out of the pool.  Request streams inherit
+     * this handler as their initial one.
+     */
+    static final class PooledConnection implements MessageHandler {
+        private volatile Connection connection;
+        volatile boolean broken;
+        private volatile int protocolVersion;
+        // @GuardedBy(pool)
+        private int active;
+        // @GuardedBy(pool)
+        private long lastUsed = System.currentTimeMillis();
+
+        Connection openStream() throws IOException {
+            try {
+                return connection.openStream();
+            } catch (IOException e) {
+                broken = true;
+                throw e;
+            }
+        }
+
+        /**
+         * Get the protocol version negotiated on this connection.
+         *
+         * @return the version, or {@code 0} if no request has completed the header exchange yet
+         */
+        int getProtocolVersion() {
+            return protocolVersion;
+        }
+
+        void setProtocolVersion(final int protocolVersion) {
+            this.protocolVersion = protocolVersion;
+        }
+
+        void close() {
+            final Connection connection = this.connection;
+            if (connection != null) {
+                safeClose(connection);
+            }
+        }
+
+        public void handleMessage(final Connection connection, final InputStream dataStream) throws IOException {
+            safeClose(dataStream);
+        }
+
+        public void handleShutdown(final Connection connection) throws IOException {
+            // Request streams end up back on this handler once the request is complete; only the primary matters
+            if (connection == this.connection) {
+                broken = true;
+                connection.close();
+            } else {
+                connection.shutdownWrites();
+            }
+        }
+
+        public void handleFailure(final Connection connection, final IOException e) throws IOException {
+            if (connection == this.connection) {
+                broken = true;
+            }
+            connection.close();
+        }
+
+        public void handleFinished(final Connection connection) throws IOException {
+            if (connection == this.connection) {
+                broken = true;
+            }
+        }
+    }
+}
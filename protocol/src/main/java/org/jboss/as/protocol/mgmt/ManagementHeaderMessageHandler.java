@@ -73,9 +73,14 @@ public abstract class ManagementHeaderMessageHandler extends AbstractMessageHand
         } catch (Throwable t) {
             throw new IOException("Failed to read request header", t);
         } finally {
-            safeClose(input);
-            safeClose(dataStream);
-            writeResponseHeader(connection, workingVersion, responseId);
+            // The next message is only delivered once this one is closed, so write the response header first
+            // to keep it ahead of anything the request handler sends
+            try {
+                writeResponseHeader(connection, workingVersion, responseId);
+            } finally {
+                safeClose(input);
+                safeClose(dataStream);
+            }
         }
     }
 
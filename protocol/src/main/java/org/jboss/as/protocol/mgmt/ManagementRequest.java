@@ -53,6 +53,8 @@ public abstract class ManagementRequest<T> extends AbstractMessageHandler {
     private int requestId = 0;
     private final ResponseFuture<T> future = new ResponseFuture<T>();
     private ManagementRequestConnectionStrategy connectionStrategy;
+    /** The protocol version already negotiated on the connection, or {@code 0} to wait for the response header */
+    private volatile int negotiatedVersion;
     // @GuardedBy(resultLock)
     private T result;
     /**
@@ -82,6 +84,7 @@ public abstract class ManagementRequest<T> extends AbstractMessageHandler {
         ByteDataOutput output = null;
         try {
             final Connection connection = connectionStrategy.getConnection();
+            negotiatedVersion = connectionStrategy.getProtocolVersion();
             connection.backupMessageHandler();
 
             connection.setMessageHandler(initiatingMessageHandler);
@@ -93,6 +96,14 @@ public abstract class ManagementRequest<T> extends AbstractMessageHandler {
             connection.setMessageHandler(initiatingMessageHandler);
             output.close();
             dataOutput.close();
+            final int version = negotiatedVersion;
+            if (version > 0) {
+                // The version is known, so don't wait for the response header before sending the request
+                sendRequest(version, connection);
+            }
+        } catch (IOException e) {
+            connectionStrategy.complete();
+            throw e;
         } finally {
             safeClose(output);
             safeClose(dataOutput);
@@ -146,7 +157,10 @@ public abstract class ManagementRequest<T> extends AbstractMessageHandler {
                     throw new IOException("Invalid request ID expecting " + requestId + " received " + responseHeader.getResponseId());
                 }
                 connection.setMessageHandler(ManagementRequest.this);
-                sendRequest(responseHeader.getVersion(), connection);
+                if (negotiatedVersion == 0) {
+                    connectionStrategy.setProtocolVersion(responseHeader.getVersion());
+                    sendRequest(responseHeader.getVersion(), connection);
+                }
             } catch (Exception e) {
                 future.setException(e);
             } finally {
@@ -54,23 +54,53 @@ public interface ManagementRequestConnectionStrategy {
     void complete();
 
     /**
-     * Strategy that uses an existing connection.
+     * Get the protocol version negotiated by an earlier request on the connection.
+     *
+     * @return the protocol version, or {@code 0} if it has to be negotiated by the request
+     */
+    int getProtocolVersion();
+
+    /**
+     * Record the protocol version negotiated by the request, so later requests on the connection can skip the
+     * negotiation.  Strategies which do not reuse connections ignore it.
+     *
+     * @param protocolVersion the protocol version
+     */
+    void setProtocolVersion(int protocolVersion);
+
+    /**
+     * Strategy that uses an existing connection.  Each request is sent on a {@link Connection#openStream() stream} of
+     * its own, so any number of requests can be in progress on the connection at once.
      */
     static class ExistingConnectionStrategy implements ManagementRequestConnectionStrategy {
         private final Connection connection;
+        private Connection stream;
 
         public ExistingConnectionStrategy(Connection connection) {
             this.connection = connection;
         }
 
         /** {@inheritDoc} */
-        public Connection getConnection() throws IOException {
-            return connection;
+        public synchronized Connection getConnection() throws IOException {
+            if (stream == null) {
+                stream = connection.openStream();
+            }
+            return stream;
+        }
+
+        /** {@inheritDoc} */
+        public synchronized void complete() {
+            safeClose(stream);
+            stream = null;
+        }
+
+        /** {@inheritDoc} */
+        public int getProtocolVersion() {
+            return 0;
         }
 
         /** {@inheritDoc} */
-        public void complete() {
-            // NOOP
+        public void setProtocolVersion(final int protocolVersion) {
         }
     }
 
@@ -116,5 +146,72 @@ public interface ManagementRequestConnectionStrategy {
         public synchronized void complete() {
             safeClose(connection);
         }
+
+        /** {@inheritDoc} */
+        public int getProtocolVersion() {
+            return 0;
+        }
+
+        /** {@inheritDoc} */
+        public void setProtocolVersion(final int protocolVersion) {
+        }
+    }
+
+    /**
+     * Strategy that sends the request on a stream of a connection from a {@link ManagementConnectionPool}.  Once a
+     * protocol version has been negotiated on the pooled connection the request body is sent together with the
+     * request header.
+     */
+    static class PooledConnectionStrategy implements ManagementRequestConnectionStrategy {
+        private final ManagementConnectionPool pool;
+        private ManagementConnectionPool.PooledConnection pooled;
+        private Connection stream;
+
+        public PooledConnectionStrategy(final ManagementConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        /** {@inheritDoc} */
+        public synchronized Connection getConnection() throws IOException {
+            if (stream == null) {
+                // A pooled connection may have gone away since it was last used, so try again with a fresh one
+                for (int attempt = 0;; attempt++) {
+                    final ManagementConnectionPool.PooledConnection pooled = pool.acquire();
+                    try {
+                        stream = pooled.openStream();
+                        this.pooled = pooled;
+                        break;
+                    } catch (IOException e) {
+                        pool.release(pooled);
+                        if (attempt > 0) {
+                            throw e;
+                        }
+                    }
+                }
+            }
+            return stream;
+        }
+
+        /** {@inheritDoc} */
+        public synchronized void complete() {
+            safeClose(stream);
+            stream = null;
+            if (pooled != null) {
+                pool.release(pooled);
+                pooled = null;
+            }
+        }
+
+        /** {@inheritDoc} */
+        public synchronized int getProtocolVersion() {
+            return pooled == null ? 0 : pooled.getProtocolVersion();
+        }
+
+        /** {@inheritDoc} */
+        public synchronized void setProtocolVersion(final int protocolVersion) {
+            if (pooled != null) {
+                pooled.setProtocolVersion(protocolVersion);
+            }
+        }
     }
 }
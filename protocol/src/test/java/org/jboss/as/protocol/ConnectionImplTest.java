@@ -0,0 +1,244 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.net.ServerSocketFactory;
+import javax.net.SocketFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the streams multiplexed over a {@link ConnectionImpl}.
+ */
+public final class ConnectionImplTest {
+
+    private static final int LARGE_SIZE = ConnectionImpl.INITIAL_WINDOW * 4;
+
+    private ExecutorService executor;
+    private ProtocolServer server;
+    private volatile MessageHandler serverHandler;
+    private volatile Connection serverConnection;
+    private Connection connection;
+
+    @Before
+    public void start() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        final ProtocolServer.Configuration config = new ProtocolServer.Configuration();
+        config.setBindAddress(new InetSocketAddress(InetAddress.getByName("localhost"), 0));
+        config.setThreadFactory(Executors.defaultThreadFactory());
+        config.setReadExecutor(executor);
+        config.setSocketFactory(ServerSocketFactory.getDefault());
+        config.setBacklog(10);
+        config.setConnectionHandler(new ConnectionHandler() {
+            public MessageHandler handleConnected(final Connection connection) throws IOException {
+                serverConnection = connection;
+                return serverHandler;
+            }
+        });
+        server = new ProtocolServer(config);
+        server.start();
+    }
+
+    @After
+    public void stop() throws Exception {
+        StreamUtils.safeClose(connection);
+        server.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSlowStreamDoesNotBlockOthers() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch smallReceived = new CountDownLatch(1);
+        final CountDownLatch largeReceived = new CountDownLatch(1);
+        final AtomicInteger largeSize = new AtomicInteger();
+        serverHandler = new TestMessageHandler() {
+            public void handleMessage(final Connection connection, final InputStream dataStream) throws IOException {
+                if (dataStream.read() == 'S') {
+                    smallReceived.countDown();
+                } else {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    int total = 1;
+                    final byte[] buffer = new byte[1024];
+                    int cnt;
+                    while ((cnt = dataStream.read(buffer)) != -1) {
+                        total += cnt;
+                    }
+                    largeSize.set(total);
+                    largeReceived.countDown();
+                }
+                dataStream.close();
+            }
+        };
+        connect();
+
+        final Connection large = connection.openStream();
+        final Connection small = connection.openStream();
+        final AtomicReference<Throwable> writerFailure = new AtomicReference<Throwable>();
+        final Thread writer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    final OutputStream os = large.writeMessage();
+                    os.write('L');
+                    os.write(new byte[LARGE_SIZE - 1]);
+                    os.close();
+                } catch (Throwable t) {
+                    writerFailure.set(t);
+                }
+            }
+        });
+        writer.start();
+
+        // The large message is held up by its stream's window, but must not hold up the other stream
+        final OutputStream os = small.writeMessage();
+        os.write('S');
+        os.close();
+        assertTrue(smallReceived.await(10, TimeUnit.SECONDS));
+
+        release.countDown();
+        writer.join(10000);
+        assertFalse(writer.isAlive());
+        assertNoFailure(writerFailure);
+        assertTrue(largeReceived.await(10, TimeUnit.SECONDS));
+        assertEquals(LARGE_SIZE, largeSize.get());
+    }
+
+    @Test
+    public void testMessagesOnStreamStayInOrder() throws Exception {
+        final int count = 50;
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(count);
+        serverHandler = new TestMessageHandler() {
+            public void handleMessage(final Connection connection, final InputStream dataStream) throws IOException {
+                received.add(Integer.valueOf(StreamUtils.readInt(dataStream)));
+                dataStream.close();
+                done.countDown();
+            }
+        };
+        connect();
+
+        final Connection stream = connection.openStream();
+        for (int i = 0; i < count; i++) {
+            final OutputStream os = stream.writeMessage();
+            StreamUtils.writeInt(os, i);
+            os.close();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, received.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void testPeerStreamGetsStreamHandler() throws Exception {
+        final CountDownLatch received = new CountDownLatch(1);
+        serverHandler = new TestMessageHandler() {
+            public void handleMessage(final Connection connection, final InputStream dataStream) throws IOException {
+                dataStream.close();
+                received.countDown();
+            }
+        };
+        connect();
+        // Wait for the server side to be set up before changing its handler
+        final Connection primary = connection.openStream();
+        final OutputStream first = primary.writeMessage();
+        first.write(0);
+        first.close();
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+
+        // A handler the server has switched to for a request of its own must not receive new streams
+        final AtomicReference<Throwable> misrouted = new AtomicReference<Throwable>();
+        serverConnection.setMessageHandler(new TestMessageHandler() {
+            public void handleMessage(final Connection connection, final InputStream dataStream) throws IOException {
+                misrouted.set(new AssertionError("Message on a new stream went to the connection's current handler"));
+                dataStream.close();
+            }
+        });
+        final CountDownLatch streamReceived = new CountDownLatch(1);
+        serverConnection.setStreamMessageHandler(new TestMessageHandler() {
+            public void handleMessage(final Connection connection, final InputStream dataStream) throws IOException {
+                dataStream.close();
+                streamReceived.countDown();
+            }
+        });
+        final OutputStream os = connection.openStream().writeMessage();
+        os.write(1);
+        os.close();
+        assertTrue(streamReceived.await(10, TimeUnit.SECONDS));
+        assertNoFailure(misrouted);
+    }
+
+    private static void assertNoFailure(final AtomicReference<Throwable> failure) {
+        final Throwable t = failure.get();
+        if (t != null) {
+            final AssertionError error = new AssertionError("Unexpected failure: " + t);
+            error.initCause(t);
+            throw error;
+        }
+    }
+
+    private void connect() throws IOException {
+        final ProtocolClient.Configuration config = new ProtocolClient.Configuration();
+        config.setThreadFactory(Executors.defaultThreadFactory());
+        config.setSocketFactory(SocketFactory.getDefault());
+        config.setServerAddress(server.getBoundAddress());
+        config.setMessageHandler(MessageHandler.NULL);
+        config.setReadExecutor(executor);
+        connection = new ProtocolClient(config).connect();
+    }
+
+    private abstract static class TestMessageHandler implements MessageHandler {
+        public void handleShutdown(final Connection connection) throws IOException {
+            connection.shutdownWrites();
+        }
+
+        public void handleFailure(final Connection connection, final IOException e) throws IOException {
+            connection.close();
+        }
+
+        public void handleFinished(final Connection connection) throws IOException {
+        }
+    }
+}
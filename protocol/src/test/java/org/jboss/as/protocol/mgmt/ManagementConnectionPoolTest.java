@@ -0,0 +1,199 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.protocol.mgmt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ServerSocketFactory;
+
+import org.jboss.as.protocol.Connection;
+import org.jboss.as.protocol.ConnectionHandler;
+import org.jboss.as.protocol.MessageHandler;
+import org.jboss.as.protocol.ProtocolServer;
+import org.jboss.as.protocol.ProtocolUtils;
+import org.jboss.as.protocol.StreamUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link ManagementConnectionPool}.
+ */
+public final class ManagementConnectionPoolTest {
+
+    private static final byte HANDLER_ID = 0x11;
+    private static final byte REQUEST = 0x01;
+    private static final byte RESPONSE = 0x02;
+
+    private ExecutorService executor;
+    private ProtocolServer server;
+    private final List<Connection> serverConnections = new CopyOnWriteArrayList<Connection>();
+    private ManagementConnectionPool pool;
+
+    @Before
+    public void start() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        final ProtocolServer.Configuration config = new ProtocolServer.Configuration();
+        config.setBindAddress(new InetSocketAddress(InetAddress.getByName("localhost"), 0));
+        config.setThreadFactory(Executors.defaultThreadFactory());
+        config.setReadExecutor(executor);
+        config.setSocketFactory(ServerSocketFactory.getDefault());
+        config.setBacklog(10);
+        config.setConnectionHandler(new ConnectionHandler() {
+            public MessageHandler handleConnected(final Connection connection) throws IOException {
+                serverConnections.add(connection);
+                return new ManagementHeaderMessageHandler() {
+                    protected MessageHandler getHandlerForId(final byte handlerId) {
+                        return handlerId == HANDLER_ID ? new IncrementResponse() : null;
+                    }
+                };
+            }
+        });
+        server = new ProtocolServer(config);
+        server.start();
+    }
+
+    @After
+    public void stop() throws Exception {
+        if (pool != null) {
+            pool.close();
+        }
+        server.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        pool = createPool(60000L);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i + 1, new IncrementRequest(i).executeForResult(new ManagementRequestConnectionStrategy.PooledConnectionStrategy(pool)).intValue());
+        }
+        assertEquals(1, serverConnections.size());
+        assertEquals(1, pool.getConnectionCount());
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        pool = createPool(60000L);
+        final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < 50; i++) {
+            results.add(new IncrementRequest(i).execute(new ManagementRequestConnectionStrategy.PooledConnectionStrategy(pool)));
+        }
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i + 1, results.get(i).get().intValue());
+        }
+        assertTrue(serverConnections.size() <= 2);
+    }
+
+    @Test
+    public void testClosedConnectionIsReplaced() throws Exception {
+        pool = createPool(60000L);
+        assertEquals(1, new IncrementRequest(0).executeForResult(new ManagementRequestConnectionStrategy.PooledConnectionStrategy(pool)).intValue());
+        StreamUtils.safeClose(serverConnections.get(0));
+        waitForConnectionCount(0);
+
+        assertEquals(2, new IncrementRequest(1).executeForResult(new ManagementRequestConnectionStrategy.PooledConnectionStrategy(pool)).intValue());
+        assertEquals(2, serverConnections.size());
+    }
+
+    @Test
+    public void testIdleConnectionIsClosed() throws Exception {
+        pool = createPool(100L);
+        assertEquals(1, new IncrementRequest(0).executeForResult(new ManagementRequestConnectionStrategy.PooledConnectionStrategy(pool)).intValue());
+        waitForConnectionCount(0);
+    }
+
+    private ManagementConnectionPool createPool(final long idleTimeout) {
+        return new ManagementConnectionPool(server.getBoundAddress(), 5000, idleTimeout, 2, executor, Executors.defaultThreadFactory());
+    }
+
+    private void waitForConnectionCount(final int count) throws InterruptedException {
+        final long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10L);
+        while (pool.getConnectionCount() != count && System.currentTimeMillis() < end) {
+            Thread.sleep(50L);
+        }
+        assertEquals(count, pool.getConnectionCount());
+    }
+
+    private static final class IncrementRequest extends ManagementRequest<Integer> {
+        private final int value;
+
+        IncrementRequest(final int value) {
+            this.value = value;
+        }
+
+        protected byte getHandlerId() {
+            return HANDLER_ID;
+        }
+
+        protected byte getRequestCode() {
+            return REQUEST;
+        }
+
+        protected byte getResponseCode() {
+            return RESPONSE;
+        }
+
+        protected void sendRequest(final int protocolVersion, final OutputStream output) throws IOException {
+            StreamUtils.writeInt(output, value);
+        }
+
+        protected Integer receiveResponse(final InputStream input) throws IOException {
+            return Integer.valueOf(StreamUtils.readInt(input));
+        }
+    }
+
+    private static final class IncrementResponse extends ManagementResponse {
+        private int value;
+
+        public void handle(final Connection connection, final InputStream input) throws IOException {
+            ProtocolUtils.expectHeader(input, ManagementProtocol.REQUEST_OPERATION);
+            ProtocolUtils.expectHeader(input, REQUEST);
+            super.handle(connection, input);
+        }
+
+        protected byte getResponseCode() {
+            return RESPONSE;
+        }
+
+        protected void readRequest(final InputStream input) throws IOException {
+            value = StreamUtils.readInt(input);
+        }
+
+        protected void sendResponse(final OutputStream output) throws IOException {
+            StreamUtils.writeInt(output, value + 1);
+        }
+    }
+}
@@ -50,6 +50,7 @@ import org.jboss.threads.AsyncFuture;
 import org.jboss.threads.AsyncFutureTask;
 import org.jboss.threads.JBossExecutors;
 
+import java.io.File;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
@@ -122,7 +123,8 @@ final class ApplicationServerService implements Service<AsyncFuture<ServiceConta
         ServerDeploymentRepositoryImpl.addService(serviceTarget, serverEnvironment.getServerDeployDir(), serverEnvironment.getServerSystemDeployDir(), contentRepository);
         ServiceModuleLoader.addService(serviceTarget, configuration);
         ExternalModuleService.addService(serviceTarget);
-        ModuleIndexService.addService(serviceTarget);
+        ServerExecutorService.addService(serviceTarget);
+        ModuleIndexService.addService(serviceTarget, new File(serverEnvironment.getServerDataDir(), "module-index"), configuration.getModuleLoader());
         ServerControllerService.addService(serviceTarget, configuration);
         final ServiceActivatorContext serviceActivatorContext = new ServiceActivatorContext() {
             @Override
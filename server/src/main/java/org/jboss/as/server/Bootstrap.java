@@ -30,7 +30,9 @@ import javax.xml.namespace.QName;
 import org.jboss.as.controller.parsing.Namespace;
 import org.jboss.as.controller.parsing.StandaloneXml;
 import org.jboss.as.controller.persistence.BackupXmlConfigurationPersister;
+import org.jboss.as.controller.persistence.CoalescingConfigurationPersister;
 import org.jboss.as.controller.persistence.ExtensibleConfigurationPersister;
+import org.jboss.as.controller.persistence.JournalConfigurationPersister;
 import org.jboss.as.controller.persistence.NullConfigurationPersister;
 import org.jboss.modules.Module;
 import org.jboss.modules.ModuleLoader;
@@ -138,7 +140,12 @@ public interface Bootstrap {
                 else {
                     QName rootElement = new QName(Namespace.CURRENT.getUriString(), "server");
                     StandaloneXml parser = new StandaloneXml(Module.getBootModuleLoader());
-                    configurationPersister = new BackupXmlConfigurationPersister(serverEnvironment.getServerConfigurationFile(), rootElement, parser, parser);
+                    final BackupXmlConfigurationPersister xmlPersister = new BackupXmlConfigurationPersister(serverEnvironment.getServerConfigurationFile(), rootElement, parser, parser);
+                    if (Boolean.getBoolean(JournalConfigurationPersister.JOURNAL_PROPERTY)) {
+                        configurationPersister = new JournalConfigurationPersister(xmlPersister, new File(serverEnvironment.getServerDataDir(), "configuration-journal"));
+                    } else {
+                        configurationPersister = CoalescingConfigurationPersister.wrapIfConfigured(xmlPersister);
+                    }
                 }
             }
             return configurationPersister;
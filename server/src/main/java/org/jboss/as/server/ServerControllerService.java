@@ -24,6 +24,8 @@ package org.jboss.as.server;
 
 import org.jboss.as.controller.ResultHandler;
 import org.jboss.as.controller.client.OperationBuilder;
+import org.jboss.as.controller.persistence.CoalescingConfigurationPersister;
+import org.jboss.as.controller.persistence.ConfigurationPersistenceException;
 import org.jboss.as.controller.persistence.ExtensibleConfigurationPersister;
 import org.jboss.as.server.ServerControllerImpl.RegisteredProcessor;
 import org.jboss.as.server.deployment.Attachments;
@@ -35,6 +37,7 @@ import org.jboss.as.server.deployment.DeploymentUnitProcessor;
 import org.jboss.as.server.deployment.Phase;
 import org.jboss.as.server.deployment.ServiceLoaderProcessor;
 import org.jboss.as.server.deployment.SubDeploymentProcessor;
+import org.jboss.as.server.deployment.annotation.AnnotationIndexCache;
 import org.jboss.as.server.deployment.annotation.AnnotationIndexProcessor;
 import org.jboss.as.server.deployment.annotation.CompositeIndexProcessor;
 import org.jboss.as.server.deployment.api.ContentRepository;
@@ -98,18 +101,18 @@ final class ServerControllerService implements Service<ServerController> {
 
     private static final Logger log = Logger.getLogger("org.jboss.as.server");
 
-    private static final int DEFAULT_POOL_SIZE = 5;
-
     private final Bootstrap.Configuration configuration;
 
     private final InjectedValue<ServerDeploymentRepository> injectedDeploymentRepository = new InjectedValue<ServerDeploymentRepository>();
     private final InjectedValue<ContentRepository> injectedContentRepository = new InjectedValue<ContentRepository>();
     private final InjectedValue<ServiceModuleLoader> injectedModuleLoader = new InjectedValue<ServiceModuleLoader>();
+    private final InjectedValue<ExecutorService> injectedExecutor = new InjectedValue<ExecutorService>();
 
     private final InjectedValue<ExternalModuleService> injectedExternalModuleService = new InjectedValue<ExternalModuleService>();
 
     // mutable state
     private ServerController serverController;
+    private ExecutorService deploymentExecutor;
 
     public ServerControllerService(final Bootstrap.Configuration configuration) {
         this.configuration = configuration;
@@ -121,6 +124,7 @@ final class ServerControllerService implements Service<ServerController> {
         serviceBuilder.addDependency(ServerDeploymentRepository.SERVICE_NAME,ServerDeploymentRepository.class, service.injectedDeploymentRepository);
         serviceBuilder.addDependency(ContentRepository.SERVICE_NAME, ContentRepository.class, service.injectedContentRepository);
         serviceBuilder.addDependency(Services.JBOSS_SERVICE_MODULE_LOADER, ServiceModuleLoader.class, service.injectedModuleLoader);
+        serviceBuilder.addDependency(Services.JBOSS_SERVER_EXECUTOR, ExecutorService.class, service.injectedExecutor);
         serviceBuilder.addDependency(Services.JBOSS_EXTERNAL_MODULE_SERVICE, ExternalModuleService.class,
                 service.injectedExternalModuleService);
         serviceBuilder.install();
@@ -136,11 +140,9 @@ final class ServerControllerService implements Service<ServerController> {
 
         final ExtensibleConfigurationPersister persister = configuration.getConfigurationPersister();
 
-        // TODO consider injecting the executor service
         final ThreadGroup threadGroup = new ThreadGroup("ServerController-threads");
         final ThreadFactory threadFactory = new JBossThreadFactory(threadGroup, Boolean.FALSE, null, "%G - %t", null, null, AccessController.getContext());
-        final ExecutorService executorService = Executors.newScheduledThreadPool(DEFAULT_POOL_SIZE, threadFactory);
-        final ServerControllerImpl serverController = new ServerControllerImpl(container, serviceTarget, serverEnvironment, persister, injectedContentRepository.getValue(), executorService);
+        final ServerControllerImpl serverController = new ServerControllerImpl(container, serviceTarget, serverEnvironment, persister, injectedContentRepository.getValue(), injectedExecutor.getValue());
         serverController.init();
         serviceTarget.addListener(serverController.getServerStateMonitorListener());
 
@@ -212,13 +214,19 @@ final class ServerControllerService implements Service<ServerController> {
             }
         }));
 
+        final AnnotationIndexCache annotationIndexCache = new AnnotationIndexCache(new File(serverEnvironment.getServerDataDir(), "annotation-index"),
+                AnnotationIndexCache.DEFAULT_MAX_SIZE);
+        // Runs the processors of a phase which do not conflict with each other, and indexes resource roots; these tasks
+        // never wait on one another, and the work is CPU bound, so there is no point in more threads than processors
+        final ExecutorService deploymentExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), threadFactory);
+
         // Activate core processors for jar deployment
         deployers.get(Phase.STRUCTURE).add(new RegisteredProcessor(Phase.STRUCTURE_MOUNT, new DeploymentRootMountProcessor()));
         deployers.get(Phase.STRUCTURE).add(new RegisteredProcessor(Phase.STRUCTURE_MANIFEST, new ManifestAttachmentProcessor()));
         deployers.get(Phase.STRUCTURE).add(new RegisteredProcessor(Phase.STRUCTURE_ADDITIONAL_MANIFEST, new ManifestAttachmentProcessor()));
         deployers.get(Phase.STRUCTURE).add(new RegisteredProcessor(Phase.STRUCTURE_SUB_DEPLOYMENT, new SubDeploymentProcessor()));
         deployers.get(Phase.STRUCTURE).add(new RegisteredProcessor(Phase.STRUCTURE_MODULE_IDENTIFIERS, new ModuleIdentifierProcessor()));
-        deployers.get(Phase.STRUCTURE).add(new RegisteredProcessor(Phase.STRUCTURE_ANNOTATION_INDEX, new AnnotationIndexProcessor()));
+        deployers.get(Phase.STRUCTURE).add(new RegisteredProcessor(Phase.STRUCTURE_ANNOTATION_INDEX, new AnnotationIndexProcessor(annotationIndexCache, deploymentExecutor)));
         deployers.get(Phase.PARSE).add(new RegisteredProcessor(Phase.PARSE_STRUCTURE_DESCRIPTOR, new DeploymentStructureDescriptorParser()));
         deployers.get(Phase.PARSE).add(new RegisteredProcessor(Phase.PARSE_COMPOSITE_ANNOTATION_INDEX, new CompositeIndexProcessor()));
         deployers.get(Phase.PARSE).add(new RegisteredProcessor(Phase.PARSE_ADDITIONAL_MODULES, new AdditionalModuleProcessor()));
@@ -248,15 +256,30 @@ final class ServerControllerService implements Service<ServerController> {
             finalDeployers.put(entry.getKey(), list);
         }
 
-        DeployerChainsService.addService(serviceTarget, finalDeployers);
+        DeployerChainsService.addService(serviceTarget, finalDeployers, deploymentExecutor);
 
         this.serverController = serverController;
+        this.deploymentExecutor = deploymentExecutor;
     }
 
     /** {@inheritDoc} */
     @Override
     public synchronized void stop(final StopContext context) {
         serverController = null;
+        if (deploymentExecutor != null) {
+            deploymentExecutor.shutdown();
+            deploymentExecutor = null;
+        }
+        final ExtensibleConfigurationPersister persister = configuration.getConfigurationPersister();
+        if (persister instanceof CoalescingConfigurationPersister) {
+            // Make sure acknowledged changes are on disk before we go away. The persister is reused if we are
+            // started again, so it is only flushed, not shut down
+            try {
+                ((CoalescingConfigurationPersister) persister).flush();
+            } catch (ConfigurationPersistenceException e) {
+                log.error("Failed to persist configuration changes", e);
+            }
+        }
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server;
+
+import java.security.AccessController;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.jboss.msc.service.Service;
+import org.jboss.msc.service.ServiceTarget;
+import org.jboss.msc.service.StartContext;
+import org.jboss.msc.service.StartException;
+import org.jboss.msc.service.StopContext;
+import org.jboss.threads.JBossThreadFactory;
+
+/**
+ * Service providing the executor used by the server controller and other core server services for work
+ * that should not hold up the thread which requested it.
+ */
+final class ServerExecutorService implements Service<ExecutorService> {
+
+    private static final int DEFAULT_POOL_SIZE = 5;
+
+    private ExecutorService executorService;
+
+    static void addService(final ServiceTarget serviceTarget) {
+        serviceTarget.addService(Services.JBOSS_SERVER_EXECUTOR, new ServerExecutorService()).install();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void start(final StartContext context) throws StartException {
+        final ThreadGroup threadGroup = new ThreadGroup("ServerExecutor-threads");
+        final ThreadFactory threadFactory = new JBossThreadFactory(threadGroup, Boolean.FALSE, null, "%G - %t", null, null, AccessController.getContext());
+        executorService = Executors.newScheduledThreadPool(DEFAULT_POOL_SIZE, threadFactory);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void stop(final StopContext context) {
+        executorService.shutdown();
+        executorService = null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized ExecutorService getValue() throws IllegalStateException {
+        final ExecutorService executorService = this.executorService;
+        if (executorService == null) {
+            throw new IllegalStateException();
+        }
+        return executorService;
+    }
+}
@@ -46,6 +46,11 @@ public final class Services {
      */
     public static final ServiceName JBOSS_SERVER_CONTROLLER = JBOSS_AS.append("server-controller");
 
+    /**
+     * The service providing the executor shared by the core server services.
+     */
+    public static final ServiceName JBOSS_SERVER_EXECUTOR = JBOSS_AS.append("server-executor");
+
     /**
      * The service corresponding to the {@link ServiceModuleLoader} for this instance.
      */
@@ -67,6 +67,15 @@ public abstract class AbstractDeploymentUnitService implements Service<Deploymen
         target.addListener(listener);
         deploymentUnit = createAndInitializeDeploymentUnit(context.getController().getServiceContainer());
         deploymentUnit.putAttachment(Attachments.STATUS_LISTENER, listener);
+        final DeploymentTimings timings = new DeploymentTimings(deploymentUnit.getName());
+        deploymentUnit.putAttachment(Attachments.DEPLOYMENT_TIMINGS, timings);
+        final DeploymentUnit parent = deploymentUnit.getParent();
+        if (parent != null) {
+            final DeploymentTimings parentTimings = parent.getAttachment(Attachments.DEPLOYMENT_TIMINGS);
+            if (parentTimings != null) {
+                parentTimings.addSubDeployment(timings);
+            }
+        }
 
         final ServiceName serviceName = deploymentUnit.getServiceName().append(FIRST_PHASE_NAME);
         final Phase firstPhase = Phase.values()[0];
@@ -1,5 +1,10 @@
 package org.jboss.as.server.deployment;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * An immutable, type-safe object attachment key.  Such a key has no value outside of its object identity.
  *
@@ -40,6 +45,17 @@ public abstract class AttachmentKey<T> {
     public static <T> AttachmentKey<AttachmentList<T>> createList(final Class<? super T> valueClass) {
         return new ListAttachmentKey(valueClass);
     }
+
+    /**
+     * Construct an unmodifiable set of attachment keys, such as the attachments declared by a
+     * {@link ConcurrentDeploymentUnitProcessor}.
+     *
+     * @param keys the attachment keys
+     * @return the new set
+     */
+    public static Set<AttachmentKey<?>> setOf(final AttachmentKey<?>... keys) {
+        return Collections.unmodifiableSet(new HashSet<AttachmentKey<?>>(Arrays.asList(keys)));
+    }
 }
 
 class ListAttachmentKey<T> extends AttachmentKey<AttachmentList<T>> {
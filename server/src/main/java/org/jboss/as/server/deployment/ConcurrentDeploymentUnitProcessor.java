@@ -0,0 +1,53 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.server.deployment;
+
+import java.util.Set;
+
+/**
+ * A deployment processor which declares the attachments it reads and writes, so that it may be run concurrently with
+ * other processors of the same phase that it does not conflict with.
+ * <p>
+ * Two processors of a phase conflict if either of them produces an attachment the other one consumes or produces.
+ * Conflicting processors, and any processor which does not implement this interface, are always run in the order of the
+ * deployer chain. The declared keys cover the attachment wherever it is stored, whether on the deployment unit, the phase
+ * context, a resource root or a parent deployment unit.
+ * <p>
+ * Implementations must not touch attachments they have not declared, and must be prepared for {@code deploy()} to be
+ * called from a thread other than the one running the phase.
+ */
+public interface ConcurrentDeploymentUnitProcessor extends DeploymentUnitProcessor {
+
+    /**
+     * Get the keys of the attachments read by this processor.
+     *
+     * @return the attachment keys, never {@code null}
+     */
+    Set<AttachmentKey<?>> getConsumedAttachments();
+
+    /**
+     * Get the keys of the attachments added, replaced, removed or modified by this processor.
+     *
+     * @return the attachment keys, never {@code null}
+     */
+    Set<AttachmentKey<?>> getProducedAttachments();
+}
@@ -24,6 +24,8 @@ package org.jboss.as.server.deployment;
 
 import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * The deployer chains service value object.
@@ -32,12 +34,36 @@ import java.util.List;
  */
 final class DeployerChains {
     private final EnumMap<Phase, List<DeploymentUnitProcessor>> phases;
+    private final EnumMap<Phase, DeploymentUnitProcessorGraph> graphs;
+    private final Executor executor;
 
     DeployerChains(final EnumMap<Phase, List<DeploymentUnitProcessor>> phases) {
+        this(phases, null);
+    }
+
+    DeployerChains(final EnumMap<Phase, List<DeploymentUnitProcessor>> phases, final Executor executor) {
         this.phases = phases;
+        this.executor = executor;
+        graphs = new EnumMap<Phase, DeploymentUnitProcessorGraph>(Phase.class);
+        for (Map.Entry<Phase, List<DeploymentUnitProcessor>> entry : phases.entrySet()) {
+            graphs.put(entry.getKey(), new DeploymentUnitProcessorGraph(entry.getValue()));
+        }
     }
 
     List<DeploymentUnitProcessor> getChain(Phase phase) {
         return phases.get(phase);
     }
+
+    DeploymentUnitProcessorGraph getGraph(Phase phase) {
+        return graphs.get(phase);
+    }
+
+    /**
+     * Get the executor used to run processors which do not conflict concurrently.
+     *
+     * @return the executor, or {@code null} if every chain should be run in order on the phase thread
+     */
+    Executor getExecutor() {
+        return executor;
+    }
 }
@@ -24,6 +24,8 @@ package org.jboss.as.server.deployment;
 
 import java.util.EnumMap;
 import java.util.List;
+import java.util.concurrent.Executor;
+
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.ServiceTarget;
 import org.jboss.msc.service.StartContext;
@@ -39,7 +41,19 @@ public class DeployerChainsService implements Service<DeployerChains> {
     private final DeployerChains deployerChains;
 
     public static void addService(final ServiceTarget serviceTarget, final EnumMap<Phase, List<DeploymentUnitProcessor>> phases) {
-        final DeployerChains deployerChains = new DeployerChains(phases);
+        addService(serviceTarget, phases, null);
+    }
+
+    /**
+     * Add the deployer chains service.
+     *
+     * @param serviceTarget the service target
+     * @param phases the processors of each phase, in order
+     * @param executor the executor used to run {@link ConcurrentDeploymentUnitProcessor}s which do not conflict
+     *        concurrently, or {@code null} to run every chain in order
+     */
+    public static void addService(final ServiceTarget serviceTarget, final EnumMap<Phase, List<DeploymentUnitProcessor>> phases, final Executor executor) {
+        final DeployerChains deployerChains = new DeployerChains(phases, executor);
         serviceTarget.addService(Services.JBOSS_DEPLOYMENT_CHAINS, new DeployerChainsService(deployerChains))
             .install();
     }
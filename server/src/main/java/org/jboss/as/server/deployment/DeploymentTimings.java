@@ -0,0 +1,255 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.server.deployment;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * The time spent in, and the memory allocated by, each deployment unit processor while processing a deployment unit.
+ * Sub-deployments record their own timings, which are reported as part of their parent's.
+ * <p>
+ * Times are reported in milliseconds. Allocations are only reported if the JVM can measure the memory allocated by a
+ * thread; a processor which allocates from other threads will under-report.
+ * <p>
+ * This class is thread safe.
+ */
+public final class DeploymentTimings {
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private static final Method getThreadAllocatedBytes;
+
+    static {
+        Method method = null;
+        try {
+            final Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+            if (type.isInstance(threadMXBean)) {
+                method = type.getMethod("getThreadAllocatedBytes", long.class);
+            }
+        } catch (Throwable ignored) {
+            // allocations can't be measured on this JVM
+        }
+        getThreadAllocatedBytes = method;
+    }
+
+    private final String name;
+    /** Guarded by this */
+    private final Map<Phase, PhaseTiming> phases = new EnumMap<Phase, PhaseTiming>(Phase.class);
+    /** Guarded by this */
+    private final Map<String, DeploymentTimings> subDeployments = new LinkedHashMap<String, DeploymentTimings>();
+
+    /**
+     * Construct a new instance.
+     *
+     * @param name the name of the deployment unit
+     */
+    public DeploymentTimings(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the name of the deployment unit.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the number of bytes allocated so far by the current thread.
+     *
+     * @return the number of bytes, or {@code -1} if the JVM does not measure allocations
+     */
+    static long currentThreadAllocatedBytes() {
+        final Method method = getThreadAllocatedBytes;
+        if (method == null) {
+            return -1L;
+        }
+        try {
+            return ((Long) method.invoke(threadMXBean, Long.valueOf(Thread.currentThread().getId()))).longValue();
+        } catch (Exception e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Discard anything recorded for an earlier run of the given phase.
+     *
+     * @param phase the phase which is starting
+     */
+    synchronized void startPhase(final Phase phase) {
+        phases.put(phase, new PhaseTiming());
+    }
+
+    /**
+     * Record the wall-clock time taken by a phase.
+     *
+     * @param phase the phase
+     * @param nanos the elapsed time in nanoseconds
+     */
+    synchronized void recordPhase(final Phase phase, final long nanos) {
+        getPhase(phase).nanos = nanos;
+    }
+
+    /**
+     * Record a run of a processor.
+     *
+     * @param phase the phase
+     * @param processor the processor
+     * @param nanos the elapsed time in nanoseconds
+     * @param allocatedBytes the number of bytes allocated, or {@code -1} if unknown
+     */
+    synchronized void recordProcessor(final Phase phase, final DeploymentUnitProcessor processor, final long nanos, final long allocatedBytes) {
+        getPhase(phase).processors.add(new ProcessorTiming(processor.getClass().getName(), nanos, allocatedBytes));
+    }
+
+    /**
+     * Add the timings of a sub-deployment, replacing any earlier timings of a sub-deployment with the same name.
+     *
+     * @param timings the sub-deployment timings
+     */
+    synchronized void addSubDeployment(final DeploymentTimings timings) {
+        subDeployments.remove(timings.getName());
+        subDeployments.put(timings.getName(), timings);
+    }
+
+    private PhaseTiming getPhase(final Phase phase) {
+        PhaseTiming timing = phases.get(phase);
+        if (timing == null) {
+            timing = new PhaseTiming();
+            phases.put(phase, timing);
+        }
+        return timing;
+    }
+
+    /**
+     * Get the total wall-clock time spent processing this deployment unit, not counting its sub-deployments.
+     *
+     * @return the time in milliseconds
+     */
+    public synchronized long getTotalTime() {
+        long nanos = 0;
+        for (PhaseTiming timing : phases.values()) {
+            nanos += timing.nanos;
+        }
+        return toMillis(nanos);
+    }
+
+    /**
+     * Get the recorded timings as a model node of the form
+     * <pre>
+     * {
+     *     "name" => "app.ear",
+     *     "time" => 1234,
+     *     "phases" => {"STRUCTURE" => {"time" => 120, "processors" => [{"processor" => "...", "time" => 80, "allocated-bytes" => 123456}]}},
+     *     "sub-deployments" => {"app.war" => {...}}
+     * }
+     * </pre>
+     *
+     * @return the timings
+     */
+    public synchronized ModelNode toModelNode() {
+        final ModelNode node = new ModelNode();
+        node.get("name").set(name);
+        node.get("time").set(getTotalTime());
+        final ModelNode phasesNode = node.get("phases").setEmptyObject();
+        for (Map.Entry<Phase, PhaseTiming> entry : phases.entrySet()) {
+            final PhaseTiming timing = entry.getValue();
+            final ModelNode phaseNode = phasesNode.get(entry.getKey().name());
+            phaseNode.get("time").set(toMillis(timing.nanos));
+            final ModelNode processorsNode = phaseNode.get("processors").setEmptyList();
+            for (ProcessorTiming processor : timing.processors) {
+                final ModelNode processorNode = processorsNode.add();
+                processorNode.get("processor").set(processor.className);
+                processorNode.get("time").set(toMillis(processor.nanos));
+                if (processor.allocatedBytes >= 0) {
+                    processorNode.get("allocated-bytes").set(processor.allocatedBytes);
+                }
+            }
+        }
+        final ModelNode subDeploymentsNode = node.get("sub-deployments").setEmptyObject();
+        for (DeploymentTimings subDeployment : subDeployments.values()) {
+            subDeploymentsNode.get(subDeployment.getName()).set(subDeployment.toModelNode());
+        }
+        return node;
+    }
+
+    /**
+     * Get the recorded timings as a multi-line report, listing each phase and the processors which ran in it.
+     *
+     * @return the report
+     */
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        appendTo(builder, "");
+        return builder.toString();
+    }
+
+    private synchronized void appendTo(final StringBuilder builder, final String indent) {
+        builder.append(indent).append('"').append(name).append("\" processed in ").append(getTotalTime()).append("ms");
+        for (Map.Entry<Phase, PhaseTiming> entry : phases.entrySet()) {
+            final PhaseTiming timing = entry.getValue();
+            builder.append('\n').append(indent).append("    ").append(entry.getKey()).append(' ').append(toMillis(timing.nanos)).append("ms");
+            for (ProcessorTiming processor : timing.processors) {
+                builder.append('\n').append(indent).append("        ").append(processor.className).append(' ').append(toMillis(processor.nanos)).append("ms");
+                if (processor.allocatedBytes >= 0) {
+                    builder.append(' ').append(processor.allocatedBytes).append(" bytes");
+                }
+            }
+        }
+        for (DeploymentTimings subDeployment : subDeployments.values()) {
+            builder.append('\n');
+            subDeployment.appendTo(builder, indent + "    ");
+        }
+    }
+
+    private static long toMillis(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static final class PhaseTiming {
+        private final List<ProcessorTiming> processors = new ArrayList<ProcessorTiming>();
+        private long nanos;
+    }
+
+    private static final class ProcessorTiming {
+        private final String className;
+        private final long nanos;
+        private final long allocatedBytes;
+
+        ProcessorTiming(final String className, final long nanos, final long allocatedBytes) {
+            this.className = className;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+}
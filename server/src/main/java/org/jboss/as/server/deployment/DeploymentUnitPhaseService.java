@@ -37,6 +37,10 @@ import org.jboss.msc.value.InjectedValue;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * A service which executes a particular phase of deployment.
@@ -54,6 +58,7 @@ final class DeploymentUnitPhaseService<T> implements Service<T> {
     private final List<AttachedDependency> injectedAttachedDependencies = new ArrayList<AttachedDependency>();
 
     private static final Logger log = Logger.getLogger("org.jboss.as.server.deployment");
+    private static final Logger timingLog = Logger.getLogger("org.jboss.as.server.deployment.timing");
 
     private DeploymentUnitPhaseService(final DeploymentUnit deploymentUnit, final Phase phase, final AttachmentKey<T> valueKey) {
         this.deploymentUnit = deploymentUnit;
@@ -71,6 +76,7 @@ final class DeploymentUnitPhaseService<T> implements Service<T> {
 
     @SuppressWarnings("unchecked")
     public synchronized void start(final StartContext context) throws StartException {
+        final long phaseStart = System.nanoTime();
         final DeployerChains chains = deployerChainsInjector.getValue();
         final DeploymentUnit deploymentUnit = this.deploymentUnit;
         final List<DeploymentUnitProcessor> list = chains.getChain(phase);
@@ -109,16 +115,32 @@ final class DeploymentUnitPhaseService<T> implements Service<T> {
             }
         }
 
-        while (iterator.hasNext()) {
-            final DeploymentUnitProcessor processor = iterator.next();
-            try {
-                processor.deploy(processorContext);
-            } catch (Throwable e) {
-                while (iterator.hasPrevious()) {
-                    final DeploymentUnitProcessor prev = iterator.previous();
-                    safeUndeploy(deploymentUnit, phase, prev);
+        final DeploymentTimings timings = deploymentUnit.getAttachment(Attachments.DEPLOYMENT_TIMINGS);
+        if (timings != null) {
+            timings.startPhase(phase);
+        }
+        final DeploymentUnitProcessorGraph graph = chains.getGraph(phase);
+        final Executor executor = chains.getExecutor();
+        if (executor != null && graph != null && graph.isConcurrent()) {
+            deployConcurrently(deploymentUnit, phase, graph, executor, processorContext, timings);
+        } else {
+            while (iterator.hasNext()) {
+                final DeploymentUnitProcessor processor = iterator.next();
+                try {
+                    deploy(processor, processorContext, phase, timings);
+                } catch (Throwable e) {
+                    while (iterator.hasPrevious()) {
+                        final DeploymentUnitProcessor prev = iterator.previous();
+                        safeUndeploy(deploymentUnit, phase, prev);
+                    }
+                    throw new StartException(String.format("Failed to process phase %s of %s", phase, deploymentUnit), e);
                 }
-                throw new StartException(String.format("Failed to process phase %s of %s", phase, deploymentUnit), e);
+            }
+        }
+        if (timings != null) {
+            timings.recordPhase(phase, System.nanoTime() - phaseStart);
+            if (nextPhase == null && parent == null && timingLog.isDebugEnabled()) {
+                timingLog.debugf("Deployment %s", timings);
             }
         }
         if (nextPhase != null) {
@@ -164,6 +186,94 @@ final class DeploymentUnitPhaseService<T> implements Service<T> {
         }
     }
 
+    /**
+     * Run the processors of this phase, starting each one as soon as every processor it conflicts with has completed.
+     * If a processor fails, no further processors are started; once the running ones have finished, the processors
+     * which completed are undeployed in reverse chain order.
+     */
+    static void deployConcurrently(final DeploymentUnit deploymentUnit, final Phase phase, final DeploymentUnitProcessorGraph graph, final Executor executor, final DeploymentPhaseContext processorContext, final DeploymentTimings timings) throws StartException {
+        final int size = graph.size();
+        final int[] remaining = new int[size];
+        final boolean[] deployed = new boolean[size];
+        final BlockingQueue<ProcessorResult> results = new LinkedBlockingQueue<ProcessorResult>();
+        int running = 0;
+        for (int i = 0; i < size; i++) {
+            remaining[i] = graph.getPredecessorCount(i);
+            if (remaining[i] == 0) {
+                execute(executor, new ProcessorTask(graph.getProcessor(i), i, processorContext, phase, timings, results));
+                running++;
+            }
+        }
+        Throwable failure = null;
+        boolean intr = false;
+        try {
+            while (running > 0) {
+                final ProcessorResult result;
+                try {
+                    result = results.take();
+                } catch (InterruptedException e) {
+                    // the running processors are still modifying the deployment, so keep waiting for them
+                    intr = true;
+                    continue;
+                }
+                running--;
+                if (result.failure != null) {
+                    if (failure == null) {
+                        failure = result.failure;
+                    }
+                    continue;
+                }
+                deployed[result.index] = true;
+                if (failure == null) {
+                    for (int successor : graph.getSuccessors(result.index)) {
+                        if (--remaining[successor] == 0) {
+                            execute(executor, new ProcessorTask(graph.getProcessor(successor), successor, processorContext, phase, timings, results));
+                            running++;
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (intr) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure != null) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (deployed[i]) {
+                    safeUndeploy(deploymentUnit, phase, graph.getProcessor(i));
+                }
+            }
+            throw new StartException(String.format("Failed to process phase %s of %s", phase, deploymentUnit), failure);
+        }
+    }
+
+    /**
+     * Run a processor, recording the time it takes and the memory it allocates if {@code timings} is not {@code null}.
+     */
+    private static void deploy(final DeploymentUnitProcessor processor, final DeploymentPhaseContext processorContext, final Phase phase, final DeploymentTimings timings) throws DeploymentUnitProcessingException {
+        if (timings == null) {
+            processor.deploy(processorContext);
+            return;
+        }
+        final long allocated = DeploymentTimings.currentThreadAllocatedBytes();
+        final long start = System.nanoTime();
+        try {
+            processor.deploy(processorContext);
+        } finally {
+            final long elapsed = System.nanoTime() - start;
+            timings.recordProcessor(phase, processor, elapsed, allocated < 0L ? -1L : DeploymentTimings.currentThreadAllocatedBytes() - allocated);
+        }
+    }
+
+    private static void execute(final Executor executor, final ProcessorTask task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
     private static void safeUndeploy(final DeploymentUnit deploymentUnit, final Phase phase, final DeploymentUnitProcessor prev) {
         try {
             prev.undeploy(deploymentUnit);
@@ -179,4 +289,42 @@ final class DeploymentUnitPhaseService<T> implements Service<T> {
     InjectedValue<DeployerChains> getDeployerChainsInjector() {
         return deployerChainsInjector;
     }
+
+    private static final class ProcessorResult {
+        private final int index;
+        private final Throwable failure;
+
+        ProcessorResult(final int index, final Throwable failure) {
+            this.index = index;
+            this.failure = failure;
+        }
+    }
+
+    private static final class ProcessorTask implements Runnable {
+        private final DeploymentUnitProcessor processor;
+        private final int index;
+        private final DeploymentPhaseContext processorContext;
+        private final Phase phase;
+        private final DeploymentTimings timings;
+        private final BlockingQueue<ProcessorResult> results;
+
+        ProcessorTask(final DeploymentUnitProcessor processor, final int index, final DeploymentPhaseContext processorContext, final Phase phase, final DeploymentTimings timings, final BlockingQueue<ProcessorResult> results) {
+            this.processor = processor;
+            this.index = index;
+            this.processorContext = processorContext;
+            this.phase = phase;
+            this.timings = timings;
+            this.results = results;
+        }
+
+        public void run() {
+            Throwable failure = null;
+            try {
+                deploy(processor, processorContext, phase, timings);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            results.add(new ProcessorResult(index, failure));
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.server.deployment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The order constraints between the processors of a single phase. A processor must run after every earlier processor
+ * in the chain that it conflicts with, as described by {@link ConcurrentDeploymentUnitProcessor}; processors which do
+ * not declare their attachments conflict with every other processor.
+ */
+final class DeploymentUnitProcessorGraph {
+    private static final int[] NONE = new int[0];
+
+    private final List<DeploymentUnitProcessor> processors;
+    private final int[] predecessorCounts;
+    private final int[][] successors;
+    private final boolean concurrent;
+
+    DeploymentUnitProcessorGraph(final List<DeploymentUnitProcessor> processors) {
+        final int size = processors.size();
+        this.processors = processors;
+        predecessorCounts = new int[size];
+        successors = new int[size][];
+        boolean concurrent = false;
+        final List<Integer> list = new ArrayList<Integer>();
+        for (int i = 0; i < size; i++) {
+            list.clear();
+            final DeploymentUnitProcessor processor = processors.get(i);
+            for (int j = i + 1; j < size; j++) {
+                if (conflicts(processor, processors.get(j))) {
+                    list.add(Integer.valueOf(j));
+                    predecessorCounts[j]++;
+                } else if (j == i + 1) {
+                    // neighbours which do not conflict may overlap
+                    concurrent = true;
+                }
+            }
+            if (list.isEmpty()) {
+                successors[i] = NONE;
+            } else {
+                final int[] array = new int[list.size()];
+                for (int k = 0; k < array.length; k++) {
+                    array[k] = list.get(k).intValue();
+                }
+                successors[i] = array;
+            }
+        }
+        this.concurrent = concurrent;
+    }
+
+    /**
+     * Get the number of processors in the phase.
+     *
+     * @return the number of processors
+     */
+    int size() {
+        return processors.size();
+    }
+
+    /**
+     * Get the processor at the given position in the chain.
+     *
+     * @param index the position
+     * @return the processor
+     */
+    DeploymentUnitProcessor getProcessor(final int index) {
+        return processors.get(index);
+    }
+
+    /**
+     * Get the number of processors which must complete before the given processor may run.
+     *
+     * @param index the position of the processor in the chain
+     * @return the number of predecessors
+     */
+    int getPredecessorCount(final int index) {
+        return predecessorCounts[index];
+    }
+
+    /**
+     * Get the positions of the processors which must not run before the given processor completes.
+     *
+     * @param index the position of the processor in the chain
+     * @return the positions of the successors, in chain order. The caller must not modify the array
+     */
+    int[] getSuccessors(final int index) {
+        return successors[index];
+    }
+
+    /**
+     * Determine whether any two processors of the phase may run at the same time. If not, the chain must simply be
+     * run in order.
+     *
+     * @return {@code true} if some processors may run concurrently
+     */
+    boolean isConcurrent() {
+        return concurrent;
+    }
+
+    static boolean conflicts(final DeploymentUnitProcessor first, final DeploymentUnitProcessor second) {
+        if (!(first instanceof ConcurrentDeploymentUnitProcessor) || !(second instanceof ConcurrentDeploymentUnitProcessor)) {
+            return true;
+        }
+        final ConcurrentDeploymentUnitProcessor a = (ConcurrentDeploymentUnitProcessor) first;
+        final ConcurrentDeploymentUnitProcessor b = (ConcurrentDeploymentUnitProcessor) second;
+        final Set<AttachmentKey<?>> producedByA = a.getProducedAttachments();
+        final Set<AttachmentKey<?>> producedByB = b.getProducedAttachments();
+        return !Collections.disjoint(producedByA, producedByB)
+                || !Collections.disjoint(producedByA, b.getConsumedAttachments())
+                || !Collections.disjoint(a.getConsumedAttachments(), producedByB);
+    }
+}
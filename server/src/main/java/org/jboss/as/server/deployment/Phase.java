@@ -235,6 +235,8 @@ public enum Phase {
     public static final int PARSE_EJB_TRANSACTION_ATTR_ANNOTATION       = 0x1C00;
     public static final int PARSE_EJB_RESOURCE_ADAPTER_ANNOTATION       = 0x1D00;
     public static final int PARSE_EJB_ASYNCHRONOUS_ANNOTATION           = 0x1E00;
+    // should be after all EJB components are known
+    public static final int PARSE_EJB_POOL_DD                           = 0x1E01;
     public static final int PARSE_WEB_COMPONENTS                        = 0x1F00;
     public static final int PARSE_JSF_MANAGED_BEANS                     = 0x1F10;
     public static final int PARSE_WEB_MERGE_METADATA                    = 0x2000;
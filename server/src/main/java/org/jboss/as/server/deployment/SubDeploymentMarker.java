@@ -30,7 +30,7 @@ import org.jboss.as.server.deployment.module.ResourceRoot;
  *
  */
 public class SubDeploymentMarker {
-    private static final AttachmentKey<Boolean> SUB_DEPLOYMENT_ROOT_MARKER = AttachmentKey.create(Boolean.class);
+    public static final AttachmentKey<Boolean> SUB_DEPLOYMENT_ROOT_MARKER = AttachmentKey.create(Boolean.class);
 
     public static void mark(ResourceRoot attachable) {
         attachable.putAttachment(SUB_DEPLOYMENT_ROOT_MARKER, true);
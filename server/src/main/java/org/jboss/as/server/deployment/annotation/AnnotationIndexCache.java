@@ -0,0 +1,288 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server.deployment.annotation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jboss.as.controller.HashUtil;
+import org.jboss.jandex.Index;
+import org.jboss.jandex.IndexReader;
+import org.jboss.jandex.IndexWriter;
+import org.jboss.logging.Logger;
+import org.jboss.vfs.VFSUtils;
+import org.jboss.vfs.VirtualFile;
+
+/**
+ * An on-disk cache of the annotation indexes of resource roots, so that unchanged content is not indexed again when
+ * it is redeployed or the server restarts.
+ * <p>
+ * Indexes are keyed by a {@link #getKey(VirtualFile, List) fingerprint} of the content of the class files of a
+ * resource root, which works the same way for archives and exploded content, and are stored with the same two
+ * level layout as the content repository. For content of a deployment archive the fingerprint is
+ * {@link #getKey(VirtualFile, List, ZipFile, String) taken from its central directory}, so that no class file has to
+ * be read to find a cached index. Once the cache grows past its maximum size the least recently used indexes are
+ * removed.
+ * </p>
+ */
+public final class AnnotationIndexCache {
+
+    /** Default maximum size of the cache on disk */
+    public static final long DEFAULT_MAX_SIZE = 64L << 20;
+
+    private static final Logger log = Logger.getLogger("org.jboss.as.server.deployment");
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final File root;
+    private final long maxSize;
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Construct a new instance.
+     *
+     * @param root the directory in which to store indexes
+     * @param maxSize the size in bytes beyond which the least recently used indexes are removed
+     */
+    public AnnotationIndexCache(final File root, final long maxSize) {
+        if (root == null) {
+            throw new IllegalArgumentException("root is null");
+        }
+        if (root.exists()) {
+            if (!root.isDirectory()) {
+                throw new IllegalStateException("Annotation index cache root " + root.getAbsolutePath() + " is not a directory");
+            }
+        } else if (!root.mkdirs()) {
+            throw new IllegalStateException("Failed to create annotation index cache root " + root.getAbsolutePath());
+        }
+        this.root = root;
+        this.maxSize = maxSize;
+        long total = 0;
+        for (File file : listIndexes()) {
+            total += file.length();
+        }
+        size.set(total);
+    }
+
+    /**
+     * Computes the key of the index of a resource root from the path, size and CRC-32 of the content of each of its
+     * class files. The modification time is not used since it is neither reliable enough to detect a changed class
+     * nor stable across copies of the same content.
+     *
+     * @param resourceRoot the root
+     * @param classFiles the class files to index
+     * @return the key
+     * @throws IOException if a class file cannot be read
+     */
+    public static String getKey(final VirtualFile resourceRoot, final List<VirtualFile> classFiles) throws IOException {
+        return getKey(resourceRoot, classFiles, null, null);
+    }
+
+    /**
+     * Computes the same key as {@link #getKey(VirtualFile, List)} for a resource root inside an archive, taking the
+     * size and CRC-32 of each class file from the central directory of the archive instead of reading its content.
+     * Only class files the archive has no such entry for are read.
+     *
+     * @param resourceRoot the root
+     * @param classFiles the class files to index
+     * @param archive the archive the resource root was mounted from, or {@code null} to read every class file
+     * @param entryPrefix the path of the resource root inside the archive, either empty or ending with a slash
+     * @return the key
+     * @throws IOException if a class file cannot be read
+     */
+    public static String getKey(final VirtualFile resourceRoot, final List<VirtualFile> classFiles, final ZipFile archive,
+            final String entryPrefix) throws IOException {
+        final String[] entries = new String[classFiles.size()];
+        byte[] buffer = null;
+        final CRC32 crc = new CRC32();
+        for (int i = 0; i < entries.length; i++) {
+            final VirtualFile classFile = classFiles.get(i);
+            final String path = classFile.getPathNameRelativeTo(resourceRoot);
+            final ZipEntry zipEntry = archive == null ? null : archive.getEntry(entryPrefix + path);
+            if (zipEntry != null && zipEntry.getSize() != -1 && zipEntry.getCrc() != -1) {
+                entries[i] = path + ':' + zipEntry.getSize() + ':' + Long.toHexString(zipEntry.getCrc());
+                continue;
+            }
+            if (buffer == null) {
+                buffer = new byte[8192];
+            }
+            crc.reset();
+            long size = 0;
+            final InputStream in = classFile.openStream();
+            try {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                    size += read;
+                }
+            } finally {
+                VFSUtils.safeClose(in);
+            }
+            entries[i] = path + ':' + size + ':' + Long.toHexString(crc.getValue());
+        }
+        Arrays.sort(entries);
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (String entry : entries) {
+            digest.update(entry.getBytes("UTF-8"));
+            digest.update((byte) '\n');
+        }
+        return HashUtil.bytesToHexString(digest.digest());
+    }
+
+    /**
+     * Gets a cached index.
+     *
+     * @param key the key
+     * @return the index, or {@code null} if none is cached
+     */
+    public Index get(final String key) {
+        final File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+        InputStream in = null;
+        try {
+            in = new BufferedInputStream(new FileInputStream(file));
+            final Index index = new IndexReader(in).read();
+            // Record the use for eviction
+            file.setLastModified(System.currentTimeMillis());
+            return index;
+        } catch (IOException e) {
+            log.debugf(e, "Discarding unreadable annotation index %s", file);
+            remove(file);
+            return null;
+        } finally {
+            VFSUtils.safeClose(in);
+        }
+    }
+
+    /**
+     * Stores an index.
+     *
+     * @param key the key
+     * @param index the index
+     */
+    public void put(final String key, final Index index) {
+        final File file = getFile(key);
+        final File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            log.debugf("Failed to create annotation index cache directory %s", dir);
+            return;
+        }
+        final File tmp = new File(dir, file.getName() + ".tmp" + Thread.currentThread().getId());
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(tmp));
+            new IndexWriter(out).write(index);
+            out.close();
+            out = null;
+            final long previous = file.length();
+            if (!tmp.renameTo(file)) {
+                // Another deployment of the same content got there first
+                tmp.delete();
+                return;
+            }
+            size.addAndGet(file.length() - previous);
+        } catch (IOException e) {
+            log.debugf(e, "Failed to store annotation index %s", file);
+            tmp.delete();
+            return;
+        } finally {
+            VFSUtils.safeClose(out);
+        }
+        if (size.get() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes the least recently used indexes until the cache is within 90% of its maximum size.
+     */
+    private synchronized void evict() {
+        final List<File> files = listIndexes();
+        Collections.sort(files, new Comparator<File>() {
+            public int compare(final File o1, final File o2) {
+                final long m1 = o1.lastModified();
+                final long m2 = o2.lastModified();
+                return m1 < m2 ? -1 : m1 == m2 ? 0 : 1;
+            }
+        });
+        final long target = maxSize - maxSize / 10;
+        for (File file : files) {
+            if (size.get() <= target) {
+                break;
+            }
+            remove(file);
+        }
+    }
+
+    private void remove(final File file) {
+        final long length = file.length();
+        if (file.delete()) {
+            size.addAndGet(-length);
+        }
+    }
+
+    private List<File> listIndexes() {
+        final List<File> indexes = new ArrayList<File>();
+        final File[] dirs = root.listFiles();
+        if (dirs != null) {
+            for (File dir : dirs) {
+                final File[] files = dir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        if (file.getName().endsWith(INDEX_SUFFIX)) {
+                            indexes.add(file);
+                        }
+                    }
+                }
+            }
+        }
+        return indexes;
+    }
+
+    private File getFile(final String key) {
+        return new File(new File(root, key.substring(0, 2)), key.substring(2) + INDEX_SUFFIX);
+    }
+}
@@ -22,12 +22,20 @@
 
 package org.jboss.as.server.deployment.annotation;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.ZipFile;
+
 import org.jboss.as.server.deployment.Attachments;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
 import org.jboss.as.server.deployment.DeploymentUnit;
@@ -43,13 +51,55 @@ import org.jboss.vfs.VisitorAttributes;
 import org.jboss.vfs.util.SuffixMatchFilter;
 
 /**
- * Deployment unit processor responsible for creating and attaching an annotation index for a resource root
+ * Deployment unit processor responsible for creating and attaching an annotation index for a resource root.
+ * <p>
+ * If an executor is provided, each resource root is indexed by a separate task, which streams the class files of the
+ * resource root into its own indexer in the order they were found. The indexes are attached once every resource root has
+ * been indexed, so the result does not depend on the order in which the tasks complete. While waiting, the deployment
+ * thread runs any task the executor has not yet started, so sharing a busy executor cannot stall the deployment.
+ * </p>
+ * <p>
+ * The cache key of a resource root inside the deployment archive is taken from the central directory of the archive
+ * before any task is submitted. The key of any other resource root can only be computed from the content of its class
+ * files, so its task computes it before indexing.
+ * </p>
  *
  * @author John E. Bailey
  * @author Stuart Douglas
  */
 public class AnnotationIndexProcessor implements DeploymentUnitProcessor {
 
+    private final AnnotationIndexCache indexCache;
+    private final Executor executor;
+
+    /**
+     * Construct a new instance which indexes every resource root on the deployment thread.
+     */
+    public AnnotationIndexProcessor() {
+        this(null, null);
+    }
+
+    /**
+     * Construct a new instance which reuses the cached indexes of unchanged resource roots.
+     *
+     * @param indexCache the index cache, or {@code null} to index every resource root
+     */
+    public AnnotationIndexProcessor(final AnnotationIndexCache indexCache) {
+        this(indexCache, null);
+    }
+
+    /**
+     * Construct a new instance which reuses the cached indexes of unchanged resource roots and indexes the
+     * remaining resource roots concurrently.
+     *
+     * @param indexCache the index cache, or {@code null} to index every resource root
+     * @param executor the executor used to index resource roots, or {@code null} to index them on the deployment thread
+     */
+    public AnnotationIndexProcessor(final AnnotationIndexCache indexCache, final Executor executor) {
+        this.indexCache = indexCache;
+        this.executor = executor;
+    }
+
     /**
      * Process this deployment for annotations.  This will use an annotation indexer to create an index of all annotations
      * found in this deployment and attach it to the deployment unit context.
@@ -64,54 +114,205 @@ public class AnnotationIndexProcessor implements DeploymentUnitProcessor {
         if (resourceRoots != null) {
             allResourceRoots.addAll(resourceRoots);
         }
-        allResourceRoots.add(phaseContext.getDeploymentUnit().getAttachment(Attachments.DEPLOYMENT_ROOT));
-        for (ResourceRoot resourceRoot : allResourceRoots) {
-            if (resourceRoot.getAttachment(Attachments.ANNOTATION_INDEX) != null) {
-                continue;
-            }
-            // if this flag is present and set to false then do not index the resource
-            Boolean shouldIndexResource = resourceRoot.getAttachment(Attachments.INDEX_RESOURCE_ROOT);
-            if (shouldIndexResource != null && !shouldIndexResource) {
-                continue;
-            }
+        final ResourceRoot deploymentRoot = phaseContext.getDeploymentUnit().getAttachment(Attachments.DEPLOYMENT_ROOT);
+        allResourceRoots.add(deploymentRoot);
+        final File archiveFile = indexCache == null ? null : getArchiveFile(phaseContext.getDeploymentUnit());
+        ZipFile archive = null;
+        final List<RootIndexTask> rootTasks = new ArrayList<RootIndexTask>();
+        try {
+            for (ResourceRoot resourceRoot : allResourceRoots) {
+                if (resourceRoot.getAttachment(Attachments.ANNOTATION_INDEX) != null) {
+                    continue;
+                }
+                // if this flag is present and set to false then do not index the resource
+                Boolean shouldIndexResource = resourceRoot.getAttachment(Attachments.INDEX_RESOURCE_ROOT);
+                if (shouldIndexResource != null && !shouldIndexResource) {
+                    continue;
+                }
 
-            final List<String> indexIgnorePathList = resourceRoot.getAttachment(Attachments.INDEX_IGNORE_PATHS);
-            final Set<String> indexIgnorePaths;
-            if (indexIgnorePathList != null && !indexIgnorePathList.isEmpty()) {
-                indexIgnorePaths = new HashSet<String>(indexIgnorePathList);
-            } else {
-                indexIgnorePaths = null;
-            }
+                final List<String> indexIgnorePathList = resourceRoot.getAttachment(Attachments.INDEX_IGNORE_PATHS);
+                final Set<String> indexIgnorePaths;
+                if (indexIgnorePathList != null && !indexIgnorePathList.isEmpty()) {
+                    indexIgnorePaths = new HashSet<String>(indexIgnorePathList);
+                } else {
+                    indexIgnorePaths = null;
+                }
 
-            final VirtualFile virtualFile = resourceRoot.getRoot();
-            final Indexer indexer = new Indexer();
-            try {
-                final VisitorAttributes visitorAttributes = new VisitorAttributes();
-                visitorAttributes.setLeavesOnly(true);
-                visitorAttributes.setRecurseFilter(new VirtualFileFilter() {
-                    public boolean accepts(VirtualFile file) {
-                        return indexIgnorePaths == null || !indexIgnorePaths.contains(file.getPathNameRelativeTo(virtualFile));
+                final VirtualFile virtualFile = resourceRoot.getRoot();
+                final List<VirtualFile> classChildren;
+                final String cacheKey;
+                try {
+                    final VisitorAttributes visitorAttributes = new VisitorAttributes();
+                    visitorAttributes.setLeavesOnly(true);
+                    visitorAttributes.setRecurseFilter(new VirtualFileFilter() {
+                        public boolean accepts(VirtualFile file) {
+                            return indexIgnorePaths == null || !indexIgnorePaths.contains(file.getPathNameRelativeTo(virtualFile));
+                        }
+                    });
+
+                    classChildren = virtualFile.getChildren(new SuffixMatchFilter(".class", visitorAttributes));
+                    final String entryPrefix = archiveFile == null || classChildren.isEmpty() ? null : getEntryPrefix(resourceRoot, deploymentRoot);
+                    if (entryPrefix != null) {
+                        if (archive == null) {
+                            archive = new ZipFile(archiveFile);
+                        }
+                        cacheKey = AnnotationIndexCache.getKey(virtualFile, classChildren, archive, entryPrefix);
+                    } else {
+                        cacheKey = null;
                     }
-                });
-
-                final List<VirtualFile> classChildren = virtualFile.getChildren(new SuffixMatchFilter(".class", visitorAttributes));
-                for (VirtualFile classFile : classChildren) {
-                    InputStream inputStream = null;
-                    try {
-                        inputStream = classFile.openStream();
-                        indexer.index(inputStream);
-                    } finally {
-                        VFSUtils.safeClose(inputStream);
+                } catch (Throwable t) {
+                    throw new DeploymentUnitProcessingException("Failed to index deployment root for annotations", t);
+                }
+                if (cacheKey != null) {
+                    final Index index = indexCache.get(cacheKey);
+                    if (index != null) {
+                        resourceRoot.putAttachment(Attachments.ANNOTATION_INDEX, index);
+                        continue;
                     }
                 }
-                final Index index = indexer.complete();
-                resourceRoot.putAttachment(Attachments.ANNOTATION_INDEX, index);
-            } catch (Throwable t) {
-                throw new DeploymentUnitProcessingException("Failed to index deployment root for annotations", t);
+                rootTasks.add(new RootIndexTask(resourceRoot, classChildren, cacheKey));
             }
+        } finally {
+            safeClose(archive);
+        }
+
+        for (RootIndexTask rootTask : rootTasks) {
+            execute(rootTask.future);
+        }
+        try {
+            for (RootIndexTask rootTask : rootTasks) {
+                // does nothing if a worker has already started the task
+                rootTask.future.run();
+                rootTask.future.get();
+            }
+        } catch (ExecutionException e) {
+            cancel(rootTasks);
+            throw new DeploymentUnitProcessingException("Failed to index deployment root for annotations", e.getCause());
+        } catch (InterruptedException e) {
+            cancel(rootTasks);
+            Thread.currentThread().interrupt();
+            throw new DeploymentUnitProcessingException("Interrupted while indexing deployment root for annotations", e);
+        }
+        for (RootIndexTask rootTask : rootTasks) {
+            rootTask.resourceRoot.putAttachment(Attachments.ANNOTATION_INDEX, rootTask.index);
         }
     }
 
     public void undeploy(final DeploymentUnit context) {
     }
+
+    /**
+     * Gets the archive the deployment root was mounted from.
+     *
+     * @param deploymentUnit the deployment unit
+     * @return the archive, or {@code null} if the deployment is exploded or has no content of its own
+     */
+    private static File getArchiveFile(final DeploymentUnit deploymentUnit) {
+        final VirtualFile contents = deploymentUnit.getAttachment(Attachments.DEPLOYMENT_CONTENTS);
+        if (contents == null || contents.isDirectory()) {
+            return null;
+        }
+        try {
+            return contents.getPhysicalFile();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the path of a resource root inside the deployment archive.
+     *
+     * @param resourceRoot the resource root
+     * @param deploymentRoot the deployment root
+     * @return the path, either empty or ending with a slash, or {@code null} if the resource root is mounted from an
+     *         archive of its own
+     */
+    private static String getEntryPrefix(final ResourceRoot resourceRoot, final ResourceRoot deploymentRoot) {
+        if (resourceRoot == deploymentRoot) {
+            return "";
+        }
+        if (resourceRoot.getMountHandle() != null) {
+            return null;
+        }
+        final VirtualFile root = resourceRoot.getRoot();
+        final VirtualFile archiveRoot = deploymentRoot.getRoot();
+        for (VirtualFile parent = root.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent.equals(archiveRoot)) {
+                return root.getPathNameRelativeTo(archiveRoot) + '/';
+            }
+        }
+        return null;
+    }
+
+    private static void safeClose(final ZipFile zipFile) {
+        if (zipFile != null) {
+            try {
+                zipFile.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private void execute(final FutureTask<Void> task) {
+        if (executor != null) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // the deployment thread will run it
+            }
+        }
+    }
+
+    private static void cancel(final List<RootIndexTask> tasks) {
+        for (RootIndexTask task : tasks) {
+            task.future.cancel(false);
+        }
+    }
+
+    /**
+     * Indexes the class files of a single resource root, streaming each one into the indexer.
+     */
+    private final class RootIndexTask implements Callable<Void> {
+        private final ResourceRoot resourceRoot;
+        private final List<VirtualFile> classFiles;
+        private final String cacheKey;
+        private final FutureTask<Void> future = new FutureTask<Void>(this);
+        private volatile Index index;
+
+        RootIndexTask(final ResourceRoot resourceRoot, final List<VirtualFile> classFiles, final String cacheKey) {
+            this.resourceRoot = resourceRoot;
+            this.classFiles = classFiles;
+            this.cacheKey = cacheKey;
+        }
+
+        public Void call() throws IOException {
+            String cacheKey = this.cacheKey;
+            if (cacheKey == null && indexCache != null && !classFiles.isEmpty()) {
+                // Not part of the deployment archive, so the key has to be computed from the class files themselves
+                cacheKey = AnnotationIndexCache.getKey(resourceRoot.getRoot(), classFiles);
+                final Index cached = indexCache.get(cacheKey);
+                if (cached != null) {
+                    this.index = cached;
+                    return null;
+                }
+            }
+            final Indexer indexer = new Indexer();
+            for (VirtualFile classFile : classFiles) {
+                InputStream inputStream = null;
+                try {
+                    inputStream = classFile.openStream();
+                    indexer.index(inputStream);
+                } finally {
+                    VFSUtils.safeClose(inputStream);
+                }
+            }
+            final Index index = indexer.complete();
+            if (cacheKey != null) {
+                indexCache.put(cacheKey, index);
+            }
+            this.index = index;
+            return null;
+        }
+    }
 }
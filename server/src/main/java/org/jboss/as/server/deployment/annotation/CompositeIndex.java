@@ -33,19 +33,34 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Composite annotation index.  Represents an annotation index for an entire deployment.
+ * <p>
+ * The result of each lookup is merged from the underlying indexes the first time it is requested, and the same
+ * immutable result is returned by every later lookup.  The underlying indexes are copied on construction and must not
+ * change afterwards.  This class is thread safe.
  *
  * @author John Bailey
  */
 public class CompositeIndex {
     final Collection<Index> indexes;
 
+    private final ConcurrentMap<DotName, List<AnnotationInstance>> annotations = new ConcurrentHashMap<DotName, List<AnnotationInstance>>();
+    private final ConcurrentMap<DotName, Set<ClassInfo>> directSubclasses = new ConcurrentHashMap<DotName, Set<ClassInfo>>();
+    private final ConcurrentMap<DotName, Set<ClassInfo>> allSubclasses = new ConcurrentHashMap<DotName, Set<ClassInfo>>();
+    private final ConcurrentMap<DotName, Set<ClassInfo>> directImplementors = new ConcurrentHashMap<DotName, Set<ClassInfo>>();
+    private final ConcurrentMap<DotName, Set<ClassInfo>> allImplementors = new ConcurrentHashMap<DotName, Set<ClassInfo>>();
+    private volatile Collection<ClassInfo> knownClasses;
+
     public CompositeIndex(final Collection<Index> indexes) {
-        this.indexes = indexes;
+        this.indexes = new ArrayList<Index>(indexes);
     }
 
     public CompositeIndex(final CompositeIndex... indexes) {
@@ -59,28 +74,69 @@ public class CompositeIndex {
      * @see {@link Index#getAnnotations(org.jboss.jandex.DotName)}
      */
     public List<AnnotationInstance> getAnnotations(final DotName annotationName) {
-        final List<AnnotationInstance> allInstances = new ArrayList<AnnotationInstance>();
-        for (Index index : indexes) {
-            final List<AnnotationInstance> list = index.getAnnotations(annotationName);
-            if (list != null) {
-                allInstances.addAll(list);
+        List<AnnotationInstance> result = annotations.get(annotationName);
+        if (result == null) {
+            final List<AnnotationInstance> allInstances = new ArrayList<AnnotationInstance>();
+            for (Index index : indexes) {
+                final List<AnnotationInstance> list = index.getAnnotations(annotationName);
+                if (list != null) {
+                    allInstances.addAll(list);
+                }
             }
+            result = cache(annotations, annotationName, Collections.unmodifiableList(allInstances));
         }
-        return Collections.unmodifiableList(allInstances);
+        return result;
+    }
+
+    /**
+     * Get the instances of several annotations, walking the underlying indexes once for all of the annotations that
+     * have not been looked up before.
+     *
+     * @param annotationNames the annotation names
+     * @return a map from each annotation name to its instances, in the order the names were given
+     */
+    public Map<DotName, List<AnnotationInstance>> getAnnotations(final Collection<DotName> annotationNames) {
+        final Map<DotName, List<AnnotationInstance>> result = new LinkedHashMap<DotName, List<AnnotationInstance>>();
+        final Map<DotName, List<AnnotationInstance>> missing = new LinkedHashMap<DotName, List<AnnotationInstance>>();
+        for (DotName annotationName : annotationNames) {
+            final List<AnnotationInstance> cached = annotations.get(annotationName);
+            result.put(annotationName, cached);
+            if (cached == null) {
+                missing.put(annotationName, new ArrayList<AnnotationInstance>());
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Index index : indexes) {
+                for (Map.Entry<DotName, List<AnnotationInstance>> entry : missing.entrySet()) {
+                    final List<AnnotationInstance> list = index.getAnnotations(entry.getKey());
+                    if (list != null) {
+                        entry.getValue().addAll(list);
+                    }
+                }
+            }
+            for (Map.Entry<DotName, List<AnnotationInstance>> entry : missing.entrySet()) {
+                result.put(entry.getKey(), cache(annotations, entry.getKey(), Collections.unmodifiableList(entry.getValue())));
+            }
+        }
+        return Collections.unmodifiableMap(result);
     }
 
     /**
      * @see {@link Index#getKnownDirectSubclasses(org.jboss.jandex.DotName)}
      */
     public Set<ClassInfo> getKnownDirectSubclasses(final DotName className) {
-        final Set<ClassInfo> allKnown = new HashSet<ClassInfo>();
-        for (Index index : indexes) {
-            final List<ClassInfo> list = index.getKnownDirectSubclasses(className);
-            if (list != null) {
-                allKnown.addAll(list);
+        Set<ClassInfo> result = directSubclasses.get(className);
+        if (result == null) {
+            final Set<ClassInfo> allKnown = new HashSet<ClassInfo>();
+            for (Index index : indexes) {
+                final List<ClassInfo> list = index.getKnownDirectSubclasses(className);
+                if (list != null) {
+                    allKnown.addAll(list);
+                }
             }
+            result = cache(directSubclasses, className, Collections.unmodifiableSet(allKnown));
         }
-        return Collections.unmodifiableSet(allKnown);
+        return result;
     }
 
     /**
@@ -91,10 +147,14 @@ public class CompositeIndex {
      * @return All known subclasses
      */
     public Set<ClassInfo> getAllKnownSubclasses(final DotName className) {
-        final Set<ClassInfo> allKnown = new HashSet<ClassInfo>();
-        final Set<DotName> processedClasses = new HashSet<DotName>();
-        getAllKnownSubClasses(className, allKnown, processedClasses);
-        return allKnown;
+        Set<ClassInfo> result = allSubclasses.get(className);
+        if (result == null) {
+            final Set<ClassInfo> allKnown = new HashSet<ClassInfo>();
+            final Set<DotName> processedClasses = new HashSet<DotName>();
+            getAllKnownSubClasses(className, allKnown, processedClasses);
+            result = cache(allSubclasses, className, Collections.unmodifiableSet(allKnown));
+        }
+        return result;
     }
 
     private void getAllKnownSubClasses(DotName className, Set<ClassInfo> allKnown, Set<DotName> processedClasses) {
@@ -111,16 +171,11 @@ public class CompositeIndex {
 
     private void getAllKnownSubClasses(DotName name, Set<ClassInfo> allKnown, Set<DotName> subClassesToProcess,
             Set<DotName> processedClasses) {
-        for (Index index : indexes) {
-            final List<ClassInfo> list = index.getKnownDirectSubclasses(name);
-            if (list != null) {
-                for (final ClassInfo clazz : list) {
-                    final DotName className = clazz.name();
-                    if (!processedClasses.contains(className)) {
-                        allKnown.add(clazz);
-                        subClassesToProcess.add(className);
-                    }
-                }
+        for (final ClassInfo clazz : getKnownDirectSubclasses(name)) {
+            final DotName className = clazz.name();
+            if (!processedClasses.contains(className)) {
+                allKnown.add(clazz);
+                subClassesToProcess.add(className);
             }
         }
     }
@@ -129,14 +184,18 @@ public class CompositeIndex {
      * @see {@link Index#getKnownDirectImplementors(DotName)}
      */
     public Set<ClassInfo> getKnownDirectImplementors(final DotName className) {
-        final Set<ClassInfo> allKnown = new HashSet<ClassInfo>();
-        for (Index index : indexes) {
-            final List<ClassInfo> list = index.getKnownDirectImplementors(className);
-            if (list != null) {
-                allKnown.addAll(list);
+        Set<ClassInfo> result = directImplementors.get(className);
+        if (result == null) {
+            final Set<ClassInfo> allKnown = new HashSet<ClassInfo>();
+            for (Index index : indexes) {
+                final List<ClassInfo> list = index.getKnownDirectImplementors(className);
+                if (list != null) {
+                    allKnown.addAll(list);
+                }
             }
+            result = cache(directImplementors, className, Collections.unmodifiableSet(allKnown));
         }
-        return Collections.unmodifiableSet(allKnown);
+        return result;
     }
 
     /**
@@ -150,37 +209,36 @@ public class CompositeIndex {
      * @return All known implementors of the interface
      */
     public Set<ClassInfo> getAllKnownImplementors(final DotName interfaceName) {
-        final Set<ClassInfo> allKnown = new HashSet<ClassInfo>();
-        final Set<DotName> subInterfacesToProcess = new HashSet<DotName>();
-        final Set<DotName> processedClasses = new HashSet<DotName>();
-        subInterfacesToProcess.add(interfaceName);
-        while (!subInterfacesToProcess.isEmpty()) {
-            final Iterator<DotName> toProcess = subInterfacesToProcess.iterator();
-            DotName name = toProcess.next();
-            toProcess.remove();
-            processedClasses.add(name);
-            getKnownImplementors(name, allKnown, subInterfacesToProcess, processedClasses);
+        Set<ClassInfo> result = allImplementors.get(interfaceName);
+        if (result == null) {
+            final Set<ClassInfo> allKnown = new HashSet<ClassInfo>();
+            final Set<DotName> subInterfacesToProcess = new HashSet<DotName>();
+            final Set<DotName> processedClasses = new HashSet<DotName>();
+            subInterfacesToProcess.add(interfaceName);
+            while (!subInterfacesToProcess.isEmpty()) {
+                final Iterator<DotName> toProcess = subInterfacesToProcess.iterator();
+                DotName name = toProcess.next();
+                toProcess.remove();
+                processedClasses.add(name);
+                getKnownImplementors(name, allKnown, subInterfacesToProcess, processedClasses);
+            }
+            result = cache(allImplementors, interfaceName, Collections.unmodifiableSet(allKnown));
         }
-        return allKnown;
+        return result;
     }
 
     private void getKnownImplementors(DotName name, Set<ClassInfo> allKnown, Set<DotName> subInterfacesToProcess,
             Set<DotName> processedClasses) {
-        for (Index index : indexes) {
-            final List<ClassInfo> list = index.getKnownDirectImplementors(name);
-            if (list != null) {
-                for (final ClassInfo clazz : list) {
-                    final DotName className = clazz.name();
-                    if (!processedClasses.contains(className)) {
-                        if (Modifier.isInterface(clazz.flags())) {
-                            subInterfacesToProcess.add(className);
-                        } else {
-                            if (!allKnown.contains(clazz)) {
-                                allKnown.add(clazz);
-                                processedClasses.add(className);
-                                getAllKnownSubClasses(className, allKnown, processedClasses);
-                            }
-                        }
+        for (final ClassInfo clazz : getKnownDirectImplementors(name)) {
+            final DotName className = clazz.name();
+            if (!processedClasses.contains(className)) {
+                if (Modifier.isInterface(clazz.flags())) {
+                    subInterfacesToProcess.add(className);
+                } else {
+                    if (!allKnown.contains(clazz)) {
+                        allKnown.add(clazz);
+                        processedClasses.add(className);
+                        getAllKnownSubClasses(className, allKnown, processedClasses);
                     }
                 }
             }
@@ -204,13 +262,22 @@ public class CompositeIndex {
      * @see {@link org.jboss.jandex.Index#getKnownClasses()}
      */
     public Collection<ClassInfo> getKnownClasses() {
-        final List<ClassInfo> allKnown = new ArrayList<ClassInfo>();
-        for (Index index : indexes) {
-            final Collection<ClassInfo> list = index.getKnownClasses();
-            if (list != null) {
-                allKnown.addAll(list);
+        Collection<ClassInfo> result = knownClasses;
+        if (result == null) {
+            final List<ClassInfo> allKnown = new ArrayList<ClassInfo>();
+            for (Index index : indexes) {
+                final Collection<ClassInfo> list = index.getKnownClasses();
+                if (list != null) {
+                    allKnown.addAll(list);
+                }
             }
+            knownClasses = result = Collections.unmodifiableCollection(allKnown);
         }
-        return Collections.unmodifiableCollection(allKnown);
+        return result;
+    }
+
+    private static <V> V cache(final ConcurrentMap<DotName, V> cache, final DotName name, final V value) {
+        final V existing = cache.putIfAbsent(name, value);
+        return existing == null ? value : existing;
     }
 }
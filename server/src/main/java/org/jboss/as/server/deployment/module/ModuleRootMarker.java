@@ -30,7 +30,7 @@ import org.jboss.as.server.deployment.AttachmentKey;
  *
  */
 public class ModuleRootMarker {
-    private static final AttachmentKey<Boolean> MODULE_ROOT_MARKER = AttachmentKey.create(Boolean.class);
+    public static final AttachmentKey<Boolean> MODULE_ROOT_MARKER = AttachmentKey.create(Boolean.class);
 
     public static void mark(ResourceRoot attachable) {
         attachable.putAttachment(MODULE_ROOT_MARKER, true);
@@ -22,17 +22,31 @@
 
 package org.jboss.as.server.deployment.reflect;
 
+import java.lang.ref.WeakReference;
 import java.security.Permission;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.as.server.moduleservice.ServiceModuleLoader;
+import org.jboss.modules.ModuleClassLoader;
 
 /**
- * A reflection index for a deployment.  Not safe for multi-threaded access.
+ * A reflection index for a deployment.  This class is thread safe.
+ * <p>
+ * Classes which are loaded by the JDK or by a static module are the same for every deployment, so their indexes are
+ * shared through a server-wide cache rather than being rebuilt for each deployment.  The cache holds both classes and
+ * indexes weakly, so an index lives only as long as a deployment using it, and the cache never keeps the class or its
+ * module loaded.
  *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
 public final class DeploymentReflectionIndex {
-    private final Map<Class<?>, ClassReflectionIndex<?>> classes = new HashMap<Class<?>, ClassReflectionIndex<?>>();
+    private static final Map<Class<?>, WeakReference<ClassReflectionIndex<?>>> staticClasses = Collections.synchronizedMap(new WeakHashMap<Class<?>, WeakReference<ClassReflectionIndex<?>>>());
+
+    private final ConcurrentMap<Class<?>, ClassReflectionIndex<?>> classes = new ConcurrentHashMap<Class<?>, ClassReflectionIndex<?>>();
 
     DeploymentReflectionIndex() {
     }
@@ -59,11 +73,42 @@ public final class DeploymentReflectionIndex {
      * @return the index
      */
     @SuppressWarnings( { "unchecked" })
-    public synchronized <T> ClassReflectionIndex<T> getClassIndex(Class<T> clazz) {
+    public <T> ClassReflectionIndex<T> getClassIndex(Class<T> clazz) {
         ClassReflectionIndex<T> index = (ClassReflectionIndex<T>) classes.get(clazz);
         if (index == null) {
-            classes.put(clazz, index = new ClassReflectionIndex<T>(clazz, this));
+            // members are indexed lazily, so creating an index which loses the race is cheap
+            final ClassReflectionIndex<T> newIndex = isFromStaticModule(clazz) ? getStaticClassIndex(clazz) : new ClassReflectionIndex<T>(clazz, this);
+            // holding shared indexes here as well keeps them alive for as long as this deployment
+            index = (ClassReflectionIndex<T>) classes.putIfAbsent(clazz, newIndex);
+            if (index == null) {
+                index = newIndex;
+            }
         }
         return index;
     }
+
+    @SuppressWarnings( { "unchecked" })
+    private <T> ClassReflectionIndex<T> getStaticClassIndex(final Class<T> clazz) {
+        synchronized (staticClasses) {
+            final WeakReference<ClassReflectionIndex<?>> ref = staticClasses.get(clazz);
+            ClassReflectionIndex<T> index = ref == null ? null : (ClassReflectionIndex<T>) ref.get();
+            if (index == null) {
+                index = new ClassReflectionIndex<T>(clazz, this);
+                staticClasses.put(clazz, new WeakReference<ClassReflectionIndex<?>>(index));
+            }
+            return index;
+        }
+    }
+
+    private static boolean isFromStaticModule(final Class<?> clazz) {
+        final ClassLoader classLoader = clazz.getClassLoader();
+        if (classLoader == null) {
+            return true;
+        }
+        if (classLoader instanceof ModuleClassLoader) {
+            final String moduleName = ((ModuleClassLoader) classLoader).getModule().getIdentifier().getName();
+            return !moduleName.startsWith(ServiceModuleLoader.MODULE_PREFIX);
+        }
+        return false;
+    }
 }
@@ -77,6 +77,7 @@ public class HostControllerServerClient implements Service<HostControllerServerC
         }
         modelControllerOperationHandler = ModelControllerOperationHandler.Factory.create(controller.getValue(), initialMessageHandler);
         smConnection.setMessageHandler(initialMessageHandler);
+        smConnection.setStreamMessageHandler(initialMessageHandler);
     }
 
     /** {@inheritDoc} */
@@ -21,27 +21,60 @@
  */
 package org.jboss.as.server.moduleservice;
 
+import org.jboss.as.controller.HashUtil;
 import org.jboss.as.server.deployment.annotation.CompositeIndex;
 import org.jboss.jandex.Index;
 import org.jboss.jandex.IndexReader;
+import org.jboss.logging.Logger;
 import org.jboss.modules.Module;
+import org.jboss.vfs.VFSUtils;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Utility class for read a composite index from a system module.
- *
+ * <p>
+ * If a cache directory is given, each index found in a module jar or directory is copied to it the first time it
+ * is read, and later reads map the copy into memory instead of inflating it from the jar again. Copies are named after
+ * the location, size and last modification time of their source, so an updated module is never read from a stale copy.
  *
  * @author Stuart Douglas
  */
 public class ModuleIndexBuilder {
 
+   private static final Logger log = Logger.getLogger("org.jboss.as.server.moduleservice");
+
+   static final String CACHE_SUFFIX = ".idx";
+
    public static CompositeIndex buildCompositeIndex(Module module) {
+       return buildCompositeIndex(module, null, null);
+   }
+
+   /**
+    * Read the composite index of a module, using cached copies of its indexes where possible.
+    *
+    * @param module the module
+    * @param cacheDir the directory holding cached copies of module indexes, or {@code null} to always read them from
+    *        the module
+    * @param usedCacheFiles a set to which the names of the cached copies that were read are added, or {@code null}
+    * @return the index
+    */
+   public static CompositeIndex buildCompositeIndex(Module module, File cacheDir, Set<String> usedCacheFiles) {
        try {
            final Enumeration<URL> resources = module.getClassLoader().getResources("META-INF/jandex.idx");
            if(!resources.hasMoreElements())  {
@@ -50,13 +83,7 @@ public class ModuleIndexBuilder {
            final Set<Index> indexes = new HashSet<Index>();
            while(resources.hasMoreElements()) {
                final URL url = resources.nextElement();
-               InputStream stream = url.openStream();
-               try {
-                   IndexReader reader = new IndexReader(stream);
-                   indexes.add(reader.read());
-               }finally {
-                   stream.close();
-               }
+               indexes.add(readIndex(url, cacheDir, usedCacheFiles));
            }
            return new CompositeIndex(indexes);
        } catch (IOException e) {
@@ -65,6 +92,147 @@ public class ModuleIndexBuilder {
 
    }
 
+   private static Index readIndex(final URL url, final File cacheDir, final Set<String> usedCacheFiles) throws IOException {
+       final File source = cacheDir == null ? null : getSourceFile(url);
+       if (source != null) {
+           final File cached = new File(cacheDir, getCacheName(url, source));
+           if (cached.isFile() || copy(url, cached)) {
+               try {
+                   final Index index = readMapped(cached);
+                   if (usedCacheFiles != null) {
+                       usedCacheFiles.add(cached.getName());
+                   }
+                   return index;
+               } catch (IOException e) {
+                   log.debugf(e, "Discarding unreadable module index %s", cached);
+                   cached.delete();
+               }
+           }
+       }
+       final InputStream stream = url.openStream();
+       try {
+           return new IndexReader(stream).read();
+       } finally {
+           stream.close();
+       }
+   }
+
+   /**
+    * Get the jar or directory a module resource was loaded from.
+    *
+    * @return the file, or {@code null} if the resource does not come from the file system
+    */
+   private static File getSourceFile(final URL url) {
+       String spec = url.toExternalForm();
+       if ("jar".equals(url.getProtocol())) {
+           final int separator = spec.indexOf("!/");
+           if (separator == -1) {
+               return null;
+           }
+           spec = spec.substring(4, separator);
+       }
+       if (!spec.startsWith("file:")) {
+           return null;
+       }
+       try {
+           final File file = new File(new URI(spec));
+           return file.exists() ? file : null;
+       } catch (URISyntaxException e) {
+           return null;
+       } catch (IllegalArgumentException e) {
+           return null;
+       }
+   }
+
+   private static String getCacheName(final URL url, final File source) {
+       final MessageDigest digest;
+       try {
+           digest = MessageDigest.getInstance("SHA-1");
+       } catch (NoSuchAlgorithmException e) {
+           throw new IllegalStateException(e);
+       }
+       final String key = url.toExternalForm() + ':' + source.length() + ':' + source.lastModified();
+       try {
+           return HashUtil.bytesToHexString(digest.digest(key.getBytes("UTF-8"))) + CACHE_SUFFIX;
+       } catch (IOException e) {
+           throw new IllegalStateException(e);
+       }
+   }
+
+   private static boolean copy(final URL url, final File cached) {
+       final File dir = cached.getParentFile();
+       if (!dir.isDirectory() && !dir.mkdirs()) {
+           log.debugf("Failed to create module index cache directory %s", dir);
+           return false;
+       }
+       final File tmp = new File(dir, cached.getName() + ".tmp" + Thread.currentThread().getId());
+       InputStream in = null;
+       OutputStream out = null;
+       try {
+           in = url.openStream();
+           out = new FileOutputStream(tmp);
+           VFSUtils.copyStream(in, out);
+           out.close();
+           out = null;
+           if (!tmp.renameTo(cached)) {
+               tmp.delete();
+               return cached.isFile();
+           }
+           return true;
+       } catch (IOException e) {
+           log.debugf(e, "Failed to cache module index %s", url);
+           tmp.delete();
+           return false;
+       } finally {
+           VFSUtils.safeClose(in);
+           VFSUtils.safeClose(out);
+       }
+   }
+
+   private static Index readMapped(final File file) throws IOException {
+       final FileInputStream in = new FileInputStream(file);
+       try {
+           final FileChannel channel = in.getChannel();
+           return new IndexReader(new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()))).read();
+       } finally {
+           VFSUtils.safeClose(in);
+       }
+   }
+
+   private static final class ByteBufferInputStream extends InputStream {
+       private final ByteBuffer buffer;
+
+       ByteBufferInputStream(final ByteBuffer buffer) {
+           this.buffer = buffer;
+       }
+
+       public int read() {
+           return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+       }
+
+       public int read(final byte[] b, final int off, final int len) {
+           if (len == 0) {
+               return 0;
+           }
+           if (!buffer.hasRemaining()) {
+               return -1;
+           }
+           final int count = Math.min(len, buffer.remaining());
+           buffer.get(b, off, count);
+           return count;
+       }
+
+       public long skip(final long n) {
+           final int count = (int) Math.min(Math.max(n, 0L), buffer.remaining());
+           buffer.position(buffer.position() + count);
+           return count;
+       }
+
+       public int available() {
+           return buffer.remaining();
+       }
+   }
+
    private ModuleIndexBuilder() {
 
    }
@@ -23,8 +23,11 @@ package org.jboss.as.server.moduleservice;
 
 import org.jboss.as.server.Services;
 import org.jboss.as.server.deployment.annotation.CompositeIndex;
+import org.jboss.logging.Logger;
 import org.jboss.modules.Module;
 import org.jboss.modules.ModuleIdentifier;
+import org.jboss.modules.ModuleLoadException;
+import org.jboss.modules.ModuleLoader;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.ServiceBuilder;
 import org.jboss.msc.service.ServiceController;
@@ -32,29 +35,103 @@ import org.jboss.msc.service.ServiceTarget;
 import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
 import org.jboss.msc.service.StopContext;
+import org.jboss.msc.value.InjectedValue;
+import org.jboss.vfs.VFSUtils;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Service that caches the jandex index for system modules.
+ * <p>
+ * Indexes of different modules are built concurrently, and concurrent requests for the same module share a single
+ * build. If a cache directory is configured, the indexes read from module jars are kept there (see
+ * {@link ModuleIndexBuilder}) together with the list of modules whose index was requested, and on the next start those
+ * modules are indexed in the background on the server executor, so that the first deployment does not have to wait for
+ * them. The list is written once the preloaded modules are indexed, and after that by a background task which picks up
+ * every module requested since the last write.
  *
  * @author Stuart Douglas
  */
 public class ModuleIndexService implements Service<ModuleIndexService> {
 
-    private final Map<ModuleIdentifier, CompositeIndex> indexes = new HashMap<ModuleIdentifier, CompositeIndex>();
+    private static final Logger log = Logger.getLogger("org.jboss.as.server.moduleservice");
 
+    private static final String MODULE_LIST = "modules.txt";
+
+    private final ConcurrentMap<ModuleIdentifier, FutureTask<CompositeIndex>> indexes = new ConcurrentHashMap<ModuleIdentifier, FutureTask<CompositeIndex>>();
+    private final Set<String> usedCacheFiles = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final File cacheDir;
+    private final ModuleLoader moduleLoader;
+    private final InjectedValue<Executor> executor = new InjectedValue<Executor>();
+    private final AtomicBoolean writePending = new AtomicBoolean();
+    private volatile boolean preloading;
+    private volatile boolean stopped;
+
+    public ModuleIndexService() {
+        this(null, null);
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param cacheDir the directory in which to cache module indexes, or {@code null} to not cache them
+     * @param moduleLoader the loader of the modules to index in the background on start, or {@code null} to
+     *        index modules only on request
+     */
+    public ModuleIndexService(final File cacheDir, final ModuleLoader moduleLoader) {
+        this.cacheDir = cacheDir;
+        this.moduleLoader = moduleLoader;
+    }
 
     @Override
     public void start(StartContext context) throws StartException {
         // No point in throwing away the index once it is created.
         context.getController().compareAndSetMode(ServiceController.Mode.ON_DEMAND, ServiceController.Mode.ACTIVE);
+        stopped = false;
+        final Executor executor = this.executor.getOptionalValue();
+        if (cacheDir != null && moduleLoader != null && executor != null) {
+            final List<ModuleIdentifier> identifiers = readModuleList();
+            if (!identifiers.isEmpty()) {
+                preloading = true;
+                try {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            preload(identifiers);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    preloading = false;
+                    log.debugf(e, "Not preloading module indexes");
+                }
+            }
+        }
     }
 
     @Override
     public void stop(StopContext context) {
-        indexes.clear();
+        stopped = true;
+        synchronized (this) {
+            indexes.clear();
+        }
     }
 
     @Override
@@ -62,18 +139,188 @@ public class ModuleIndexService implements Service<ModuleIndexService> {
         return this;
     }
 
-    public synchronized CompositeIndex getIndex(Module module) {
-        CompositeIndex index = indexes.get(module.getIdentifier());
-        if (index == null) {
-            index = ModuleIndexBuilder.buildCompositeIndex(module);
-            indexes.put(module.getIdentifier(), index);
+    public CompositeIndex getIndex(final Module module) {
+        final ModuleIdentifier identifier = module.getIdentifier();
+        FutureTask<CompositeIndex> task = indexes.get(identifier);
+        if (task == null) {
+            final FutureTask<CompositeIndex> newTask = new FutureTask<CompositeIndex>(new Callable<CompositeIndex>() {
+                public CompositeIndex call() {
+                    return ModuleIndexBuilder.buildCompositeIndex(module, cacheDir, usedCacheFiles);
+                }
+            });
+            task = indexes.putIfAbsent(identifier, newTask);
+            if (task == null) {
+                task = newTask;
+                task.run();
+                if (cacheDir != null) {
+                    moduleListChanged();
+                }
+            }
+        }
+        boolean intr = false;
+        try {
+            for (;;) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    intr = true;
+                } catch (ExecutionException e) {
+                    // allow a later request to retry
+                    indexes.remove(identifier, task);
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            if (intr) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void preload(final List<ModuleIdentifier> identifiers) {
+        try {
+            for (ModuleIdentifier identifier : identifiers) {
+                if (stopped) {
+                    return;
+                }
+                try {
+                    getIndex(moduleLoader.loadModule(identifier));
+                } catch (ModuleLoadException e) {
+                    log.debugf(e, "Not preloading index of module %s", identifier);
+                } catch (RuntimeException e) {
+                    log.debugf(e, "Failed to preload index of module %s", identifier);
+                }
+            }
+        } finally {
+            preloading = false;
+        }
+        // Also covers any module requested while preloading
+        writeModuleList();
+        // Every module that was in use last time has now been indexed, so any other copy is stale
+        final File[] files = cacheDir.listFiles();
+        if (files != null && !stopped) {
+            for (File file : files) {
+                final String name = file.getName();
+                if (name.endsWith(ModuleIndexBuilder.CACHE_SUFFIX) && !usedCacheFiles.contains(name)) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private List<ModuleIdentifier> readModuleList() {
+        final List<ModuleIdentifier> identifiers = new ArrayList<ModuleIdentifier>();
+        final File file = new File(cacheDir, MODULE_LIST);
+        if (!file.isFile()) {
+            return identifiers;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() > 0) {
+                    identifiers.add(ModuleIdentifier.fromString(line));
+                }
+            }
+        } catch (IOException e) {
+            log.debugf(e, "Failed to read %s", file);
+        } catch (IllegalArgumentException e) {
+            log.debugf(e, "Failed to read %s", file);
+        } finally {
+            VFSUtils.safeClose(reader);
+        }
+        return identifiers;
+    }
+
+    /**
+     * Arranges for the module list to be written, unless a write is already pending or the preloader will write it.
+     */
+    private void moduleListChanged() {
+        if (preloading || !writePending.compareAndSet(false, true)) {
+            return;
+        }
+        final Runnable task = new Runnable() {
+            public void run() {
+                writePending.set(false);
+                writeModuleList();
+            }
+        };
+        final Executor executor = this.executor.getOptionalValue();
+        if (executor != null) {
+            try {
+                executor.execute(task);
+                return;
+            } catch (RejectedExecutionException e) {
+                // write it on this thread
+            }
+        }
+        task.run();
+    }
+
+    private synchronized void writeModuleList() {
+        if (stopped) {
+            // the indexes have been discarded
+            return;
+        }
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            return;
+        }
+        final File file = new File(cacheDir, MODULE_LIST);
+        final File tmp = new File(cacheDir, MODULE_LIST + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+            for (ModuleIdentifier identifier : indexes.keySet()) {
+                if (identifier.getName().startsWith(ServiceModuleLoader.MODULE_PREFIX)) {
+                    // deployment modules can't be loaded on start
+                    continue;
+                }
+                writer.write(identifier.toString());
+                writer.write('\n');
+            }
+            writer.close();
+            writer = null;
+            if (!tmp.renameTo(file)) {
+                // rename does not replace an existing file on every platform
+                file.delete();
+                if (!tmp.renameTo(file)) {
+                    tmp.delete();
+                }
+            }
+        } catch (IOException e) {
+            log.debugf(e, "Failed to write %s", file);
+            tmp.delete();
+        } finally {
+            VFSUtils.safeClose(writer);
         }
-        return index;
     }
 
     public static void addService(final ServiceTarget serviceTarget) {
-        Service<ModuleIndexService> service = new ModuleIndexService();
+        addService(serviceTarget, null, null);
+    }
+
+    /**
+     * Add the module index service.
+     *
+     * @param serviceTarget the service target
+     * @param cacheDir the directory in which to cache module indexes, or {@code null} to not cache them
+     * @param moduleLoader the loader of the modules to index in the background on start, or {@code null}
+     */
+    public static void addService(final ServiceTarget serviceTarget, final File cacheDir, final ModuleLoader moduleLoader) {
+        ModuleIndexService service = new ModuleIndexService(cacheDir, moduleLoader);
         ServiceBuilder<?> serviceBuilder = serviceTarget.addService(Services.JBOSS_MODULE_INDEX_SERVICE, service);
+        if (cacheDir != null) {
+            serviceBuilder.addDependency(Services.JBOSS_SERVER_EXECUTOR, Executor.class, service.executor);
+        }
         serviceBuilder.install();
     }
 }
@@ -0,0 +1,258 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server.deployment;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.ResultHandler;
+import org.jboss.as.controller.RuntimeOperationContext;
+import org.jboss.as.controller.RuntimeTask;
+import org.jboss.as.controller.RuntimeTaskContext;
+import org.jboss.dmr.ModelNode;
+import org.jboss.msc.service.ServiceController;
+import org.jboss.msc.service.ServiceRegistry;
+import org.jboss.msc.service.ServiceTarget;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link DeploymentTimings} and {@link DeploymentTimingsHandler}.
+ */
+public class DeploymentTimingsTestCase {
+
+    @Test
+    public void testRecordsPhasesAndProcessors() {
+        final DeploymentTimings timings = createTimings("app.ear");
+        final DeploymentTimings subDeployment = new DeploymentTimings("app.war");
+        subDeployment.startPhase(Phase.PARSE);
+        subDeployment.recordPhase(Phase.PARSE, millis(4));
+        timings.addSubDeployment(subDeployment);
+
+        assertEquals(12, timings.getTotalTime());
+
+        final ModelNode node = timings.toModelNode();
+        assertEquals("app.ear", node.get("name").asString());
+        assertEquals(12, node.get("time").asLong());
+
+        final ModelNode structure = node.get("phases", Phase.STRUCTURE.name());
+        assertEquals(5, structure.get("time").asLong());
+        final List<ModelNode> processors = structure.get("processors").asList();
+        assertEquals(2, processors.size());
+        assertEquals(FirstProcessor.class.getName(), processors.get(0).get("processor").asString());
+        assertEquals(3, processors.get(0).get("time").asLong());
+        assertEquals(1024, processors.get(0).get("allocated-bytes").asLong());
+        assertEquals(SecondProcessor.class.getName(), processors.get(1).get("processor").asString());
+        assertEquals(1, processors.get(1).get("time").asLong());
+        // unknown allocations are left out
+        assertFalse(processors.get(1).has("allocated-bytes"));
+
+        final ModelNode parse = node.get("phases", Phase.PARSE.name());
+        assertEquals(7, parse.get("time").asLong());
+        assertTrue(parse.get("processors").asList().isEmpty());
+
+        final ModelNode sub = node.get("sub-deployments", "app.war");
+        assertEquals("app.war", sub.get("name").asString());
+        assertEquals(4, sub.get("time").asLong());
+    }
+
+    @Test
+    public void testRestartedPhaseDiscardsEarlierRun() {
+        final DeploymentTimings timings = createTimings("app.ear");
+        timings.startPhase(Phase.STRUCTURE);
+        timings.recordProcessor(Phase.STRUCTURE, new SecondProcessor(), millis(2), -1L);
+        timings.recordPhase(Phase.STRUCTURE, millis(2));
+
+        final ModelNode structure = timings.toModelNode().get("phases", Phase.STRUCTURE.name());
+        assertEquals(2, structure.get("time").asLong());
+        assertEquals(1, structure.get("processors").asList().size());
+        assertEquals(9, timings.getTotalTime());
+    }
+
+    @Test
+    public void testSubDeploymentIsReplaced() {
+        final DeploymentTimings timings = new DeploymentTimings("app.ear");
+        timings.addSubDeployment(new DeploymentTimings("app.war"));
+        final DeploymentTimings redeployed = new DeploymentTimings("app.war");
+        redeployed.recordPhase(Phase.INSTALL, millis(6));
+        timings.addSubDeployment(redeployed);
+
+        final ModelNode subDeployments = timings.toModelNode().get("sub-deployments");
+        assertEquals(1, subDeployments.keys().size());
+        assertEquals(6, subDeployments.get("app.war", "time").asLong());
+    }
+
+    @Test
+    public void testHandlerReadsTimings() throws Exception {
+        final DeploymentTimings timings = createTimings("app.ear");
+        final ModelNode result = executeHandler("app.ear", timings);
+        assertEquals(timings.toModelNode(), result);
+    }
+
+    @Test
+    public void testHandlerUnknownDeployment() throws Exception {
+        final ModelNode result = executeHandler("missing.ear", createTimings("app.ear"));
+        assertEquals("no metrics available", result.asString());
+    }
+
+    @Test
+    public void testHandlerWithoutRuntime() throws Exception {
+        final TestResultHandler resultHandler = new TestResultHandler();
+        DeploymentTimingsHandler.INSTANCE.execute(createOperationContext(null), createOperation("app.ear"), resultHandler);
+        assertTrue(resultHandler.complete);
+        assertEquals("no metrics available", resultHandler.result.asString());
+    }
+
+    private static DeploymentTimings createTimings(final String name) {
+        final DeploymentTimings timings = new DeploymentTimings(name);
+        timings.startPhase(Phase.STRUCTURE);
+        timings.recordProcessor(Phase.STRUCTURE, new FirstProcessor(), millis(3), 1024L);
+        timings.recordProcessor(Phase.STRUCTURE, new SecondProcessor(), millis(1), -1L);
+        timings.recordPhase(Phase.STRUCTURE, millis(5));
+        timings.startPhase(Phase.PARSE);
+        timings.recordPhase(Phase.PARSE, millis(7));
+        return timings;
+    }
+
+    private static long millis(final long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static ModelNode createOperation(final String deploymentName) {
+        final ModelNode operation = new ModelNode();
+        operation.get(OP_ADDR).add("deployment", deploymentName);
+        return operation;
+    }
+
+    /**
+     * Run the handler against a service registry which only holds the deployment unit of {@code app.ear}.
+     */
+    private static ModelNode executeHandler(final String deploymentName, final DeploymentTimings timings) throws OperationFailedException {
+        final DeploymentUnit deploymentUnit = proxy(DeploymentUnit.class, new InvocationHandler() {
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (method.getName().equals("getAttachment") && args[0] == Attachments.DEPLOYMENT_TIMINGS) {
+                    return timings;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        final ServiceController<?> controller = proxy(ServiceController.class, new InvocationHandler() {
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (method.getName().equals("getValue")) {
+                    return deploymentUnit;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        final ServiceRegistry registry = proxy(ServiceRegistry.class, new InvocationHandler() {
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (method.getName().equals("getService")) {
+                    return Services.deploymentUnitName("app.ear").equals(args[0]) ? controller : null;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        final TestRuntimeContext runtimeContext = new TestRuntimeContext();
+        final TestResultHandler resultHandler = new TestResultHandler();
+        DeploymentTimingsHandler.INSTANCE.execute(createOperationContext(runtimeContext), createOperation(deploymentName), resultHandler);
+        assertNotNull(runtimeContext.task);
+        runtimeContext.task.execute(new RuntimeTaskContext() {
+            public ServiceTarget getServiceTarget() {
+                throw new UnsupportedOperationException();
+            }
+
+            public ServiceRegistry getServiceRegistry() {
+                return registry;
+            }
+        });
+        assertTrue(resultHandler.complete);
+        return resultHandler.result;
+    }
+
+    private static OperationContext createOperationContext(final RuntimeOperationContext runtimeContext) {
+        return proxy(OperationContext.class, new InvocationHandler() {
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (method.getName().equals("getRuntimeContext")) {
+                    return runtimeContext;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static <T> T proxy(final Class<T> type, final InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    private static class TestRuntimeContext implements RuntimeOperationContext {
+        private RuntimeTask task;
+
+        public void setRuntimeTask(final RuntimeTask runtimeTask) {
+            task = runtimeTask;
+        }
+    }
+
+    private static class TestResultHandler implements ResultHandler {
+        private ModelNode result;
+        private boolean complete;
+
+        public void handleResultFragment(final String[] location, final ModelNode result) {
+            assertEquals(0, location.length);
+            this.result = result;
+        }
+
+        public void handleResultComplete() {
+            complete = true;
+        }
+
+        public void handleFailed(final ModelNode failureDescription) {
+            throw new AssertionError(failureDescription.asString());
+        }
+
+        public void handleCancellation() {
+            throw new AssertionError("cancelled");
+        }
+    }
+
+    private static class FirstProcessor implements DeploymentUnitProcessor {
+        public void deploy(final DeploymentPhaseContext phaseContext) {
+        }
+
+        public void undeploy(final DeploymentUnit context) {
+        }
+    }
+
+    private static class SecondProcessor extends FirstProcessor {
+    }
+}
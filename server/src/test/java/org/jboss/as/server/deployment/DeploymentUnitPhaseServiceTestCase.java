@@ -0,0 +1,193 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.server.deployment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.msc.service.StartException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the concurrent execution of the processors of a phase.
+ */
+public class DeploymentUnitPhaseServiceTestCase {
+
+    private static final AttachmentKey<String> A = AttachmentKey.create(String.class);
+    private static final AttachmentKey<String> B = AttachmentKey.create(String.class);
+    private static final AttachmentKey<String> C = AttachmentKey.create(String.class);
+    private static final AttachmentKey<String> D = AttachmentKey.create(String.class);
+
+    private final List<String> deployed = new CopyOnWriteArrayList<String>();
+    private final List<String> undeployed = new CopyOnWriteArrayList<String>();
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void cleanup() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testIndependentProcessorsOverlap() throws Exception {
+        // Each of the first two only completes once the other one has started
+        final CountDownLatch started = new CountDownLatch(2);
+        final DeploymentUnitProcessorGraph graph = new DeploymentUnitProcessorGraph(Arrays.<DeploymentUnitProcessor>asList(
+                new TestProcessor("first", AttachmentKey.setOf(), AttachmentKey.setOf(A), started),
+                new TestProcessor("second", AttachmentKey.setOf(), AttachmentKey.setOf(B), started),
+                new TestProcessor("third", AttachmentKey.setOf(A, B), AttachmentKey.setOf(C), null)));
+
+        deploy(graph);
+
+        assertEquals(0, started.getCount());
+        assertEquals(3, deployed.size());
+        assertTrue(deployed.containsAll(Arrays.asList("first", "second")));
+        assertEquals("third", deployed.get(2));
+        assertTrue(undeployed.isEmpty());
+    }
+
+    @Test
+    public void testFailureUndeploysCompletedProcessors() throws Exception {
+        final DeploymentUnitProcessorGraph graph = new DeploymentUnitProcessorGraph(Arrays.<DeploymentUnitProcessor>asList(
+                new TestProcessor("first", AttachmentKey.setOf(), AttachmentKey.setOf(A), null),
+                new TestProcessor("failing", AttachmentKey.setOf(A), AttachmentKey.setOf(B), null),
+                new TestProcessor("dependent", AttachmentKey.setOf(B), AttachmentKey.setOf(C), null),
+                new TestProcessor("independent", AttachmentKey.setOf(), AttachmentKey.setOf(D), null)));
+
+        try {
+            deploy(graph);
+            fail("Should have thrown a StartException");
+        } catch (StartException expected) {
+            assertTrue(expected.getCause() instanceof DeploymentUnitProcessingException);
+        }
+
+        // The processor which depends on the failed one never runs
+        assertFalse(deployed.contains("dependent"));
+        assertEquals(2, deployed.size());
+        // Only the processors which completed are undeployed, in reverse chain order
+        assertEquals(Arrays.asList("independent", "first"), undeployed);
+    }
+
+    @Test
+    public void testUndeclaredProcessorsRunInOrder() throws Exception {
+        final DeploymentUnitProcessorGraph graph = new DeploymentUnitProcessorGraph(Arrays.<DeploymentUnitProcessor>asList(
+                new TestProcessor("first", AttachmentKey.setOf(), AttachmentKey.setOf(A), null),
+                new UndeclaredProcessor("undeclared"),
+                new TestProcessor("last", AttachmentKey.setOf(), AttachmentKey.setOf(B), null)));
+
+        deploy(graph);
+
+        assertEquals(Arrays.asList("first", "undeclared", "last"), deployed);
+    }
+
+    private void deploy(final DeploymentUnitProcessorGraph graph) throws StartException {
+        final DeploymentUnit deploymentUnit = proxy(DeploymentUnit.class);
+        DeploymentUnitPhaseService.deployConcurrently(deploymentUnit, Phase.PARSE, graph, executor, proxy(DeploymentPhaseContext.class), null);
+    }
+
+    private static <T> T proxy(final Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (method.getName().equals("toString")) {
+                    return type.getSimpleName();
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        }));
+    }
+
+    private class UndeclaredProcessor implements DeploymentUnitProcessor {
+        private final String name;
+
+        UndeclaredProcessor(final String name) {
+            this.name = name;
+        }
+
+        public void deploy(final DeploymentPhaseContext phaseContext) throws DeploymentUnitProcessingException {
+            deployed.add(name);
+        }
+
+        public void undeploy(final DeploymentUnit context) {
+            undeployed.add(name);
+        }
+    }
+
+    private class TestProcessor extends UndeclaredProcessor implements ConcurrentDeploymentUnitProcessor {
+        private final String name;
+        private final Set<AttachmentKey<?>> consumed;
+        private final Set<AttachmentKey<?>> produced;
+        private final CountDownLatch started;
+
+        TestProcessor(final String name, final Set<AttachmentKey<?>> consumed, final Set<AttachmentKey<?>> produced, final CountDownLatch started) {
+            super(name);
+            this.name = name;
+            this.consumed = consumed;
+            this.produced = produced;
+            this.started = started;
+        }
+
+        public void deploy(final DeploymentPhaseContext phaseContext) throws DeploymentUnitProcessingException {
+            if (name.equals("failing")) {
+                throw new DeploymentUnitProcessingException("failed");
+            }
+            if (started != null) {
+                started.countDown();
+                try {
+                    if (!started.await(10, TimeUnit.SECONDS)) {
+                        throw new DeploymentUnitProcessingException("Processors did not run concurrently");
+                    }
+                } catch (InterruptedException e) {
+                    throw new DeploymentUnitProcessingException("interrupted");
+                }
+            }
+            super.deploy(phaseContext);
+        }
+
+        public Set<AttachmentKey<?>> getConsumedAttachments() {
+            return consumed;
+        }
+
+        public Set<AttachmentKey<?>> getProducedAttachments() {
+            return produced;
+        }
+    }
+}
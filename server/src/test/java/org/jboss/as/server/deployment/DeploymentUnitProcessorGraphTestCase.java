@@ -0,0 +1,123 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.server.deployment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link DeploymentUnitProcessorGraph}.
+ */
+public class DeploymentUnitProcessorGraphTestCase {
+
+    private static final AttachmentKey<String> A = AttachmentKey.create(String.class);
+    private static final AttachmentKey<String> B = AttachmentKey.create(String.class);
+    private static final AttachmentKey<String> C = AttachmentKey.create(String.class);
+
+    @Test
+    public void testUndeclaredProcessorsRunInOrder() {
+        final DeploymentUnitProcessorGraph graph = new DeploymentUnitProcessorGraph(Arrays.<DeploymentUnitProcessor>asList(
+                new UndeclaredProcessor(), new UndeclaredProcessor(), new UndeclaredProcessor()));
+        assertFalse(graph.isConcurrent());
+        assertEquals(0, graph.getPredecessorCount(0));
+        assertEquals(1, graph.getPredecessorCount(1));
+        assertEquals(2, graph.getPredecessorCount(2));
+    }
+
+    @Test
+    public void testIndependentProcessors() {
+        final DeploymentUnitProcessorGraph graph = new DeploymentUnitProcessorGraph(Arrays.<DeploymentUnitProcessor>asList(
+                new TestProcessor(keys(A), keys(B)), new TestProcessor(keys(A), keys(C))));
+        assertTrue(graph.isConcurrent());
+        assertEquals(0, graph.getPredecessorCount(0));
+        assertEquals(0, graph.getPredecessorCount(1));
+    }
+
+    @Test
+    public void testConflicts() {
+        final DeploymentUnitProcessorGraph graph = new DeploymentUnitProcessorGraph(Arrays.<DeploymentUnitProcessor>asList(
+                new TestProcessor(keys(), keys(A)),
+                new TestProcessor(keys(A), keys(B)),
+                new TestProcessor(keys(), keys(C)),
+                new TestProcessor(keys(C), keys(A))));
+        assertTrue(graph.isConcurrent());
+        // produces A, read by 1 and produced by 3
+        assertArrayEquals(new int[] { 1, 3 }, graph.getSuccessors(0));
+        // reads A, which 3 produces
+        assertArrayEquals(new int[] { 3 }, graph.getSuccessors(1));
+        // produces C, which 3 reads
+        assertArrayEquals(new int[] { 3 }, graph.getSuccessors(2));
+        assertEquals(0, graph.getPredecessorCount(2));
+        assertEquals(3, graph.getPredecessorCount(3));
+    }
+
+    @Test
+    public void testUndeclaredProcessorIsBarrier() {
+        final DeploymentUnitProcessorGraph graph = new DeploymentUnitProcessorGraph(Arrays.<DeploymentUnitProcessor>asList(
+                new TestProcessor(keys(), keys(A)),
+                new UndeclaredProcessor(),
+                new TestProcessor(keys(), keys(B))));
+        assertFalse(graph.isConcurrent());
+        // 0 and 2 do not conflict, but are still ordered through the undeclared processor
+        assertArrayEquals(new int[] { 1 }, graph.getSuccessors(0));
+        assertArrayEquals(new int[] { 2 }, graph.getSuccessors(1));
+        assertEquals(1, graph.getPredecessorCount(2));
+    }
+
+    private static Set<AttachmentKey<?>> keys(final AttachmentKey<?>... keys) {
+        return new HashSet<AttachmentKey<?>>(Arrays.asList(keys));
+    }
+
+    private static class UndeclaredProcessor implements DeploymentUnitProcessor {
+        public void deploy(final DeploymentPhaseContext phaseContext) {
+        }
+
+        public void undeploy(final DeploymentUnit context) {
+        }
+    }
+
+    private static class TestProcessor extends UndeclaredProcessor implements ConcurrentDeploymentUnitProcessor {
+        private final Set<AttachmentKey<?>> consumed;
+        private final Set<AttachmentKey<?>> produced;
+
+        TestProcessor(final Set<AttachmentKey<?>> consumed, final Set<AttachmentKey<?>> produced) {
+            this.consumed = consumed;
+            this.produced = produced;
+        }
+
+        public Set<AttachmentKey<?>> getConsumedAttachments() {
+            return consumed;
+        }
+
+        public Set<AttachmentKey<?>> getProducedAttachments() {
+            return produced;
+        }
+    }
+}
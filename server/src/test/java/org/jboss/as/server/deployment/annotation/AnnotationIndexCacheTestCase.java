@@ -0,0 +1,133 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server.deployment.annotation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.jboss.vfs.VFS;
+import org.jboss.vfs.VirtualFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the keys of the {@link AnnotationIndexCache}.
+ */
+public class AnnotationIndexCacheTestCase {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("annotation-index-cache", null);
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        delete(dir);
+    }
+
+    @Test
+    public void testChangedClassOfSameSizeChangesKey() throws Exception {
+        final File classFile = write(new File(dir, "root/org/acme/Foo.class"), new byte[] { 1, 2, 3, 4 });
+        final long lastModified = classFile.lastModified();
+        final String key = getKey(new File(dir, "root"), classFile);
+
+        write(classFile, new byte[] { 4, 3, 2, 1 });
+        classFile.setLastModified(lastModified);
+        assertFalse(key.equals(getKey(new File(dir, "root"), classFile)));
+    }
+
+    @Test
+    public void testCopiedContentHasSameKey() throws Exception {
+        final File classFile = write(new File(dir, "root/org/acme/Foo.class"), new byte[] { 1, 2, 3, 4 });
+        final File copy = write(new File(dir, "copy/org/acme/Foo.class"), new byte[] { 1, 2, 3, 4 });
+        copy.setLastModified(classFile.lastModified() - 60000L);
+        assertEquals(getKey(new File(dir, "root"), classFile), getKey(new File(dir, "copy"), copy));
+    }
+
+    @Test
+    public void testArchiveKeyMatchesContentKey() throws Exception {
+        final byte[] bytes = new byte[] { 1, 2, 3, 4 };
+        final File classFile = write(new File(dir, "root/org/acme/Foo.class"), bytes);
+        final String key = getKey(new File(dir, "root"), classFile);
+
+        final File zip = new File(dir, "content.war");
+        final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip));
+        try {
+            out.putNextEntry(new ZipEntry("WEB-INF/classes/org/acme/Foo.class"));
+            out.write(bytes);
+            out.closeEntry();
+        } finally {
+            out.close();
+        }
+        final VirtualFile rootFile = VFS.getChild(new File(dir, "root").toURI());
+        final VirtualFile child = VFS.getChild(classFile.toURI());
+        // The class file must not be read once its entry is found in the central directory
+        classFile.delete();
+        final ZipFile archive = new ZipFile(zip);
+        try {
+            assertEquals(key, AnnotationIndexCache.getKey(rootFile, Collections.singletonList(child), archive, "WEB-INF/classes/"));
+        } finally {
+            archive.close();
+        }
+    }
+
+    private static String getKey(final File root, final File classFile) throws IOException {
+        final VirtualFile rootFile = VFS.getChild(root.toURI());
+        final VirtualFile child = VFS.getChild(classFile.toURI());
+        return AnnotationIndexCache.getKey(rootFile, Collections.singletonList(child));
+    }
+
+    private static File write(final File file, final byte[] bytes) throws IOException {
+        file.getParentFile().mkdirs();
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
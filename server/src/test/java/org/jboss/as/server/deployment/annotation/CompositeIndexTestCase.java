@@ -0,0 +1,208 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.server.deployment.annotation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.jandex.AnnotationInstance;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+import org.jboss.jandex.Index;
+import org.jboss.jandex.Indexer;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link CompositeIndex}.
+ */
+public class CompositeIndexTestCase {
+
+    private static final DotName MARKER = DotName.createSimple(Marker.class.getName());
+    private static final DotName OTHER_MARKER = DotName.createSimple(OtherMarker.class.getName());
+    private static final DotName UNUSED = DotName.createSimple(Unused.class.getName());
+    private static final DotName BASE = DotName.createSimple(Base.class.getName());
+    private static final DotName MIDDLE = DotName.createSimple(Middle.class.getName());
+
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface Marker {
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface OtherMarker {
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    private @interface Unused {
+    }
+
+    @Marker
+    private static class Base {
+    }
+
+    @Marker
+    @OtherMarker
+    private static class Middle extends Base {
+    }
+
+    private static class Leaf extends Middle {
+    }
+
+    @Marker
+    private static class OtherLeaf extends Middle {
+    }
+
+    @OtherMarker
+    private static class Sibling extends Base {
+    }
+
+    private List<Index> indexes;
+    private CompositeIndex compositeIndex;
+
+    @Before
+    public void setup() throws IOException {
+        // the hierarchy is spread over the indexes so that every lookup has to merge them
+        indexes = Arrays.asList(index(Base.class, Sibling.class), index(Middle.class), index(Leaf.class, OtherLeaf.class));
+        compositeIndex = new CompositeIndex(indexes);
+    }
+
+    @Test
+    public void testAnnotationsMatchMerge() {
+        for (DotName annotationName : Arrays.asList(MARKER, OTHER_MARKER, UNUSED)) {
+            final List<AnnotationInstance> expected = mergeAnnotations(annotationName);
+            final List<AnnotationInstance> first = compositeIndex.getAnnotations(annotationName);
+            assertEquals(expected, first);
+            final List<AnnotationInstance> second = compositeIndex.getAnnotations(annotationName);
+            assertEquals(expected, second);
+            assertSame(first, second);
+        }
+        assertEquals(3, compositeIndex.getAnnotations(MARKER).size());
+        assertTrue(compositeIndex.getAnnotations(UNUSED).isEmpty());
+    }
+
+    @Test
+    public void testAnnotationsOfSeveralNamesMatchMerge() {
+        // look one of the names up beforehand, so that only the others are merged by the bulk lookup
+        final List<AnnotationInstance> cached = compositeIndex.getAnnotations(OTHER_MARKER);
+        for (int i = 0; i < 2; i++) {
+            final Map<DotName, List<AnnotationInstance>> result = compositeIndex.getAnnotations(Arrays.asList(MARKER, OTHER_MARKER, UNUSED));
+            assertEquals(Arrays.asList(MARKER, OTHER_MARKER, UNUSED), new ArrayList<DotName>(result.keySet()));
+            for (Map.Entry<DotName, List<AnnotationInstance>> entry : result.entrySet()) {
+                assertEquals(mergeAnnotations(entry.getKey()), entry.getValue());
+                assertSame(compositeIndex.getAnnotations(entry.getKey()), entry.getValue());
+            }
+            assertSame(cached, result.get(OTHER_MARKER));
+        }
+    }
+
+    @Test
+    public void testSubclassesMatchMerge() {
+        for (DotName className : Arrays.asList(BASE, MIDDLE, UNUSED)) {
+            final Set<ClassInfo> expectedDirect = mergeDirectSubclasses(className);
+            assertEquals(expectedDirect, compositeIndex.getKnownDirectSubclasses(className));
+            assertEquals(expectedDirect, compositeIndex.getKnownDirectSubclasses(className));
+
+            final Set<ClassInfo> expectedAll = mergeAllSubclasses(className);
+            final Set<ClassInfo> first = compositeIndex.getAllKnownSubclasses(className);
+            assertEquals(expectedAll, first);
+            final Set<ClassInfo> second = compositeIndex.getAllKnownSubclasses(className);
+            assertEquals(expectedAll, second);
+            assertSame(first, second);
+        }
+        assertEquals(4, compositeIndex.getAllKnownSubclasses(BASE).size());
+        assertEquals(2, compositeIndex.getAllKnownSubclasses(MIDDLE).size());
+        assertTrue(compositeIndex.getAllKnownSubclasses(UNUSED).isEmpty());
+    }
+
+    @Test
+    public void testKnownClassesMatchMerge() {
+        final List<ClassInfo> expected = new ArrayList<ClassInfo>();
+        for (Index index : indexes) {
+            expected.addAll(index.getKnownClasses());
+        }
+        assertEquals(expected, new ArrayList<ClassInfo>(compositeIndex.getKnownClasses()));
+        assertSame(compositeIndex.getKnownClasses(), compositeIndex.getKnownClasses());
+    }
+
+    private List<AnnotationInstance> mergeAnnotations(final DotName annotationName) {
+        final List<AnnotationInstance> result = new ArrayList<AnnotationInstance>();
+        for (Index index : indexes) {
+            final List<AnnotationInstance> list = index.getAnnotations(annotationName);
+            if (list != null) {
+                result.addAll(list);
+            }
+        }
+        return result;
+    }
+
+    private Set<ClassInfo> mergeDirectSubclasses(final DotName className) {
+        final Set<ClassInfo> result = new HashSet<ClassInfo>();
+        for (Index index : indexes) {
+            final List<ClassInfo> list = index.getKnownDirectSubclasses(className);
+            if (list != null) {
+                result.addAll(list);
+            }
+        }
+        return result;
+    }
+
+    private Set<ClassInfo> mergeAllSubclasses(final DotName className) {
+        final Set<ClassInfo> result = new HashSet<ClassInfo>();
+        final LinkedList<DotName> toProcess = new LinkedList<DotName>();
+        toProcess.add(className);
+        while (!toProcess.isEmpty()) {
+            for (ClassInfo subclass : mergeDirectSubclasses(toProcess.removeFirst())) {
+                if (result.add(subclass)) {
+                    toProcess.add(subclass.name());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Index index(final Class<?>... classes) throws IOException {
+        final Indexer indexer = new Indexer();
+        for (Class<?> clazz : classes) {
+            final InputStream stream = clazz.getClassLoader().getResourceAsStream(clazz.getName().replace('.', '/') + ".class");
+            try {
+                indexer.index(stream);
+            } finally {
+                stream.close();
+            }
+        }
+        return indexer.complete();
+    }
+}
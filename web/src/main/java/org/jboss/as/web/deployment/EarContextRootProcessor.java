@@ -25,10 +25,11 @@ package org.jboss.as.web.deployment;
 import org.jboss.as.ee.structure.Attachments;
 import org.jboss.as.ee.structure.DeploymentType;
 import org.jboss.as.ee.structure.DeploymentTypeMarker;
+import org.jboss.as.server.deployment.AttachmentKey;
+import org.jboss.as.server.deployment.ConcurrentDeploymentUnitProcessor;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
 import org.jboss.as.server.deployment.DeploymentUnit;
 import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
-import org.jboss.as.server.deployment.DeploymentUnitProcessor;
 import org.jboss.as.server.deployment.module.ResourceRoot;
 import org.jboss.metadata.ear.spec.EarMetaData;
 import org.jboss.metadata.ear.spec.ModuleMetaData;
@@ -38,13 +39,21 @@ import org.jboss.metadata.ear.spec.WebModuleMetaData;
 import org.jboss.metadata.web.jboss.JBoss70WebMetaData;
 import org.jboss.metadata.web.jboss.JBossWebMetaData;
 
+import java.util.Set;
+
 /**
  * Deployment unit processor responsible for detecting web deployments and determining if they have a parent EAR file and
  * if so applying the EAR defined context root to web metadata.
  *
  * @author John Bailey
  */
-public class EarContextRootProcessor implements DeploymentUnitProcessor {
+public class EarContextRootProcessor implements ConcurrentDeploymentUnitProcessor {
+
+    private static final Set<AttachmentKey<?>> CONSUMED = AttachmentKey.setOf(
+            org.jboss.as.server.deployment.Attachments.DEPLOYMENT_ROOT,
+            Attachments.DEPLOYMENT_TYPE,
+            Attachments.EAR_METADATA);
+    private static final Set<AttachmentKey<?>> PRODUCED = AttachmentKey.setOf(WarMetaData.ATTACHMENT_KEY);
 
     public void deploy(final DeploymentPhaseContext phaseContext) throws DeploymentUnitProcessingException {
         final DeploymentUnit deploymentUnit = phaseContext.getDeploymentUnit();
@@ -92,4 +101,12 @@ public class EarContextRootProcessor implements DeploymentUnitProcessor {
 
     public void undeploy(final DeploymentUnit context) {
     }
+
+    public Set<AttachmentKey<?>> getConsumedAttachments() {
+        return CONSUMED;
+    }
+
+    public Set<AttachmentKey<?>> getProducedAttachments() {
+        return PRODUCED;
+    }
 }
@@ -23,17 +23,19 @@ package org.jboss.as.web.deployment;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Set;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamReader;
 
 import org.jboss.as.ee.structure.DeploymentType;
 import org.jboss.as.ee.structure.DeploymentTypeMarker;
+import org.jboss.as.server.deployment.AttachmentKey;
 import org.jboss.as.server.deployment.Attachments;
+import org.jboss.as.server.deployment.ConcurrentDeploymentUnitProcessor;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
 import org.jboss.as.server.deployment.DeploymentUnit;
 import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
-import org.jboss.as.server.deployment.DeploymentUnitProcessor;
 import org.jboss.metadata.parser.jbossweb.JBossWebMetaDataParser;
 import org.jboss.metadata.parser.util.NoopXmlResolver;
 import org.jboss.vfs.VirtualFile;
@@ -41,7 +43,12 @@ import org.jboss.vfs.VirtualFile;
 /**
  * @author Jean-Frederic Clere
  */
-public class JBossWebParsingDeploymentProcessor implements DeploymentUnitProcessor {
+public class JBossWebParsingDeploymentProcessor implements ConcurrentDeploymentUnitProcessor {
+
+    private static final Set<AttachmentKey<?>> CONSUMED = AttachmentKey.setOf(
+            org.jboss.as.ee.structure.Attachments.DEPLOYMENT_TYPE,
+            Attachments.DEPLOYMENT_ROOT);
+    private static final Set<AttachmentKey<?>> PRODUCED = AttachmentKey.setOf(WarMetaData.ATTACHMENT_KEY);
 
     private static final String JBOSS_WEB_XML = "WEB-INF/jboss-web.xml";
 
@@ -78,4 +85,12 @@ public class JBossWebParsingDeploymentProcessor implements DeploymentUnitProcess
 
     public void undeploy(DeploymentUnit context) {
     }
+
+    public Set<AttachmentKey<?>> getConsumedAttachments() {
+        return CONSUMED;
+    }
+
+    public Set<AttachmentKey<?>> getProducedAttachments() {
+        return PRODUCED;
+    }
 }
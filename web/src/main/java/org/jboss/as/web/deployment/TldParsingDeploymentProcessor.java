@@ -26,17 +26,19 @@ import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamReader;
 
 import org.jboss.as.ee.structure.DeploymentType;
 import org.jboss.as.ee.structure.DeploymentTypeMarker;
+import org.jboss.as.server.deployment.AttachmentKey;
 import org.jboss.as.server.deployment.Attachments;
+import org.jboss.as.server.deployment.ConcurrentDeploymentUnitProcessor;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
 import org.jboss.as.server.deployment.DeploymentUnit;
 import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
-import org.jboss.as.server.deployment.DeploymentUnitProcessor;
 import org.jboss.as.server.deployment.module.ResourceRoot;
 import org.jboss.metadata.parser.jsp.TldMetaDataParser;
 import org.jboss.metadata.parser.util.NoopXmlResolver;
@@ -46,7 +48,13 @@ import org.jboss.vfs.VirtualFile;
 /**
  * @author Remy Maucherat
  */
-public class TldParsingDeploymentProcessor implements DeploymentUnitProcessor {
+public class TldParsingDeploymentProcessor implements ConcurrentDeploymentUnitProcessor {
+
+    private static final Set<AttachmentKey<?>> CONSUMED = AttachmentKey.setOf(
+            org.jboss.as.ee.structure.Attachments.DEPLOYMENT_TYPE,
+            Attachments.DEPLOYMENT_ROOT,
+            Attachments.RESOURCE_ROOTS);
+    private static final Set<AttachmentKey<?>> PRODUCED = AttachmentKey.setOf(TldsMetaData.ATTACHMENT_KEY);
 
     private static final String TLD = ".tld";
     private static final String META_INF = "META-INF";
@@ -95,6 +103,14 @@ public class TldParsingDeploymentProcessor implements DeploymentUnitProcessor {
     public void undeploy(final DeploymentUnit context) {
     }
 
+    public Set<AttachmentKey<?>> getConsumedAttachments() {
+        return CONSUMED;
+    }
+
+    public Set<AttachmentKey<?>> getProducedAttachments() {
+        return PRODUCED;
+    }
+
     private void processTlds(VirtualFile root, List<VirtualFile> files, Map<String, TldMetaData> tlds)
     throws DeploymentUnitProcessingException {
         for (VirtualFile file : files) {
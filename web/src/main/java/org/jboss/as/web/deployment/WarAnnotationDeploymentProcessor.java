@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Map.Entry;
 
 import javax.annotation.security.DeclareRoles;
@@ -40,10 +41,12 @@ import org.jboss.annotation.javaee.DisplayNames;
 import org.jboss.annotation.javaee.Icons;
 import org.jboss.as.ee.structure.DeploymentType;
 import org.jboss.as.ee.structure.DeploymentTypeMarker;
+import org.jboss.as.server.deployment.AttachmentKey;
+import org.jboss.as.server.deployment.Attachments;
+import org.jboss.as.server.deployment.ConcurrentDeploymentUnitProcessor;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
 import org.jboss.as.server.deployment.DeploymentUnit;
 import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
-import org.jboss.as.server.deployment.DeploymentUnitProcessor;
 import org.jboss.as.server.deployment.annotation.AnnotationIndexUtils;
 import org.jboss.as.server.deployment.module.ResourceRoot;
 import org.jboss.jandex.AnnotationInstance;
@@ -87,7 +90,15 @@ import org.jboss.metadata.web.spec.WebMetaData;
  * @author Emanuel Muckenhuber
  * @author Remy Maucherat
  */
-public class WarAnnotationDeploymentProcessor implements DeploymentUnitProcessor {
+public class WarAnnotationDeploymentProcessor implements ConcurrentDeploymentUnitProcessor {
+
+    private static final Set<AttachmentKey<?>> CONSUMED = AttachmentKey.setOf(
+            org.jboss.as.ee.structure.Attachments.DEPLOYMENT_TYPE,
+            Attachments.PROCESS_CHILD_ANNOTATION_INDEX,
+            Attachments.RESOURCE_ROOTS,
+            Attachments.DEPLOYMENT_ROOT,
+            Attachments.ANNOTATION_INDEX);
+    private static final Set<AttachmentKey<?>> PRODUCED = AttachmentKey.setOf(WarMetaData.ATTACHMENT_KEY);
 
     private static final DotName webFilter = DotName.createSimple(WebFilter.class.getName());
     private static final DotName webListener = DotName.createSimple(WebListener.class.getName());
@@ -125,6 +136,14 @@ public class WarAnnotationDeploymentProcessor implements DeploymentUnitProcessor
     public void undeploy(final DeploymentUnit context) {
     }
 
+    public Set<AttachmentKey<?>> getConsumedAttachments() {
+        return CONSUMED;
+    }
+
+    public Set<AttachmentKey<?>> getProducedAttachments() {
+        return PRODUCED;
+    }
+
     /**
      * Process a single index.
      *
@@ -23,17 +23,19 @@ package org.jboss.as.web.deployment;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Set;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamReader;
 
 import org.jboss.as.ee.structure.DeploymentType;
 import org.jboss.as.ee.structure.DeploymentTypeMarker;
+import org.jboss.as.server.deployment.AttachmentKey;
 import org.jboss.as.server.deployment.Attachments;
+import org.jboss.as.server.deployment.ConcurrentDeploymentUnitProcessor;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
 import org.jboss.as.server.deployment.DeploymentUnit;
 import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
-import org.jboss.as.server.deployment.DeploymentUnitProcessor;
 import org.jboss.as.server.deployment.module.ResourceRoot;
 import org.jboss.metadata.parser.servlet.WebMetaDataParser;
 import org.jboss.metadata.parser.util.NoopXmlResolver;
@@ -42,7 +44,12 @@ import org.jboss.vfs.VirtualFile;
 /**
  * @author Jean-Frederic Clere
  */
-public class WebParsingDeploymentProcessor implements DeploymentUnitProcessor {
+public class WebParsingDeploymentProcessor implements ConcurrentDeploymentUnitProcessor {
+
+    private static final Set<AttachmentKey<?>> CONSUMED = AttachmentKey.setOf(
+            org.jboss.as.ee.structure.Attachments.DEPLOYMENT_TYPE,
+            Attachments.DEPLOYMENT_ROOT);
+    private static final Set<AttachmentKey<?>> PRODUCED = AttachmentKey.setOf(WarMetaData.ATTACHMENT_KEY);
 
     private static final String WEB_XML = "WEB-INF/web.xml";
 
@@ -79,4 +86,12 @@ public class WebParsingDeploymentProcessor implements DeploymentUnitProcessor {
 
     public void undeploy(final DeploymentUnit context) {
     }
+
+    public Set<AttachmentKey<?>> getConsumedAttachments() {
+        return CONSUMED;
+    }
+
+    public Set<AttachmentKey<?>> getProducedAttachments() {
+        return PRODUCED;
+    }
 }
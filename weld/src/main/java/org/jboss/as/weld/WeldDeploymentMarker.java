@@ -32,7 +32,7 @@ import org.jboss.as.server.deployment.DeploymentUnit;
  */
 public class WeldDeploymentMarker {
 
-    private static final AttachmentKey<Boolean> MARKER = AttachmentKey.create(Boolean.class);
+    public static final AttachmentKey<Boolean> MARKER = AttachmentKey.create(Boolean.class);
 
     /**
      * Mark the top level deployment as being a weld deployment. If the delpoyment is not a top level deployment the parent is
@@ -23,12 +23,13 @@ package org.jboss.as.weld.deployment.processors;
 
 import org.jboss.as.ee.structure.DeploymentType;
 import org.jboss.as.ee.structure.DeploymentTypeMarker;
+import org.jboss.as.server.deployment.AttachmentKey;
 import org.jboss.as.server.deployment.AttachmentList;
 import org.jboss.as.server.deployment.Attachments;
+import org.jboss.as.server.deployment.ConcurrentDeploymentUnitProcessor;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
 import org.jboss.as.server.deployment.DeploymentUnit;
 import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
-import org.jboss.as.server.deployment.DeploymentUnitProcessor;
 import org.jboss.as.server.deployment.SubDeploymentMarker;
 import org.jboss.as.server.deployment.module.ModuleRootMarker;
 import org.jboss.as.server.deployment.module.ResourceRoot;
@@ -49,7 +50,17 @@ import java.util.Set;
  * @author Stuart Douglas
  *
  */
-public class BeansXmlProcessor implements DeploymentUnitProcessor {
+public class BeansXmlProcessor implements ConcurrentDeploymentUnitProcessor {
+
+    private static final Set<AttachmentKey<?>> CONSUMED = AttachmentKey.setOf(
+            org.jboss.as.ee.structure.Attachments.DEPLOYMENT_TYPE,
+            Attachments.DEPLOYMENT_ROOT,
+            Attachments.RESOURCE_ROOTS,
+            ModuleRootMarker.MODULE_ROOT_MARKER,
+            SubDeploymentMarker.SUB_DEPLOYMENT_ROOT_MARKER);
+    private static final Set<AttachmentKey<?>> PRODUCED = AttachmentKey.setOf(
+            WeldDeploymentMetadata.ATTACHMENT_KEY,
+            WeldDeploymentMarker.MARKER);
 
     private static final Logger log = Logger.getLogger("org.jboss.weld");
 
@@ -121,6 +132,16 @@ public class BeansXmlProcessor implements DeploymentUnitProcessor {
 
     }
 
+    @Override
+    public Set<AttachmentKey<?>> getConsumedAttachments() {
+        return CONSUMED;
+    }
+
+    @Override
+    public Set<AttachmentKey<?>> getProducedAttachments() {
+        return PRODUCED;
+    }
+
     private BeansXml parseBeansXml(VirtualFile beansXmlFile, BeansXmlParser parser) throws DeploymentUnitProcessingException {
         try {
             return parser.parse(beansXmlFile.asFileURL());